@@ -26,6 +26,11 @@ public class AudioDispatcher implements Runnable {
     private float[] audioFloatBuffer;
     private byte[] audioByteBuffer;
     
+    /**
+     * The event handed to the processors, reused for every block.
+     */
+    private final AudioEvent audioEvent;
+    
     private long bytesProcessed;
     private boolean stopped;
     
@@ -49,6 +54,7 @@ public class AudioDispatcher implements Runnable {
         
         this.bytesProcessed = 0;
         this.stopped = false;
+        this.audioEvent = new AudioEvent(audioFormat, 0);
     }
     
     /**
@@ -88,14 +94,14 @@ public class AudioDispatcher implements Runnable {
                 // Convert bytes to floats
                 convertBytesToFloats();
                 
-                // Create audio event
-                AudioEvent audioEvent = new AudioEvent(audioFormat, bytesProcessed);
+                // Update the reused audio event
                 audioEvent.setFloatBuffer(audioFloatBuffer);
                 audioEvent.setOverlap(bufferOverlap);
+                audioEvent.setBytesProcessed(bytesProcessed);
                 
                 // Process audio
-                for (AudioProcessor processor : audioProcessors) {
-                    if (!processor.process(audioEvent)) {
+                for (int i = 0; i < audioProcessors.size(); i++) {
+                    if (!audioProcessors.get(i).process(audioEvent)) {
                         // Processor requested stop
                         stopped = true;
                         break;
@@ -18,6 +18,11 @@ public class AndroidAudioPlayer implements AudioProcessor {
     private final int sampleRate;
     private final int bufferSize;
     
+    /**
+     * The 16-bit PCM samples written to the track, reused for every buffer.
+     */
+    private byte[] audioByteBuffer = new byte[0];
+    
     /**
      * Constructs a new AndroidAudioPlayer.
      * 
@@ -57,7 +62,9 @@ public class AndroidAudioPlayer implements AudioProcessor {
     @Override
     public boolean process(AudioEvent audioEvent) {
         float[] audioFloatBuffer = audioEvent.getFloatBuffer();
-        byte[] audioByteBuffer = new byte[audioFloatBuffer.length * 2];
+        if (audioByteBuffer.length != audioFloatBuffer.length * 2) {
+            audioByteBuffer = new byte[audioFloatBuffer.length * 2];
+        }
         
         // Convert float samples to 16-bit PCM
         for (int i = 0; i < audioFloatBuffer.length; i++) {
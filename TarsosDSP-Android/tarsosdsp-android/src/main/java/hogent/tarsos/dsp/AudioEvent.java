@@ -56,6 +56,11 @@ public class AudioEvent {
 	 */
 	private byte[] byteBuffer;
 	
+	/**
+	 * Reused target for the short and byte buffer conversions.
+	 */
+	private float[] convertedFloatBuffer;
+	
 	/**
 	 * The overlap in samples. 
 	 */
@@ -136,19 +141,46 @@ public class AudioEvent {
 		return byteBuffer;
 	}
 	
+	/**
+	 * Converts signed 16 bit samples to floats. The converted samples are
+	 * stored in an array owned by this event, which is reused as long as the
+	 * length does not change.
+	 * 
+	 * @param shortBuffer
+	 *            The signed 16 bit samples.
+	 */
 	public void setFloatBufferWithShortBuffer(short[] shortBuffer) {
-		this.floatBuffer = new float[shortBuffer.length];
+		this.floatBuffer = conversionBuffer(shortBuffer.length);
 		for (int i = 0; i < shortBuffer.length; i++) {
 			this.floatBuffer[i] = (float) shortBuffer[i] / 32768.0f; // signed 16 bit
 		}
 	}
 	
+	/**
+	 * Converts bytes, encoded according to the format of this event, to
+	 * floats. The converted samples are stored in an array owned by this
+	 * event, which is reused as long as the length does not change.
+	 * 
+	 * @param byteBuffer
+	 *            The audio data in bytes.
+	 */
 	public void setFloatBufferWithByteBuffer(byte[] byteBuffer) {
 		int length = (int)(byteBuffer.length / (float)(format.getFrameSize()));
-		this.floatBuffer = new float[length];
+		this.floatBuffer = conversionBuffer(length);
 		converter.toFloatArray(byteBuffer, this.floatBuffer);
 	}
 	
+	/**
+	 * The conversion buffer is never handed out by a dispatcher, so it can be
+	 * overwritten without touching the samples a dispatcher keeps for overlap.
+	 */
+	private float[] conversionBuffer(int length){
+		if(convertedFloatBuffer == null || convertedFloatBuffer.length != length){
+			convertedFloatBuffer = new float[length];
+		}
+		return convertedFloatBuffer;
+	}
+	
 	public void setFloatBuffer(float[] floatBuffer) {
 		this.floatBuffer = floatBuffer;
 	}
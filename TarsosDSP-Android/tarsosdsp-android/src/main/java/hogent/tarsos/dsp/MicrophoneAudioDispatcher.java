@@ -247,8 +247,9 @@ public final class MicrophoneAudioDispatcher implements Runnable {
                 audioEvent.setFloatBuffer(audioFloatBuffer);
                 audioEvent.setBytesProcessed(bytesProcessed);
 
-                for (final AudioProcessor processor : audioProcessors) {
-                    if (!processor.process(audioEvent)) {
+                // Indexed loop: an iterator would be allocated for every buffer.
+                for (int i = 0; i < audioProcessors.size(); i++) {
+                    if (!audioProcessors.get(i).process(audioEvent)) {
                         break audioLoop;
                     }
                 }
@@ -292,8 +293,8 @@ public final class MicrophoneAudioDispatcher implements Runnable {
         if (bytesRead != -1 && !stopped) {
             converter.toFloatArray(audioByteBuffer, audioFloatBuffer);
 
-            for (final AudioProcessor processor : audioProcessors) {
-                if (!processor.process(audioEvent)) {
+            for (int i = 0; i < audioProcessors.size(); i++) {
+                if (!audioProcessors.get(i).process(audioEvent)) {
                     break;
                 }
             }
@@ -312,8 +313,8 @@ public final class MicrophoneAudioDispatcher implements Runnable {
      */
     public void stop() {
         stopped = true;
-        for (final AudioProcessor processor : audioProcessors) {
-            processor.processingFinished();
+        for (int i = 0; i < audioProcessors.size(); i++) {
+            audioProcessors.get(i).processingFinished();
         }
         audioInputStream.release();
     }
@@ -66,6 +66,14 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	 */
 	private final float[] dev1;
 	
+	/**
+	 * Scratch buffers for the FFT of the current frame, reused for every
+	 * frame. The FFT is done in place, so the audio buffer is copied first.
+	 */
+	private float[] data;
+	private float[] power;
+	private float[] phase;
+	
 	/**
 	 * 
 	 * @param fftSize The size of the fft to take (e.g. 512)
@@ -86,6 +94,10 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 		theta1 = new float[rsize];
 		theta2 = new float[rsize];
 		
+		data = new float[fftSize];
+		power = new float[fftSize/2];
+		phase = new float[fftSize/2];
+		
 		handler = new PrintOnsetHandler();
 	}
 	
@@ -110,9 +122,13 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	
 	private void onsetDetection(AudioEvent audioEvent){
 		//calculate the complex fft (the magnitude and phase)
-		float[] data = audioEvent.getFloatBuffer().clone();
-		float[] power = new float[data.length/2];
-		float[] phase = new float[data.length/2];
+		float[] buffer = audioEvent.getFloatBuffer();
+		if(data.length != buffer.length){
+			data = new float[buffer.length];
+			power = new float[buffer.length/2];
+			phase = new float[buffer.length/2];
+		}
+		System.arraycopy(buffer, 0, data, 0, buffer.length);
 		fft.powerPhaseFFT(data, power, phase);
 		
 		float onsetValue = 0;
@@ -0,0 +1,80 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the audio samples handled by a benchmark. JMH normalizes the counter
+ * like the primary result, so in average time mode it is reported as the time
+ * needed per sample. {@link BenchmarkMain} turns that into a realtime factor.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class AudioCounter {
+	
+	/**
+	 * The sample rate used by all benchmarks, in Hz.
+	 */
+	public static final int SAMPLE_RATE = 44100;
+	
+	/**
+	 * The number of samples handled in the current iteration.
+	 */
+	public long samples;
+	
+	@Setup(Level.Iteration)
+	public void reset(){
+		samples = 0;
+	}
+	
+	/**
+	 * A test signal: two harmonic tones and a bit of noise, with a fixed seed
+	 * so every fork analyses the same audio.
+	 * 
+	 * @param length
+	 *            The number of samples.
+	 * @return The signal, between -1.0 and 1.0.
+	 */
+	public static float[] testSignal(int length){
+		Random random = new Random(length);
+		float[] signal = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			double t = i / (double) SAMPLE_RATE;
+			signal[i] = (float) (0.4 * Math.sin(2 * Math.PI * 220 * t) + 0.2 * Math.sin(2 * Math.PI * 440 * t)
+					+ 0.1 * Math.sin(2 * Math.PI * 659.25 * t) + 0.05 * (random.nextFloat() - 0.5));
+		}
+		return signal;
+	}
+}
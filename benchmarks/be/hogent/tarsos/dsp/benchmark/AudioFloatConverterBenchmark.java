@@ -0,0 +1,113 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioFormat.Encoding;
+import be.hogent.tarsos.dsp.util.AudioFloatConverter;
+
+/**
+ * Every {@link AudioFloatConverter} variant, in both directions. A variant is
+ * named after its encoding (S signed, U unsigned, F float), the sample size in
+ * bits and the byte order. 20 bit samples use the LSB filter around the 24 bit
+ * converter, 48 bit samples the generic 32+ bit converters.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioFloatConverterBenchmark {
+	
+	@Param({"S8", "U8", "S16LE", "S16BE", "U16LE", "U16BE", "S20LE", "S24LE", "S24BE", "U24LE", "U24BE",
+			"S32LE", "S32BE", "U32LE", "U32BE", "S48LE", "S48BE", "U48LE", "U48BE", "F32LE", "F32BE", "F64LE",
+			"F64BE"})
+	public String variant;
+	
+	@Param({"1024", "8192"})
+	public int bufferSize;
+	
+	private AudioFloatConverter converter;
+	private float[] floats;
+	private byte[] bytes;
+	
+	@Setup
+	public void setUp(){
+		AudioFormat format = parseVariant(variant);
+		converter = AudioFloatConverter.getConverter(format);
+		floats = AudioCounter.testSignal(bufferSize);
+		bytes = new byte[bufferSize * format.getFrameSize()];
+		converter.toByteArray(floats, bytes);
+	}
+	
+	private static AudioFormat parseVariant(String variant){
+		Encoding encoding;
+		switch(variant.charAt(0)){
+		case 'S':
+			encoding = Encoding.PCM_SIGNED;
+			break;
+		case 'U':
+			encoding = Encoding.PCM_UNSIGNED;
+			break;
+		default:
+			encoding = AudioFloatConverter.PCM_FLOAT;
+		}
+		boolean bigEndian = variant.endsWith("BE");
+		int end = variant.endsWith("LE") || bigEndian ? variant.length() - 2 : variant.length();
+		int bits = Integer.parseInt(variant.substring(1, end));
+		int frameSize = (bits + 7) / 8;
+		return new AudioFormat(encoding, AudioCounter.SAMPLE_RATE, bits, 1, frameSize, AudioCounter.SAMPLE_RATE, bigEndian);
+	}
+	
+	@Benchmark
+	public float[] toFloatArray(AudioCounter counter){
+		counter.samples += bufferSize;
+		return converter.toFloatArray(bytes, floats);
+	}
+	
+	@Benchmark
+	public byte[] toByteArray(AudioCounter counter){
+		counter.samples += bufferSize;
+		return converter.toByteArray(floats, bytes);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and prints a summary with, for each
+ * benchmark, the time per operation, the bytes allocated per operation and the
+ * realtime factor: the duration of the audio handled in one operation divided
+ * by the time it took. A realtime factor of 100 means an hour of audio is
+ * analysed in 36 seconds; when frames overlap, divide it by the overlap factor.
+ * 
+ * <p>
+ * The arguments are regular JMH command line options, e.g.
+ * {@code gradlew jmh -PjmhArgs="FFTBenchmark -p bufferSize=1024"}. Without a
+ * benchmark pattern all benchmarks in this package are run.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class BenchmarkMain {
+	
+	private BenchmarkMain(){
+	}
+	
+	public static void main(String... args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+		if(commandLine.getIncludes().isEmpty()){
+			options.include(BenchmarkMain.class.getPackage().getName() + ".*");
+		}
+		Collection<RunResult> results = new Runner(options.build()).run();
+		printSummary(results, System.out);
+	}
+	
+	static void printSummary(Collection<RunResult> results, PrintStream out){
+		String format = "%-70s %14s %12s %12s%n";
+		out.println();
+		out.printf(Locale.US, format, "Benchmark", "ns/op", "B/op", "realtime");
+		for(RunResult result : results){
+			Result<?> primary = result.getPrimaryResult();
+			Map<String, Result> secondary = result.getSecondaryResults();
+			String time = "ns/op".equals(primary.getScoreUnit()) ? String.format(Locale.US, "%.1f", primary.getScore()) : "-";
+			Result<?> allocation = find(secondary, "gc.alloc.rate.norm");
+			String bytes = allocation == null ? "-" : String.format(Locale.US, "%.0f", allocation.getScore());
+			Result<?> samples = find(secondary, "samples");
+			String realtime = "-";
+			if(samples != null && "ns/op".equals(samples.getScoreUnit()) && samples.getScore() > 0){
+				double secondsPerAudioSecond = samples.getScore() * AudioCounter.SAMPLE_RATE / 1e9;
+				realtime = String.format(Locale.US, "%.1fx", 1 / secondsPerAudioSecond);
+			}
+			out.printf(Locale.US, format, describe(result.getParams()), time, bytes, realtime);
+		}
+	}
+	
+	/**
+	 * Finds a secondary result by name. The GC profiler prefixes its results
+	 * with a middle dot in older JMH versions.
+	 */
+	private static Result<?> find(Map<String, Result> results, String name){
+		for(Map.Entry<String, Result> entry : results.entrySet()){
+			if(entry.getKey().equals(name) || entry.getKey().endsWith("\u00b7" + name)){
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+	
+	private static String describe(BenchmarkParams params){
+		String benchmark = params.getBenchmark();
+		StringBuilder description = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+		for(String key : params.getParamsKeys()){
+			description.append(' ').append(key).append('=').append(params.getParam(key));
+		}
+		return description.toString();
+	}
+}
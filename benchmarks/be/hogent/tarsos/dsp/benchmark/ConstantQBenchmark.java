@@ -0,0 +1,136 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.MultirateConstantQ;
+
+/**
+ * The constant-Q transform of six octaves from 110Hz. The FFT length, and so
+ * the frame length, follows from the number of bins per octave. The transforms
+ * work in place, so each frame is copied first.
+ * <ul>
+ * <li>{@link #calculate(AudioCounter)} and
+ * {@link #calculateMagnitudes(AudioCounter)}: one frame.</li>
+ * <li>{@link #multirate(AudioCounter)}: the magnitudes of one frame with
+ * {@link MultirateConstantQ}, which decimates the frame for the lower
+ * octaves.</li>
+ * <li>{@link #spectrogram(AudioCounter)} and
+ * {@link #spectrogramPerFrame(AudioCounter)}: the magnitudes of 16 frames a
+ * hop of 1024 samples apart, with the multi-frame call or one frame at a time.
+ * The counter counts the hops.</li>
+ * </ul>
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstantQBenchmark {
+	
+	private static final int FRAMES = 16;
+	private static final int HOP_SIZE = 1024;
+	
+	@Param({"12", "24", "36"})
+	public int binsPerOctave;
+	
+	private ConstantQ constantQ;
+	private MultirateConstantQ multirate;
+	private float[] buffer;
+	private float[] work;
+	private float[] signal;
+	private float[] magnitudes;
+	
+	@Setup
+	public void setUp(){
+		constantQ = new ConstantQ(AudioCounter.SAMPLE_RATE, 110, 7040, binsPerOctave);
+		multirate = new MultirateConstantQ(AudioCounter.SAMPLE_RATE, 110, 7040, binsPerOctave);
+		buffer = AudioCounter.testSignal(constantQ.getFFTlength());
+		work = new float[buffer.length];
+		signal = AudioCounter.testSignal((FRAMES - 1) * HOP_SIZE + buffer.length);
+		magnitudes = new float[FRAMES * constantQ.getNumberOfOutputBands()];
+	}
+	
+	@Benchmark
+	public float[] calculate(AudioCounter counter){
+		System.arraycopy(buffer, 0, work, 0, buffer.length);
+		constantQ.calculate(work);
+		counter.samples += buffer.length;
+		return constantQ.getCoefficients();
+	}
+	
+	@Benchmark
+	public float[] calculateMagnitudes(AudioCounter counter){
+		System.arraycopy(buffer, 0, work, 0, buffer.length);
+		constantQ.calculateMagnitudes(work);
+		counter.samples += buffer.length;
+		return constantQ.getMagnitudes();
+	}
+	
+	@Benchmark
+	public float[] multirate(AudioCounter counter){
+		System.arraycopy(buffer, 0, work, 0, buffer.length);
+		multirate.calculateMagnitudes(work);
+		counter.samples += buffer.length;
+		return multirate.getMagnitudes();
+	}
+	
+	@Benchmark
+	public float[] spectrogram(AudioCounter counter){
+		constantQ.calculateMagnitudes(signal, 0, HOP_SIZE, FRAMES, magnitudes);
+		counter.samples += FRAMES * HOP_SIZE;
+		return magnitudes;
+	}
+	
+	@Benchmark
+	public float[] spectrogramPerFrame(AudioCounter counter){
+		final int bins = constantQ.getNumberOfOutputBands();
+		for(int frame = 0 ; frame < FRAMES ; frame++){
+			System.arraycopy(signal, frame * HOP_SIZE, work, 0, work.length);
+			constantQ.calculateMagnitudes(work);
+			System.arraycopy(constantQ.getMagnitudes(), 0, magnitudes, frame * bins, bins);
+		}
+		counter.samples += FRAMES * HOP_SIZE;
+		return magnitudes;
+	}
+}
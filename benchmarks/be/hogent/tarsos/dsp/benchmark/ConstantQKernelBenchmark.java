@@ -0,0 +1,80 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.ConstantQKernel;
+
+/**
+ * Creating a constant-Q transform of six octaves from 110Hz.
+ * {@link #cached()} finds the spectral kernel in the {@link ConstantQKernel}
+ * cache, {@link #uncached()} clears the cache first and so builds the kernel,
+ * an FFT per bin. No audio is handled, the realtime factor is not reported.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstantQKernelBenchmark {
+	
+	@Param({"12", "24", "36"})
+	public int binsPerOctave;
+	
+	@Setup
+	public void setUp(){
+		ConstantQKernel.clear();
+		new ConstantQ(AudioCounter.SAMPLE_RATE, 110, 7040, binsPerOctave);
+	}
+	
+	@Benchmark
+	public ConstantQ cached(){
+		return new ConstantQ(AudioCounter.SAMPLE_RATE, 110, 7040, binsPerOctave);
+	}
+	
+	@Benchmark
+	public ConstantQ uncached(){
+		ConstantQKernel.clear();
+		return new ConstantQ(AudioCounter.SAMPLE_RATE, 110, 7040, binsPerOctave);
+	}
+}
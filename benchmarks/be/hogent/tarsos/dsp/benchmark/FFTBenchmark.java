@@ -0,0 +1,94 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+
+/**
+ * Real and complex forward transforms of {@link FloatFFT}. Powers of two use
+ * the split radix plan, 1000 the mixed radix plan and the primes 1021 and 4099
+ * the Bluestein plan. The transform works in place, so the input is copied
+ * into the work buffer first; the copy is part of the measurement.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFTBenchmark {
+	
+	@Param({"512", "1024", "4096", "16384", "1000", "1021", "4099"})
+	public int bufferSize;
+	
+	private FloatFFT fft;
+	private float[] input;
+	private float[] complexInput;
+	private float[] work;
+	
+	@Setup
+	public void setUp(){
+		fft = new FloatFFT(bufferSize);
+		input = AudioCounter.testSignal(bufferSize);
+		complexInput = new float[bufferSize * 2];
+		for(int i = 0 ; i < bufferSize ; i++){
+			complexInput[2 * i] = input[i];
+		}
+		work = new float[bufferSize * 2];
+	}
+	
+	@Benchmark
+	public float[] realForward(AudioCounter counter){
+		System.arraycopy(input, 0, work, 0, bufferSize);
+		fft.realForward(work);
+		counter.samples += bufferSize;
+		return work;
+	}
+	
+	@Benchmark
+	public float[] complexForward(AudioCounter counter){
+		System.arraycopy(complexInput, 0, work, 0, work.length);
+		fft.complexForward(work);
+		counter.samples += bufferSize;
+		return work;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.stft.ISTFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTFrame;
+import be.hogent.tarsos.dsp.stft.STFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTProcessor.Representation;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * Analysis and resynthesis of a stream of overlapping buffers with Hann
+ * windows: each operation steps one hop through ten seconds of the test signal
+ * and hands the buffer to an {@link STFTProcessor} with complex frames.
+ * {@link #resynthesis(AudioCounter)} adds an {@link ISTFTProcessor} without a
+ * spectrum editor, which replaces the buffer with a hop of output. The counter
+ * counts the hop, the new audio of each buffer, so the realtime factor is the
+ * one of the stream.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISTFTBenchmark {
+	
+	@Param({"1024", "4096"})
+	public int bufferSize;
+	
+	@Param({"4", "2"})
+	public int overlapFactor;
+	
+	private int hopSize;
+	private STFTProcessor analysis;
+	private STFTProcessor resynthesisAnalysis;
+	private ISTFTProcessor resynthesis;
+	private AudioEvent event;
+	private float[] signal;
+	private float[] buffer;
+	private int position;
+	
+	@Setup
+	public void setUp(){
+		hopSize = bufferSize / overlapFactor;
+		analysis = new STFTProcessor(bufferSize, new HannWindow(), Representation.COMPLEX);
+		resynthesisAnalysis = new STFTProcessor(bufferSize, new HannWindow(), Representation.COMPLEX);
+		resynthesis = new ISTFTProcessor(resynthesisAnalysis, hopSize, new HannWindow(), null);
+		event = new AudioEvent(new AudioFormat(AudioCounter.SAMPLE_RATE, 16, 1, true, false), 0);
+		event.setOverlap(bufferSize - hopSize);
+		signal = AudioCounter.testSignal(10 * AudioCounter.SAMPLE_RATE);
+		buffer = new float[bufferSize];
+		position = 0;
+	}
+	
+	/**
+	 * Copies the next buffer of the stream and sets it on the event.
+	 */
+	private void nextBuffer(){
+		if(position + bufferSize > signal.length){
+			position = 0;
+		}
+		System.arraycopy(signal, position, buffer, 0, bufferSize);
+		position += hopSize;
+		event.setFloatBuffer(buffer);
+	}
+	
+	@Benchmark
+	public STFTFrame analysis(AudioCounter counter){
+		nextBuffer();
+		analysis.process(event);
+		counter.samples += hopSize;
+		return analysis.getFrame();
+	}
+	
+	@Benchmark
+	public float[] resynthesis(AudioCounter counter){
+		nextBuffer();
+		resynthesisAnalysis.process(event);
+		resynthesis.process(event);
+		counter.samples += hopSize;
+		return event.getFloatBuffer();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.mfcc.MFCC;
+
+/**
+ * The MFCC of one frame, with 50 mel filters from 300 to 3000Hz and 40
+ * coefficients. {@link #process(AudioCounter)} measures
+ * {@link MFCC#process(AudioEvent)}, which uses the precomputed filter bank and
+ * DCT basis and does not allocate. {@link #steps(AudioCounter)} measures the
+ * public step methods it replaced: the frame is copied, because the FFT works
+ * in place, followed by the magnitude spectrum, the mel filter bank, the
+ * logarithm and the DCT.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MFCCBenchmark {
+	
+	@Param({"512", "1024", "2048", "4096"})
+	public int bufferSize;
+	
+	private MFCC mfcc;
+	private AudioEvent event;
+	private float[] buffer;
+	private float[] coefficients;
+	
+	@Setup
+	public void setUp(){
+		mfcc = new MFCC(bufferSize, AudioCounter.SAMPLE_RATE, 40, 50, 300, 3000);
+		event = new AudioEvent(new AudioFormat(AudioCounter.SAMPLE_RATE, 16, 1, true, false), 0);
+		buffer = AudioCounter.testSignal(bufferSize);
+		coefficients = new float[40];
+	}
+	
+	@Benchmark
+	public float[] process(AudioCounter counter){
+		event.setFloatBuffer(buffer);
+		mfcc.process(event);
+		mfcc.getMFCC(coefficients);
+		counter.samples += bufferSize;
+		return coefficients;
+	}
+	
+	@Benchmark
+	public float[] steps(AudioCounter counter){
+		float[] frame = buffer.clone();
+		float[] bin = mfcc.magnitudeSpectrum(frame);
+		float[] fbank = mfcc.melFilter(bin, mfcc.getCenterFrequencies());
+		float[] f = mfcc.nonLinearTransformation(fbank);
+		counter.samples += bufferSize;
+		return mfcc.cepCoefficients(f);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.pitch.AMDF;
+import be.hogent.tarsos.dsp.pitch.FastYin;
+import be.hogent.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.hogent.tarsos.dsp.pitch.MultiFramePitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResults;
+
+/**
+ * A block of independent frames, e.g. one frame of each channel of a
+ * multichannel recording, stored one after the other in one array.
+ * {@link #block(AudioCounter)} hands the whole block to
+ * {@link MultiFramePitchDetector#getPitch(float[], int, int, int, PitchDetectionResults)},
+ * {@link #perFrame(AudioCounter)} copies each frame to a buffer and analyses
+ * it on its own, as a pitch processor per channel would.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiFramePitchBenchmark {
+	
+	@Param({"FAST_YIN", "MPM", "AMDF"})
+	public String detectorName;
+	
+	@Param({"1024", "2048"})
+	public int bufferSize;
+	
+	@Param({"4", "16"})
+	public int frameCount;
+	
+	private MultiFramePitchDetector detector;
+	private float[] samples;
+	private float[] buffer;
+	private PitchDetectionResults results;
+	
+	@Setup
+	public void setUp(){
+		if("FAST_YIN".equals(detectorName)){
+			detector = new FastYin(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else if("MPM".equals(detectorName)){
+			detector = new McLeodPitchMethod(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else if("AMDF".equals(detectorName)){
+			detector = new AMDF(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else{
+			throw new IllegalArgumentException("Unknown detector " + detectorName);
+		}
+		samples = AudioCounter.testSignal(frameCount * bufferSize);
+		buffer = new float[bufferSize];
+		results = new PitchDetectionResults(frameCount);
+	}
+	
+	@Benchmark
+	public PitchDetectionResults block(AudioCounter counter){
+		counter.samples += frameCount * bufferSize;
+		return detector.getPitch(samples, 0, bufferSize, frameCount, results);
+	}
+	
+	@Benchmark
+	public float perFrame(AudioCounter counter){
+		float sum = 0;
+		for(int frame = 0 ; frame < frameCount ; frame++){
+			System.arraycopy(samples, frame * bufferSize, buffer, 0, bufferSize);
+			sum += detector.getPitch(buffer).getPitch();
+		}
+		counter.samples += frameCount * bufferSize;
+		return sum;
+	}
+}
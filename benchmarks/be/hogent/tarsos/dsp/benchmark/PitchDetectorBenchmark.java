@@ -0,0 +1,88 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.pitch.AMDF;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+/**
+ * Every {@link PitchEstimationAlgorithm} on one buffer of a harmonic test
+ * signal. The detectors do not modify their input, so the same buffer is
+ * analysed over and over. AMDF can not detect its default lowest frequency in
+ * 512 samples, for that buffer size its range starts at 100Hz.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitchDetectorBenchmark {
+	
+	@Param
+	public PitchEstimationAlgorithm algorithm;
+	
+	@Param({"512", "1024", "2048", "4096", "8192"})
+	public int bufferSize;
+	
+	private PitchDetector detector;
+	private float[] buffer;
+	
+	@Setup
+	public void setUp(){
+		if(algorithm == PitchEstimationAlgorithm.AMDF && bufferSize < 1024){
+			// the default lowest frequency of AMDF, 82Hz, needs more than 512 samples
+			detector = new AMDF(AudioCounter.SAMPLE_RATE, bufferSize, 100, 1000);
+		}else{
+			detector = algorithm.getDetector(AudioCounter.SAMPLE_RATE, bufferSize);
+		}
+		buffer = AudioCounter.testSignal(bufferSize);
+	}
+	
+	@Benchmark
+	public PitchDetectionResult getPitch(AudioCounter counter){
+		counter.samples += bufferSize;
+		return detector.getPitch(buffer);
+	}
+}
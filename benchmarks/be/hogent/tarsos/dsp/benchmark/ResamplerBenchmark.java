@@ -0,0 +1,85 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.resample.RateTransposer;
+
+/**
+ * Sample rate conversion of one buffer. The resampler itself is package
+ * private, it is measured through {@link RateTransposer}, a thin wrapper that
+ * hands each buffer to the resampler.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResamplerBenchmark {
+	
+	@Param({"0.5", "0.8909", "1.5"})
+	public double factor;
+	
+	@Param({"1024", "4096"})
+	public int bufferSize;
+	
+	private RateTransposer transposer;
+	private AudioEvent event;
+	private float[] buffer;
+	
+	@Setup
+	public void setUp(){
+		transposer = new RateTransposer(factor);
+		event = new AudioEvent(new AudioFormat(AudioCounter.SAMPLE_RATE, 16, 1, true, false), 0);
+		buffer = AudioCounter.testSignal(bufferSize);
+	}
+	
+	@Benchmark
+	public float[] process(AudioCounter counter){
+		event.setFloatBuffer(buffer);
+		transposer.process(event);
+		counter.samples += bufferSize;
+		return event.getFloatBuffer();
+	}
+}
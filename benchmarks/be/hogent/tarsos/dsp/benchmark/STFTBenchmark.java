@@ -0,0 +1,110 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.stft.STFTFrame;
+import be.hogent.tarsos.dsp.stft.STFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTProcessor.Representation;
+import be.hogent.tarsos.dsp.stft.SpectrogramTileRenderer;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * One frame of the short-time Fourier transform, for each real
+ * {@link Representation}; complex frames are measured by
+ * {@link ISTFTBenchmark}. {@link #process(AudioCounter)} only fills the frame,
+ * {@link #processWithTiles(AudioCounter)} also renders it with a
+ * {@link SpectrogramTileRenderer} of 512 by 256 pixels, two frames per column.
+ * Setting the buffer detaches the spectrum, so each operation calculates it.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class STFTBenchmark {
+	
+	@Param({"MAGNITUDE", "POWER", "LOG_POWER"})
+	public Representation representation;
+	
+	@Param({"1024", "4096"})
+	public int bufferSize;
+	
+	private STFTProcessor stft;
+	private STFTProcessor stftWithTiles;
+	private AudioEvent event;
+	private float[] buffer;
+	
+	@Setup
+	public void setUp(){
+		stft = new STFTProcessor(bufferSize, new HannWindow(), representation);
+		float minimum = representation == Representation.LOG_POWER ? -100 : 0;
+		float maximum = representation == Representation.LOG_POWER ? 0 : 1;
+		SpectrogramTileRenderer renderer = new SpectrogramTileRenderer(512, 256, 2, minimum, maximum,
+				new SpectrogramTileRenderer.TileHandler() {
+					@Override
+					public void handleTile(int[] pixels, int columns, double timeStamp) {
+					}
+				});
+		stftWithTiles = new STFTProcessor(bufferSize, new HannWindow(), representation, renderer);
+		event = new AudioEvent(new AudioFormat(AudioCounter.SAMPLE_RATE, 16, 1, true, false), 0);
+		buffer = AudioCounter.testSignal(bufferSize);
+	}
+	
+	@Benchmark
+	public STFTFrame process(AudioCounter counter){
+		event.setFloatBuffer(buffer);
+		stft.process(event);
+		counter.samples += bufferSize;
+		return stft.getFrame();
+	}
+	
+	@Benchmark
+	public STFTFrame processWithTiles(AudioCounter counter){
+		event.setFloatBuffer(buffer);
+		stftWithTiles.process(event);
+		counter.samples += bufferSize;
+		return stftWithTiles.getFrame();
+	}
+}
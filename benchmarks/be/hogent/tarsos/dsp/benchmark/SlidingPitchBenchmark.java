@@ -0,0 +1,121 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.hogent.tarsos.dsp.pitch.AMDF;
+import be.hogent.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.Yin;
+
+/**
+ * Pitch detection on a stream of overlapping buffers, the way a dispatcher
+ * hands them out: each operation steps one hop through ten seconds of the test
+ * signal and copies the buffer. The detectors are:
+ * <ul>
+ * <li>YIN, MPM and AMDF: the direct difference function of every buffer.</li>
+ * <li>YIN_FFT: YIN with the difference function calculated with an FFT.</li>
+ * <li>YIN_SLIDING, MPM_SLIDING and AMDF_SLIDING: the difference function
+ * updated with the samples that enter and leave the buffer.</li>
+ * </ul>
+ * The counter counts the hop, the new audio of each buffer, so the realtime
+ * factor is the one of the stream.
+ * 
+ * @author Joren Six
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlidingPitchBenchmark {
+	
+	@Param({"YIN", "YIN_FFT", "YIN_SLIDING", "MPM", "MPM_SLIDING", "AMDF", "AMDF_SLIDING"})
+	public String detectorName;
+	
+	@Param({"1024", "2048"})
+	public int bufferSize;
+	
+	@Param({"64", "128", "256"})
+	public int hopSize;
+	
+	private PitchDetector detector;
+	private float[] signal;
+	private float[] buffer;
+	private int position;
+	
+	@Setup
+	public void setUp(){
+		int overlap = bufferSize - hopSize;
+		if("YIN".equals(detectorName)){
+			detector = new Yin(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else if("YIN_FFT".equals(detectorName)){
+			detector = new Yin(AudioCounter.SAMPLE_RATE, bufferSize, 0.20, true);
+		}else if("YIN_SLIDING".equals(detectorName)){
+			detector = new Yin(AudioCounter.SAMPLE_RATE, bufferSize, overlap, 0.20);
+		}else if("MPM".equals(detectorName)){
+			detector = new McLeodPitchMethod(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else if("MPM_SLIDING".equals(detectorName)){
+			detector = new McLeodPitchMethod(AudioCounter.SAMPLE_RATE, bufferSize, overlap, 0.97);
+		}else if("AMDF".equals(detectorName)){
+			detector = new AMDF(AudioCounter.SAMPLE_RATE, bufferSize);
+		}else if("AMDF_SLIDING".equals(detectorName)){
+			detector = new AMDF(AudioCounter.SAMPLE_RATE, bufferSize, overlap);
+		}else{
+			throw new IllegalArgumentException("Unknown detector " + detectorName);
+		}
+		signal = AudioCounter.testSignal(10 * AudioCounter.SAMPLE_RATE);
+		buffer = new float[bufferSize];
+		position = 0;
+	}
+	
+	@Benchmark
+	public PitchDetectionResult getPitch(AudioCounter counter){
+		if(position + bufferSize > signal.length){
+			// Starts over with a buffer that does not continue the previous one.
+			position = 0;
+		}
+		System.arraycopy(signal, position, buffer, 0, bufferSize);
+		position += hopSize;
+		counter.samples += hopSize;
+		return detector.getPitch(buffer);
+	}
+}
@@ -33,6 +33,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import be.hogent.tarsos.dsp.metrics.ProcessingMetrics;
 import be.hogent.tarsos.dsp.util.AudioFloatConverter;
 
 /**
@@ -115,6 +116,11 @@ public final class AndroidAudioDispatcher implements Runnable {
      */
     private boolean zeroPad;
 
+    /**
+     * Optional instrumentation of the processing chain, null when disabled.
+     */
+    private ProcessingMetrics metrics;
+
     /**
      * Create a new AndroidAudioDispatcher connected to a file.
      * 
@@ -252,10 +258,8 @@ public final class AndroidAudioDispatcher implements Runnable {
                 audioEvent.setFloatBuffer(audioFloatBuffer);
                 audioEvent.setBytesProcessed(bytesProcessed);
 
-                for (final AudioProcessor processor : audioProcessors) {
-                    if (!processor.process(audioEvent)) {
-                        break audioLoop;
-                    }
+                if (!dispatch(bytesRead, byteStepSize)) {
+                    break audioLoop;
                 }
 
                 // Update the number of bytes processed;
@@ -296,11 +300,7 @@ public final class AndroidAudioDispatcher implements Runnable {
         if (bytesRead > 0 && !stopped) {
             converter.toFloatArray(audioByteBuffer, audioFloatBuffer);
 
-            for (final AudioProcessor processor : audioProcessors) {
-                if (!processor.process(audioEvent)) {
-                    break;
-                }
-            }
+            dispatch(bytesRead, audioByteBuffer.length);
             // Update the number of bytes processed;
             bytesProcessed += bytesRead;
 
@@ -310,6 +310,27 @@ public final class AndroidAudioDispatcher implements Runnable {
         return bytesRead;
     }
 
+    /**
+     * Sends the current buffer through the chain of processors.
+     * 
+     * @param bytesRead The number of new bytes in the buffer.
+     * @param bytesRequested The number of bytes requested from the source.
+     * @return False if a processor stopped the chain, true otherwise.
+     */
+    private boolean dispatch(final int bytesRead, final int bytesRequested) {
+        if (metrics != null) {
+            return metrics.process(audioProcessors, audioEvent, bytesRead / format.getFrameSize(),
+                    bytesRequested / format.getFrameSize());
+        }
+        // Indexed loop: an iterator would be allocated for every buffer on Android.
+        for (int i = 0; i < audioProcessors.size(); i++) {
+            if (!audioProcessors.get(i).process(audioEvent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Stops dispatching audio data.
      */
@@ -357,6 +378,24 @@ public final class AndroidAudioDispatcher implements Runnable {
         return bytesRead;
     }
 
+    /**
+     * Enables or disables the instrumentation of the processing chain. Set it
+     * before the dispatcher runs. Without metrics the chain is not
+     * instrumented at all.
+     * 
+     * @param metrics The metrics to record to, or null to disable recording.
+     */
+    public void setMetrics(final ProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics of the processing chain, or null when disabled.
+     */
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
     public AudioFormat getFormat() {
         return format;
     }
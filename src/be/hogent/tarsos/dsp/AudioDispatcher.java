@@ -0,0 +1,736 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+import be.hogent.tarsos.dsp.metrics.ProcessingMetrics;
+import be.hogent.tarsos.dsp.util.AudioFloatConverter;
+
+/**
+ * This class reads an audio stream and sends float arrays to registered
+ * AudioProcessor implementors. It is the platform neutral counterpart of the
+ * {@link MicrophoneAudioDispatcher} and {@link AndroidAudioDispatcher}: it
+ * only depends on <code>java.io</code> and <code>javax.sound.sampled</code> so
+ * it can be used on any JVM, e.g. for batch analysis on a server.
+ * <p>
+ * Consecutive buffers overlap by a configurable number of samples. The byte
+ * and float buffers are allocated once and reused for every block of audio.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class AudioDispatcher implements Runnable {
+
+    /**
+     * Log messages.
+     */
+    private static final Logger LOG = Logger.getLogger(AudioDispatcher.class.getName());
+
+    /**
+     * The audio stream (in bytes), conversion to float happens at the last
+     * moment.
+     */
+    private final InputStream audioInputStream;
+
+    /**
+     * A memory mapped file, used instead of the input stream. Samples are
+     * converted directly from the mapped file to the float buffer.
+     */
+    private final MappedAudioFile mappedAudioFile;
+
+    /**
+     * This buffer is reused again and again to store audio data using the float
+     * data type.
+     */
+    private float[] audioFloatBuffer;
+
+    /**
+     * This buffer is reused again and again to store audio data using the byte
+     * data type.
+     */
+    private byte[] audioByteBuffer;
+
+    /**
+     * A list of registered audio processors. The audio processors are
+     * responsible for actually doing the digital signal processing
+     */
+    private final List<AudioProcessor> audioProcessors;
+
+    /**
+     * Converter converts an array of floats to an array of bytes (and vice
+     * versa).
+     */
+    private final AudioFloatConverter converter;
+
+    private final AudioFormat format;
+
+    /**
+     * The floatOverlap: the number of elements that are copied in the buffer
+     * from the previous buffer. Overlap should be smaller (strict) than the
+     * buffer size and can be zero. Defined in number of samples.
+     */
+    private int floatOverlap, floatStepSize;
+
+    /**
+     * The overlap and stepsize defined not in samples but in bytes. So it
+     * depends on the bit depth. Since the int datatype is used only 8,16,24,...
+     * bits or 1,2,3,... bytes are supported.
+     */
+    private int byteOverlap, byteStepSize;
+
+    /**
+     * The number of bytes to skip before processing starts.
+     */
+    private long bytesToSkip;
+
+    /**
+     * Position in the stream in bytes. e.g. if 44100 bytes are processed and 16
+     * bits per frame are used then you are 0.5 seconds into the stream. Bytes
+     * skipped at the start of the stream are included.
+     */
+    private long bytesProcessed;
+
+    /**
+     * The length of the stream, expressed in sample frames rather than bytes.
+     * A negative number if the length is not known.
+     */
+    private final long frameLength;
+
+    private final AudioEvent audioEvent;
+
+    /**
+     * If true the dispatcher stops dispatching audio.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * The exception that ended the last run before the end of the stream, or
+     * null.
+     */
+    private volatile IOException error;
+
+    /**
+     * If zero pad is true then the first buffer is only filled up to buffer
+     * size - hop size. E.g. if the buffer is 2048 and the hop size is 48 then
+     * you get 2000x0 and 48 filled audio samples
+     */
+    private boolean zeroPad;
+
+    /**
+     * The number of bytes requested from the source for the current buffer.
+     */
+    private int bytesRequested;
+
+    /**
+     * Optional instrumentation of the processing chain, null when disabled.
+     */
+    private ProcessingMetrics metrics;
+
+    /**
+     * Create a new dispatcher connected to a raw PCM input stream.
+     * 
+     * @param stream The input stream to read from.
+     * @param format The format of the bytes in the stream.
+     * @param frameLength The length of the stream in sample frames, or a
+     *            negative number if the length is not known.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     */
+    public AudioDispatcher(final InputStream stream, final AudioFormat format, final long frameLength,
+            final int audioBufferSize, final int bufferOverlap) {
+        this(stream, null, format, frameLength, audioBufferSize, bufferOverlap);
+    }
+
+    /**
+     * Create a new dispatcher connected to a memory mapped file. The samples
+     * are converted from the mapped file directly into the float buffer, the
+     * byte buffer is not used.
+     * 
+     * @param mappedFile The memory mapped WAV or PCM file. Processing starts
+     *            at its current read position.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     */
+    public AudioDispatcher(final MappedAudioFile mappedFile, final int audioBufferSize,
+            final int bufferOverlap) {
+        // The declared length, so a truncated file is reported like a truncated stream.
+        this(null, mappedFile, mappedFile.getFormat(),
+                Math.max(mappedFile.getFrameLength(), mappedFile.getDeclaredFrameLength()), audioBufferSize,
+                bufferOverlap);
+        bytesProcessed = mappedFile.getFramePosition() * format.getFrameSize();
+    }
+
+    private AudioDispatcher(final InputStream stream, final MappedAudioFile mappedFile,
+            final AudioFormat format, final long frameLength, final int audioBufferSize,
+            final int bufferOverlap) {
+        audioProcessors = new ArrayList<AudioProcessor>();
+        audioInputStream = stream;
+        mappedAudioFile = mappedFile;
+        this.format = format;
+        this.frameLength = frameLength;
+        converter = AudioFloatConverter.getConverter(format);
+        if (converter == null) {
+            throw new IllegalArgumentException("Unsupported audio format: " + format);
+        }
+        audioEvent = new AudioEvent(format, frameLength);
+        setStepSizeAndOverlap(audioBufferSize, bufferOverlap);
+        stopped = false;
+        bytesProcessed = 0;
+        bytesToSkip = 0;
+        zeroPad = false;
+    }
+
+    /**
+     * Create a new dispatcher connected to a Java Sound audio input stream.
+     * The stream should be PCM encoded; use {@link #fromFile(File, int, int)}
+     * to decode other encodings.
+     * 
+     * @param stream The audio input stream to read from.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     */
+    public AudioDispatcher(final AudioInputStream stream, final int audioBufferSize,
+            final int bufferOverlap) {
+        this(stream, toTarsosFormat(stream.getFormat()), stream.getFrameLength(), audioBufferSize,
+                bufferOverlap);
+    }
+
+    /**
+     * Create a stream from a file and use that to process the audio. Non PCM
+     * encodings are converted to signed 16 bit PCM if Java Sound supports the
+     * conversion.
+     * 
+     * @param audioFile The file.
+     * @param audioBufferSize The number of samples used in the buffer.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     * @return A new audio processor.
+     * @throws UnsupportedAudioFileException If the audio file is not supported.
+     * @throws IOException When an error occurs while reading the file.
+     */
+    public static AudioDispatcher fromFile(final File audioFile, final int audioBufferSize,
+            final int bufferOverlap) throws UnsupportedAudioFileException, IOException {
+        final AudioInputStream stream = convertToPcm(AudioSystem.getAudioInputStream(audioFile));
+        return new AudioDispatcher(stream, audioBufferSize, bufferOverlap);
+    }
+
+    /**
+     * Map a WAV file into memory and use that to process the audio. This avoids
+     * copying the audio through intermediate byte buffers which pays off for
+     * large files.
+     * 
+     * @param waveFile The WAV file.
+     * @param audioBufferSize The number of samples used in the buffer.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     * @return A new audio dispatcher.
+     * @throws IOException When the file can not be mapped or its format is not
+     *             supported.
+     */
+    public static AudioDispatcher fromMappedFile(final File waveFile, final int audioBufferSize,
+            final int bufferOverlap) throws IOException {
+        return new AudioDispatcher(new MappedAudioFile(waveFile), audioBufferSize, bufferOverlap);
+    }
+
+    /**
+     * Create a stream from an array of bytes and use that to process the audio.
+     * 
+     * @param byteArray An array of bytes, containing audio information.
+     * @param audioFormat The format of the audio represented using the bytes.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     * @return A new AudioDispatcher.
+     */
+    public static AudioDispatcher fromByteArray(final byte[] byteArray, final AudioFormat audioFormat,
+            final int audioBufferSize, final int bufferOverlap) {
+        final InputStream stream = new ByteArrayInputStream(byteArray);
+        final long length = byteArray.length / audioFormat.getFrameSize();
+        return new AudioDispatcher(stream, audioFormat, length, audioBufferSize, bufferOverlap);
+    }
+
+    /**
+     * Create a stream from an array of floats and use that to process the
+     * audio. The floats are stored as signed 16 bit little endian PCM.
+     * 
+     * @param floatArray An array of floats, containing audio information.
+     * @param sampleRate The sample rate of the audio information contained in
+     *            the buffer.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     * @return A new AudioDispatcher.
+     */
+    public static AudioDispatcher fromFloatArray(final float[] floatArray, final int sampleRate,
+            final int audioBufferSize, final int bufferOverlap) {
+        final AudioFormat audioFormat = new AudioFormat(sampleRate, 16, 1, true, false);
+        final AudioFloatConverter floatConverter = AudioFloatConverter.getConverter(audioFormat);
+        final byte[] byteArray = new byte[floatArray.length * audioFormat.getFrameSize()];
+        floatConverter.toByteArray(floatArray, byteArray);
+        return fromByteArray(byteArray, audioFormat, audioBufferSize, bufferOverlap);
+    }
+
+    /**
+     * Skip a number of seconds before processing the stream. Should be called
+     * before {@link #run()}.
+     * 
+     * @param seconds The number of seconds to skip.
+     */
+    public void skip(final double seconds) {
+        bytesToSkip = Math.round(seconds * format.getSampleRate()) * format.getFrameSize();
+    }
+
+    /**
+     * Set a new step size and overlap size. Both in number of samples. Watch
+     * out with this method: it should be called after a batch of samples is
+     * processed, not during.
+     * 
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     */
+    public void setStepSizeAndOverlap(final int audioBufferSize, final int bufferOverlap) {
+        if (bufferOverlap < 0 || bufferOverlap >= audioBufferSize) {
+            throw new IllegalArgumentException("The overlap (" + bufferOverlap
+                    + ") should be positive and smaller than the buffer size (" + audioBufferSize + ")");
+        }
+        audioFloatBuffer = new float[audioBufferSize];
+        floatOverlap = bufferOverlap;
+        floatStepSize = audioFloatBuffer.length - floatOverlap;
+
+        // a memory mapped file is converted without intermediate bytes
+        audioByteBuffer = mappedAudioFile == null ? new byte[audioFloatBuffer.length * bytesPerSample()] : null;
+        byteOverlap = floatOverlap * bytesPerSample();
+        byteStepSize = floatStepSize * bytesPerSample();
+    }
+
+    /**
+     * if zero pad is true then the first buffer is only filled up to buffer
+     * size - hop size E.g. if the buffer is 2048 and the hop size is 48 then
+     * you get 2000x0 and 48 filled audio samples
+     * 
+     * @param zeroPad true if the buffer should be zeropadded, false otherwise.
+     */
+    public void setZeroPad(final boolean zeroPad) {
+        this.zeroPad = zeroPad;
+    }
+
+    /**
+     * Adds an AudioProcessor to the chain of processors.
+     * 
+     * @param audioProcessor The AudioProcessor to add.
+     */
+    public void addAudioProcessor(final AudioProcessor audioProcessor) {
+        audioProcessors.add(audioProcessor);
+    }
+
+    /**
+     * Removes an AudioProcessor from the chain of processors and calls
+     * processingFinished.
+     * 
+     * @param audioProcessor The AudioProcessor to remove.
+     */
+    public void removeAudioProcessor(final AudioProcessor audioProcessor) {
+        audioProcessors.remove(audioProcessor);
+        audioProcessor.processingFinished();
+    }
+
+    @Override
+    public void run() {
+        error = null;
+        try {
+            skipBytes();
+
+            int bytesRead;
+            if (zeroPad) {
+                bytesRead = slideBuffer();
+            } else {
+                bytesRead = processFirstBuffer();
+            }
+
+            // As long as the stream has not ended or the number of bytes
+            // processed is smaller than the number of bytes to process: process
+            // bytes.
+            audioLoop: while (bytesRead != -1 && !stopped) {
+                // Makes sure the right buffers are processed, they can be
+                // changed by audio processors.
+                audioEvent.setOverlap(floatOverlap);
+                audioEvent.setFloatBuffer(audioFloatBuffer);
+                audioEvent.setBytesProcessed(windowStart());
+
+                if (!dispatch(bytesRead)) {
+                    break audioLoop;
+                }
+
+                // Update the number of bytes processed;
+                bytesProcessed += bytesRead;
+
+                // Read, convert and process consecutive overlapping buffers.
+                // Slide the buffer.
+                bytesRead = slideBuffer();
+            }
+
+            final long bytesExpected = frameLength * format.getFrameSize();
+            if (bytesRead == -1 && !stopped && frameLength >= 0 && bytesProcessed < bytesExpected) {
+                throw new EOFException("The stream ended after " + bytesProcessed / format.getFrameSize()
+                        + " of " + frameLength + " frames");
+            }
+        } catch (final IOException e) {
+            error = e;
+            LOG.severe("Error while reading audio: " + e.getMessage());
+        } finally {
+            // Notify all processors that no more data is available. When stop()
+            // is called processingFinished is called explicitly, no need to do
+            // this again.
+            if (!stopped) {
+                stop();
+            }
+        }
+    }
+
+    /**
+     * The position of the first sample of the current buffer in the stream, in
+     * bytes. The overlapping part of the buffer was already read while
+     * processing the previous buffer. When zero padding is used the stream is
+     * considered to start after the padding.
+     */
+    private long windowStart() {
+        return zeroPad ? bytesProcessed : bytesProcessed - byteOverlap;
+    }
+
+    private void skipBytes() throws IOException {
+        if (mappedAudioFile != null) {
+            final long frame = Math.min(mappedAudioFile.getFramePosition() + bytesToSkip / format.getFrameSize(),
+                    mappedAudioFile.getFrameLength());
+            mappedAudioFile.seek(frame);
+            bytesProcessed = frame * format.getFrameSize();
+            return;
+        }
+        long skipped = 0;
+        while (skipped < bytesToSkip) {
+            final long current = audioInputStream.skip(bytesToSkip - skipped);
+            if (current <= 0) {
+                break;
+            }
+            skipped += current;
+        }
+        bytesProcessed += skipped;
+    }
+
+    private int processFirstBuffer() throws IOException {
+        // the overlap for the first buffer is zero.
+        audioEvent.setOverlap(0);
+        audioEvent.setFloatBuffer(audioFloatBuffer);
+        audioEvent.setBytesProcessed(bytesProcessed);
+
+        // Read, convert and process the first full buffer.
+        int bytesRead = readAudio(0, 0, audioFloatBuffer.length);
+
+        if (bytesRead != -1 && !stopped) {
+            dispatch(bytesRead);
+            // Update the number of bytes processed;
+            bytesProcessed += bytesRead;
+
+            // Read, convert and process consecutive overlapping buffers.
+            // Slide the buffer.
+            bytesRead = slideBuffer();
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Sends the current buffer through the chain of processors.
+     * 
+     * @param bytesRead The number of new bytes in the buffer.
+     * @return False if a processor stopped the chain, true otherwise.
+     */
+    private boolean dispatch(final int bytesRead) {
+        if (metrics != null) {
+            return metrics.process(audioProcessors, audioEvent, bytesRead / bytesPerSample(),
+                    bytesRequested / bytesPerSample());
+        }
+        // Indexed loop: an iterator would be allocated for every buffer on Android.
+        for (int i = 0; i < audioProcessors.size(); i++) {
+            if (!audioProcessors.get(i).process(audioEvent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops dispatching audio data.
+     */
+    public void stop() {
+        stopped = true;
+        for (final AudioProcessor processor : audioProcessors) {
+            processor.processingFinished();
+        }
+        try {
+            if (mappedAudioFile != null) {
+                mappedAudioFile.close();
+            } else {
+                audioInputStream.close();
+            }
+        } catch (final IOException e) {
+            LOG.severe("Error while closing audio stream: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Slides a buffer with an floatOverlap and reads new data from the stream.
+     * to the correct place in the buffer. E.g. with a buffer size of 9 and
+     * floatOverlap of 3.
+     * 
+     * <pre>
+     *      | 0 | 1 | 3 | 3 | 4  | 5  | 6  | 7  | 8  |
+     *                        |
+     *                Slide (9 - 3 = 6)
+     *                        |
+     *                        v
+     *      | 6 | 7 | 8 | _ | _  | _  | _  | _  | _  |
+     *                        |
+     *        Fill from 3 to (3+6) exclusive
+     *                        |
+     *                        v
+     *      | 6 | 7 | 8 | 9 | 10 | 11 | 12 | 13 | 14 |
+     * </pre>
+     * 
+     * @return The number of bytes read or -1 if the end of the stream is
+     *         reached.
+     * @throws IOException When something goes wrong while reading the stream.
+     *             In particular, an IOException is thrown if the input stream
+     *             has been closed.
+     */
+    private int slideBuffer() throws IOException {
+        assert floatOverlap < audioFloatBuffer.length;
+
+        System.arraycopy(audioFloatBuffer, floatStepSize, audioFloatBuffer, 0, floatOverlap);
+
+        // Check here if the dispatcher is stopped to prevent reading from a
+        // closed audio stream.
+        if (stopped) {
+            return -1;
+        }
+        return readAudio(byteOverlap, floatOverlap, floatStepSize);
+    }
+
+    /**
+     * The float buffer holds interleaved samples, not sample frames: a stream
+     * and a memory mapped file both advance this many bytes per float.
+     * 
+     * @return The number of bytes of one sample of one channel.
+     */
+    private int bytesPerSample() {
+        return format.getFrameSize() / format.getChannels();
+    }
+
+    /**
+     * Reads and converts a block of audio to the float buffer. When the last
+     * block of the stream is incomplete the remainder of the float buffer is
+     * filled with zeros.
+     * 
+     * @return The number of bytes read or -1 if the end of the stream is
+     *         reached.
+     */
+    private int readAudio(final int byteOffset, final int floatOffset, final int floatLength) throws IOException {
+        final int bytesRead;
+        final int samplesRead;
+        bytesRequested = floatLength * bytesPerSample();
+        if (mappedAudioFile != null) {
+            samplesRead = mappedAudioFile.read(audioFloatBuffer, floatOffset, floatLength);
+            bytesRead = samplesRead == -1 ? -1 : samplesRead * bytesPerSample();
+        } else {
+            bytesRead = readFully(byteOffset, floatLength * bytesPerSample());
+            samplesRead = bytesRead / bytesPerSample();
+            if (bytesRead != -1) {
+                converter.toFloatArray(audioByteBuffer, byteOffset, audioFloatBuffer, floatOffset, samplesRead);
+            }
+        }
+        if (bytesRead != -1 && floatOffset + samplesRead < audioFloatBuffer.length) {
+            Arrays.fill(audioFloatBuffer, floatOffset + samplesRead, audioFloatBuffer.length, 0f);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Reads from the stream until the requested number of bytes is read or the
+     * end of the stream is reached.
+     * 
+     * @return The number of bytes read or -1 if no bytes could be read.
+     */
+    private int readFully(final int byteOffset, final int length) throws IOException {
+        int totalBytesRead = 0;
+        while (totalBytesRead < length) {
+            final int bytesRead = audioInputStream.read(audioByteBuffer, byteOffset + totalBytesRead,
+                    length - totalBytesRead);
+            if (bytesRead == -1) {
+                break;
+            }
+            totalBytesRead += bytesRead;
+        }
+        return totalBytesRead == 0 ? -1 : totalBytesRead;
+    }
+
+    /**
+     * Enables or disables the instrumentation of the processing chain. Set it
+     * before the dispatcher runs. Without metrics the chain is not
+     * instrumented at all.
+     * 
+     * @param metrics The metrics to record to, or null to disable recording.
+     */
+    public void setMetrics(final ProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics of the processing chain, or null when disabled.
+     */
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns why the last run ended early. Reading errors do not escape
+     * {@link #run()}, the processors only see the end of the stream. A stream
+     * that ends before its known length, e.g. a truncated file, is reported
+     * as an {@link EOFException}.
+     * 
+     * @return The exception that ended the last run before the end of the
+     *         stream, or null if the stream was read to the end or the
+     *         dispatcher was stopped.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * @return True if the dispatcher is stopped or the end of the stream has
+     *         been reached.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return The currently processed number of seconds.
+     */
+    public float secondsProcessed() {
+        return bytesProcessed / format.getFrameSize() / format.getSampleRate();
+    }
+
+    /**
+     * Returns the duration of the stream in seconds. If the length of the
+     * stream can not be determined, it returns a negative number.
+     * 
+     * @return The duration of the stream in seconds or a negative number.
+     */
+    public double durationInSeconds() {
+        return frameLength < 0 ? -1 : frameLength / format.getSampleRate();
+    }
+
+    /**
+     * Returns the length of the stream, expressed in sample frames rather than
+     * bytes.
+     * 
+     * @return The length of the stream, expressed in sample frames rather than
+     *         bytes or a negative number if the length is not known.
+     */
+    public long durationInFrames() {
+        return frameLength;
+    }
+
+    /**
+     * Converts Java Sound audio input streams to signed PCM. Streams that are
+     * already PCM encoded are returned as is.
+     */
+    private static AudioInputStream convertToPcm(final AudioInputStream sourceStream) {
+        final javax.sound.sampled.AudioFormat baseFormat = sourceStream.getFormat();
+
+        if (javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED.equals(baseFormat.getEncoding())
+                || javax.sound.sampled.AudioFormat.Encoding.PCM_UNSIGNED.equals(baseFormat.getEncoding())) {
+            return sourceStream;
+        }
+
+        final javax.sound.sampled.AudioFormat targetFormat = new javax.sound.sampled.AudioFormat(
+                javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED, baseFormat.getSampleRate(), 16,
+                baseFormat.getChannels(), baseFormat.getChannels() * 2, baseFormat.getSampleRate(), false);
+
+        return AudioSystem.getAudioInputStream(targetFormat, sourceStream);
+    }
+
+    /**
+     * Converts a Java Sound audio format to the TarsosDSP audio format.
+     * 
+     * @param javaFormat The Java Sound format.
+     * @return An equivalent TarsosDSP format.
+     */
+    public static AudioFormat toTarsosFormat(final javax.sound.sampled.AudioFormat javaFormat) {
+        return new AudioFormat(mapEncoding(javaFormat.getEncoding()), javaFormat.getSampleRate(),
+                javaFormat.getSampleSizeInBits(), javaFormat.getChannels(), javaFormat.getFrameSize(),
+                javaFormat.getFrameRate(), javaFormat.isBigEndian());
+    }
+
+    private static AudioFormat.Encoding mapEncoding(final javax.sound.sampled.AudioFormat.Encoding encoding) {
+        if (javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+            return AudioFormat.Encoding.PCM_SIGNED;
+        }
+        if (javax.sound.sampled.AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+            return AudioFormat.Encoding.PCM_UNSIGNED;
+        }
+        if (javax.sound.sampled.AudioFormat.Encoding.ALAW.equals(encoding)) {
+            return AudioFormat.Encoding.ALAW;
+        }
+        if (javax.sound.sampled.AudioFormat.Encoding.ULAW.equals(encoding)) {
+            return AudioFormat.Encoding.ULAW;
+        }
+        return new AudioFormat.Encoding(encoding.toString());
+    }
+}
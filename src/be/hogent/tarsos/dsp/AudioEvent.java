@@ -31,6 +31,8 @@ import java.util.Arrays;
 import be.hogent.tarsos.dsp.AudioFormat;
 
 import be.hogent.tarsos.dsp.util.AudioFloatConverter;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
 
 /**
  * An audio event flows through the processing pipeline. The object is reused for performance reasons.
@@ -56,6 +58,11 @@ public class AudioEvent {
 	 */
 	private byte[] byteBuffer;
 	
+	/**
+	 * Reused target for the short and byte buffer conversions.
+	 */
+	private float[] convertedFloatBuffer;
+	
 	/**
 	 * The overlap in samples. 
 	 */
@@ -71,6 +78,16 @@ public class AudioEvent {
 	 */
 	private long bytesProcessed;
 	
+	/**
+	 * Storage for the spectra attached to this event, reused for every buffer.
+	 */
+	private Spectrum[] spectra = new Spectrum[0];
+	
+	/**
+	 * Bit i is set when spectra[i] is calculated for the current buffer.
+	 */
+	private long attachedSpectra;
+	
 	
 	public AudioEvent(AudioFormat format,long frameLength){
 		this.format = format;
@@ -97,6 +114,7 @@ public class AudioEvent {
 	
 	public void setBytesProcessed(long bytesProcessed){
 		this.bytesProcessed = bytesProcessed;		
+		attachedSpectra = 0;
 	}
 	
 	/**
@@ -136,21 +154,131 @@ public class AudioEvent {
 		return byteBuffer;
 	}
 	
+	/**
+	 * Converts signed 16 bit samples to floats. The converted samples are
+	 * stored in an array owned by this event, which is reused as long as the
+	 * length does not change.
+	 * 
+	 * @param shortBuffer
+	 *            The signed 16 bit samples.
+	 */
 	public void setFloatBufferWithShortBuffer(short[] shortBuffer) {
-		this.floatBuffer = new float[shortBuffer.length];
+		this.floatBuffer = conversionBuffer(shortBuffer.length);
 		for (int i = 0; i < shortBuffer.length; i++) {
 			this.floatBuffer[i] = (float) shortBuffer[i] / 32768.0f; // signed 16 bit
 		}
+		attachedSpectra = 0;
 	}
 	
+	/**
+	 * Converts bytes, encoded according to the format of this event, to
+	 * floats. The converted samples are stored in an array owned by this
+	 * event, which is reused as long as the length does not change.
+	 * 
+	 * @param byteBuffer
+	 *            The audio data in bytes.
+	 */
 	public void setFloatBufferWithByteBuffer(byte[] byteBuffer) {
 		int length = (int)(byteBuffer.length / (float)(format.getFrameSize()));
-		this.floatBuffer = new float[length];
+		this.floatBuffer = conversionBuffer(length);
 		converter.toFloatArray(byteBuffer, this.floatBuffer);
+		attachedSpectra = 0;
+	}
+	
+	/**
+	 * The conversion buffer is never handed out by a dispatcher, so it can be
+	 * overwritten without touching the samples a dispatcher keeps for overlap.
+	 */
+	private float[] conversionBuffer(int length){
+		if(convertedFloatBuffer == null || convertedFloatBuffer.length != length){
+			convertedFloatBuffer = new float[length];
+		}
+		return convertedFloatBuffer;
+	}
+	
+	/**
+	 * @return A new event with the format and stream length of this event.
+	 */
+	AudioEvent createCompatibleEvent(){
+		return new AudioEvent(format, frameLength);
+	}
+	
+	/**
+	 * Copies the overlap and the position in the stream of another event, but
+	 * not its samples.
+	 * 
+	 * @param other
+	 *            The event to copy from.
+	 */
+	void copyPositionFrom(AudioEvent other){
+		this.overlap = other.overlap;
+		this.bytesProcessed = other.bytesProcessed;
+		attachedSpectra = 0;
+	}
+	
+	/**
+	 * Calculates the spectrum of the current buffer and attaches it to this
+	 * event, so processors further down the chain can use it instead of
+	 * calculating their own. The spectrum is detached when the buffer or the
+	 * position of this event changes, or when a processor reports that it
+	 * changed the samples in place with {@link #samplesChanged()}. A spectrum
+	 * that is already attached is returned as is, without a new transform.
+	 * 
+	 * @param size
+	 *            The size of the FFT.
+	 * @param windowFunction
+	 *            The window to apply before the transform, or null for none.
+	 * @return The attached spectrum.
+	 */
+	public Spectrum attachSpectrum(int size, WindowFunction windowFunction){
+		int index = 0;
+		while(index < spectra.length && !spectra[index].matches(size, windowFunction)){
+			index++;
+		}
+		if(index == spectra.length){
+			if(index == Long.SIZE){
+				throw new IllegalStateException("At most " + Long.SIZE + " different spectra can be attached");
+			}
+			spectra = Arrays.copyOf(spectra, index + 1);
+			spectra[index] = new Spectrum(size, windowFunction);
+		}
+		if((attachedSpectra & 1L << index) == 0){
+			spectra[index].compute(floatBuffer);
+			attachedSpectra |= 1L << index;
+		}
+		return spectra[index];
+	}
+	
+	/**
+	 * Detaches the spectra attached to the current buffer. Processors that
+	 * modify the samples of {@link #getFloatBuffer()} in place call this, so
+	 * processors further down the chain do not use a spectrum of the samples
+	 * before the modification.
+	 */
+	public void samplesChanged(){
+		attachedSpectra = 0;
+	}
+	
+	/**
+	 * @param size
+	 *            The size of the FFT.
+	 * @param windowFunction
+	 *            The window applied before the transform, or null for none.
+	 * @return The spectrum with the given size and window attached to the
+	 *         current buffer, or null when there is none.
+	 */
+	public Spectrum getSpectrum(int size, WindowFunction windowFunction){
+		for(int i = 0 ; i < spectra.length ; i++){
+			if((attachedSpectra & 1L << i) != 0 && spectra[i].matches(size, windowFunction)){
+				return spectra[i];
+			}
+		}
+		return null;
 	}
 	
 	public void setFloatBuffer(float[] floatBuffer) {
 		this.floatBuffer = floatBuffer;
+		attachedSpectra = 0;
 	}
 	
 	public float[] getFloatBuffer(){
@@ -188,6 +316,7 @@ public class AudioEvent {
 
 	public void clearFloatBuffer() {
 		Arrays.fill(floatBuffer, 0);
+		attachedSpectra = 0;
 	}
 
 		/**
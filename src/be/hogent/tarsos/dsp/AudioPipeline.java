@@ -0,0 +1,328 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>
+ * Runs a chain of processors as a pipeline of stages, each stage on its own
+ * thread. Add the pipeline to a dispatcher like any other processor: the
+ * dispatcher thread copies every buffer into a free slot and hands it to the
+ * first stage, which passes it on to the next stage when its processors are
+ * done. While the last stage handles a buffer the first stage can already work
+ * on the next one, which raises the sustainable throughput on multi-core
+ * devices when the stages take a comparable amount of time.
+ * </p>
+ * <p>
+ * Every stage handles the buffers one at a time in stream order, so the
+ * processors see the same buffers in the same order as in a serial chain. The
+ * slots, one {@link AudioEvent} with its own sample array each, are allocated
+ * when the first buffer arrives and recycled afterwards; the queues between the
+ * stages are preallocated. When all slots are in use the dispatcher waits,
+ * which limits the memory and the latency of the pipeline.
+ * </p>
+ * 
+ * <pre>
+ * AudioPipeline pipeline = new AudioPipeline();
+ * pipeline.addStage(new HighPass(80, sampleRate));
+ * pipeline.addStage(new PitchProcessor(YIN, sampleRate, 2048, pitchHandler), onsetDetector);
+ * pipeline.addStage(new WaveformWriter(format, "out.wav"));
+ * dispatcher.addAudioProcessor(pipeline);
+ * </pre>
+ * <p>
+ * A processor that returns false stops the pipeline: that buffer and the
+ * following ones are not passed on to the next stages, the buffers before it
+ * are, and the dispatcher stops at its next buffer. An exception thrown by a
+ * processor is rethrown on the dispatcher thread. Processors that replace the
+ * sample array of the event work as in a serial chain: the new array is copied
+ * into the slot before the next stage runs. Since the stages work on a copy of
+ * the buffer of the dispatcher, processors that change the samples in place no
+ * longer change the overlapping part of the next buffer. A pipeline can be
+ * used for one stream only.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class AudioPipeline implements AudioProcessor {
+
+    /**
+     * The default number of buffers in flight per stage.
+     */
+    private static final int SLOTS_PER_STAGE = 2;
+
+    /**
+     * A buffer in flight: an event with its own samples.
+     */
+    private static final class Slot {
+        private final AudioEvent audioEvent;
+        private float[] samples;
+        /**
+         * True if a processor stopped the pipeline on this buffer.
+         */
+        private boolean stopped;
+
+        private Slot(final AudioEvent audioEvent) {
+            this.audioEvent = audioEvent;
+            this.samples = new float[0];
+        }
+
+        /**
+         * Makes sure the event uses the samples of this slot, a processor
+         * might have replaced them by an array it reuses for the next buffer.
+         */
+        private void claimSamples() {
+            final float[] current = audioEvent.getFloatBuffer();
+            if (current != samples) {
+                if (samples.length != current.length) {
+                    samples = new float[current.length];
+                }
+                System.arraycopy(current, 0, samples, 0, current.length);
+                audioEvent.setFloatBuffer(samples);
+            }
+        }
+    }
+
+    /**
+     * Sent through the stages after the last buffer.
+     */
+    private static final Slot END = new Slot(null);
+
+    private final class Stage implements Runnable {
+        private final AudioProcessor[] processors;
+        private BlockingQueue<Slot> input;
+        private BlockingQueue<Slot> output;
+        private Thread thread;
+        /**
+         * True once a buffer arrived on which an earlier stage, or this one,
+         * stopped. Later buffers are passed on without processing them.
+         */
+        private boolean stopped;
+
+        private Stage(final AudioProcessor[] processors) {
+            this.processors = processors;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Slot slot;
+                while ((slot = input.take()) != END) {
+                    stopped |= slot.stopped;
+                    if (stopped) {
+                        slot.stopped = true;
+                    } else if (failure == null) {
+                        process(slot);
+                    }
+                    output.put(slot);
+                }
+                if (output != freeSlots) {
+                    output.put(END);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void process(final Slot slot) {
+            try {
+                for (int i = 0; i < processors.length; i++) {
+                    if (!processors[i].process(slot.audioEvent)) {
+                        slot.stopped = true;
+                        stopped = true;
+                        pipelineStopped = true;
+                        return;
+                    }
+                }
+                slot.claimSamples();
+            } catch (final RuntimeException e) {
+                failure = e;
+            } catch (final Error e) {
+                failure = e;
+            }
+        }
+    }
+
+    private final List<Stage> stages;
+    private final int slotCount;
+    private BlockingQueue<Slot> freeSlots;
+
+    /**
+     * Set by a stage when a processor returns false.
+     */
+    private volatile boolean pipelineStopped;
+
+    /**
+     * The first exception thrown by a processor.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Create a pipeline with two buffers in flight per stage.
+     */
+    public AudioPipeline() {
+        this(0);
+    }
+
+    /**
+     * Create a pipeline.
+     * 
+     * @param buffersInFlight The number of buffers that can be in the pipeline
+     *            at the same time, or zero for two per stage. Use at least the
+     *            number of stages, otherwise stages wait for each other.
+     */
+    public AudioPipeline(final int buffersInFlight) {
+        if (buffersInFlight < 0) {
+            throw new IllegalArgumentException("The number of buffers in flight should be positive, got "
+                    + buffersInFlight);
+        }
+        this.stages = new ArrayList<Stage>();
+        this.slotCount = buffersInFlight;
+    }
+
+    /**
+     * Adds a stage to the end of the pipeline. The processors of a stage run
+     * in the given order on the thread of the stage. Add all stages before the
+     * first buffer arrives.
+     * 
+     * @param processors The processors of the new stage.
+     * @return This pipeline.
+     */
+    public AudioPipeline addStage(final AudioProcessor... processors) {
+        if (freeSlots != null) {
+            throw new IllegalStateException("Stages can not be added to a running pipeline");
+        }
+        if (processors.length == 0) {
+            throw new IllegalArgumentException("A stage needs at least one processor");
+        }
+        stages.add(new Stage(processors.clone()));
+        return this;
+    }
+
+    /**
+     * @return The number of stages.
+     */
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    @Override
+    public boolean process(final AudioEvent audioEvent) {
+        if (freeSlots == null) {
+            start(audioEvent);
+        }
+        rethrowFailure();
+        if (pipelineStopped) {
+            return false;
+        }
+        final Slot slot;
+        try {
+            slot = freeSlots.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        final float[] source = audioEvent.getFloatBuffer();
+        if (slot.samples.length != source.length) {
+            slot.samples = new float[source.length];
+        }
+        System.arraycopy(source, 0, slot.samples, 0, source.length);
+        slot.stopped = false;
+        slot.audioEvent.setFloatBuffer(slot.samples);
+        slot.audioEvent.copyPositionFrom(audioEvent);
+        stages.get(0).input.add(slot);
+        return true;
+    }
+
+    /**
+     * Creates the slots, the queues and the threads.
+     */
+    private void start(final AudioEvent audioEvent) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("A pipeline needs at least one stage");
+        }
+        final int slots = slotCount == 0 ? SLOTS_PER_STAGE * stages.size() : slotCount;
+        // Room for every slot and the end marker, so a put never waits.
+        final BlockingQueue<Slot> free = new ArrayBlockingQueue<Slot>(slots + 1);
+        for (int i = 0; i < slots; i++) {
+            free.add(new Slot(audioEvent.createCompatibleEvent()));
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).input = new ArrayBlockingQueue<Slot>(slots + 1);
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            final Stage stage = stages.get(i);
+            stage.output = i + 1 < stages.size() ? stages.get(i + 1).input : free;
+            stage.thread = new Thread(stage, "TarsosDSP pipeline stage " + (i + 1));
+            stage.thread.setDaemon(true);
+            stage.thread.start();
+        }
+        freeSlots = free;
+    }
+
+    /**
+     * Waits until all buffers went through the pipeline, stops the threads and
+     * calls processingFinished on all processors, stage by stage.
+     */
+    @Override
+    public void processingFinished() {
+        if (freeSlots != null) {
+            stages.get(0).input.add(END);
+            boolean interrupted = false;
+            for (final Stage stage : stages) {
+                while (stage.thread.isAlive()) {
+                    try {
+                        stage.thread.join();
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (final Stage stage : stages) {
+            for (final AudioProcessor processor : stage.processors) {
+                processor.processingFinished();
+            }
+        }
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        final Throwable cause = failure;
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+    }
+}
@@ -55,6 +55,7 @@
 package be.hogent.tarsos.dsp;
 
 import be.hogent.tarsos.dsp.util.fft.FFT;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
 
 /**
  * Implementation of the Constant Q Transform.<br> References:
@@ -105,9 +106,11 @@ public class ConstantQ implements AudioProcessor {
 	 */
 	private final float[] frequencies;
 
-	private final float[][] qKernel;
-
-	private final int[][] qKernel_indexes;
+	/**
+	 * The spectral kernel, shared with other transforms with the same
+	 * parameters.
+	 */
+	private final ConstantQKernel kernel;
 	
 	/**
 	 * The array with constant q coefficients. If you for
@@ -136,6 +139,22 @@ public class ConstantQ implements AudioProcessor {
 	 * The underlying FFT object.
 	 */
 	private FFT fft;
+	
+	/**
+	 * A copy of the audio buffer, transformed in place.
+	 */
+	private final float[] transformBuffer;
+	
+	/**
+	 * The number of frames transformed together by
+	 * {@link #calculateMagnitudes(float[], int, int, int, float[])}.
+	 */
+	private static final int FRAME_BLOCK = 4;
+	
+	/**
+	 * The spectra of a block of frames, only allocated for multi-frame calls.
+	 */
+	private float[][] frameSpectra;
 
 
 	public ConstantQ(float sampleRate, float minFreq, float maxFreq,float binsPerOctave) {
@@ -143,111 +162,42 @@ public class ConstantQ implements AudioProcessor {
 	}
 
 	
+	/**
+	 * Create a constant Q transform. The spectral kernel is taken from the
+	 * {@link ConstantQKernel} cache, so creating several transforms with the
+	 * same parameters only builds it once.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param minFreq
+	 *            The frequency of the first bin, in Hz.
+	 * @param maxFreq
+	 *            The maximum frequency, in Hz.
+	 * @param binsPerOctave
+	 *            The number of bins per octave.
+	 * @param threshold
+	 *            Kernel entries with a smaller magnitude are left out.
+	 * @param spread
+	 *            Widens (above 1) or narrows the bandwidth of the bins.
+	 */
 	public ConstantQ(float sampleRate, float minFreq, float maxFreq,float binsPerOctave, float threshold,float spread) {
 		this.minimumFrequency = minFreq;
 		this.maximumFreqency = maxFreq;
 		this.binsPerOctave = (int) binsPerOctave;
 		
-		// Calculate Constant Q		
-		double q = 1.0 / (Math.pow(2, 1.0 / binsPerOctave) - 1.0) / spread;
-
-		// Calculate number of output bins
-		int numberOfBins = (int) Math.ceil(binsPerOctave * Math.log(maximumFreqency / minimumFrequency) / Math.log(2));
+		kernel = ConstantQKernel.getKernel(sampleRate, minFreq, maxFreq, binsPerOctave, threshold, spread);
+		int numberOfBins = kernel.getNumberOfBins();
 		
 		// Initialize the coefficients array (complex number so 2 x number of bins)
 		coefficients = new float[numberOfBins*2];
 		
 		// Initialize the magnitudes array
 		magnitudes = new float[numberOfBins];
-
 		
-		// Calculate the minimum length of the FFT to support the minimum
-		// frequency
-		float calc_fftlen = (float) Math.ceil(q * sampleRate / minimumFrequency);
-		
-		// No need to use power of 2 FFT length.
-		fftLength = (int) calc_fftlen; 
-		
-		//System.out.println(fftLength);
-		//The FFT length needs to be a power of two for performance reasons:
-		fftLength = (int) Math.pow(2, Math.ceil(Math.log(calc_fftlen) / Math.log(2)));
-		
-		// Create FFT object
+		fftLength = kernel.getFFTLength();
 		fft = new FFT(fftLength);
-		qKernel = new float[numberOfBins][];
-		qKernel_indexes = new int[numberOfBins][];
-		frequencies = new float[numberOfBins];
-
-		// Calculate Constant Q kernels
-		 float[] temp = new float[fftLength*2];
-		 float[] ctemp = new float[fftLength*2];
-		 int[] cindexes = new int[fftLength];
-		    for (int i = 0; i < numberOfBins; i++) {
-		    	float[] sKernel = temp;
-		    	// Calculate the frequency of current bin
-		    	frequencies[i] = (float) (minimumFrequency * Math.pow(2, i/binsPerOctave ));
-		    	
-		    	// Calculate length of window
-		    	int len = (int)Math.min(Math.ceil( q * sampleRate / frequencies[i]), fftLength);
-		    	
-		    	for (int j = 0; j < len; j++) {
-		    		
-		    		double window = -.5*Math.cos(2.*Math.PI*(double)j/(double)len)+.5;; // Hanning Window
-		    		// double window = -.46*Math.cos(2.*Math.PI*(double)j/(double)len)+.54; // Hamming Window
-
-		    		window /= len;
-		    		
-		    		// Calculate kernel
-		    	    double x = 2*Math.PI * q * (double)j/(double)len;
-		    		sKernel[j*2] = (float) (window * Math.cos(x));
-		    		sKernel[j*2+1] = (float) (window * Math.sin(x));	
-				}
-		    	for (int j = len*2; j < fftLength*2; j++) {
-		    		sKernel[j] = 0;
-		    	}
-
-			// Perform FFT on kernel
-			fft.complexForwardTransform(sKernel);
-
-			// Remove all zeros from kernel to improve performance
-			float[] cKernel = ctemp;
-
-			int k = 0;
-			for (int j = 0, j2 = sKernel.length - 2; j < sKernel.length/2; j+=2,j2-=2)
-	    	{
-	    		double absval = Math.sqrt(sKernel[j]*sKernel[j] + sKernel[j+1]*sKernel[j+1]);
-	    	    absval += Math.sqrt(sKernel[j2]*sKernel[j2] + sKernel[j2+1]*sKernel[j2+1]);	    	    
-	    		if(absval > threshold)
-	    		{
-	    			cindexes[k] = j;
-	    			cKernel[2*k] = sKernel[j] + sKernel[j2];
-	    			cKernel[2*k + 1] = sKernel[j + 1] + sKernel[j2 + 1];
-	    			k++;
-	    		}	    		
-	    	}
-
-			sKernel = new float[k * 2];
-			int[] indexes = new int[k];
-
-			for (int j = 0; j < k * 2; j++)
-				sKernel[j] = cKernel[j];
-			for (int j = 0; j < k; j++)
-				indexes[j] = cindexes[j];
-
-			// Normalize fft output
-			for (int j = 0; j < sKernel.length; j++)
-				sKernel[j] /= fftLength;
-
-			// Perform complex conjugate on sKernel
-			for (int j = 1; j < sKernel.length; j += 2)
-				sKernel[j] = -sKernel[j];
-			
-			for (int j = 0; j < sKernel.length; j ++)
-				sKernel[j] = -sKernel[j];
-
-			qKernel_indexes[i] = indexes;
-			qKernel[i] = sKernel;
-		}
+		transformBuffer = new float[fftLength];
+		frequencies = kernel.getFrequencies();
 	}
 
 	/**
@@ -261,45 +211,110 @@ public class ConstantQ implements AudioProcessor {
 	 */
 	public void calculate(float[] inputBuffer) {
 		fft.forwardTransform(inputBuffer);
-		for (int i = 0; i < qKernel.length; i++) {
-			float[] kernel = qKernel[i];
-			int[] indexes = qKernel_indexes[i];
-			float t_r = 0;
-			float t_i = 0;
-			for (int j = 0, l = 0; j < kernel.length; j += 2, l++) {
-				int jj = indexes[l];
-				float b_r = inputBuffer[jj];
-				float b_i = inputBuffer[jj + 1];
-				float k_r = kernel[j];
-				float k_i = kernel[j + 1];
-				// COMPLEX: T += B * K
-				t_r += b_r * k_r - b_i * k_i;
-				t_i += b_r * k_i + b_i * k_r;
-			}
-			coefficients[i * 2] = t_r;
-			coefficients[i * 2 + 1] = t_i;
-		}
+		calculateFromSpectrum(inputBuffer);
+	}
+	
+	/**
+	 * Calculates the constant Q coefficients from the spectrum of a buffer.
+	 * 
+	 * @param inputBuffer
+	 *            The FFT of the audio, in the packed layout of
+	 *            {@link be.hogent.tarsos.dsp.util.fft.FloatFFT#realForward(float[])}.
+	 */
+	private void calculateFromSpectrum(float[] inputBuffer) {
+		kernel.multiply(inputBuffer, coefficients);
 	}
 	
 	/**
 	 * Take an input buffer with audio and calculate the constant Q magnitudes.
 	 * @param inputBuffer The input buffer with audio.
 	 */
-	public void calculateMagintudes(float[] inputBuffer) {
+	public void calculateMagnitudes(float[] inputBuffer) {
 		calculate(inputBuffer);
+		calculateMagnitudesFromCoefficients();
+	}
+	
+	/**
+	 * Take an input buffer with audio and calculate the constant Q magnitudes.
+	 * @param inputBuffer The input buffer with audio.
+	 * @deprecated Misspelled, use {@link #calculateMagnitudes(float[])}.
+	 */
+	@Deprecated
+	public void calculateMagintudes(float[] inputBuffer) {
+		calculateMagnitudes(inputBuffer);
+	}
+	
+	private void calculateMagnitudesFromCoefficients() {
 		for(int i = 0 ; i < magnitudes.length ; i++){
 			magnitudes[i] = (float) Math.sqrt(coefficients[i*2] * coefficients[i*2] + coefficients[i*2+1] * coefficients[i*2+1]); 
 		}
 	}
 	
 
+	/**
+	 * Calculates the constant Q magnitudes of many frames stored in one
+	 * array, e.g. for a spectrogram. Frame i starts at offset + i * stride and
+	 * is as long as the FFT. Frames are transformed four at a time and the
+	 * kernel is read once for each group of four, so the multiplication is
+	 * limited by memory bandwidth rather than by reading the kernel. The
+	 * magnitudes of each frame are the same as those of
+	 * {@link #calculateMagnitudes(float[])}. The samples are not modified.
+	 * 
+	 * @param samples
+	 *            The array with the frames.
+	 * @param offset
+	 *            The index of the first sample of the first frame.
+	 * @param stride
+	 *            The distance between the starts of consecutive frames.
+	 * @param frameCount
+	 *            The number of frames.
+	 * @param output
+	 *            Receives the magnitudes of each frame, one frame after the
+	 *            other: frameCount times {@link #getNumberOfOutputBands()}
+	 *            values.
+	 */
+	public void calculateMagnitudes(float[] samples, int offset, int stride, int frameCount, float[] output) {
+		final int bins = magnitudes.length;
+		if (stride < 1 || frameCount < 0 || offset < 0
+				|| (frameCount > 0 && offset + (long) (frameCount - 1) * stride + fftLength > samples.length)) {
+			throw new IllegalArgumentException(frameCount + " frames of " + fftLength + " samples with a stride of "
+					+ stride + " from " + offset + " do not fit in " + samples.length + " samples");
+		}
+		if (output.length < (long) frameCount * bins) {
+			throw new IllegalArgumentException("The output needs room for " + frameCount * bins + " magnitudes");
+		}
+		if (frameSpectra == null) {
+			frameSpectra = new float[FRAME_BLOCK][fftLength];
+		}
+		int frame = 0;
+		for (; frame + FRAME_BLOCK <= frameCount; frame += FRAME_BLOCK) {
+			for (int i = 0; i < FRAME_BLOCK; i++) {
+				System.arraycopy(samples, offset + (frame + i) * stride, frameSpectra[i], 0, fftLength);
+				fft.forwardTransform(frameSpectra[i]);
+			}
+			kernel.magnitudes(frameSpectra[0], frameSpectra[1], frameSpectra[2], frameSpectra[3], output, frame * bins);
+		}
+		for (; frame < frameCount; frame++) {
+			System.arraycopy(samples, offset + frame * stride, transformBuffer, 0, fftLength);
+			calculateMagnitudes(transformBuffer);
+			System.arraycopy(magnitudes, 0, output, frame * bins, bins);
+		}
+	}
+	
 	@Override
 	public boolean process(AudioEvent audioEvent) {
-		float[] audioBuffer = audioEvent.getFloatBuffer().clone();
+		float[] audioBuffer = audioEvent.getFloatBuffer();
 		if(audioBuffer.length != getFFTlength()){
 			throw new IllegalArgumentException(String.format("The length of the fft (%d) should be the same as the length of the audio buffer (%d)",getFFTlength(),audioBuffer.length));
 		}
-		calculateMagintudes(audioBuffer);
+		Spectrum spectrum = audioEvent.getSpectrum(fftLength, null);
+		if(spectrum != null){
+			calculateFromSpectrum(spectrum.getData());
+			calculateMagnitudesFromCoefficients();
+		} else {
+			System.arraycopy(audioBuffer, 0, transformBuffer, 0, fftLength);
+			calculateMagnitudes(transformBuffer);
+		}
 		return true;
 	}
 
@@ -361,6 +376,14 @@ public class ConstantQ implements AudioProcessor {
 		return fftLength;
 	}
 	
+	/**
+	 * @return The spectral kernel, shared with other transforms with the same
+	 *         parameters.
+	 */
+	public ConstantQKernel getKernel(){
+		return kernel;
+	}
+	
 	/**
 	 * @return the number of bins every octave.
 	 */
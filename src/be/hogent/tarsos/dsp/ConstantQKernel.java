@@ -0,0 +1,396 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The Royal Academy of Fine Arts & Royal Conservatory,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+*  http://tarsos.0110.be/tag/TarsosDSP
+*  https://github.com/JorenSix/TarsosDSP
+*  http://tarsos.0110.be/releases/TarsosDSP/
+* 
+*/
+/* 
+ * Copyright (c) 2006, Karl Helgason
+ * 
+ * 2007/1/8 modified by p.j.leonard
+ * 
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above
+ *       copyright notice, this list of conditions and the following
+ *       disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *    3. The name of the author may not be used to endorse or promote
+ *       products derived from this software without specific prior
+ *       written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN
+ * IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package be.hogent.tarsos.dsp;
+
+import java.util.Arrays;
+
+import be.hogent.tarsos.dsp.util.BoundedCache;
+import be.hogent.tarsos.dsp.util.fft.FFT;
+
+/**
+ * The spectral kernel of a {@link ConstantQ} transform: for each constant Q
+ * bin, the FFT bins that contribute to it and their complex weights. Building
+ * it takes an FFT per constant Q bin, so kernels are immutable and shared by
+ * all transforms with the same parameters through a bounded cache.
+ * <p>
+ * The kernel is stored as one sparse matrix in compressed sparse row form: the
+ * entries of bin i are at positions rowStart[i] up to rowStart[i + 1] of the
+ * column and weight arrays. A multiplication walks the arrays from front to
+ * back.
+ * </p>
+ * 
+ * @author Joren Six
+ * @author Karl Helgason
+ * @author P.J Leonard
+ */
+public final class ConstantQKernel {
+	
+	/**
+	 * The default maximum number of cached kernels.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+	
+	private static final BoundedCache<Key, ConstantQKernel> kernels = new BoundedCache<Key, ConstantQKernel>(DEFAULT_CAPACITY);
+	
+	private final int fftLength;
+	private final float binsPerOctave;
+	private final float[] frequencies;
+	
+	/**
+	 * Index of the first entry of each bin, one more than the number of bins.
+	 */
+	final int[] rowStart;
+	
+	/**
+	 * The index of the real part of each entry in a packed real spectrum.
+	 */
+	final int[] columns;
+	
+	/**
+	 * Real and imaginary part of each entry.
+	 */
+	final float[] weights;
+	
+	/**
+	 * Returns the cached kernel for the parameters, building it when needed.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param minFreq
+	 *            The frequency of the first bin, in Hz.
+	 * @param maxFreq
+	 *            The maximum frequency, in Hz.
+	 * @param binsPerOctave
+	 *            The number of bins per octave.
+	 * @param threshold
+	 *            Kernel entries with a smaller magnitude are left out.
+	 * @param spread
+	 *            Widens (above 1) or narrows the bandwidth of the bins.
+	 * @return The kernel.
+	 */
+	public static ConstantQKernel getKernel(float sampleRate, float minFreq, float maxFreq, float binsPerOctave,
+			float threshold, float spread) {
+		Key key = new Key(sampleRate, minFreq, maxFreq, binsPerOctave, threshold, spread);
+		ConstantQKernel kernel = kernels.get(key);
+		if (kernel == null) {
+			// Build outside the lock, it takes an FFT per bin.
+			kernel = kernels.putIfAbsent(key, new ConstantQKernel(sampleRate, minFreq, maxFreq, binsPerOctave, threshold, spread));
+		}
+		return kernel;
+	}
+	
+	/**
+	 * Sets the maximum number of cached kernels. Evicts the least recently
+	 * used kernels when there are more.
+	 * 
+	 * @param maximumKernels
+	 *            The new capacity, at least one.
+	 */
+	public static void setCapacity(int maximumKernels) {
+		kernels.setCapacity(maximumKernels);
+	}
+	
+	/**
+	 * @return The maximum number of cached kernels.
+	 */
+	public static int getCapacity() {
+		return kernels.getCapacity();
+	}
+	
+	/**
+	 * @return The number of cached kernels.
+	 */
+	public static int size() {
+		return kernels.size();
+	}
+	
+	/**
+	 * Removes all kernels from the cache.
+	 */
+	public static void clear() {
+		kernels.clear();
+	}
+	
+	private ConstantQKernel(float sampleRate, float minFreq, float maxFreq, float binsPerOctave, float threshold,
+			float spread) {
+		this.binsPerOctave = binsPerOctave;
+		
+		// Calculate Constant Q
+		double q = 1.0 / (Math.pow(2, 1.0 / binsPerOctave) - 1.0) / spread;
+		
+		// Calculate number of output bins
+		int numberOfBins = (int) Math.ceil(binsPerOctave * Math.log(maxFreq / minFreq) / Math.log(2));
+		
+		// Calculate the minimum length of the FFT to support the minimum
+		// frequency
+		float calc_fftlen = (float) Math.ceil(q * sampleRate / minFreq);
+		
+		//The FFT length needs to be a power of two for performance reasons:
+		fftLength = (int) Math.pow(2, Math.ceil(Math.log(calc_fftlen) / Math.log(2)));
+		
+		FFT fft = new FFT(fftLength);
+		frequencies = new float[numberOfBins];
+		rowStart = new int[numberOfBins + 1];
+		
+		// Calculate Constant Q kernels
+		float[] sKernel = new float[fftLength * 2];
+		int[] rowColumns = new int[fftLength];
+		float[] rowWeights = new float[fftLength * 2];
+		int[] allColumns = new int[fftLength];
+		float[] allWeights = new float[fftLength * 2];
+		int entries = 0;
+		for (int i = 0; i < numberOfBins; i++) {
+			// Calculate the frequency of current bin
+			frequencies[i] = (float) (minFreq * Math.pow(2, i / binsPerOctave));
+			
+			// Calculate length of window
+			int len = (int) Math.min(Math.ceil(q * sampleRate / frequencies[i]), fftLength);
+			
+			for (int j = 0; j < len; j++) {
+				double window = -.5 * Math.cos(2. * Math.PI * (double) j / (double) len) + .5; // Hanning Window
+				window /= len;
+				
+				// Calculate kernel
+				double x = 2 * Math.PI * q * (double) j / (double) len;
+				sKernel[j * 2] = (float) (window * Math.cos(x));
+				sKernel[j * 2 + 1] = (float) (window * Math.sin(x));
+			}
+			for (int j = len * 2; j < fftLength * 2; j++) {
+				sKernel[j] = 0;
+			}
+			
+			// Perform FFT on kernel
+			fft.complexForwardTransform(sKernel);
+			
+			// Remove all zeros from kernel to improve performance
+			int k = 0;
+			for (int j = 0, j2 = sKernel.length - 2; j < sKernel.length / 2; j += 2, j2 -= 2) {
+				double absval = Math.sqrt(sKernel[j] * sKernel[j] + sKernel[j + 1] * sKernel[j + 1]);
+				absval += Math.sqrt(sKernel[j2] * sKernel[j2] + sKernel[j2 + 1] * sKernel[j2 + 1]);
+				if (absval > threshold) {
+					rowColumns[k] = j;
+					rowWeights[2 * k] = sKernel[j] + sKernel[j2];
+					rowWeights[2 * k + 1] = sKernel[j + 1] + sKernel[j2 + 1];
+					k++;
+				}
+			}
+			
+			if (entries + k > allColumns.length) {
+				allColumns = Arrays.copyOf(allColumns, Math.max(2 * allColumns.length, entries + k));
+				allWeights = Arrays.copyOf(allWeights, 2 * allColumns.length);
+			}
+			for (int j = 0; j < k; j++) {
+				allColumns[entries + j] = rowColumns[j];
+				// Normalize fft output, perform the complex conjugate and
+				// negate: only the real part changes sign
+				allWeights[2 * (entries + j)] = -(rowWeights[2 * j] / fftLength);
+				allWeights[2 * (entries + j) + 1] = rowWeights[2 * j + 1] / fftLength;
+			}
+			entries += k;
+			rowStart[i + 1] = entries;
+		}
+		columns = Arrays.copyOf(allColumns, entries);
+		weights = Arrays.copyOf(allWeights, 2 * entries);
+	}
+	
+	/**
+	 * Multiplies the kernel with the spectrum of a buffer.
+	 * 
+	 * @param spectrum
+	 *            The FFT of the audio, in the packed layout of
+	 *            {@link be.hogent.tarsos.dsp.util.fft.FloatFFT#realForward(float[])}.
+	 * @param coefficients
+	 *            Receives the complex constant Q coefficients, real and
+	 *            imaginary part of each bin.
+	 */
+	public void multiply(float[] spectrum, float[] coefficients) {
+		for (int i = 0; i < frequencies.length; i++) {
+			float t_r = 0;
+			float t_i = 0;
+			for (int l = rowStart[i]; l < rowStart[i + 1]; l++) {
+				int jj = columns[l];
+				float b_r = spectrum[jj];
+				float b_i = spectrum[jj + 1];
+				float k_r = weights[2 * l];
+				float k_i = weights[2 * l + 1];
+				// COMPLEX: T += B * K
+				t_r += b_r * k_r - b_i * k_i;
+				t_i += b_r * k_i + b_i * k_r;
+			}
+			coefficients[i * 2] = t_r;
+			coefficients[i * 2 + 1] = t_i;
+		}
+	}
+	
+	/**
+	 * Calculates the constant Q magnitudes of four spectra at once, so each
+	 * kernel entry is read once for the four of them. The result of each
+	 * spectrum is the same as with {@link #multiply(float[], float[])}.
+	 * 
+	 * @param s0
+	 *            The first spectrum, in the packed layout of
+	 *            {@link be.hogent.tarsos.dsp.util.fft.FloatFFT#realForward(float[])}.
+	 * @param s1
+	 *            The second spectrum.
+	 * @param s2
+	 *            The third spectrum.
+	 * @param s3
+	 *            The fourth spectrum.
+	 * @param magnitudes
+	 *            Receives the magnitudes of the four spectra, one after the
+	 *            other.
+	 * @param offset
+	 *            The index in the magnitudes of the first bin of the first
+	 *            spectrum.
+	 */
+	void magnitudes(float[] s0, float[] s1, float[] s2, float[] s3, float[] magnitudes, int offset) {
+		final int bins = frequencies.length;
+		for (int i = 0; i < bins; i++) {
+			float r0 = 0, i0 = 0, r1 = 0, i1 = 0, r2 = 0, i2 = 0, r3 = 0, i3 = 0;
+			for (int l = rowStart[i]; l < rowStart[i + 1]; l++) {
+				final int jj = columns[l];
+				final float k_r = weights[2 * l];
+				final float k_i = weights[2 * l + 1];
+				r0 += s0[jj] * k_r - s0[jj + 1] * k_i;
+				i0 += s0[jj] * k_i + s0[jj + 1] * k_r;
+				r1 += s1[jj] * k_r - s1[jj + 1] * k_i;
+				i1 += s1[jj] * k_i + s1[jj + 1] * k_r;
+				r2 += s2[jj] * k_r - s2[jj + 1] * k_i;
+				i2 += s2[jj] * k_i + s2[jj + 1] * k_r;
+				r3 += s3[jj] * k_r - s3[jj + 1] * k_i;
+				i3 += s3[jj] * k_i + s3[jj + 1] * k_r;
+			}
+			magnitudes[offset + i] = (float) Math.sqrt(r0 * r0 + i0 * i0);
+			magnitudes[offset + bins + i] = (float) Math.sqrt(r1 * r1 + i1 * i1);
+			magnitudes[offset + 2 * bins + i] = (float) Math.sqrt(r2 * r2 + i2 * i2);
+			magnitudes[offset + 3 * bins + i] = (float) Math.sqrt(r3 * r3 + i3 * i3);
+		}
+	}
+	
+	/**
+	 * @return The length of the FFT the kernel applies to.
+	 */
+	public int getFFTLength() {
+		return fftLength;
+	}
+	
+	/**
+	 * @return The number of constant Q bins.
+	 */
+	public int getNumberOfBins() {
+		return frequencies.length;
+	}
+	
+	/**
+	 * @return The number of bins per octave.
+	 */
+	public float getBinsPerOctave() {
+		return binsPerOctave;
+	}
+	
+	/**
+	 * @return The number of non-zero entries.
+	 */
+	public int getNumberOfEntries() {
+		return columns.length;
+	}
+	
+	/**
+	 * @return A copy of the start frequency of each bin, in Hz.
+	 */
+	public float[] getFrequencies() {
+		return frequencies.clone();
+	}
+	
+	private static final class Key {
+		private final float sampleRate;
+		private final float minFreq;
+		private final float maxFreq;
+		private final float binsPerOctave;
+		private final float threshold;
+		private final float spread;
+		
+		private Key(float sampleRate, float minFreq, float maxFreq, float binsPerOctave, float threshold, float spread) {
+			this.sampleRate = sampleRate;
+			this.minFreq = minFreq;
+			this.maxFreq = maxFreq;
+			this.binsPerOctave = binsPerOctave;
+			this.threshold = threshold;
+			this.spread = spread;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return Float.compare(sampleRate, key.sampleRate) == 0 && Float.compare(minFreq, key.minFreq) == 0
+					&& Float.compare(maxFreq, key.maxFreq) == 0 && Float.compare(binsPerOctave, key.binsPerOctave) == 0
+					&& Float.compare(threshold, key.threshold) == 0 && Float.compare(spread, key.spread) == 0;
+		}
+		
+		@Override
+		public int hashCode() {
+			int hash = Float.floatToIntBits(sampleRate);
+			hash = 31 * hash + Float.floatToIntBits(minFreq);
+			hash = 31 * hash + Float.floatToIntBits(maxFreq);
+			hash = 31 * hash + Float.floatToIntBits(binsPerOctave);
+			hash = 31 * hash + Float.floatToIntBits(threshold);
+			hash = 31 * hash + Float.floatToIntBits(spread);
+			return hash;
+		}
+	}
+}
@@ -106,6 +106,7 @@ public class EnvelopeFollower implements AudioProcessor {
 	public boolean process(AudioEvent audioEvent) {
 		float[] buffer = audioEvent.getFloatBuffer();
 		calculateEnvelope(buffer);
+		audioEvent.samplesChanged();
 		return true;
 	}
 	
@@ -0,0 +1,46 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+/**
+ * Copies the features of the current buffer into a frame, e.g. the
+ * coefficients a processor earlier in the chain calculated. Consumers of
+ * feature frames, such as a feature file writer or a processor that adds
+ * temporal context, call it once per buffer.
+ * 
+ * @author Joren Six
+ */
+public interface FeatureSource {
+	/**
+	 * @param audioEvent
+	 *            The current buffer.
+	 * @param frame
+	 *            The frame to fill, with room for the dimensions the consumer
+	 *            expects.
+	 */
+	void getFeatures(AudioEvent audioEvent, float[] frame);
+}
@@ -58,6 +58,7 @@ public class GainProcessor implements AudioProcessor {
 			}
 			audioFloatBuffer[i] = newValue;
 		}
+		audioEvent.samplesChanged();
 		return true;
 	}
 	
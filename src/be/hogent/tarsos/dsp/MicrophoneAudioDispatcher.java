@@ -26,16 +26,19 @@
 
 package be.hogent.tarsos.dsp;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
+import android.os.Process;
 import be.hogent.tarsos.dsp.AudioEvent;
 import be.hogent.tarsos.dsp.AudioFormat;
 import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.metrics.ProcessingMetrics;
 import be.hogent.tarsos.dsp.util.AudioFloatConverter;
+import be.hogent.tarsos.dsp.util.FloatRingBuffer;
+import be.hogent.tarsos.dsp.util.FloatRingBuffer.OverflowPolicy;
 
 /**
  * This class plays a file and sends float arrays to registered AudioProcessor
@@ -43,6 +46,16 @@ import be.hogent.tarsos.dsp.util.AudioFloatConverter;
  * players, ... Using a (blocking) audio player it is even possible to
  * synchronize execution of AudioProcessors and sound. This behavior can be used
  * for visualization.
+ * <p>
+ * Reading from the microphone happens on a separate, high priority capture
+ * thread which writes the samples to a preallocated {@link FloatRingBuffer}.
+ * The thread running the dispatcher takes overlapping buffers from that ring
+ * and sends them through the processors, so a slow processor no longer blocks
+ * the microphone. When the processors fall behind for longer than the ring
+ * can hold, the {@link OverflowPolicy} decides which samples are dropped. The
+ * time stamps of the audio events keep following the microphone, dropped
+ * samples included.
+ * </p>
  * 
  * @author Joren Six
  */
@@ -50,7 +63,8 @@ public final class MicrophoneAudioDispatcher implements Runnable {
 
     /**
      * The audio stream (in bytes), conversion to float happens at the last
-     * moment.
+     * moment. Null when the samples are written to the ring by another
+     * producer.
      */
     private final AudioRecord audioInputStream;
 
@@ -61,10 +75,29 @@ public final class MicrophoneAudioDispatcher implements Runnable {
     private float[] audioFloatBuffer;
 
     /**
-     * This buffer is reused again and again to store audio data using the byte
-     * data type.
+     * The capture thread reads the microphone into this buffer.
+     */
+    private final byte[] captureByteBuffer;
+
+    /**
+     * The capture thread converts the bytes it read to this buffer.
+     */
+    private final float[] captureFloatBuffer;
+
+    /**
+     * Hands the samples from the capture thread to the processing thread.
+     */
+    private final FloatRingBuffer ringBuffer;
+
+    /**
+     * The thread reading the microphone, null before {@link #run()}.
+     */
+    private Thread captureThread;
+
+    /**
+     * The number of dropped samples already reported to the metrics.
      */
-    private byte[] audioByteBuffer;
+    private long reportedDroppedSamples;
 
     /**
      * A list of registered audio processors. The audio processors are
@@ -88,15 +121,9 @@ public final class MicrophoneAudioDispatcher implements Runnable {
     private int floatOverlap, floatStepSize;
 
     /**
-     * The overlap and stepsize defined not in samples but in bytes. So it
-     * depends on the bit depth. Since the int datatype is used only 8,16,24,...
-     * bits or 1,2,3,... bytes are supported.
-     */
-    private int byteOverlap, byteStepSize;
-
-    /**
-     * Position in the stream in bytes. e.g. if 44100 bytes are processed and 16
-     * bits per frame are used then you are 0.5 seconds into the stream.
+     * Position in the stream in bytes of the first new sample of the current
+     * buffer. e.g. if 44100 bytes are processed and 16 bits per frame are used
+     * then you are 0.5 seconds into the stream.
      */
     private long bytesProcessed;
 
@@ -105,7 +132,7 @@ public final class MicrophoneAudioDispatcher implements Runnable {
     /**
      * If true the dispatcher stops dispatching audio.
      */
-    private boolean stopped;
+    private volatile boolean stopped;
 
     /**
      * if zero pad is true then the first buffer is only filled up to buffer
@@ -114,6 +141,11 @@ public final class MicrophoneAudioDispatcher implements Runnable {
      */
     private boolean zeroPad;
 
+    /**
+     * Optional instrumentation of the processing chain, null when disabled.
+     */
+    private ProcessingMetrics metrics;
+
     /**
      * Create a new dispatcher using Android's microphone.
      * 
@@ -123,9 +155,26 @@ public final class MicrophoneAudioDispatcher implements Runnable {
      * @param bufferOverlap How much consecutive buffers overlap (in samples).
      *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
      */
-
     public MicrophoneAudioDispatcher(final int sampleRate, final int audioBufferSize,
             final int bufferOverlap) {
+        this(sampleRate, audioBufferSize, bufferOverlap, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Create a new dispatcher using Android's microphone. The ring between the
+     * capture and processing threads holds at least one second of audio and at
+     * least four buffers.
+     * 
+     * @param sampleRate The sample rate.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024,2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     * @param overflowPolicy What to do when the processors fall so far behind
+     *            that the ring is full.
+     */
+    public MicrophoneAudioDispatcher(final int sampleRate, final int audioBufferSize,
+            final int bufferOverlap, final OverflowPolicy overflowPolicy) {
         audioProcessors = new ArrayList<AudioProcessor>();
 
         int minAudioBufferSize = AudioRecord.getMinBufferSize(sampleRate,
@@ -139,6 +188,41 @@ public final class MicrophoneAudioDispatcher implements Runnable {
 
         setStepSizeAndOverlap(audioBufferSize, bufferOverlap);
         converter = AudioFloatConverter.getConverter(format);
+
+        ringBuffer = new FloatRingBuffer(Math.max(sampleRate, 4 * audioBufferSize), overflowPolicy);
+        // Read half of the buffer of the recorder at a time, but never more
+        // than half of the ring.
+        int captureSize = Math.max(256, minAudioBufferSize / format.getFrameSize() / 2);
+        captureSize = Math.min(captureSize, ringBuffer.getCapacity() / 2);
+        captureFloatBuffer = new float[captureSize];
+        captureByteBuffer = new byte[captureSize * format.getFrameSize()];
+        stopped = false;
+        bytesProcessed = 0;
+    }
+
+    /**
+     * Create a new dispatcher that takes its samples from a ring buffer
+     * written by another thread, instead of from the microphone. The
+     * dispatcher stops when the ring is closed.
+     * 
+     * @param ringBuffer The ring the samples are written to.
+     * @param format The format of the samples, mono.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024,2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     *            Half of the AudioBufferSize is common (512, 1024) for an FFT.
+     */
+    public MicrophoneAudioDispatcher(final FloatRingBuffer ringBuffer, final AudioFormat format,
+            final int audioBufferSize, final int bufferOverlap) {
+        audioProcessors = new ArrayList<AudioProcessor>();
+        audioInputStream = null;
+        this.format = format;
+        audioEvent = new AudioEvent(format, 0);
+        setStepSizeAndOverlap(audioBufferSize, bufferOverlap);
+        converter = null;
+        this.ringBuffer = ringBuffer;
+        captureFloatBuffer = null;
+        captureByteBuffer = null;
         stopped = false;
         bytesProcessed = 0;
     }
@@ -168,7 +252,8 @@ public final class MicrophoneAudioDispatcher implements Runnable {
     /**
      * Set a new step size and overlap size. Both in number of samples. Watch
      * out with this method: it should be called after a batch of samples is
-     * processed, not during.
+     * processed, not during. The step size can not exceed the capacity of the
+     * ring buffer.
      * 
      * @param audioBufferSize The size of the buffer defines how much samples
      *            are processed in one step. Common values are 1024,2048.
@@ -179,11 +264,6 @@ public final class MicrophoneAudioDispatcher implements Runnable {
         audioFloatBuffer = new float[audioBufferSize];
         floatOverlap = bufferOverlap;
         floatStepSize = audioFloatBuffer.length - floatOverlap;
-
-        // final AudioFormat format = audioInputStream.getFormat();
-        audioByteBuffer = new byte[audioFloatBuffer.length * format.getFrameSize()];
-        byteOverlap = floatOverlap * format.getFrameSize();
-        byteStepSize = floatStepSize * format.getFrameSize();
     }
 
     /**
@@ -222,43 +302,70 @@ public final class MicrophoneAudioDispatcher implements Runnable {
      * @see java.lang.Runnable#run()
      */
     public void run() {
-        audioInputStream.startRecording();
+        if (audioInputStream != null) {
+            audioInputStream.startRecording();
+            captureThread = new Thread(new Runnable() {
+                public void run() {
+                    capture();
+                }
+            }, "TarsosDSP microphone capture");
+            captureThread.start();
+        }
         runSourcedDispatcher();
     }
 
+    /**
+     * Runs on the capture thread: reads the microphone and writes the samples
+     * to the ring buffer until the dispatcher stops. The recorder is released
+     * here, after the last read.
+     */
+    private void capture() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        try {
+            while (!stopped) {
+                int bytesRead = audioInputStream.read(captureByteBuffer, 0, captureByteBuffer.length);
+                if (bytesRead < 0) {
+                    // An error code of the recorder.
+                    break;
+                }
+                int samplesRead = bytesRead / format.getFrameSize();
+                converter.toFloatArray(captureByteBuffer, 0, captureFloatBuffer, 0, samplesRead);
+                ringBuffer.write(captureFloatBuffer, 0, samplesRead);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ringBuffer.close();
+            audioInputStream.release();
+        }
+    }
+
     private void runSourcedDispatcher() {
         try {
-            int bytesRead = 0;
+            long position;
 
             if (zeroPad) {
-                bytesRead = slideBuffer();
+                position = slideBuffer();
             } else {
-                bytesRead = processFirstBuffer();
+                position = processFirstBuffer();
             }
 
-            // as long as the stream has not ended or the number of bytes
-            // processed is smaller than the number of bytes to process: process
-            // bytes.
-            audioLoop: while (bytesRead != -1 && !stopped) {
+            // as long as the stream has not ended: process samples.
+            audioLoop: while (position != -1 && !stopped) {
 
                 // Makes sure the right buffers are processed, they can be
                 // changed by audio processors.
                 audioEvent.setOverlap(floatOverlap);
                 audioEvent.setFloatBuffer(audioFloatBuffer);
-                audioEvent.setBytesProcessed(bytesProcessed);
+                audioEvent.setBytesProcessed(windowStart());
 
-                for (final AudioProcessor processor : audioProcessors) {
-                    if (!processor.process(audioEvent)) {
-                        break audioLoop;
-                    }
+                if (!dispatch(floatStepSize)) {
+                    break audioLoop;
                 }
 
-                // Update the number of bytes processed;
-                bytesProcessed += bytesRead;
-
-                // Read, convert and process consecutive overlapping buffers.
+                // Take consecutive overlapping buffers from the ring.
                 // Slide the buffer.
-                bytesRead = slideBuffer();
+                position = slideBuffer();
             }
 
             // Notify all processors that no more data is available.
@@ -268,60 +375,78 @@ public final class MicrophoneAudioDispatcher implements Runnable {
             if (!stopped) {
                 stop();
             }
-        } catch (Exception e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!stopped) {
+                stop();
+            }
         }
     }
 
-    private int processFirstBuffer() throws IOException {
-        // the overlap for the first buffer is zero.
-        audioEvent.setOverlap(0);
-        audioEvent.setFloatBuffer(audioFloatBuffer);
-        audioEvent.setBytesProcessed(bytesProcessed);
-
-        // Read, convert and process the first full buffer.
-        // Always read a full byte buffer!
-        int bytesRead = 0;
-        int currentBytesRead = 0;
-        while (bytesRead != -1 && currentBytesRead < audioByteBuffer.length) {
-            bytesRead = audioInputStream.read(audioByteBuffer, currentBytesRead,
-                    audioByteBuffer.length - currentBytesRead);
-            currentBytesRead += bytesRead;
-        }
-        bytesRead = currentBytesRead;
+    private long processFirstBuffer() throws InterruptedException {
+        // Take a full first buffer from the ring.
+        long position = ringBuffer.read(audioFloatBuffer, 0, audioFloatBuffer.length);
 
-        if (bytesRead != -1 && !stopped) {
-            converter.toFloatArray(audioByteBuffer, audioFloatBuffer);
+        if (position != -1 && !stopped) {
+            bytesProcessed = position * format.getFrameSize();
+            // the overlap for the first buffer is zero.
+            audioEvent.setOverlap(0);
+            audioEvent.setFloatBuffer(audioFloatBuffer);
+            audioEvent.setBytesProcessed(bytesProcessed);
 
-            for (final AudioProcessor processor : audioProcessors) {
-                if (!processor.process(audioEvent)) {
-                    break;
-                }
-            }
-            // Update the number of bytes processed;
-            bytesProcessed += bytesRead;
+            dispatch(audioFloatBuffer.length);
 
-            // Read, convert and process consecutive overlapping buffers.
+            // Take consecutive overlapping buffers from the ring.
             // Slide the buffer.
-            bytesRead = slideBuffer();
+            position = slideBuffer();
+        }
+        return position;
+    }
+
+    /**
+     * Sends the current buffer through the chain of processors.
+     * 
+     * @param newFrames The number of new samples in the buffer.
+     * @return False if a processor stopped the chain, true otherwise.
+     */
+    private boolean dispatch(final int newFrames) {
+        if (metrics != null) {
+            long droppedSamples = ringBuffer.getDroppedSamples();
+            if (droppedSamples != reportedDroppedSamples) {
+                metrics.recordDroppedFrames(droppedSamples - reportedDroppedSamples);
+                reportedDroppedSamples = droppedSamples;
+            }
+            // The ring always delivers full buffers, no underruns.
+            return metrics.process(audioProcessors, audioEvent, newFrames, newFrames);
+        }
+        // Indexed loop: an iterator would be allocated for every buffer on Android.
+        for (int i = 0; i < audioProcessors.size(); i++) {
+            if (!audioProcessors.get(i).process(audioEvent)) {
+                return false;
+            }
         }
-        return bytesRead;
+        return true;
     }
 
     /**
-     * Stops dispatching audio data.
+     * Stops dispatching audio data. The capture thread releases the microphone
+     * after its current read.
      */
     public void stop() {
         stopped = true;
+        ringBuffer.close();
         for (final AudioProcessor processor : audioProcessors) {
             processor.processingFinished();
         }
-        audioInputStream.release();
+        if (captureThread == null && audioInputStream != null) {
+            audioInputStream.release();
+        }
     }
 
     /**
-     * Slides a buffer with an floatOverlap and reads new data from the stream.
-     * to the correct place in the buffer. E.g. with a buffer size of 9 and
-     * floatOverlap of 3.
+     * Slides a buffer with an floatOverlap and takes new samples from the ring
+     * buffer to the correct place in the buffer. E.g. with a buffer size of 9
+     * and floatOverlap of 3.
      * 
      * <pre>
      *      | 0 | 1 | 3 | 3 | 4  | 5  | 6  | 7  | 8  |
@@ -337,36 +462,70 @@ public final class MicrophoneAudioDispatcher implements Runnable {
      *      | 6 | 7 | 8 | 9 | 10 | 11 | 12 | 13 | 14 |
      * </pre>
      * 
-     * @return The number of bytes read.
-     * @throws IOException When something goes wrong while reading the stream.
-     *             In particular, an IOException is thrown if the input stream
-     *             has been closed.
+     * @return The position in the stream of the first new sample, or -1 when
+     *         the dispatcher is stopped.
+     * @throws InterruptedException When interrupted while waiting for samples.
      */
-    private int slideBuffer() throws IOException {
+    private long slideBuffer() throws InterruptedException {
         assert floatOverlap < audioFloatBuffer.length;
 
         // Is array copy faster to shift an array? Probably..
         System.arraycopy(audioFloatBuffer, floatStepSize, audioFloatBuffer, 0, floatOverlap);
 
-        int bytesRead = 0;
-
-        // Check here if the dispatcher is stopped to prevent reading from a
-        // closed audio stream.
+        // Check here if the dispatcher is stopped to prevent waiting for a
+        // closed ring.
         if (stopped) {
-            bytesRead = -1;
-        } else {
-            int currentBytesRead = 0;
-            // Always read a full byte buffer!
-            while (bytesRead != -1 && currentBytesRead < byteStepSize) {
-                bytesRead = audioInputStream.read(audioByteBuffer, byteOverlap + currentBytesRead,
-                        byteStepSize - currentBytesRead);   
-                currentBytesRead += bytesRead;
-            }
-            bytesRead = currentBytesRead;
-            converter.toFloatArray(audioByteBuffer, byteOverlap, audioFloatBuffer, floatOverlap,
-                    floatStepSize);
+            return -1;
+        }
+        long position = ringBuffer.read(audioFloatBuffer, floatOverlap, floatStepSize);
+        if (position != -1) {
+            bytesProcessed = position * format.getFrameSize();
         }
-        return bytesRead;
+        return position;
+    }
+
+    /**
+     * The position of the first sample of the current buffer in the stream, in
+     * bytes, the same as for the {@link AudioDispatcher}: the overlapping part
+     * of the buffer was taken from the ring for the previous buffer. When zero
+     * padding is used the stream is considered to start after the padding.
+     */
+    private long windowStart() {
+        return zeroPad ? bytesProcessed : bytesProcessed - floatOverlap * format.getFrameSize();
+    }
+
+    /**
+     * @return The number of samples dropped because the processors could not
+     *         keep up with the microphone.
+     */
+    public long getDroppedSamples() {
+        return ringBuffer.getDroppedSamples();
+    }
+
+    /**
+     * @return The number of times the capture thread found the ring buffer
+     *         full.
+     */
+    public long getOverflows() {
+        return ringBuffer.getOverflows();
+    }
+
+    /**
+     * Enables or disables the instrumentation of the processing chain. Set it
+     * before the dispatcher runs. Without metrics the chain is not
+     * instrumented at all.
+     * 
+     * @param metrics The metrics to record to, or null to disable recording.
+     */
+    public void setMetrics(final ProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics of the processing chain, or null when disabled.
+     */
+    public ProcessingMetrics getMetrics() {
+        return metrics;
     }
 
     public AudioFormat getFormat() {
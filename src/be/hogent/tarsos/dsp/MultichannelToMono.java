@@ -29,6 +29,10 @@ public class MultichannelToMono implements AudioProcessor{
 	
 	private int channels;
 	private boolean mean;
+	/**
+	 * The mono samples, reused for every buffer.
+	 */
+	private float[] newBuffer;
 	
 	public MultichannelToMono(int numberOfChannels,boolean meanOfchannels){
 		channels = numberOfChannels;
@@ -38,7 +42,9 @@ public class MultichannelToMono implements AudioProcessor{
 	@Override
 	public boolean process(AudioEvent audioEvent) {
 		float[] buffer = audioEvent.getFloatBuffer();
-		float[] newBuffer = new float[buffer.length/channels];
+		if(newBuffer == null || newBuffer.length != buffer.length/channels){
+			newBuffer = new float[buffer.length/channels];
+		}
 		
 		if(mean){
 			if(channels==2){
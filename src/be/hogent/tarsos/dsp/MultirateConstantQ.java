@@ -0,0 +1,339 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+import be.hogent.tarsos.dsp.util.fft.FFT;
+
+/**
+ * A constant Q transform that processes one octave at a time. The FFT of
+ * {@link ConstantQ} is long enough for the window of the lowest bin, so a low
+ * minimum frequency makes every buffer expensive, also for the top octaves.
+ * This transform only applies the kernel of the top octave, which needs a
+ * short FFT. For each lower octave the signal is low-pass filtered and
+ * decimated by two, after which the same kernel yields the bins one octave
+ * lower.
+ * <p>
+ * The bins, their frequencies and the required buffer size are those of a
+ * {@link ConstantQ} with the same parameters, so the two are interchangeable.
+ * The windows of the lower bins are the windows of the top octave, stretched,
+ * so their lengths are rounded differently: the magnitude of a tone at the
+ * frequency of a bin agrees within a few percent, the neighbouring bins of a
+ * peak can differ by up to about ten percent of the peak magnitude. The
+ * filter is a half-band filter with a Blackman window, long enough to keep
+ * the aliases of the decimation out of the analyzed band: keep the maximum
+ * frequency below about 0.4 times the sample rate.
+ * </p>
+ * <p>
+ * Christian Schörkhuber and Anssi Klapuri, Constant-Q transform toolbox for
+ * music processing, 7th Sound and Music Computing Conference, 2010.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class MultirateConstantQ implements AudioProcessor {
+	
+	/**
+	 * The shortest and the longest decimation filter.
+	 */
+	private static final int MINIMUM_TAPS = 11;
+	private static final int MAXIMUM_TAPS = 255;
+	
+	private final float[] frequencies;
+	private final int binsPerOctave;
+	private final int fftLength;
+	
+	/**
+	 * The kernel of the top octave, applied to every octave.
+	 */
+	private final ConstantQKernel kernel;
+	private final FFT fft;
+	private final float[] spectrum;
+	private final float[] octaveCoefficients;
+	
+	/**
+	 * The non-zero taps of the half-band filter: the center tap and the taps
+	 * at odd distances 1, 3, 5, ... from the center.
+	 */
+	private final float centerTap;
+	private final float[] oddTaps;
+	
+	/**
+	 * The signal at each octave, level o is decimated o times. Each level has
+	 * padding zeros on both sides for the filter.
+	 */
+	private final float[][] levels;
+	private final int padding;
+	
+	/**
+	 * The number of samples calculated for each level: enough for the longest
+	 * window analyzed at that level and for the decimation to the next level.
+	 * Further samples stay zero.
+	 */
+	private final int[] lengths;
+	
+	private final float[] coefficients;
+	private final float[] magnitudes;
+	
+	/**
+	 * Create a multirate constant Q transform.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param minFreq
+	 *            The frequency of the first bin, in Hz.
+	 * @param maxFreq
+	 *            The maximum frequency, in Hz.
+	 * @param binsPerOctave
+	 *            The number of bins per octave.
+	 */
+	public MultirateConstantQ(float sampleRate, float minFreq, float maxFreq, float binsPerOctave) {
+		this(sampleRate, minFreq, maxFreq, binsPerOctave, 0.001f, 1.0f);
+	}
+	
+	/**
+	 * Create a multirate constant Q transform.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param minFreq
+	 *            The frequency of the first bin, in Hz.
+	 * @param maxFreq
+	 *            The maximum frequency, in Hz.
+	 * @param binsPerOctave
+	 *            The number of bins per octave.
+	 * @param threshold
+	 *            Kernel entries with a smaller magnitude are left out.
+	 * @param spread
+	 *            Widens (above 1) or narrows the bandwidth of the bins.
+	 */
+	public MultirateConstantQ(float sampleRate, float minFreq, float maxFreq, float binsPerOctave, float threshold,
+			float spread) {
+		this.binsPerOctave = (int) binsPerOctave;
+		
+		// The same bins and buffer size as ConstantQ
+		double q = 1.0 / (Math.pow(2, 1.0 / binsPerOctave) - 1.0) / spread;
+		int numberOfBins = (int) Math.ceil(binsPerOctave * Math.log(maxFreq / minFreq) / Math.log(2));
+		float calc_fftlen = (float) Math.ceil(q * sampleRate / minFreq);
+		fftLength = (int) Math.pow(2, Math.ceil(Math.log(calc_fftlen) / Math.log(2)));
+		frequencies = new float[numberOfBins];
+		for (int i = 0; i < numberOfBins; i++) {
+			frequencies[i] = (float) (minFreq * Math.pow(2, i / binsPerOctave));
+		}
+		
+		// The kernel of the top octave: exactly binsPerOctave bins, starting at
+		// the first bin of the top octave
+		int octaves = (numberOfBins + this.binsPerOctave - 1) / this.binsPerOctave;
+		float topMinimum = (float) (minFreq * Math.pow(2, (numberOfBins - this.binsPerOctave) / binsPerOctave));
+		float topMaximum = (float) (topMinimum * Math.pow(2, (this.binsPerOctave - 0.5) / binsPerOctave));
+		kernel = ConstantQKernel.getKernel(sampleRate, topMinimum, topMaximum, binsPerOctave, threshold, spread);
+		int topLength = kernel.getFFTLength();
+		fft = new FFT(topLength);
+		spectrum = new float[topLength];
+		octaveCoefficients = new float[2 * kernel.getNumberOfBins()];
+		
+		// A half-band filter with a transition band from the top of the next
+		// octave up to where its aliases would fall in the next octave
+		double transition = Math.max(0.01, 0.5 - Math.min(maxFreq, topMaximum) / sampleRate);
+		int taps = (int) Math.ceil(5.5 / transition);
+		taps = Math.max(MINIMUM_TAPS, Math.min(MAXIMUM_TAPS, taps));
+		// 4k + 3 taps, so the outermost taps are odd distances from the center
+		taps = (taps / 4) * 4 + 3;
+		int half = taps / 2;
+		double[] filter = new double[half + 1];
+		double sum = 0;
+		for (int k = 0; k <= half; k++) {
+			double sinc = k == 0 ? 0.5 : Math.sin(Math.PI * k / 2) / (Math.PI * k);
+			double position = (double) (k + half) / (taps - 1);
+			double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * position) + 0.08 * Math.cos(4 * Math.PI * position);
+			filter[k] = sinc * window;
+			sum += k == 0 ? filter[k] : 2 * filter[k];
+		}
+		centerTap = (float) (filter[0] / sum);
+		oddTaps = new float[(half + 1) / 2];
+		for (int i = 0; i < oddTaps.length; i++) {
+			oddTaps[i] = (float) (filter[2 * i + 1] / sum);
+		}
+		padding = half;
+		
+		// The bottom octave only needs the window of its lowest bin, the
+		// others the window of the first bin of the kernel. Each level also
+		// needs twice the samples of the next one, plus the filter length.
+		levels = new float[octaves][];
+		lengths = new int[octaves];
+		int lowestBin = this.binsPerOctave * octaves - numberOfBins;
+		int needed = window(q, sampleRate, kernel.getFrequencies()[lowestBin], topLength);
+		int longestWindow = window(q, sampleRate, topMinimum, topLength);
+		for (int o = octaves - 1; o >= 0; o--) {
+			lengths[o] = needed;
+			levels[o] = new float[Math.max(topLength, needed) + 2 * padding];
+			needed = Math.max(longestWindow, 2 * needed + half);
+		}
+		
+		coefficients = new float[2 * numberOfBins];
+		magnitudes = new float[numberOfBins];
+	}
+	
+	/**
+	 * Take an input buffer with audio and calculate the constant Q
+	 * coefficients. The buffer is not modified.
+	 * 
+	 * @param inputBuffer
+	 *            The input buffer with audio.
+	 */
+	public void calculate(float[] inputBuffer) {
+		final int bins = frequencies.length;
+		final float[] first = levels[0];
+		final int length = Math.min(inputBuffer.length, lengths[0]);
+		System.arraycopy(inputBuffer, 0, first, padding, length);
+		for (int i = padding + length; i < padding + lengths[0]; i++) {
+			first[i] = 0;
+		}
+		for (int o = 0; o < levels.length; o++) {
+			System.arraycopy(levels[o], padding, spectrum, 0, spectrum.length);
+			fft.forwardTransform(spectrum);
+			kernel.multiply(spectrum, octaveCoefficients);
+			final int firstBin = bins - binsPerOctave * (o + 1);
+			for (int j = Math.max(0, -firstBin); j < binsPerOctave; j++) {
+				coefficients[2 * (firstBin + j)] = octaveCoefficients[2 * j];
+				coefficients[2 * (firstBin + j) + 1] = octaveCoefficients[2 * j + 1];
+			}
+			if (o + 1 < levels.length) {
+				decimate(levels[o], levels[o + 1], lengths[o + 1]);
+			}
+		}
+	}
+	
+	/**
+	 * @return The length of the window of a kernel bin, as calculated by
+	 *         {@link ConstantQKernel}.
+	 */
+	private static int window(double q, float sampleRate, float frequency, int fftLength) {
+		return (int) Math.min(Math.ceil(q * sampleRate / frequency), fftLength);
+	}
+	
+	/**
+	 * Low-pass filters a level and keeps every second sample. Both levels
+	 * start with padding zeros. Apart from the center tap, the even taps of a
+	 * half-band filter are zero, so they are skipped.
+	 */
+	private void decimate(float[] source, float[] target, int length) {
+		for (int n = 0; n < length; n++) {
+			final int center = padding + 2 * n;
+			float sum = centerTap * source[center];
+			for (int i = 0, k = 1; i < oddTaps.length; i++, k += 2) {
+				sum += oddTaps[i] * (source[center - k] + source[center + k]);
+			}
+			target[padding + n] = sum;
+		}
+	}
+	
+	/**
+	 * Take an input buffer with audio and calculate the constant Q magnitudes.
+	 * 
+	 * @param inputBuffer
+	 *            The input buffer with audio.
+	 */
+	public void calculateMagnitudes(float[] inputBuffer) {
+		calculate(inputBuffer);
+		for (int i = 0; i < magnitudes.length; i++) {
+			magnitudes[i] = (float) Math.sqrt(coefficients[i * 2] * coefficients[i * 2] + coefficients[i * 2 + 1] * coefficients[i * 2 + 1]);
+		}
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] audioBuffer = audioEvent.getFloatBuffer();
+		if (audioBuffer.length != getFFTlength()) {
+			throw new IllegalArgumentException(String.format("The length of the fft (%d) should be the same as the length of the audio buffer (%d)", getFFTlength(), audioBuffer.length));
+		}
+		calculateMagnitudes(audioBuffer);
+		return true;
+	}
+	
+	@Override
+	public void processingFinished() {
+		// Do nothing.
+	}
+	
+	/**
+	 * @return The list of starting frequencies for each band. In Hertz.
+	 */
+	public float[] getFreqencies() {
+		return frequencies;
+	}
+	
+	/**
+	 * Returns the Constant Q magnitudes calculated for the previous audio
+	 * buffer. Beware: the array is reused for performance reasons. If your need
+	 * to cache your results, please copy the array.
+	 * 
+	 * @return The output buffer with constant q magnitudes.
+	 */
+	public float[] getMagnitudes() {
+		return magnitudes;
+	}
+	
+	/**
+	 * Return the Constant Q coefficients calculated for the previous audio
+	 * buffer. Beware: the array is reused for performance reasons.
+	 * 
+	 * @return The complex constant q coefficients, real and imaginary part of
+	 *         each band.
+	 */
+	public float[] getCoefficients() {
+		return coefficients;
+	}
+	
+	/**
+	 * @return The number of coefficients, output bands.
+	 */
+	public int getNumberOfOutputBands() {
+		return frequencies.length;
+	}
+	
+	/**
+	 * @return The required length of the audio buffers, the same as for a
+	 *         {@link ConstantQ} with the same parameters.
+	 */
+	public int getFFTlength() {
+		return fftLength;
+	}
+	
+	/**
+	 * @return The length of the FFT of each octave.
+	 */
+	public int getOctaveFFTLength() {
+		return spectrum.length;
+	}
+	
+	/**
+	 * @return the number of bins every octave.
+	 */
+	public int getBinsPerOctave() {
+		return binsPerOctave;
+	}
+}
@@ -0,0 +1,371 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+import be.hogent.tarsos.dsp.util.ConcurrencyUtils;
+
+/**
+ * <p>
+ * Analyses one long recording on several cores. The recording is split into
+ * segments of consecutive buffers and every segment is processed by its own
+ * {@link AudioDispatcher} with its own chain of processors. The results of the
+ * segments are merged back in time order.
+ * </p>
+ * <p>
+ * Segments are aligned to the buffers of a sequential run: a segment starts
+ * reading one full buffer before its first new step, the overlap of the first
+ * buffer is the lead-in. So every segment sees exactly the same buffers a
+ * sequential {@link AudioDispatcher} sees, and the merged results of processors
+ * without state between buffers, e.g. pitch detectors or MFCC, are equal to
+ * the results of a sequential run. For processors that keep state between
+ * buffers, e.g. onset detectors, a number of warm-up buffers can be processed
+ * before the segment starts, see {@link #setWarmUpBuffers(int)}. Results added
+ * while processing warm-up buffers are discarded.
+ * </p>
+ * <p>
+ * Results are collected by the chain of each segment via
+ * {@link Segment#add(Object)}, e.g. for pitch:
+ * </p>
+ * 
+ * <pre>
+ * List&lt;float[]&gt; pitches = parallel.run(new ChainFactory&lt;float[]&gt;() {
+ *     public void createChain(AudioDispatcher dispatcher, final Segment&lt;float[]&gt; segment) {
+ *         dispatcher.addAudioProcessor(new PitchProcessor(YIN, sampleRate, 2048, new PitchDetectionHandler() {
+ *             public void handlePitch(PitchDetectionResult result, AudioEvent event) {
+ *                 segment.add(new float[] { (float) event.getTimeStamp(), result.getPitch() });
+ *             }
+ *         }));
+ *     }
+ * });
+ * </pre>
+ * 
+ * @author Joren Six
+ */
+public final class ParallelAudioDispatcher {
+
+    /**
+     * Creates the chain of processors for one segment.
+     * 
+     * @param <T> The type of the results.
+     */
+    public interface ChainFactory<T> {
+        /**
+         * Adds the processors for a segment to its dispatcher. This method is
+         * called on the thread that processes the segment.
+         * 
+         * @param dispatcher The dispatcher of the segment.
+         * @param segment Collects the results of the segment.
+         */
+        void createChain(AudioDispatcher dispatcher, Segment<T> segment);
+    }
+
+    /**
+     * A part of the recording that is processed on one thread, it collects the
+     * results of its chain of processors.
+     * 
+     * @param <T> The type of the results.
+     */
+    public static final class Segment<T> {
+        private final int index;
+        private final long readStartBuffer;
+        private final long firstBuffer;
+        private final long endBuffer;
+        private final double secondsPerStep;
+        private final List<T> results;
+        private boolean accepting;
+
+        private Segment(int index, long readStartBuffer, long firstBuffer, long endBuffer, double secondsPerStep) {
+            this.index = index;
+            this.readStartBuffer = readStartBuffer;
+            this.firstBuffer = firstBuffer;
+            this.endBuffer = endBuffer;
+            this.secondsPerStep = secondsPerStep;
+            this.results = new ArrayList<T>();
+        }
+
+        /**
+         * Adds a result of the current buffer. Results of warm-up buffers are
+         * ignored.
+         * 
+         * @param result The result to add.
+         */
+        public void add(T result) {
+            if (accepting) {
+                results.add(result);
+            }
+        }
+
+        /**
+         * @return True if results of the current buffer are kept, false while
+         *         processing warm-up buffers.
+         */
+        public boolean isAccepting() {
+            return accepting;
+        }
+
+        /**
+         * @return The index of the segment, segments are numbered in time
+         *         order.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Processors that count time themselves, instead of using the time
+         * stamp of the audio event, see the start of the segment (warm-up
+         * included) as time zero. This offset converts their time to the time
+         * in the recording.
+         * 
+         * @return The time of the first sample read by the segment, in seconds.
+         */
+        public double getTimeOffset() {
+            return readStartBuffer * secondsPerStep;
+        }
+
+        /**
+         * @return The time stamp of the first buffer of the segment, in
+         *         seconds.
+         */
+        public double getStartTime() {
+            return firstBuffer * secondsPerStep;
+        }
+
+        /**
+         * @return The time stamp of the first buffer after the segment, in
+         *         seconds.
+         */
+        public double getEndTime() {
+            return endBuffer * secondsPerStep;
+        }
+    }
+
+    /**
+     * The first processor of each chain, it stops the segment after its last
+     * buffer and tells the segment whether results should be kept.
+     */
+    private static final class SegmentGate implements AudioProcessor {
+        private final Segment<?> segment;
+        private long bufferIndex;
+
+        private SegmentGate(Segment<?> segment) {
+            this.segment = segment;
+            this.bufferIndex = segment.readStartBuffer;
+        }
+
+        @Override
+        public boolean process(AudioEvent audioEvent) {
+            if (bufferIndex >= segment.endBuffer) {
+                // results emitted when processing finishes belong to the next
+                // segment
+                segment.accepting = false;
+                return false;
+            }
+            segment.accepting = bufferIndex >= segment.firstBuffer;
+            bufferIndex++;
+            return true;
+        }
+
+        @Override
+        public void processingFinished() {
+        }
+    }
+
+    private final File waveFile;
+    private final AudioFormat format;
+    private final long sampleLength;
+    private final int audioBufferSize;
+    private final int bufferOverlap;
+    private final int segmentCount;
+    private int warmUpBuffers;
+
+    /**
+     * Create a new parallel dispatcher for a WAV file. The file is memory
+     * mapped once per segment.
+     * 
+     * @param waveFile The WAV file.
+     * @param audioBufferSize The size of the buffer defines how much samples
+     *            are processed in one step. Common values are 1024, 2048.
+     * @param bufferOverlap How much consecutive buffers overlap (in samples).
+     * @param segments The number of segments to split the file in, typically
+     *            the number of available cores.
+     * @throws IOException When the file can not be mapped or its format is not
+     *             supported.
+     */
+    public ParallelAudioDispatcher(final File waveFile, final int audioBufferSize, final int bufferOverlap,
+            final int segments) throws IOException {
+        if (segments < 1) {
+            throw new IllegalArgumentException("At least one segment is needed, got " + segments);
+        }
+        if (bufferOverlap < 0 || bufferOverlap >= audioBufferSize) {
+            throw new IllegalArgumentException("The overlap (" + bufferOverlap
+                    + ") should be positive and smaller than the buffer size (" + audioBufferSize + ")");
+        }
+        final MappedAudioFile probe = new MappedAudioFile(waveFile);
+        try {
+            format = probe.getFormat();
+            sampleLength = probe.getFrameLength() * format.getChannels();
+        } finally {
+            probe.close();
+        }
+        if ((audioBufferSize - bufferOverlap) % format.getChannels() != 0) {
+            throw new IllegalArgumentException("The step size should be a multiple of the number of channels");
+        }
+        this.waveFile = waveFile;
+        this.audioBufferSize = audioBufferSize;
+        this.bufferOverlap = bufferOverlap;
+        this.segmentCount = segments;
+        this.warmUpBuffers = 0;
+    }
+
+    /**
+     * Sets the number of buffers that are processed before each segment
+     * without keeping the results, so that processors with state between
+     * buffers reach the same state as in a sequential run. The default is zero.
+     * 
+     * @param buffers The number of warm-up buffers.
+     */
+    public void setWarmUpBuffers(final int buffers) {
+        this.warmUpBuffers = buffers;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return The number of buffers a sequential run processes.
+     */
+    public long bufferCount() {
+        if (sampleLength == 0) {
+            return 0;
+        }
+        final int stepSize = audioBufferSize - bufferOverlap;
+        return 1 + Math.max(0, (sampleLength - audioBufferSize + stepSize - 1) / stepSize);
+    }
+
+    /**
+     * Processes all segments on a new thread pool with a thread per segment, at
+     * most one per available core.
+     * 
+     * @param factory Creates the chain of processors for each segment.
+     * @param <T> The type of the results.
+     * @return The results of all segments, in time order.
+     * @throws IOException When the file can not be read.
+     * @throws InterruptedException When interrupted while waiting for the
+     *             segments.
+     */
+    public <T> List<T> run(final ChainFactory<T> factory) throws IOException, InterruptedException {
+        final int threads = Math.min(segmentCount, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return run(factory, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Processes all segments on the given executor and blocks until all
+     * segments are done.
+     * 
+     * @param factory Creates the chain of processors for each segment.
+     * @param executor The executor to run the segments on.
+     * @param <T> The type of the results.
+     * @return The results of all segments, in time order.
+     * @throws IOException When the file can not be read.
+     * @throws InterruptedException When interrupted while waiting for the
+     *             segments.
+     */
+    public <T> List<T> run(final ChainFactory<T> factory, final ExecutorService executor) throws IOException,
+            InterruptedException {
+        final long buffers = bufferCount();
+        final int stepSize = audioBufferSize - bufferOverlap;
+        final double secondsPerStep = stepSize / format.getChannels() / (double) format.getSampleRate();
+
+        final List<Future<Segment<T>>> futures = new ArrayList<Future<Segment<T>>>();
+        for (int i = 0; i < segmentCount; i++) {
+            final long firstBuffer = i * buffers / segmentCount;
+            final long endBuffer = (i + 1) * buffers / segmentCount;
+            if (firstBuffer == endBuffer) {
+                continue;
+            }
+            final long readStartBuffer = Math.max(0, firstBuffer - warmUpBuffers);
+            final Segment<T> segment = new Segment<T>(i, readStartBuffer, firstBuffer, endBuffer, secondsPerStep);
+            futures.add(executor.submit(new Callable<Segment<T>>() {
+                @Override
+                public Segment<T> call() throws IOException {
+                    // Segments run in parallel, transforms in the chain stay on this thread
+                    ConcurrencyUtils.enterParallelRegion();
+                    try {
+                        final MappedAudioFile file = new MappedAudioFile(waveFile);
+                        file.seek(segment.readStartBuffer * stepSize / format.getChannels());
+                        final AudioDispatcher dispatcher = new AudioDispatcher(file, audioBufferSize, bufferOverlap);
+                        dispatcher.addAudioProcessor(new SegmentGate(segment));
+                        factory.createChain(dispatcher, segment);
+                        dispatcher.run();
+                        return segment;
+                    } finally {
+                        ConcurrencyUtils.exitParallelRegion();
+                    }
+                }
+            }));
+        }
+
+        final List<T> merged = new ArrayList<T>();
+        try {
+            for (final Future<Segment<T>> future : futures) {
+                merged.addAll(future.get().results);
+            }
+        } catch (final ExecutionException e) {
+            for (final Future<Segment<T>> future : futures) {
+                future.cancel(true);
+            }
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        return merged;
+    }
+}
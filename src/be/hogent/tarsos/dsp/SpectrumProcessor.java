@@ -0,0 +1,90 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp;
+
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
+
+/**
+ * Calculates the spectrum of each buffer once and attaches it to the audio
+ * event. Spectral processors further down the chain that use an FFT of the same
+ * size and window, e.g. {@link be.hogent.tarsos.dsp.mfcc.MFCC},
+ * {@link be.hogent.tarsos.dsp.onsets.ComplexOnsetDetector},
+ * {@link be.hogent.tarsos.dsp.onsets.PercussionOnsetDetector},
+ * {@link ConstantQ} or the {@link be.hogent.tarsos.dsp.pitch.FastYin} pitch
+ * detector, then use the attached spectrum instead of calculating their own.
+ * Their results do not change. Add one spectrum processor per combination of
+ * size and window that is used in the chain, after processors that modify the
+ * samples:
+ * 
+ * <pre>
+ * dispatcher.addAudioProcessor(new SpectrumProcessor(1024, new HannWindow()));
+ * dispatcher.addAudioProcessor(new ComplexOnsetDetector(1024));
+ * dispatcher.addAudioProcessor(new PitchProcessor(FFT_YIN, sampleRate, 1024, handler));
+ * </pre>
+ * 
+ * @author Joren Six
+ */
+public class SpectrumProcessor implements AudioProcessor {
+	
+	private final int size;
+	private final WindowFunction windowFunction;
+	
+	/**
+	 * Create a new spectrum processor.
+	 * 
+	 * @param size
+	 *            The size of the FFT. The first size samples of each buffer
+	 *            are transformed, a shorter buffer is padded with zeros.
+	 * @param windowFunction
+	 *            The window to apply before the transform, or null for none.
+	 */
+	public SpectrumProcessor(int size, WindowFunction windowFunction){
+		this.size = size;
+		this.windowFunction = windowFunction;
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		audioEvent.attachSpectrum(size, windowFunction);
+		return true;
+	}
+	
+	@Override
+	public void processingFinished() {
+	}
+	
+	/**
+	 * @param audioEvent
+	 *            The current buffer.
+	 * @return The spectrum this processor attached to the buffer, or null when
+	 *         the buffer changed since.
+	 */
+	public Spectrum getSpectrum(AudioEvent audioEvent){
+		return audioEvent.getSpectrum(size, windowFunction);
+	}
+}
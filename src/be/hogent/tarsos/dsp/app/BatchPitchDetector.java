@@ -0,0 +1,338 @@
+package be.hogent.tarsos.dsp.app;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+import be.hogent.tarsos.dsp.util.ConcurrencyUtils;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Runs pitch detection on many audio files in parallel.
+ *
+ * <p>A fixed number of workers pull files from a shared list. Detectors like {@code Yin},
+ * {@code FastYin} and {@code McLeodPitchMethod} keep mutable state, so every worker owns its
+ * detectors and reuses them for each file it processes. The pitch track of each file is streamed
+ * to its own buffered CSV file in the output directory. {@link #run(List)} returns the per-file
+ * summaries together with the throughput of the run.
+ */
+final class BatchPitchDetector {
+
+    private static final String[] AUDIO_EXTENSIONS = {".wav", ".aif", ".aiff", ".au", ".snd"};
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final PitchEstimationAlgorithm algorithm;
+    private final int bufferSize;
+    private final int threads;
+    private final Path baseDirectory;
+    private final Path outputDirectory;
+
+    /**
+     * @param algorithm       the pitch detection algorithm.
+     * @param bufferSize      the analysis buffer size in samples.
+     * @param threads         the number of worker threads.
+     * @param baseDirectory   input files below this directory keep their relative path in the
+     *                        output directory.
+     * @param outputDirectory the directory to write the pitch tracks to.
+     */
+    BatchPitchDetector(PitchEstimationAlgorithm algorithm, int bufferSize, int threads, Path baseDirectory,
+                       Path outputDirectory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed, got " + threads);
+        }
+        this.algorithm = algorithm;
+        this.bufferSize = bufferSize;
+        this.threads = threads;
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Lists the audio files in a directory (recursively) or in a manifest file with one path per
+     * line. Empty lines and lines starting with {@code #} are ignored in a manifest, relative paths
+     * are resolved against the directory of the manifest.
+     *
+     * @param input a directory or a manifest file.
+     * @return the audio files, in a stable order.
+     * @throws IOException when the directory or manifest can not be read.
+     */
+    static List<Path> listInput(Path input) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> stream = Files.walk(input)) {
+                stream.filter(Files::isRegularFile).filter(BatchPitchDetector::isAudioFile).sorted()
+                        .forEach(files::add);
+            }
+        } else {
+            Path manifestDirectory = input.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    files.add(manifestDirectory.resolve(trimmed).normalize());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isAudioFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : AUDIO_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Processes all files and blocks until they are done. A file that can not be read completely is
+     * recorded as failed and its partial pitch track is removed. An {@link Error}, e.g. an
+     * {@link OutOfMemoryError}, stops the batch and is rethrown.
+     *
+     * @param files the audio files to process.
+     * @return the summary of the run.
+     * @throws IOException          when the output directory can not be created.
+     * @throws InterruptedException when interrupted while waiting for the workers.
+     */
+    Report run(final List<Path> files) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        final FileResult[] results = new FileResult[files.size()];
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<Error> fatal = new AtomicReference<>();
+        final long start = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // The workers already use all cores, keep transforms on the worker thread
+                        ConcurrencyUtils.enterParallelRegion();
+                        try {
+                            Worker worker = new Worker();
+                            int index;
+                            while (fatal.get() == null && (index = nextFile.getAndIncrement()) < files.size()) {
+                                try {
+                                    results[index] = worker.process(files.get(index));
+                                } catch (Error e) {
+                                    // e.g. an OutOfMemoryError: the JVM may be unusable, stop the batch
+                                    fatal.compareAndSet(null, e);
+                                }
+                            }
+                        } finally {
+                            ConcurrencyUtils.exitParallelRegion();
+                        }
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+        }
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (fatal.get() != null) {
+            throw fatal.get();
+        }
+
+        return new Report(results, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes one line per file with its summary, or its error, as CSV.
+     *
+     * @param report the summary of a run.
+     * @param target the CSV file to write.
+     * @throws IOException when the file can not be written.
+     */
+    static void writeSummary(Report report, Path target) throws IOException {
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8))) {
+            summary.println("file,audio_s,frames,pitched_frames,median_pitch_hz,error");
+            for (FileResult result : report.results) {
+                summary.printf(Locale.US, "%s,%.3f,%d,%d,%.2f,%s%n", csvField(result.file.toString()),
+                        result.audioSeconds, result.frames, result.pitchedFrames, result.medianPitch,
+                        result.error == null ? "" : csvField(result.error));
+            }
+            if (summary.checkError()) {
+                throw new IOException("Could not write " + target);
+            }
+        }
+    }
+
+    /**
+     * Quotes a CSV field when it contains a separator, a quote or a line break; quotes in the field
+     * are doubled.
+     */
+    static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private Path outputFile(Path audioFile) {
+        Path absolute = audioFile.toAbsolutePath().normalize();
+        Path relative = absolute.startsWith(baseDirectory) ? baseDirectory.relativize(absolute) : absolute.getFileName();
+        return outputDirectory.resolve(relative.toString() + ".pitch.csv");
+    }
+
+    /**
+     * The state of one worker thread: its detectors, keyed by sample rate, and a reusable pitch
+     * collector.
+     */
+    private final class Worker implements PitchDetectionHandler {
+
+        private final Map<Float, PitchDetector> detectors = new HashMap<>();
+        private final PitchStatistics pitches = new PitchStatistics();
+        private Formatter output;
+        private int frames;
+
+        FileResult process(Path file) {
+            pitches.clear();
+            frames = 0;
+            Path target = outputFile(file);
+            try {
+                AudioDispatcher dispatcher = createDispatcher(file);
+                float sampleRate = dispatcher.getFormat().getSampleRate();
+                PitchDetector detector = detectors.get(sampleRate);
+                if (detector == null) {
+                    detector = algorithm.getDetector(sampleRate, bufferSize);
+                    detectors.put(sampleRate, detector);
+                }
+                if (target.getParent() != null) {
+                    Files.createDirectories(target.getParent());
+                }
+                try (Writer writer = new BufferedWriter(
+                        Files.newBufferedWriter(target, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                    output = new Formatter(writer, Locale.US);
+                    output.format("time_s,pitch_hz,probability%n");
+                    dispatcher.addAudioProcessor(new PitchProcessor(detector, this));
+                    dispatcher.run();
+                    if (dispatcher.getError() != null) {
+                        // e.g. a truncated file or a read error halfway
+                        throw dispatcher.getError();
+                    }
+                    output.flush();
+                    if (output.ioException() != null) {
+                        throw output.ioException();
+                    }
+                } finally {
+                    output = null;
+                }
+                return new FileResult(file, dispatcher.secondsProcessed(), frames, pitches.count(),
+                        pitches.median(), null);
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                try {
+                    Files.deleteIfExists(target);
+                } catch (IOException ignored) {
+                    // the summary reports the file as failed either way
+                }
+                return new FileResult(file, 0, frames, pitches.count(), Double.NaN, e.toString());
+            }
+        }
+
+        private AudioDispatcher createDispatcher(Path file) throws IOException, UnsupportedAudioFileException {
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".wav")) {
+                try {
+                    return AudioDispatcher.fromMappedFile(file.toFile(), bufferSize, 0);
+                } catch (IOException e) {
+                    // e.g. a compressed WAV, let Java Sound decode it
+                }
+            }
+            return AudioDispatcher.fromFile(file.toFile(), bufferSize, 0);
+        }
+
+        @Override
+        public void handlePitch(PitchDetectionResult result, AudioEvent audioEvent) {
+            frames++;
+            if (result.getPitch() > 0) {
+                pitches.add(result.getPitch());
+                output.format("%.3f,%.2f,%.3f%n", audioEvent.getTimeStamp(), result.getPitch(),
+                        result.getProbability());
+            }
+        }
+    }
+
+    /**
+     * The summary of one processed file.
+     */
+    static final class FileResult {
+        final Path file;
+        final double audioSeconds;
+        final int frames;
+        final int pitchedFrames;
+        final double medianPitch;
+        /**
+         * The error message if the file could not be processed, {@code null} otherwise.
+         */
+        final String error;
+
+        FileResult(Path file, double audioSeconds, int frames, int pitchedFrames, double medianPitch, String error) {
+            this.file = file;
+            this.audioSeconds = audioSeconds;
+            this.frames = frames;
+            this.pitchedFrames = pitchedFrames;
+            this.medianPitch = medianPitch;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The summary of a batch run.
+     */
+    static final class Report {
+        final FileResult[] results;
+        final double wallSeconds;
+        final double audioSeconds;
+        final int failed;
+
+        Report(FileResult[] results, double wallSeconds) {
+            this.results = results;
+            this.wallSeconds = wallSeconds;
+            double seconds = 0;
+            int errors = 0;
+            for (FileResult result : results) {
+                seconds += result.audioSeconds;
+                if (result.error != null) {
+                    errors++;
+                }
+            }
+            this.audioSeconds = seconds;
+            this.failed = errors;
+        }
+
+        double filesPerSecond() {
+            return results.length / wallSeconds;
+        }
+
+        double audioSecondsPerSecond() {
+            return audioSeconds / wallSeconds;
+        }
+    }
+}
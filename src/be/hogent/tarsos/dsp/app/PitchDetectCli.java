@@ -1,21 +1,18 @@
 package be.hogent.tarsos.dsp.app;
 
-import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionHandler;
 import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
-import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor;
 import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
-import be.hogent.tarsos.dsp.util.AudioFloatConverter;
 
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -27,6 +24,8 @@ import java.util.Locale;
  *     <li>{@code list-algorithms} – show the available pitch detection algorithms.</li>
  *     <li>{@code detect <audio-file> [algorithm]} – run pitch detection on a WAV/AIFF file
  *     (defaults to the {@code YIN} algorithm).</li>
+ *     <li>{@code batch <directory|manifest> [algorithm] [--threads n] [--output dir]} – run pitch
+ *     detection on many files in parallel, see {@link BatchPitchDetector}.</li>
  * </ul>
  */
 public final class PitchDetectCli {
@@ -52,6 +51,9 @@ public final class PitchDetectCli {
                 case "detect":
                     runDetectionCommand(args);
                     break;
+                case "batch":
+                    runBatchCommand(args);
+                    break;
                 default:
                     System.err.println("Unknown command: " + args[0]);
                     printHelp();
@@ -79,71 +81,97 @@ public final class PitchDetectCli {
         detectPitch(audioPath, algorithm);
     }
 
+    private static void runBatchCommand(String[] args) throws IOException, InterruptedException {
+        String usage = "Usage: batch <directory|manifest> [algorithm] [--threads n] [--output dir]";
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputDirectory = Path.of("pitch-output");
+        for (int i = 1; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                outputDirectory = Path.of(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                throw new IllegalArgumentException(usage);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.isEmpty() || positional.size() > 2) {
+            throw new IllegalArgumentException(usage);
+        }
+
+        Path input = resolveAudioPath(positional.get(0));
+        if (!Files.exists(input)) {
+            throw new IllegalArgumentException("Input not found: " + input);
+        }
+        PitchEstimationAlgorithm algorithm = positional.size() > 1
+                ? parseAlgorithm(positional.get(1)) : PitchEstimationAlgorithm.YIN;
+
+        List<Path> files = BatchPitchDetector.listInput(input);
+        Path baseDirectory = Files.isDirectory(input) ? input : input.toAbsolutePath().getParent();
+        BatchPitchDetector batch = new BatchPitchDetector(algorithm, DEFAULT_BUFFER_SIZE, threads,
+                baseDirectory, outputDirectory);
+        System.out.printf(Locale.US, "Processing %d files with %s on %d threads...%n", files.size(),
+                algorithm.name(), threads);
+        BatchPitchDetector.Report report = batch.run(files);
+
+        BatchPitchDetector.writeSummary(report, outputDirectory.resolve("summary.csv"));
+        for (BatchPitchDetector.FileResult result : report.results) {
+            if (result.error != null) {
+                System.err.println("Failed: " + result.file + ": " + result.error);
+            }
+        }
+
+        System.out.printf(Locale.US, "Processed %d files (%d failed), %.1f s of audio in %.2f s.%n",
+                report.results.length, report.failed, report.audioSeconds, report.wallSeconds);
+        System.out.printf(Locale.US, "Throughput: %.2f files/s, %.1f audio-seconds/s.%n",
+                report.filesPerSecond(), report.audioSecondsPerSecond());
+        System.out.println("Pitch tracks and summary.csv written to " + outputDirectory.toAbsolutePath());
+    }
+
     private static PitchEstimationAlgorithm determineAlgorithm(String[] args) {
         if (args.length < 3) {
             return PitchEstimationAlgorithm.YIN;
         }
+        return parseAlgorithm(args[2]);
+    }
 
-        String requested = args[2].toUpperCase(Locale.ROOT);
+    private static PitchEstimationAlgorithm parseAlgorithm(String name) {
+        String requested = name.toUpperCase(Locale.ROOT);
         for (PitchEstimationAlgorithm candidate : PitchEstimationAlgorithm.values()) {
             if (candidate.name().equals(requested)) {
                 return candidate;
             }
         }
-        throw new IllegalArgumentException("Unknown algorithm '" + args[2] + "'. Try list-algorithms.");
+        throw new IllegalArgumentException("Unknown algorithm '" + name + "'. Try list-algorithms.");
     }
 
     private static void detectPitch(Path audioPath, PitchEstimationAlgorithm algorithm)
             throws IOException, UnsupportedAudioFileException {
 
-        try (AudioInputStream sourceStream = AudioSystem.getAudioInputStream(audioPath.toFile());
-             AudioInputStream pcmStream = convertToPcm(sourceStream)) {
-
-            javax.sound.sampled.AudioFormat javaFormat = pcmStream.getFormat();
-            AudioFormat dspFormat = toTarsosFormat(javaFormat);
-            AudioFloatConverter converter = AudioFloatConverter.getConverter(dspFormat);
-            if (converter == null) {
-                throw new IllegalStateException("Unsupported audio format: " + javaFormat);
-            }
-
-            int bufferSize = DEFAULT_BUFFER_SIZE;
-            int frameSize = dspFormat.getFrameSize();
-            byte[] byteBuffer = new byte[bufferSize * frameSize];
-            float[] floatBuffer = new float[bufferSize];
-
-            PitchDetector detector = algorithm.getDetector(dspFormat.getSampleRate(), bufferSize);
-            long framesProcessed = 0;
-            List<Double> detectedPitches = new ArrayList<>();
-
-            int bytesRead;
-            while ((bytesRead = pcmStream.read(byteBuffer)) != -1) {
-                int framesRead = bytesRead / frameSize;
-                if (framesRead <= 0) {
-                    continue;
-                }
-
-                Arrays.fill(floatBuffer, 0f);
-                converter.toFloatArray(byteBuffer, 0, floatBuffer, 0, framesRead);
-
-                PitchDetectionResult result = detector.getPitch(floatBuffer);
-                double timeSeconds = framesProcessed / dspFormat.getSampleRate();
-
-                if (result != null && result.getPitch() > 0) {
-                    detectedPitches.add((double) result.getPitch());
-                    System.out.println(formatDetectionLine(timeSeconds, result));
-                }
-
-                framesProcessed += framesRead;
-            }
-
-            System.out.println();
-            if (detectedPitches.isEmpty()) {
-                System.out.println("No pitch detected. Try a monophonic sample with clear pitch.");
-            } else {
-                double summaryPitch = median(detectedPitches);
-                System.out.printf(Locale.US, "Summary (algorithm=%s): median pitch %s Hz across %d frames.%n",
-                        algorithm.name(), HERTZ_FORMAT.format(summaryPitch), detectedPitches.size());
-            }
+        AudioDispatcher dispatcher = AudioDispatcher.fromFile(audioPath.toFile(), DEFAULT_BUFFER_SIZE, 0);
+        final PitchStatistics detectedPitches = new PitchStatistics();
+
+        dispatcher.addAudioProcessor(new PitchProcessor(algorithm, dispatcher.getFormat().getSampleRate(),
+                DEFAULT_BUFFER_SIZE, new PitchDetectionHandler() {
+                    @Override
+                    public void handlePitch(PitchDetectionResult result, AudioEvent audioEvent) {
+                        if (result != null && result.getPitch() > 0) {
+                            detectedPitches.add(result.getPitch());
+                            System.out.println(formatDetectionLine(audioEvent.getTimeStamp(), result));
+                        }
+                    }
+                }));
+        dispatcher.run();
+
+        System.out.println();
+        if (detectedPitches.isEmpty()) {
+            System.out.println("No pitch detected. Try a monophonic sample with clear pitch.");
+        } else {
+            double summaryPitch = detectedPitches.median();
+            System.out.printf(Locale.US, "Summary (algorithm=%s): median pitch %s Hz across %d frames.%n",
+                    algorithm.name(), HERTZ_FORMAT.format(summaryPitch), detectedPitches.count());
         }
     }
 
@@ -153,65 +181,6 @@ public final class PitchDetectCli {
         return String.format(Locale.US, "%6.3f s | %8s Hz | probability %s", timeSeconds, pitch, probability);
     }
 
-    private static double median(Collection<Double> values) {
-        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
-        if (sorted.length == 0) {
-            return Double.NaN;
-        }
-        int middle = sorted.length / 2;
-        if (sorted.length % 2 == 0) {
-            return (sorted[middle - 1] + sorted[middle]) / 2.0;
-        }
-        return sorted[middle];
-    }
-
-    private static AudioInputStream convertToPcm(AudioInputStream sourceStream) {
-        javax.sound.sampled.AudioFormat baseFormat = sourceStream.getFormat();
-
-        if (javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED.equals(baseFormat.getEncoding())
-                && baseFormat.getSampleSizeInBits() == 16) {
-            return sourceStream;
-        }
-
-        javax.sound.sampled.AudioFormat targetFormat = new javax.sound.sampled.AudioFormat(
-                javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED,
-                baseFormat.getSampleRate(),
-                16,
-                baseFormat.getChannels(),
-                baseFormat.getChannels() * 2,
-                baseFormat.getSampleRate(),
-                false);
-
-        return AudioSystem.getAudioInputStream(targetFormat, sourceStream);
-    }
-
-    private static AudioFormat toTarsosFormat(javax.sound.sampled.AudioFormat javaFormat) {
-        AudioFormat.Encoding encoding = mapEncoding(javaFormat.getEncoding());
-        return new AudioFormat(encoding,
-                javaFormat.getSampleRate(),
-                javaFormat.getSampleSizeInBits(),
-                javaFormat.getChannels(),
-                javaFormat.getFrameSize(),
-                javaFormat.getFrameRate(),
-                javaFormat.isBigEndian());
-    }
-
-    private static AudioFormat.Encoding mapEncoding(javax.sound.sampled.AudioFormat.Encoding encoding) {
-        if (javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
-            return AudioFormat.Encoding.PCM_SIGNED;
-        }
-        if (javax.sound.sampled.AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
-            return AudioFormat.Encoding.PCM_UNSIGNED;
-        }
-        if (javax.sound.sampled.AudioFormat.Encoding.ALAW.equals(encoding)) {
-            return AudioFormat.Encoding.ALAW;
-        }
-        if (javax.sound.sampled.AudioFormat.Encoding.ULAW.equals(encoding)) {
-            return AudioFormat.Encoding.ULAW;
-        }
-        return new AudioFormat.Encoding(encoding.toString());
-    }
-
     private static void listAlgorithms() {
         System.out.println("Available pitch detection algorithms:");
         for (PitchEstimationAlgorithm algorithm : PitchEstimationAlgorithm.values()) {
@@ -240,10 +209,12 @@ public final class PitchDetectCli {
         System.out.println("TarsosDSP Pitch Detection CLI\n");
         System.out.println("Usage:");
         System.out.println("  java -jar tarsos-dsp-1.7.0.jar list-algorithms");
-        System.out.println("  java -jar tarsos-dsp-1.7.0.jar detect <audio-file> [algorithm]\n");
+        System.out.println("  java -jar tarsos-dsp-1.7.0.jar detect <audio-file> [algorithm]");
+        System.out.println("  java -jar tarsos-dsp-1.7.0.jar batch <directory|manifest> [algorithm] [--threads n] [--output dir]\n");
         System.out.println("Examples:");
         System.out.println("  java -jar tarsos-dsp-1.7.0.jar detect ./tests/be/hogent/tarsos/dsp/test/resources/piano.ff.A4.wav");
-        System.out.println("  java -jar tarsos-dsp-1.7.0.jar detect $(pwd)/sample.wav MPM\n");
+        System.out.println("  java -jar tarsos-dsp-1.7.0.jar detect $(pwd)/sample.wav MPM");
+        System.out.println("  java -jar tarsos-dsp-1.7.0.jar batch ./recordings FFT_YIN --threads 8 --output ./pitch\n");
         System.out.println("Set -Dtarsos.cli.debug=true for full stack traces on errors.");
     }
 }
@@ -0,0 +1,49 @@
+package be.hogent.tarsos.dsp.app;
+
+import java.util.Arrays;
+
+/**
+ * Collects detected pitches in a growable primitive array to summarize them afterwards,
+ * without boxing every value.
+ */
+final class PitchStatistics {
+
+    private float[] pitches = new float[256];
+    private int count;
+
+    void add(float pitch) {
+        if (count == pitches.length) {
+            pitches = Arrays.copyOf(pitches, count * 2);
+        }
+        pitches[count++] = pitch;
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns the median of the collected pitches. The collected values are sorted in place.
+     *
+     * @return the median pitch in Hz or {@code NaN} if nothing was collected.
+     */
+    double median() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(pitches, 0, count);
+        int middle = count / 2;
+        if (count % 2 == 0) {
+            return (pitches[middle - 1] + (double) pitches[middle]) / 2.0;
+        }
+        return pitches[middle];
+    }
+}
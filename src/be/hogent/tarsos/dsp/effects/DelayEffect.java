@@ -112,6 +112,7 @@ public class DelayEffect implements AudioProcessor {
 		
 		applyNewEchoLength();
 		
+		audioEvent.samplesChanged();
 		return true;
 	}
 
@@ -133,6 +133,7 @@ public class FlangerEffect implements AudioProcessor {
 			// buffer
 			audioFloatBuffer[i] = dry * audioFloatBuffer[i] + wet * flangerBuffer[readPosition];
 		}
+		audioEvent.samplesChanged();
 		return true;
 	}
 
@@ -149,6 +149,7 @@ public abstract class IIRFilter implements AudioProcessor {
 			
 			audioFloatBuffer[i] = y;
 		} 
+		audioEvent.samplesChanged();
 		return true;
 	}
 	
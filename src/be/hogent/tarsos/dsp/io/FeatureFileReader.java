@@ -0,0 +1,269 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * A feature file written by {@link FeatureFileWriter}, mapped into memory.
+ * {@link #getFrames(long, int)} returns a view on a range of frames in the
+ * mapped file, without copying.
+ * </p>
+ * <p>
+ * The file starts with a little endian header:
+ * </p>
+ * <ul>
+ * <li>the magic number "TFEA" and the version of the format (int32);</li>
+ * <li>the size of the header in bytes (int32), a multiple of 16;</li>
+ * <li>the number of dimensions (int32);</li>
+ * <li>the number of frames (int64), -1 if the writer was not closed;</li>
+ * <li>the frame rate in frames per second (float32);</li>
+ * <li>the length (int16) and the UTF-8 bytes of the feature type.</li>
+ * </ul>
+ * <p>
+ * The frames follow the header: float32 values, a frame after the other. The
+ * number of frames of a file that was not closed is derived from its size.
+ * Since a single mapped region is limited to 2GB, the data is mapped in
+ * segments of whole frames.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class FeatureFileReader implements Closeable {
+	
+	private static final int MAGIC = 'T' | 'F' << 8 | 'E' << 16 | 'A' << 24;
+	private static final int VERSION = 1;
+	private static final int HEADER_ALIGNMENT = 16;
+	private static final int FIXED_HEADER_SIZE = 30;
+	static final int FRAME_COUNT_POSITION = 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/**
+	 * The maximum size of one mapped segment, in bytes.
+	 */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final String featureType;
+	private final float frameRate;
+	private final int dimensions;
+	private final long frameCount;
+	private final long dataOffset;
+	
+	/**
+	 * The mapped data, each segment contains framesPerSegment frames.
+	 */
+	private final MappedByteBuffer[] segments;
+	private final int framesPerSegment;
+	
+	/**
+	 * Opens and maps a feature file.
+	 * 
+	 * @param featureFile
+	 *            The file written by a {@link FeatureFileWriter}.
+	 * @throws IOException
+	 *             If the file can not be read or is not a feature file.
+	 */
+	public FeatureFileReader(File featureFile) throws IOException {
+		file = new RandomAccessFile(featureFile, "r");
+		try {
+			channel = file.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(header, 0);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException("Not a feature file: " + featureFile);
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException("Unsupported feature file version " + header.getInt(4) + " in " + featureFile);
+			}
+			dataOffset = header.getInt(8);
+			dimensions = header.getInt(12);
+			frameRate = header.getFloat(24);
+			final ByteBuffer type = ByteBuffer.allocate(header.getShort(28) & 0xFFFF);
+			readFully(type, FIXED_HEADER_SIZE);
+			featureType = new String(type.array(), UTF8);
+			if (dimensions < 1 || dataOffset < FIXED_HEADER_SIZE + type.capacity()) {
+				throw new IOException("Corrupt feature file header in " + featureFile);
+			}
+			
+			final long frameSize = 4L * dimensions;
+			final long available = (channel.size() - dataOffset) / frameSize;
+			final long written = header.getLong(FRAME_COUNT_POSITION);
+			frameCount = written < 0 ? available : Math.min(written, available);
+			
+			framesPerSegment = (int) Math.max(1, MAX_SEGMENT_SIZE / frameSize);
+			final int segmentCount = (int) ((frameCount + framesPerSegment - 1) / framesPerSegment);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				final long first = (long) i * framesPerSegment;
+				final long frames = Math.min(framesPerSegment, frameCount - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * frameSize, frames * frameSize);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		} catch (RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Creates the header of a feature file, with an unknown number of frames.
+	 */
+	static ByteBuffer header(String featureType, float frameRate, int dimensions) {
+		final byte[] type = featureType.getBytes(UTF8);
+		if (type.length > 0xFFFF) {
+			throw new IllegalArgumentException("The feature type is too long: " + type.length + " bytes");
+		}
+		int size = FIXED_HEADER_SIZE + type.length;
+		size += (HEADER_ALIGNMENT - size % HEADER_ALIGNMENT) % HEADER_ALIGNMENT;
+		final ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(dimensions);
+		header.putLong(-1).putFloat(frameRate).putShort((short) type.length).put(type);
+		// Through Buffer: the ByteBuffer override does not exist on Java 8.
+		((Buffer) header).clear();
+		return header;
+	}
+	
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of file while reading the feature file header");
+			}
+		}
+	}
+	
+	/**
+	 * @return The name of the features, e.g. "mfcc".
+	 */
+	public String getFeatureType() {
+		return featureType;
+	}
+	
+	/**
+	 * @return The number of frames per second.
+	 */
+	public float getFrameRate() {
+		return frameRate;
+	}
+	
+	/**
+	 * @return The number of values per frame.
+	 */
+	public int getDimensions() {
+		return dimensions;
+	}
+	
+	/**
+	 * @return The number of frames in the file.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+	
+	/**
+	 * Returns a range of frames without copying them. Frame i of the range
+	 * starts at index i * {@link #getDimensions()} of the view. A range within
+	 * a mapped segment is a view on that segment, which holds 2^30 bytes of
+	 * frames; a range that crosses segments is mapped separately.
+	 * 
+	 * @param firstFrame
+	 *            The index of the first frame.
+	 * @param count
+	 *            The number of frames.
+	 * @return A read-only view on the values of the frames.
+	 * @throws IOException
+	 *             If a range across segments can not be mapped.
+	 */
+	public FloatBuffer getFrames(long firstFrame, int count) throws IOException {
+		checkRange(firstFrame, count);
+		if (count == 0) {
+			return FloatBuffer.allocate(0).asReadOnlyBuffer();
+		}
+		final long frameSize = 4L * dimensions;
+		final int segment = (int) (firstFrame / framesPerSegment);
+		final int first = (int) (firstFrame % framesPerSegment);
+		final ByteBuffer bytes;
+		if (first + count <= segments[segment].limit() / frameSize) {
+			bytes = segments[segment].duplicate();
+			((Buffer) bytes).position((int) (first * frameSize)).limit((int) ((first + count) * frameSize));
+		} else {
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + firstFrame * frameSize, count * frameSize);
+		}
+		return bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+	}
+	
+	/**
+	 * Copies a frame.
+	 * 
+	 * @param frameIndex
+	 *            The index of the frame.
+	 * @param target
+	 *            The array to copy the values to.
+	 * @param offset
+	 *            The index in the array of the first value.
+	 */
+	public void getFrame(long frameIndex, float[] target, int offset) {
+		checkRange(frameIndex, 1);
+		final MappedByteBuffer segment = segments[(int) (frameIndex / framesPerSegment)];
+		int index = (int) (frameIndex % framesPerSegment) * 4 * dimensions;
+		for (int i = 0; i < dimensions; i++) {
+			target[offset + i] = segment.getFloat(index);
+			index += 4;
+		}
+	}
+	
+	private void checkRange(long firstFrame, int count) {
+		if (firstFrame < 0 || count < 0 || firstFrame + count > frameCount) {
+			throw new IndexOutOfBoundsException("Frames [" + firstFrame + "," + (firstFrame + count) + ") out of range [0," + frameCount + ")");
+		}
+	}
+	
+	/**
+	 * Closes the file. The mapped segments are released when they are garbage
+	 * collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,322 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.FeatureSource;
+import be.hogent.tarsos.dsp.MultirateConstantQ;
+import be.hogent.tarsos.dsp.mfcc.MFCC;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+
+/**
+ * <p>
+ * Appends a feature vector per buffer to a binary feature file. Add it to a
+ * dispatcher after the processor that calculates the features: each buffer
+ * the {@link FeatureSource} copies the features of the current buffer into a
+ * frame owned by the writer. Frames are collected in a direct buffer and
+ * written with a {@link FileChannel} when it is full, so writing a frame
+ * neither allocates nor makes a system call. Features can also be written
+ * directly with {@link #write(float[], int)}, e.g. from a handler, see
+ * {@link #pitchHandler()}.
+ * </p>
+ * <p>
+ * The file is a little endian float32 matrix in column-major order, a column
+ * per frame: the values of a frame are contiguous. The header holds the
+ * number of dimensions, the number of frames, the frame rate and the feature
+ * type, see {@link FeatureFileReader}, which maps a file into memory. The
+ * number of frames is written when the writer is closed, which
+ * {@link #processingFinished()} does.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class FeatureFileWriter implements AudioProcessor, Closeable {
+	
+	/**
+	 * The size of the write buffer, in bytes.
+	 */
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	
+	private static final Logger LOG = Logger.getLogger(FeatureFileWriter.class.getName());
+	
+	private final File file;
+	private final RandomAccessFile output;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final FloatBuffer floats;
+	private final int dimensions;
+	private final FeatureSource source;
+	private final float[] frame;
+	private long frameCount;
+	private boolean closed;
+	
+	/**
+	 * Creates a feature file to write frames to with
+	 * {@link #write(float[], int)}.
+	 * 
+	 * @param file
+	 *            The file to create, an existing file is overwritten.
+	 * @param featureType
+	 *            The name of the features, e.g. "mfcc".
+	 * @param frameRate
+	 *            The number of frames per second.
+	 * @param dimensions
+	 *            The number of values per frame.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public FeatureFileWriter(File file, String featureType, float frameRate, int dimensions) throws IOException {
+		this(file, featureType, frameRate, dimensions, null);
+	}
+	
+	/**
+	 * Creates a feature file that stores a frame for each processed buffer.
+	 * 
+	 * @param file
+	 *            The file to create, an existing file is overwritten.
+	 * @param featureType
+	 *            The name of the features, e.g. "mfcc".
+	 * @param frameRate
+	 *            The number of frames per second, the sample rate divided by
+	 *            the step size of the dispatcher.
+	 * @param dimensions
+	 *            The number of values per frame.
+	 * @param source
+	 *            Provides the features of each buffer, or null to write
+	 *            frames with {@link #write(float[], int)} only.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public FeatureFileWriter(File file, String featureType, float frameRate, int dimensions, FeatureSource source)
+			throws IOException {
+		if (dimensions < 1) {
+			throw new IllegalArgumentException("A frame needs at least one dimension, got " + dimensions);
+		}
+		this.file = file;
+		this.dimensions = dimensions;
+		this.source = source;
+		this.frame = new float[dimensions];
+		final ByteBuffer header = FeatureFileReader.header(featureType, frameRate, dimensions);
+		// whole frames, so the float view never splits one
+		final int capacity = Math.max(4 * dimensions, DEFAULT_BUFFER_SIZE - DEFAULT_BUFFER_SIZE % (4 * dimensions));
+		buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		floats = buffer.asFloatBuffer();
+		output = new RandomAccessFile(file, "rw");
+		try {
+			output.setLength(0);
+			channel = output.getChannel();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+		} catch (IOException e) {
+			output.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Appends a frame.
+	 * 
+	 * @param values
+	 *            The array with the values of the frame.
+	 * @param offset
+	 *            The index of the first value of the frame.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void write(float[] values, int offset) throws IOException {
+		if (closed) {
+			throw new IOException("The feature file " + file + " is closed");
+		}
+		if (!floats.hasRemaining()) {
+			flush();
+		}
+		floats.put(values, offset, dimensions);
+		frameCount++;
+	}
+	
+	/**
+	 * Writes the buffered frames to the file.
+	 * 
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void flush() throws IOException {
+		// Through Buffer: the ByteBuffer and FloatBuffer overrides do not
+		// exist on Java 8.
+		((Buffer) buffer).position(0).limit(4 * floats.position());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		((Buffer) buffer).clear();
+		((Buffer) floats).clear();
+	}
+	
+	private void writeFully(ByteBuffer data, long position) throws IOException {
+		while (data.hasRemaining()) {
+			channel.write(data, position + data.position());
+		}
+	}
+	
+	/**
+	 * @return The number of frames written so far.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+	
+	/**
+	 * @return The number of values per frame.
+	 */
+	public int getDimensions() {
+		return dimensions;
+	}
+	
+	/**
+	 * Writes the buffered frames and the number of frames, and closes the
+	 * file. Closing a closed writer has no effect.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flush();
+			final ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			count.putLong(0, frameCount);
+			writeFully(count, FeatureFileReader.FRAME_COUNT_POSITION);
+		} finally {
+			output.close();
+		}
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		if (source == null) {
+			return true;
+		}
+		source.getFeatures(audioEvent, frame);
+		try {
+			write(frame, 0);
+			return true;
+		} catch (IOException e) {
+			LOG.severe(String.format("Failure while writing the feature file %1s: %2s", file.getAbsolutePath(), e.getMessage()));
+			return false;
+		}
+	}
+	
+	@Override
+	public void processingFinished() {
+		try {
+			close();
+		} catch (IOException e) {
+			LOG.severe(String.format("Error closing the feature file %1s: %2s", file.getAbsolutePath(), e.getMessage()));
+		}
+	}
+	
+	/**
+	 * @return A handler that writes the pitch and the probability of each
+	 *         result as a frame. The file needs two dimensions.
+	 */
+	public PitchDetectionHandler pitchHandler() {
+		if (dimensions != 2) {
+			throw new IllegalStateException("A pitch frame has two dimensions, the file has " + dimensions);
+		}
+		return new PitchDetectionHandler() {
+			@Override
+			public void handlePitch(PitchDetectionResult pitchDetectionResult, AudioEvent audioEvent) {
+				frame[0] = pitchDetectionResult.getPitch();
+				frame[1] = pitchDetectionResult.getProbability();
+				try {
+					write(frame, 0);
+				} catch (IOException e) {
+					LOG.severe(String.format("Failure while writing the feature file %1s: %2s", file.getAbsolutePath(), e.getMessage()));
+				}
+			}
+		};
+	}
+	
+	/**
+	 * @param mfcc
+	 *            A processor earlier in the chain.
+	 * @return A source for its coefficients.
+	 */
+	public static FeatureSource mfcc(final MFCC mfcc) {
+		return new FeatureSource() {
+			@Override
+			public void getFeatures(AudioEvent audioEvent, float[] frame) {
+				mfcc.getMFCC(frame);
+			}
+		};
+	}
+	
+	/**
+	 * @param constantQ
+	 *            A processor earlier in the chain.
+	 * @return A source for its magnitudes.
+	 */
+	public static FeatureSource constantQ(final ConstantQ constantQ) {
+		return new FeatureSource() {
+			@Override
+			public void getFeatures(AudioEvent audioEvent, float[] frame) {
+				float[] magnitudes = constantQ.getMagnitudes();
+				System.arraycopy(magnitudes, 0, frame, 0, magnitudes.length);
+			}
+		};
+	}
+	
+	/**
+	 * @param constantQ
+	 *            A processor earlier in the chain.
+	 * @return A source for its magnitudes.
+	 */
+	public static FeatureSource constantQ(final MultirateConstantQ constantQ) {
+		return new FeatureSource() {
+			@Override
+			public void getFeatures(AudioEvent audioEvent, float[] frame) {
+				float[] magnitudes = constantQ.getMagnitudes();
+				System.arraycopy(magnitudes, 0, frame, 0, magnitudes.length);
+			}
+		};
+	}
+}
@@ -0,0 +1,431 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.util.AudioFloatConverter;
+
+/**
+ * <p>
+ * A WAV or raw PCM file that is mapped into memory. The RIFF header is parsed
+ * once when the file is opened, after which samples are converted directly
+ * from the mapped region to floats: there is no intermediate byte array and no
+ * read system call per buffer. This makes it well suited for the analysis of
+ * (very) large archive files.
+ * </p>
+ * <p>
+ * Since a single mapped region is limited to 2GB, the data is mapped in
+ * segments. The file supports random access by frame index, see
+ * {@link #seek(long)}. Samples of multi-channel files are returned
+ * interleaved, as with the other audio sources.
+ * </p>
+ * <p>
+ * Supported encodings are 8, 16, 24 and 32 bit PCM and 32 or 64 bit IEEE
+ * float. The instance keeps a read position and is not thread safe: use one
+ * instance per thread.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class MappedAudioFile implements Closeable {
+
+	/**
+	 * The maximum size of one mapped segment, in bytes.
+	 */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private static final int WAVE_FORMAT_PCM = 1;
+	private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+	private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+	private final RandomAccessFile file;
+	private final AudioFormat format;
+	private final SampleReader reader;
+
+	/**
+	 * The mapped data, each segment contains a whole number of frames.
+	 */
+	private final MappedByteBuffer[] segments;
+	private final int segmentSize;
+
+	private final int bytesPerSample;
+	private final long sampleLength;
+
+	/**
+	 * The length of the data chunk according to the header, in bytes, or -1
+	 * when it is not known.
+	 */
+	private final long declaredDataLength;
+
+	/**
+	 * The read position, in samples (not frames).
+	 */
+	private long samplePosition;
+
+	/**
+	 * Opens and maps a WAV file. The format is read from the RIFF header.
+	 * 
+	 * @param waveFile
+	 *            The WAV file.
+	 * @throws IOException
+	 *             If the file can not be read or the header is not supported.
+	 */
+	public MappedAudioFile(File waveFile) throws IOException {
+		this(waveFile, null);
+	}
+
+	/**
+	 * Opens and maps a raw, headerless PCM file with the given format.
+	 * 
+	 * @param pcmFile
+	 *            The raw PCM file.
+	 * @param format
+	 *            The format of the samples in the file.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public MappedAudioFile(File pcmFile, AudioFormat format) throws IOException {
+		file = new RandomAccessFile(pcmFile, "r");
+		try {
+			final FileChannel channel = file.getChannel();
+			long dataOffset = 0;
+			long dataLength = channel.size();
+			long declaredLength = dataLength;
+			if (format == null) {
+				final ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+				readFully(channel, header, 0, 12);
+				if (header.getInt(0) != chunkId("RIFF") || header.getInt(8) != chunkId("WAVE")) {
+					throw new IOException("Not a RIFF/WAVE file: " + pcmFile);
+				}
+				long position = 12;
+				while (dataOffset == 0) {
+					readFully(channel, header, position, 8);
+					final int id = header.getInt(0);
+					final long size = header.getInt(4) & 0xFFFFFFFFL;
+					if (id == chunkId("fmt ")) {
+						readFully(channel, header, position + 8, (int) Math.min(size, header.capacity()));
+						format = parseFormatChunk(header);
+					} else if (id == chunkId("data")) {
+						dataOffset = position + 8;
+						// streamed files do not always know their length
+						dataLength = Math.min(size, channel.size() - dataOffset);
+						declaredLength = size == 0 || size == 0xFFFFFFFFL ? -1 : size;
+					}
+					// chunks are word aligned
+					position += 8 + size + (size & 1);
+				}
+				if (format == null) {
+					throw new IOException("No fmt chunk before the data chunk in " + pcmFile);
+				}
+			}
+			this.format = format;
+			this.declaredDataLength = declaredLength;
+			this.reader = SampleReader.forFormat(format);
+			this.bytesPerSample = format.getFrameSize() / format.getChannels();
+
+			dataLength -= dataLength % format.getFrameSize();
+			this.sampleLength = dataLength / bytesPerSample;
+			this.segmentSize = MAX_SEGMENT_SIZE - MAX_SEGMENT_SIZE % format.getFrameSize();
+			final int segmentCount = (int) ((dataLength + segmentSize - 1) / segmentSize);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				final long offset = (long) i * segmentSize;
+				final long size = Math.min(segmentSize, dataLength - offset);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + offset, size);
+				segments[i].order(format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		} catch (RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	private static int chunkId(String id) {
+		return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+			throws IOException {
+		// Through Buffer: the ByteBuffer overrides do not exist on Java 8.
+		((Buffer) buffer).clear().limit(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of file while reading the WAV header");
+			}
+		}
+	}
+
+	private static AudioFormat parseFormatChunk(ByteBuffer chunk) throws IOException {
+		int formatTag = chunk.getShort(0) & 0xFFFF;
+		final int channels = chunk.getShort(2) & 0xFFFF;
+		final int sampleRate = chunk.getInt(4);
+		final int blockAlign = chunk.getShort(12) & 0xFFFF;
+		final int bitsPerSample = chunk.getShort(14) & 0xFFFF;
+		if (formatTag == WAVE_FORMAT_EXTENSIBLE) {
+			// the first two bytes of the sub format GUID hold the format tag
+			formatTag = chunk.getShort(24) & 0xFFFF;
+		}
+		final AudioFormat.Encoding encoding;
+		if (formatTag == WAVE_FORMAT_IEEE_FLOAT) {
+			encoding = AudioFloatConverter.PCM_FLOAT;
+		} else if (formatTag == WAVE_FORMAT_PCM) {
+			// 8 bit WAV is unsigned, the rest is signed
+			encoding = bitsPerSample <= 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+		} else {
+			throw new IOException("Unsupported WAV format tag: " + formatTag);
+		}
+		final int sampleSizeInBits = (blockAlign / channels) * 8;
+		return new AudioFormat(encoding, sampleRate, sampleSizeInBits, channels, blockAlign, sampleRate, false);
+	}
+
+	/**
+	 * @return The format of the samples in the file.
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return The length of the file in sample frames.
+	 */
+	public long getFrameLength() {
+		return sampleLength / format.getChannels();
+	}
+
+	/**
+	 * Returns the length of the data according to the header. It is larger
+	 * than {@link #getFrameLength()} when the file is truncated: only the
+	 * frames in the file are mapped and read.
+	 * 
+	 * @return The length in sample frames the header declares, or -1 when
+	 *         the header leaves it open, as streamed files do.
+	 */
+	public long getDeclaredFrameLength() {
+		return declaredDataLength < 0 ? -1 : declaredDataLength / format.getFrameSize();
+	}
+
+	/**
+	 * @return The index of the frame that is read next.
+	 */
+	public long getFramePosition() {
+		return samplePosition / format.getChannels();
+	}
+
+	/**
+	 * Moves the read position to a frame.
+	 * 
+	 * @param frameIndex
+	 *            The index of the frame to read next, between zero and the
+	 *            frame length (inclusive).
+	 */
+	public void seek(long frameIndex) {
+		if (frameIndex < 0 || frameIndex > getFrameLength()) {
+			throw new IllegalArgumentException("Frame index " + frameIndex + " out of range [0," + getFrameLength() + "]");
+		}
+		samplePosition = frameIndex * format.getChannels();
+	}
+
+	/**
+	 * Converts samples from the current read position straight into a float
+	 * buffer and advances the read position.
+	 * 
+	 * @param buffer
+	 *            The buffer to store the samples in, values range from -1.0 to
+	 *            1.0.
+	 * @param offset
+	 *            The index in the buffer of the first sample to store.
+	 * @param length
+	 *            The maximum number of samples to read.
+	 * @return The number of samples read or -1 if the end of the file is
+	 *         reached.
+	 */
+	public int read(float[] buffer, int offset, int length) {
+		final long available = sampleLength - samplePosition;
+		if (available <= 0) {
+			return -1;
+		}
+		final int samplesToRead = (int) Math.min(length, available);
+		int samplesRead = 0;
+		while (samplesRead < samplesToRead) {
+			final long bytePosition = samplePosition * bytesPerSample;
+			final int segment = (int) (bytePosition / segmentSize);
+			final int segmentOffset = (int) (bytePosition % segmentSize);
+			final int samplesInSegment = (segments[segment].limit() - segmentOffset) / bytesPerSample;
+			final int count = Math.min(samplesToRead - samplesRead, samplesInSegment);
+			reader.read(segments[segment], segmentOffset, buffer, offset + samplesRead, count);
+			samplesRead += count;
+			samplePosition += count;
+		}
+		return samplesRead;
+	}
+
+	/**
+	 * Closes the file. The mapped segments are released when they are garbage
+	 * collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Converts samples from a mapped buffer to floats. The scaling matches the
+	 * corresponding {@link AudioFloatConverter}. The byte order of the buffer
+	 * is set to the byte order of the format.
+	 */
+	private static abstract class SampleReader {
+
+		abstract void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length);
+
+		static SampleReader forFormat(AudioFormat format) throws IOException {
+			final int bits = format.getSampleSizeInBits();
+			final boolean bigEndian = format.isBigEndian();
+			if (format.getFrameSize() != ((bits + 7) / 8) * format.getChannels()) {
+				throw new IOException("Unsupported frame size for format: " + format);
+			}
+			if (format.getEncoding().equals(AudioFloatConverter.PCM_FLOAT)) {
+				if (bits == 32) {
+					return new Float32Reader();
+				} else if (bits == 64) {
+					return new Float64Reader();
+				}
+			} else if (format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED)) {
+				if (bits == 8) {
+					return new Signed8Reader();
+				} else if (bits == 16) {
+					return new Signed16Reader();
+				} else if (bits == 24) {
+					return new Signed24Reader(bigEndian);
+				} else if (bits == 32) {
+					return new Signed32Reader();
+				}
+			} else if (format.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED) && bits == 8) {
+				return new Unsigned8Reader();
+			}
+			throw new IOException("Unsupported audio format for memory mapping: " + format);
+		}
+	}
+
+	private static final class Unsigned8Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = ((in.get(byteIndex++) & 0xFF) - 127) * (1.0f / 127.0f);
+			}
+		}
+	}
+
+	private static final class Signed8Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = in.get(byteIndex++) * (1.0f / 127.0f);
+			}
+		}
+	}
+
+	private static final class Signed16Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = in.getShort(byteIndex) * (1.0f / 32767.0f);
+				byteIndex += 2;
+			}
+		}
+	}
+
+	private static final class Signed24Reader extends SampleReader {
+		private final boolean bigEndian;
+
+		Signed24Reader(boolean bigEndian) {
+			this.bigEndian = bigEndian;
+		}
+
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				int x;
+				if (bigEndian) {
+					x = ((in.get(byteIndex) & 0xFF) << 16) | ((in.get(byteIndex + 1) & 0xFF) << 8)
+							| (in.get(byteIndex + 2) & 0xFF);
+				} else {
+					x = (in.get(byteIndex) & 0xFF) | ((in.get(byteIndex + 1) & 0xFF) << 8)
+							| ((in.get(byteIndex + 2) & 0xFF) << 16);
+				}
+				if (x > 0x7FFFFF) {
+					x -= 0x1000000;
+				}
+				out[i] = x * (1.0f / (float) 0x7FFFFF);
+				byteIndex += 3;
+			}
+		}
+	}
+
+	private static final class Signed32Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = in.getInt(byteIndex) * (1.0f / (float) 0x7FFFFFFF);
+				byteIndex += 4;
+			}
+		}
+	}
+
+	private static final class Float32Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = in.getFloat(byteIndex);
+				byteIndex += 4;
+			}
+		}
+	}
+
+	private static final class Float64Reader extends SampleReader {
+		void read(ByteBuffer in, int byteIndex, float[] out, int offset, int length) {
+			final int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				out[i] = (float) in.getDouble(byteIndex);
+				byteIndex += 8;
+			}
+		}
+	}
+}
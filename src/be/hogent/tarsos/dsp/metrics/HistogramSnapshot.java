@@ -0,0 +1,110 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+import java.util.Locale;
+
+/**
+ * An immutable copy of a {@link LatencyHistogram}. All values are in
+ * nanoseconds.
+ * 
+ * @author Joren Six
+ */
+public final class HistogramSnapshot {
+	
+	private final long[] buckets;
+	private final long count;
+	private final long total;
+	private final long min;
+	private final long max;
+	
+	HistogramSnapshot(long[] buckets, long count, long total, long min, long max){
+		this.buckets = buckets;
+		this.count = count;
+		this.total = total;
+		this.min = min;
+		this.max = max;
+	}
+	
+	/**
+	 * @return The number of recorded values.
+	 */
+	public long getCount(){
+		return count;
+	}
+	
+	/**
+	 * @return The sum of the recorded values.
+	 */
+	public long getTotal(){
+		return total;
+	}
+	
+	public long getMin(){
+		return min;
+	}
+	
+	public long getMax(){
+		return max;
+	}
+	
+	public double getMean(){
+		return count == 0 ? 0 : total / (double) count;
+	}
+	
+	/**
+	 * Returns the value below which the given percentage of the recorded values
+	 * fall, within the precision of the buckets.
+	 * 
+	 * @param percentile
+	 *            A percentile between 0 and 100.
+	 * @return The value at the percentile or zero if nothing is recorded.
+	 */
+	public long getValueAtPercentile(double percentile){
+		if(count == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+		long seen = 0;
+		for(int i = 0 ; i < buckets.length ; i++){
+			seen += buckets[i];
+			if(seen >= rank){
+				return Math.max(min, Math.min(max, LatencyHistogram.highestEquivalentValue(i)));
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * @return count, mean, median, 99th percentile and maximum, in
+	 *         microseconds.
+	 */
+	@Override
+	public String toString(){
+		return String.format(Locale.US, "n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", count, getMean() / 1000.0,
+				getValueAtPercentile(50) / 1000.0, getValueAtPercentile(99) / 1000.0, max / 1000.0);
+	}
+}
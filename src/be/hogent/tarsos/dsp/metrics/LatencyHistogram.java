@@ -0,0 +1,133 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with log-linear buckets, in the
+ * spirit of HdrHistogram. Values below 64ns are counted exactly, larger
+ * values fall in one of 32 buckets per power of two, which bounds the relative
+ * error of a reported value to about 3%. Recording is allocation and lock free
+ * but it supports only one recording thread; snapshots can be taken from any
+ * thread.
+ * 
+ * @author Joren Six
+ */
+public final class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * The exponent of the highest power of two below Long.MAX_VALUE.
+	 */
+	private static final int MAX_EXPONENT = 62;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Records a duration. Only call this from one thread.
+	 * 
+	 * @param nanos
+	 *            The duration in nanoseconds, negative values are counted as
+	 *            zero.
+	 */
+	public void record(long nanos){
+		long value = Math.max(0, nanos);
+		int index = bucketIndex(value);
+		// single writer: a plain read followed by an ordered write is enough
+		counts.lazySet(index, counts.get(index) + 1);
+		total.lazySet(total.get() + value);
+		if(value < min.get()){
+			min.lazySet(value);
+		}
+		if(value > max.get()){
+			max.lazySet(value);
+		}
+		count.lazySet(count.get() + 1);
+	}
+	
+	static int bucketIndex(long value){
+		if(value < 2 * SUB_BUCKETS){
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+	
+	/**
+	 * @return The highest value that ends up in the bucket.
+	 */
+	static long highestEquivalentValue(int index){
+		if(index < 2 * SUB_BUCKETS){
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+	
+	/**
+	 * Clears the histogram. Only call this from the recording thread, or when
+	 * nothing is recorded.
+	 */
+	public void reset(){
+		for(int i = 0 ; i < BUCKETS ; i++){
+			counts.lazySet(i, 0);
+		}
+		total.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+		count.set(0);
+	}
+	
+	/**
+	 * @return A copy of the current state. Values recorded while the copy is
+	 *         made may or may not be included.
+	 */
+	public HistogramSnapshot snapshot(){
+		long[] copy = new long[BUCKETS];
+		long copiedCount = 0;
+		int last = 0;
+		for(int i = 0 ; i < BUCKETS ; i++){
+			copy[i] = counts.get(i);
+			if(copy[i] != 0){
+				copiedCount += copy[i];
+				last = i;
+			}
+		}
+		long[] buckets = new long[last + 1];
+		System.arraycopy(copy, 0, buckets, 0, buckets.length);
+		long minimum = min.get();
+		return new HistogramSnapshot(buckets, copiedCount, total.get(), minimum == Long.MAX_VALUE ? 0 : minimum, max.get());
+	}
+}
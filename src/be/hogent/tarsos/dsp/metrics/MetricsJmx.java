@@ -0,0 +1,148 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registers {@link ProcessingMetrics} with the platform MBean server. This is
+ * kept apart from the metrics themselves because {@code java.lang.management}
+ * is not available on Android.
+ * 
+ * @author Joren Six
+ */
+public final class MetricsJmx {
+	
+	private MetricsJmx(){
+	}
+	
+	/**
+	 * Registers the metrics as an MXBean named
+	 * {@code be.hogent.tarsos.dsp:type=ProcessingMetrics,name=<name>}.
+	 * 
+	 * @param metrics
+	 *            The metrics to expose.
+	 * @param name
+	 *            A name that identifies the dispatcher.
+	 * @return The name of the registered bean, needed to unregister it.
+	 * @throws JMException
+	 *             When the name is invalid or already registered.
+	 */
+	public static ObjectName register(ProcessingMetrics metrics, String name) throws JMException {
+		ObjectName objectName = new ObjectName("be.hogent.tarsos.dsp", "type", "ProcessingMetrics");
+		objectName = new ObjectName(objectName.getCanonicalName() + ",name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(metrics), objectName);
+		return objectName;
+	}
+	
+	/**
+	 * @param objectName
+	 *            A name returned by {@link #register(ProcessingMetrics, String)}.
+	 * @throws JMException
+	 *             When the bean is not registered.
+	 */
+	public static void unregister(ObjectName objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+	}
+	
+	private static final class Bean implements ProcessingMetricsMXBean {
+		private final ProcessingMetrics metrics;
+		
+		private Bean(ProcessingMetrics metrics){
+			this.metrics = metrics;
+		}
+		
+		@Override
+		public long getBuffers() {
+			return metrics.snapshot().getBuffers();
+		}
+		
+		@Override
+		public double getAudioSeconds() {
+			return metrics.snapshot().getAudioSeconds();
+		}
+		
+		@Override
+		public double getRealtimeFactor() {
+			return metrics.snapshot().getRealtimeFactor();
+		}
+		
+		@Override
+		public long getUnderruns() {
+			return metrics.snapshot().getUnderruns();
+		}
+		
+		@Override
+		public long getOverruns() {
+			return metrics.snapshot().getOverruns();
+		}
+		
+		@Override
+		public long getDroppedFrames() {
+			return metrics.snapshot().getDroppedFrames();
+		}
+		
+		@Override
+		public double getLatencyMeanMicros() {
+			return metrics.snapshot().getLatency().getMean() / 1000.0;
+		}
+		
+		@Override
+		public double getLatency99thPercentileMicros() {
+			return metrics.snapshot().getLatency().getValueAtPercentile(99) / 1000.0;
+		}
+		
+		@Override
+		public double getLatencyMaxMicros() {
+			return metrics.snapshot().getLatency().getMax() / 1000.0;
+		}
+		
+		@Override
+		public String[] getProcessors() {
+			MetricsSnapshot snapshot = metrics.snapshot();
+			List<MetricsSnapshot.ProcessorSnapshot> processors = snapshot.getProcessors();
+			String[] lines = new String[processors.size()];
+			for(int i = 0 ; i < lines.length ; i++){
+				lines[i] = snapshot.describe(processors.get(i));
+			}
+			return lines;
+		}
+		
+		@Override
+		public String getReport() {
+			return metrics.toString();
+		}
+		
+		@Override
+		public void reset() {
+			metrics.reset();
+		}
+	}
+}
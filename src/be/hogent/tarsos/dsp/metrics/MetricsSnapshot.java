@@ -0,0 +1,191 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable copy of {@link ProcessingMetrics}. {@link #toString()} gives a
+ * plain text report.
+ * 
+ * @author Joren Six
+ */
+public final class MetricsSnapshot {
+	
+	private final long buffers;
+	private final long frames;
+	private final float sampleRate;
+	private final long chainNanos;
+	private final long underruns;
+	private final long overruns;
+	private final long droppedFrames;
+	private final HistogramSnapshot latency;
+	private final HistogramSnapshot readTime;
+	private final List<ProcessorSnapshot> processors;
+	
+	MetricsSnapshot(long buffers, long frames, float sampleRate, long chainNanos, long underruns, long overruns,
+			long droppedFrames, HistogramSnapshot latency, HistogramSnapshot readTime, List<ProcessorSnapshot> processors){
+		this.buffers = buffers;
+		this.frames = frames;
+		this.sampleRate = sampleRate;
+		this.chainNanos = chainNanos;
+		this.underruns = underruns;
+		this.overruns = overruns;
+		this.droppedFrames = droppedFrames;
+		this.latency = latency;
+		this.readTime = readTime;
+		this.processors = Collections.unmodifiableList(processors);
+	}
+	
+	/**
+	 * @return The number of dispatched buffers.
+	 */
+	public long getBuffers(){
+		return buffers;
+	}
+	
+	/**
+	 * @return The duration of the audio read from the source, in seconds.
+	 */
+	public double getAudioSeconds(){
+		return sampleRate == 0 ? 0 : frames / (double) sampleRate;
+	}
+	
+	/**
+	 * @return The time spent in the processing chain, in seconds.
+	 */
+	public double getProcessingSeconds(){
+		return chainNanos / 1e9;
+	}
+	
+	/**
+	 * @return The duration of the dispatched audio divided by the time spent
+	 *         in the processing chain. Zero when nothing is processed yet.
+	 */
+	public double getRealtimeFactor(){
+		return chainNanos == 0 ? 0 : getAudioSeconds() / getProcessingSeconds();
+	}
+	
+	/**
+	 * @return The number of buffers for which the source delivered fewer
+	 *         samples than requested.
+	 */
+	public long getUnderruns(){
+		return underruns;
+	}
+	
+	/**
+	 * @return The number of buffers that took longer to process than the
+	 *         duration of the new audio they carry.
+	 */
+	public long getOverruns(){
+		return overruns;
+	}
+	
+	/**
+	 * @return The number of sample frames the source dropped before they
+	 *         reached the processing chain.
+	 */
+	public long getDroppedFrames(){
+		return droppedFrames;
+	}
+	
+	/**
+	 * @return The time from the start of reading a buffer until the last
+	 *         processor returns, in nanoseconds.
+	 */
+	public HistogramSnapshot getLatency(){
+		return latency;
+	}
+	
+	/**
+	 * @return The time spent reading and converting the new samples of a
+	 *         buffer, in nanoseconds. Not recorded for the first buffer.
+	 */
+	public HistogramSnapshot getReadTime(){
+		return readTime;
+	}
+	
+	/**
+	 * @return The time spent per buffer by each processor, in chain order.
+	 */
+	public List<ProcessorSnapshot> getProcessors(){
+		return processors;
+	}
+	
+	@Override
+	public String toString(){
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.US, "buffers: %d, audio: %.3fs, processing: %.3fs, realtime factor: %.1fx%n",
+				buffers, getAudioSeconds(), getProcessingSeconds(), getRealtimeFactor()));
+		report.append(String.format(Locale.US, "underruns: %d, overruns: %d, dropped frames: %d%n", underruns, overruns,
+				droppedFrames));
+		report.append("latency: ").append(latency).append(String.format("%n"));
+		report.append("read: ").append(readTime).append(String.format("%n"));
+		for(ProcessorSnapshot processor : processors){
+			report.append("  ").append(describe(processor)).append(String.format("%n"));
+		}
+		return report.toString();
+	}
+	
+	/**
+	 * @return The name of the processor, its share of the processing time and
+	 *         its time per buffer.
+	 */
+	String describe(ProcessorSnapshot processor){
+		double share = chainNanos == 0 ? 0 : 100.0 * processor.getTime().getTotal() / chainNanos;
+		return String.format(Locale.US, "%s (%.1f%%): %s", processor.getName(), share, processor.getTime());
+	}
+	
+	/**
+	 * The time spent per buffer by one processor.
+	 */
+	public static final class ProcessorSnapshot {
+		private final String name;
+		private final HistogramSnapshot time;
+		
+		ProcessorSnapshot(String name, HistogramSnapshot time){
+			this.name = name;
+			this.time = time;
+		}
+		
+		/**
+		 * @return The class name of the processor.
+		 */
+		public String getName(){
+			return name;
+		}
+		
+		/**
+		 * @return The wall time per buffer, in nanoseconds.
+		 */
+		public HistogramSnapshot getTime(){
+			return time;
+		}
+	}
+}
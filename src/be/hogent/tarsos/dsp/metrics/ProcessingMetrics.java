@@ -0,0 +1,249 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+
+/**
+ * Instrumentation for the processing chain of a dispatcher. When attached to a
+ * dispatcher with {@code setMetrics}, every buffer is sent through the chain by
+ * {@link #process(List, AudioEvent, int, int)}, which records:
+ * <ul>
+ * <li>the wall time each processor spends on a buffer, in a histogram per
+ * processor;</li>
+ * <li>the time between the end of the previous buffer and the start of the
+ * current one, which is the time spent reading and converting the new samples
+ * (for live sources this includes waiting for them);</li>
+ * <li>the latency: from the start of reading the new samples to the moment the
+ * last processor returns;</li>
+ * <li>underruns: buffers for which the source delivered fewer samples than
+ * requested;</li>
+ * <li>overruns: buffers that took longer to process than the duration of the
+ * new audio they carry. A live source falls behind when this happens;</li>
+ * <li>dropped frames: sample frames the source discarded before they reached
+ * the chain, reported by the dispatcher with
+ * {@link #recordDroppedFrames(long)};</li>
+ * <li>the realtime factor: the duration of the dispatched audio divided by the
+ * time spent in the chain.</li>
+ * </ul>
+ * Dispatchers without metrics do not call this class at all, so when it is
+ * disabled the only cost is a null check per buffer.
+ * <p>
+ * Recording happens on the dispatcher thread. {@link #snapshot()},
+ * {@link #toString()} and {@link #reset()} can be called from any thread. Use
+ * {@link MetricsJmx} to expose the metrics as an MXBean.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class ProcessingMetrics {
+	
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LatencyHistogram readTime = new LatencyHistogram();
+	
+	private final AtomicLong buffers = new AtomicLong();
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong chainNanos = new AtomicLong();
+	private final AtomicLong underruns = new AtomicLong();
+	private final AtomicLong overruns = new AtomicLong();
+	private final AtomicLong droppedFrames = new AtomicLong();
+	private volatile float sampleRate;
+	
+	/**
+	 * The statistics of the processors in the chain, in chain order. Only
+	 * replaced when the chain changes.
+	 */
+	private volatile ProcessorStatistics[] processors = new ProcessorStatistics[0];
+	
+	/**
+	 * The end of the previous buffer, zero before the first buffer.
+	 */
+	private long previousEnd;
+	
+	private volatile boolean resetRequested;
+	
+	/**
+	 * Sends a buffer through the chain of processors and records its timing.
+	 * Called by the dispatcher for each buffer, right after the new samples are
+	 * read.
+	 * 
+	 * @param chain
+	 *            The processors of the dispatcher.
+	 * @param audioEvent
+	 *            The current buffer.
+	 * @param newFrames
+	 *            The number of sample frames read from the source for this
+	 *            buffer.
+	 * @param requestedFrames
+	 *            The number of sample frames requested from the source.
+	 * @return False if a processor stopped the chain, true otherwise.
+	 */
+	public boolean process(final List<AudioProcessor> chain, final AudioEvent audioEvent, final int newFrames,
+			final int requestedFrames){
+		if(resetRequested){
+			clear();
+		}
+		final ProcessorStatistics[] statistics = statisticsFor(chain);
+		final long start = System.nanoTime();
+		long before = start;
+		boolean proceed = true;
+		for(int i = 0 ; i < statistics.length && proceed ; i++){
+			proceed = statistics[i].processor.process(audioEvent);
+			final long after = System.nanoTime();
+			statistics[i].histogram.record(after - before);
+			before = after;
+		}
+		final long chainTime = before - start;
+		final float rate = audioEvent.getSampleRate();
+		
+		chainNanos.lazySet(chainNanos.get() + chainTime);
+		frames.lazySet(frames.get() + newFrames);
+		if(newFrames < requestedFrames){
+			underruns.lazySet(underruns.get() + 1);
+		}
+		if(chainTime > newFrames * 1e9 / rate){
+			overruns.lazySet(overruns.get() + 1);
+		}
+		if(previousEnd != 0){
+			readTime.record(start - previousEnd);
+			latency.record(before - previousEnd);
+		} else {
+			latency.record(chainTime);
+		}
+		if(sampleRate != rate){
+			sampleRate = rate;
+		}
+		previousEnd = before;
+		buffers.lazySet(buffers.get() + 1);
+		return proceed;
+	}
+	
+	/**
+	 * Counts sample frames that were lost before they reached the chain, e.g.
+	 * because a capture buffer overflowed. Call it from the dispatcher thread.
+	 * 
+	 * @param droppedFrames
+	 *            The number of newly dropped sample frames.
+	 */
+	public void recordDroppedFrames(final long droppedFrames){
+		if(resetRequested){
+			clear();
+		}
+		this.droppedFrames.lazySet(this.droppedFrames.get() + droppedFrames);
+	}
+	
+	/**
+	 * Returns the statistics for the current chain. A new array is only made
+	 * when processors are added or removed; statistics of processors that stay
+	 * in the chain are kept.
+	 */
+	private ProcessorStatistics[] statisticsFor(final List<AudioProcessor> chain){
+		ProcessorStatistics[] current = processors;
+		boolean same = current.length == chain.size();
+		for(int i = 0 ; same && i < current.length ; i++){
+			same = current[i].processor == chain.get(i);
+		}
+		if(same){
+			return current;
+		}
+		final ProcessorStatistics[] updated = new ProcessorStatistics[chain.size()];
+		for(int i = 0 ; i < updated.length ; i++){
+			final AudioProcessor processor = chain.get(i);
+			for(final ProcessorStatistics existing : current){
+				if(existing.processor == processor){
+					updated[i] = existing;
+				}
+			}
+			if(updated[i] == null){
+				updated[i] = new ProcessorStatistics(processor);
+			}
+		}
+		processors = updated;
+		return updated;
+	}
+	
+	/**
+	 * Clears all metrics. When the dispatcher is running the metrics are
+	 * cleared before the next buffer.
+	 */
+	public void reset(){
+		resetRequested = true;
+	}
+	
+	private void clear(){
+		resetRequested = false;
+		latency.reset();
+		readTime.reset();
+		for(final ProcessorStatistics statistics : processors){
+			statistics.histogram.reset();
+		}
+		buffers.set(0);
+		frames.set(0);
+		chainNanos.set(0);
+		underruns.set(0);
+		overruns.set(0);
+		droppedFrames.set(0);
+		previousEnd = 0;
+	}
+	
+	/**
+	 * @return A copy of the current metrics.
+	 */
+	public MetricsSnapshot snapshot(){
+		final ProcessorStatistics[] current = processors;
+		final List<MetricsSnapshot.ProcessorSnapshot> processorSnapshots = new ArrayList<MetricsSnapshot.ProcessorSnapshot>(current.length);
+		for(final ProcessorStatistics statistics : current){
+			processorSnapshots.add(new MetricsSnapshot.ProcessorSnapshot(statistics.name, statistics.histogram.snapshot()));
+		}
+		return new MetricsSnapshot(buffers.get(), frames.get(), sampleRate, chainNanos.get(), underruns.get(),
+				overruns.get(), droppedFrames.get(), latency.snapshot(), readTime.snapshot(), processorSnapshots);
+	}
+	
+	/**
+	 * @return A plain text report of the current metrics.
+	 */
+	@Override
+	public String toString(){
+		return snapshot().toString();
+	}
+	
+	private static final class ProcessorStatistics {
+		private final AudioProcessor processor;
+		private final String name;
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		
+		private ProcessorStatistics(final AudioProcessor processor){
+			this.processor = processor;
+			final String simpleName = processor.getClass().getSimpleName();
+			this.name = simpleName.isEmpty() ? processor.getClass().getName() : simpleName;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.metrics;
+
+/**
+ * The management interface of {@link ProcessingMetrics}, see
+ * {@link MetricsJmx}. Durations are in microseconds.
+ * 
+ * @author Joren Six
+ */
+public interface ProcessingMetricsMXBean {
+	
+	long getBuffers();
+	
+	double getAudioSeconds();
+	
+	double getRealtimeFactor();
+	
+	long getUnderruns();
+	
+	long getOverruns();
+	
+	long getDroppedFrames();
+	
+	double getLatencyMeanMicros();
+	
+	double getLatency99thPercentileMicros();
+	
+	double getLatencyMaxMicros();
+	
+	/**
+	 * @return One line per processor with its share of the processing time and
+	 *         its time per buffer.
+	 */
+	String[] getProcessors();
+	
+	/**
+	 * @return The full plain text report.
+	 */
+	String getReport();
+	
+	void reset();
+}
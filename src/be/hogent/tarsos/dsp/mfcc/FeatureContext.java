@@ -0,0 +1,288 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.mfcc;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.FeatureSource;
+
+/**
+ * <p>
+ * Adds temporal context to a stream of feature frames, e.g. the coefficients
+ * of {@link MFCC}. Each frame can be normalized with a running mean and
+ * variance (CMVN), and is emitted with:
+ * </p>
+ * <ol>
+ * <li>the normalized frames from contextFrames before to contextFrames after
+ * it, stacked, oldest first;</li>
+ * <li>the deltas, when the delta order is one or two;</li>
+ * <li>the delta-deltas, when the delta order is two.</li>
+ * </ol>
+ * <p>
+ * The deltas are the regression over deltaWindow frames on each side,
+ * d(t) = sum(n * (c(t + n) - c(t - n))) / (2 * sum(n * n)), the delta-deltas
+ * are the deltas of the deltas. Frames before the first and after the last
+ * frame are copies of the first and the last frame.
+ * </p>
+ * <p>
+ * A frame depends on the frames after it, so it is emitted
+ * {@link #getLatency()} frames later, to the {@link FeatureContextHandler}.
+ * The frames that are still waiting at the end of the stream are emitted by
+ * {@link #processingFinished()}. The frames are kept in a ring buffer of
+ * 2 * latency + 1 frames, processing a frame does not allocate.
+ * </p>
+ * <p>
+ * The mean and variance are updated with each new frame, before it is
+ * normalized. They are averaged over the previous frames, with an exponential
+ * window of normalizationWindow frames once that many frames are seen.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class FeatureContext implements AudioProcessor {
+	
+	/**
+	 * Keeps the normalized value of a constant dimension finite.
+	 */
+	private static final double VARIANCE_FLOOR = 1e-10;
+	
+	private final int dimensions;
+	private final int contextFrames;
+	private final int deltaWindow;
+	private final int deltaOrder;
+	private final int normalizationWindow;
+	private final FeatureSource source;
+	private final FeatureContextHandler handler;
+	
+	/**
+	 * The number of frames a frame is emitted after it is added.
+	 */
+	private final int latency;
+	
+	/**
+	 * The normalized frames, frame i at (i % frameCapacity) * dimensions.
+	 */
+	private final float[] frames;
+	private final double[] timeStamps;
+	private final int frameCapacity;
+	
+	/**
+	 * The sum of n * n for n from 1 up to deltaWindow, doubled.
+	 */
+	private final float deltaDenominator;
+	
+	private final double[] mean;
+	private final double[] variance;
+	
+	private final float[] input;
+	private final float[] output;
+	
+	/**
+	 * The number of frames added since the start of the stream.
+	 */
+	private long frameCount;
+	
+	/**
+	 * Create a feature context processor.
+	 * 
+	 * @param dimensions
+	 *            The number of features per input frame.
+	 * @param contextFrames
+	 *            The number of frames to stack on each side of a frame.
+	 * @param deltaWindow
+	 *            The number of frames on each side for the deltas, at least
+	 *            one when the delta order is not zero.
+	 * @param deltaOrder
+	 *            Zero for no deltas, one for deltas, two for deltas and
+	 *            delta-deltas.
+	 * @param normalizationWindow
+	 *            The number of frames to average the mean and variance over,
+	 *            zero to emit the frames without normalization.
+	 * @param source
+	 *            Provides the features of each buffer to
+	 *            {@link #process(AudioEvent)}, e.g. one that copies
+	 *            {@link MFCC#getMFCC(float[])}.
+	 *            Null if frames are only added with
+	 *            {@link #addFrame(float[], int, double)}.
+	 * @param handler
+	 *            Receives the frames with context.
+	 */
+	public FeatureContext(int dimensions, int contextFrames, int deltaWindow, int deltaOrder,
+			int normalizationWindow, FeatureSource source, FeatureContextHandler handler) {
+		if (dimensions < 1) {
+			throw new IllegalArgumentException("A frame needs at least one dimension, got " + dimensions);
+		}
+		if (contextFrames < 0 || normalizationWindow < 0) {
+			throw new IllegalArgumentException("The context and the normalization window can not be negative");
+		}
+		if (deltaOrder < 0 || deltaOrder > 2 || (deltaOrder > 0 && deltaWindow < 1)) {
+			throw new IllegalArgumentException("Unsupported delta order " + deltaOrder + " with window " + deltaWindow);
+		}
+		this.dimensions = dimensions;
+		this.contextFrames = contextFrames;
+		this.deltaWindow = deltaOrder == 0 ? 0 : deltaWindow;
+		this.deltaOrder = deltaOrder;
+		this.normalizationWindow = normalizationWindow;
+		this.source = source;
+		this.handler = handler;
+		
+		latency = Math.max(contextFrames, this.deltaWindow * deltaOrder);
+		frameCapacity = 2 * latency + 1;
+		frames = new float[frameCapacity * dimensions];
+		timeStamps = new double[frameCapacity];
+		float denominator = 0;
+		for (int n = 1; n <= this.deltaWindow; n++) {
+			denominator += n * n;
+		}
+		deltaDenominator = 2 * denominator;
+		mean = new double[dimensions];
+		variance = new double[dimensions];
+		input = new float[dimensions];
+		output = new float[getOutputDimensions()];
+	}
+	
+	/**
+	 * @return The number of features of an emitted frame.
+	 */
+	public int getOutputDimensions() {
+		return dimensions * (2 * contextFrames + 1 + deltaOrder);
+	}
+	
+	/**
+	 * @return The number of frames a frame is emitted after it is added.
+	 */
+	public int getLatency() {
+		return latency;
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		if (source != null) {
+			source.getFeatures(audioEvent, input);
+			addFrame(input, 0, audioEvent.getTimeStamp());
+		}
+		return true;
+	}
+	
+	@Override
+	public void processingFinished() {
+		flush();
+	}
+	
+	/**
+	 * Adds a frame and emits the frame {@link #getLatency()} frames before it,
+	 * if there is one.
+	 * 
+	 * @param features
+	 *            The array with the features of the frame.
+	 * @param offset
+	 *            The index of the first feature.
+	 * @param timeStamp
+	 *            The time stamp of the frame, in seconds.
+	 */
+	public void addFrame(float[] features, int offset, double timeStamp) {
+		final int slot = (int) (frameCount % frameCapacity);
+		final int start = slot * dimensions;
+		final double alpha = 1.0 / Math.min(frameCount + 1, normalizationWindow);
+		for (int i = 0; i < dimensions; i++) {
+			float value = features[offset + i];
+			if (normalizationWindow > 0) {
+				final double difference = value - mean[i];
+				mean[i] += alpha * difference;
+				variance[i] = (1 - alpha) * (variance[i] + alpha * difference * difference);
+				value = (float) ((value - mean[i]) / Math.sqrt(variance[i] + VARIANCE_FLOOR));
+			}
+			frames[start + i] = value;
+		}
+		timeStamps[slot] = timeStamp;
+		frameCount++;
+		if (frameCount > latency) {
+			emit(frameCount - 1 - latency);
+		}
+	}
+	
+	/**
+	 * Emits the frames that wait for the frames after them, as if the last
+	 * frame is repeated, and starts a new stream: the next frame is the first
+	 * frame, with a new mean and variance.
+	 */
+	public void flush() {
+		for (long frame = Math.max(0, frameCount - latency); frame < frameCount; frame++) {
+			emit(frame);
+		}
+		frameCount = 0;
+		for (int i = 0; i < dimensions; i++) {
+			mean[i] = 0;
+			variance[i] = 0;
+		}
+	}
+	
+	private void emit(long frame) {
+		int index = 0;
+		for (long context = frame - contextFrames; context <= frame + contextFrames; context++) {
+			final int start = start(context);
+			for (int i = 0; i < dimensions; i++) {
+				output[index++] = frames[start + i];
+			}
+		}
+		if (deltaOrder > 0) {
+			for (int i = 0; i < dimensions; i++) {
+				output[index++] = delta(frame, i);
+			}
+		}
+		if (deltaOrder > 1) {
+			for (int i = 0; i < dimensions; i++) {
+				float sum = 0;
+				for (int n = 1; n <= deltaWindow; n++) {
+					sum += n * (delta(clamp(frame + n), i) - delta(clamp(frame - n), i));
+				}
+				output[index++] = sum / deltaDenominator;
+			}
+		}
+		handler.handleFeatures(output, timeStamps[(int) (frame % frameCapacity)]);
+	}
+	
+	private float delta(long frame, int dimension) {
+		float sum = 0;
+		for (int n = 1; n <= deltaWindow; n++) {
+			sum += n * (frames[start(frame + n) + dimension] - frames[start(frame - n) + dimension]);
+		}
+		return sum / deltaDenominator;
+	}
+	
+	/**
+	 * @return The index of the first feature of a frame, with the frames
+	 *         outside the stream replaced by the first or the last frame.
+	 */
+	private int start(long frame) {
+		return (int) (clamp(frame) % frameCapacity) * dimensions;
+	}
+	
+	private long clamp(long frame) {
+		return Math.max(0, Math.min(frameCount - 1, frame));
+	}
+}
@@ -0,0 +1,45 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.mfcc;
+
+/**
+ * An interface to handle the frames emitted by a {@link FeatureContext}.
+ * 
+ * @author Joren Six
+ */
+public interface FeatureContextHandler {
+	/**
+	 * Handle the features of a frame.
+	 * 
+	 * @param features
+	 *            The features of the frame, reused for the next frame. The
+	 *            layout is described by {@link FeatureContext}.
+	 * @param timeStamp
+	 *            The time stamp of the frame, in seconds.
+	 */
+	void handleFeatures(float[] features, double timeStamp);
+}
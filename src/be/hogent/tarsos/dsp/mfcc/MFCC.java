@@ -29,10 +29,29 @@ import be.hogent.tarsos.dsp.AudioEvent;
 import be.hogent.tarsos.dsp.AudioProcessor;
 import be.hogent.tarsos.dsp.util.fft.FFT;
 import be.hogent.tarsos.dsp.util.fft.HammingWindow;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
 
 
+/**
+ * Calculates Mel-frequency cepstral coefficients for each buffer. The mel
+ * filter bank and the DCT-II basis are calculated once, in
+ * {@link #calculateFilterBanks()}: the filter bank as a sparse matrix with
+ * only the non-zero triangle weights of each filter. Per buffer the
+ * coefficients are calculated in arrays owned by this processor, without
+ * allocating. The public methods that calculate one step,
+ * {@link #magnitudeSpectrum(float[])}, {@link #melFilter(float[], int[])},
+ * {@link #nonLinearTransformation(float[])} and
+ * {@link #cepCoefficients(float[])}, allocate their results; the coefficients
+ * of {@link #process(AudioEvent)} equal theirs up to rounding.
+ */
 public class MFCC implements AudioProcessor {
 	
+    /**
+     * The lower bound of the natural log of a filter bank output.
+     */
+    private static final float FLOOR = -50;
+    
     private int amountOfCepstrumCoef; //Number of MFCCs per frame
     protected int amountOfMelFilters; //Number of mel filters (SPHINX-III uses 40)
     protected float lowerFilterFreq; //lower limit of filter (or 64 Hz?)
@@ -46,12 +65,38 @@ public class MFCC implements AudioProcessor {
     int centerFrequencies[];
 
     private FFT fft;
+    private WindowFunction windowFunction;
     private int samplesPerFrame; 
     private float sampleRate;
     
+    /**
+     * The spectrum of buffers without an attached spectrum. It copies the
+     * buffer, so the buffer is not modified.
+     */
+    private final Spectrum frameSpectrum;
+    
+    /**
+     * The mel filter bank in compressed rows: the weights of filter k are
+     * filterWeights[filterStart[k]] up to filterWeights[filterStart[k + 1]],
+     * applied to the magnitudes of the bins in filterBins.
+     */
+    private int[] filterStart;
+    private int[] filterBins;
+    private float[] filterWeights;
+    
+    /**
+     * The DCT-II basis, amountOfCepstrumCoef rows of amountOfMelFilters
+     * cosines.
+     */
+    private float[] dctBasis;
+    
+    /**
+     * The log filter bank output of the current buffer.
+     */
+    private float[] logEnergies;
+    
     public MFCC(int samplesPerFrame, int sampleRate){
     	this(samplesPerFrame, sampleRate, 30, 30, 133.3334f, ((float)sampleRate)/2f);
-    	calculateFilterBanks();
     }
 
     public MFCC(int samplesPerFrame, float sampleRate, int amountOfCepstrumCoef, int amountOfMelFilters, float lowerFilterFreq, float upperFilterFreq) {
@@ -59,30 +104,51 @@ public class MFCC implements AudioProcessor {
         this.sampleRate = sampleRate;
         this.amountOfCepstrumCoef = amountOfCepstrumCoef;
         this.amountOfMelFilters = amountOfMelFilters;
-        this.fft = new FFT(samplesPerFrame, new HammingWindow());
+        this.windowFunction = new HammingWindow();
+        this.fft = new FFT(samplesPerFrame, windowFunction);
+        this.frameSpectrum = new Spectrum(samplesPerFrame, windowFunction);
         
         this.lowerFilterFreq = Math.max(lowerFilterFreq, 25);
         this.upperFilterFreq = Math.min(upperFilterFreq, sampleRate / 2);
+        this.mfcc = new float[amountOfCepstrumCoef];
         calculateFilterBanks();
        
     }
 
 	@Override
 	public boolean process(AudioEvent audioEvent) {
-		audioFloatBuffer = audioEvent.getFloatBuffer().clone();
-//		for (int i = 0; i< audioFloatBuffer.length; i++){
-//			System.out.print(Math.round(audioFloatBuffer[i]*100) + " - ");
-//		}
-		System.out.println();
-        // Magnitude Spectrum
-        float bin[] = magnitudeSpectrum(audioFloatBuffer);
-        // get Mel Filterbank
-        float fbank[] = melFilter(bin, centerFrequencies);
-        // Non-linear transformation
-        float f[] = nonLinearTransformation(fbank);
-        // Cepstral coefficients
-        mfcc = cepCoefficients(f);
-        
+		float[] buffer = audioEvent.getFloatBuffer();
+		if (buffer.length != samplesPerFrame) {
+			// The filter bank is made for frames of samplesPerFrame
+			audioFloatBuffer = buffer.clone();
+			float bin[] = magnitudeSpectrum(audioFloatBuffer);
+			float[] coefficients = cepCoefficients(nonLinearTransformation(melFilter(bin, centerFrequencies)));
+			System.arraycopy(coefficients, 0, mfcc, 0, amountOfCepstrumCoef);
+			return true;
+		}
+		// Magnitude Spectrum, from the attached spectrum when there is one
+		Spectrum spectrum = audioEvent.getSpectrum(samplesPerFrame, windowFunction);
+		if (spectrum == null) {
+			frameSpectrum.compute(buffer);
+			spectrum = frameSpectrum;
+		}
+		float[] magnitudes = spectrum.getMagnitudes();
+		// Mel filter bank and non-linear transformation
+		for (int k = 0; k < amountOfMelFilters; k++) {
+			float energy = 0;
+			for (int i = filterStart[k]; i < filterStart[k + 1]; i++) {
+				energy += filterWeights[i] * magnitudes[filterBins[i]];
+			}
+			logEnergies[k] = Math.max((float) Math.log(energy), FLOOR);
+		}
+		// Cepstral coefficients
+		for (int i = 0, row = 0; i < amountOfCepstrumCoef; i++, row += amountOfMelFilters) {
+			float coefficient = 0;
+			for (int j = 0; j < amountOfMelFilters; j++) {
+				coefficient += logEnergies[j] * dctBasis[row + j];
+			}
+			mfcc[i] = coefficient;
+		}
 		return true;
 	}
 
@@ -113,7 +179,7 @@ public class MFCC implements AudioProcessor {
 
         return magSpectrum;
     }
-	
+
     /**
      * calculates the FFT bin indices<br> calls: none<br> called by:
      * featureExtraction
@@ -136,7 +202,55 @@ public class MFCC implements AudioProcessor {
             float fc = (inverseMel(mel[0] + factor * i) / sampleRate) * samplesPerFrame;
             centerFrequencies[i - 1] = Math.round(fc);
         }
-
+        
+        calculateFilterWeights();
+        calculateDCTBasis();
+    }
+    
+    /**
+     * Stores the weights {@link #melFilter(float[], int[])} applies, per
+     * filter. The magnitude spectrum of {@link #magnitudeSpectrum(float[])}
+     * is mirrored around its center, so each index is mapped to the bin it
+     * holds.
+     */
+    private void calculateFilterWeights() {
+        final int half = samplesPerFrame / 2;
+        filterStart = new int[amountOfMelFilters + 1];
+        int entries = 0;
+        for (int k = 1; k <= amountOfMelFilters; k++) {
+            entries += Math.max(0, centerFrequencies[k] - centerFrequencies[k - 1] + 1);
+            entries += Math.max(0, centerFrequencies[k + 1] - centerFrequencies[k]);
+        }
+        filterBins = new int[entries];
+        filterWeights = new float[entries];
+        entries = 0;
+        for (int k = 1; k <= amountOfMelFilters; k++) {
+            filterStart[k - 1] = entries;
+            float den = (centerFrequencies[k] - centerFrequencies[k - 1] + 1);
+            for (int i = centerFrequencies[k - 1]; i <= centerFrequencies[k]; i++) {
+                filterBins[entries] = i < half ? i : 2 * half - 1 - i;
+                filterWeights[entries++] = (i - centerFrequencies[k - 1] + 1) / den;
+            }
+            den = (centerFrequencies[k + 1] - centerFrequencies[k] + 1);
+            for (int i = centerFrequencies[k] + 1; i <= centerFrequencies[k + 1]; i++) {
+                filterBins[entries] = i < half ? i : 2 * half - 1 - i;
+                filterWeights[entries++] = 1 - ((i - centerFrequencies[k]) / den);
+            }
+        }
+        filterStart[amountOfMelFilters] = entries;
+        logEnergies = new float[amountOfMelFilters];
+    }
+    
+    /**
+     * Stores the cosines {@link #cepCoefficients(float[])} applies.
+     */
+    private void calculateDCTBasis() {
+        dctBasis = new float[amountOfCepstrumCoef * amountOfMelFilters];
+        for (int i = 0; i < amountOfCepstrumCoef; i++) {
+            for (int j = 0; j < amountOfMelFilters; j++) {
+                dctBasis[i * amountOfMelFilters + j] = (float) Math.cos(Math.PI * i / amountOfMelFilters * (j + 0.5));
+            }
+        }
     }
     
 	
@@ -149,7 +263,6 @@ public class MFCC implements AudioProcessor {
      */
     public float[] nonLinearTransformation(float fbank[]){
         float f[] = new float[fbank.length];
-        final float FLOOR = -50;
         
         for (int i = 0; i < fbank.length; i++){
             f[i] = (float) Math.log(fbank[i]);
@@ -270,6 +383,16 @@ public class MFCC implements AudioProcessor {
 	public float[] getMFCC() {
 		return mfcc.clone();
 	}
+	
+	/**
+	 * Copies the coefficients of the previous buffer, without allocating.
+	 * 
+	 * @param target
+	 *            An array with room for the coefficients of a frame.
+	 */
+	public void getMFCC(float[] target) {
+		System.arraycopy(mfcc, 0, target, 0, mfcc.length);
+	}
 
 	public int[] getCenterFrequencies() {
 		return centerFrequencies;
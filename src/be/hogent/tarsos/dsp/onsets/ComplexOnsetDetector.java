@@ -5,6 +5,8 @@ import be.hogent.tarsos.dsp.AudioProcessor;
 import be.hogent.tarsos.dsp.util.PeakPicker;
 import be.hogent.tarsos.dsp.util.fft.FFT;
 import be.hogent.tarsos.dsp.util.fft.HannWindow;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
 
 /**
  * A complex Domain Method onset detection function
@@ -46,6 +48,8 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	 * To calculate the FFT.
 	 */
 	private final FFT fft;
+	private final int fftSize;
+	private final WindowFunction windowFunction;
 	
 	/**
 	 * Previous phase vector, one frame behind
@@ -66,6 +70,14 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	 */
 	private final float[] dev1;
 	
+	/**
+	 * Scratch buffers for the FFT of the current frame, reused for every
+	 * frame. The FFT is done in place, so the audio buffer is copied first.
+	 */
+	private float[] data;
+	private float[] power;
+	private float[] phase;
+	
 	/**
 	 * 
 	 * @param fftSize The size of the fft to take (e.g. 512)
@@ -74,7 +86,9 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	 * @param minimumInterOnsetInterval The minimum inter-onset-interval in seconds. When two onsets are detected within this interval the last one does not count. Default is 0.004 seconds.
 	 */
 	public ComplexOnsetDetector(int fftSize,double peakThreshold,double minimumInterOnsetInterval,double silenceThreshold){
-		fft = new FFT(fftSize,new HannWindow());
+		this.fftSize = fftSize;
+		windowFunction = new HannWindow();
+		fft = new FFT(fftSize,windowFunction);
 		this.silenceThreshold = silenceThreshold;
 		this.minimumInterOnsetInterval = minimumInterOnsetInterval;
 		
@@ -86,6 +100,10 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 		theta1 = new float[rsize];
 		theta2 = new float[rsize];
 		
+		data = new float[fftSize];
+		power = new float[fftSize/2];
+		phase = new float[fftSize/2];
+		
 		handler = new PrintOnsetHandler();
 	}
 	
@@ -110,10 +128,24 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	
 	private void onsetDetection(AudioEvent audioEvent){
 		//calculate the complex fft (the magnitude and phase)
-		float[] data = audioEvent.getFloatBuffer().clone();
-		float[] power = new float[data.length/2];
-		float[] phase = new float[data.length/2];
-		fft.powerPhaseFFT(data, power, phase);
+		float[] buffer = audioEvent.getFloatBuffer();
+		if(data.length != buffer.length){
+			data = new float[buffer.length];
+			power = new float[buffer.length/2];
+			phase = new float[buffer.length/2];
+		}
+		Spectrum spectrum = audioEvent.getSpectrum(fftSize, windowFunction);
+		if(spectrum != null && buffer.length == fftSize){
+			// Use the attached spectrum. powerPhaseFFT stores DC as a signed
+			// power with a phase of PI, keep that for the same onsets.
+			System.arraycopy(spectrum.getMagnitudes(), 0, power, 0, power.length);
+			System.arraycopy(spectrum.getPhases(), 0, phase, 0, phase.length);
+			power[0] = -spectrum.getData()[0];
+			phase[0] = (float) Math.PI;
+		} else {
+			System.arraycopy(buffer, 0, data, 0, buffer.length);
+			fft.powerPhaseFFT(data, power, phase);
+		}
 		
 		float onsetValue = 0;
 		
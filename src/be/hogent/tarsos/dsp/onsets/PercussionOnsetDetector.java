@@ -29,6 +29,7 @@ package be.hogent.tarsos.dsp.onsets;
 import be.hogent.tarsos.dsp.AudioEvent;
 import be.hogent.tarsos.dsp.AudioProcessor;
 import be.hogent.tarsos.dsp.util.fft.FFT;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
 
 /**
  * <p>
@@ -86,10 +87,16 @@ public class PercussionOnsetDetector implements AudioProcessor, OnsetDetector {
 	public static final double DEFAULT_SENSITIVITY = 20;
 
 	private final FFT fft;
+	private final int fftSize;
 
 	private final float[] priorMagnitudes;
 	private final float[] currentMagnitudes;
 
+	/**
+	 * The FFT is done in place, the audio buffer is copied to this array first.
+	 */
+	private float[] fftBuffer;
+
 	private float dfMinus1, dfMinus2;
 
 	private OnsetHandler handler;
@@ -145,7 +152,9 @@ public class PercussionOnsetDetector implements AudioProcessor, OnsetDetector {
 	 *            broadband total (dB). In [0-20].
 	 */
 	public PercussionOnsetDetector(float sampleRate, int bufferSize, OnsetHandler handler, double sensitivity, double threshold) {
-		fft = new FFT(bufferSize / 2);
+		fftSize = bufferSize / 2;
+		fft = new FFT(fftSize);
+		fftBuffer = new float[bufferSize];
 		this.threshold = threshold;
 		this.sensitivity = sensitivity;
 		priorMagnitudes = new float[bufferSize / 2];
@@ -161,8 +170,20 @@ public class PercussionOnsetDetector implements AudioProcessor, OnsetDetector {
 		this.processedSamples += audioFloatBuffer.length;
 		this.processedSamples -= audioEvent.getOverlap();
 
-		fft.forwardTransform(audioFloatBuffer);
-		fft.modulus(audioFloatBuffer, currentMagnitudes);
+		// Transform a copy, the buffer is used by other processors. Only the
+		// first half is transformed, the magnitudes of the upper bins are
+		// taken from the samples after it.
+		if(fftBuffer.length != audioFloatBuffer.length){
+			fftBuffer = new float[audioFloatBuffer.length];
+		}
+		System.arraycopy(audioFloatBuffer, 0, fftBuffer, 0, audioFloatBuffer.length);
+		Spectrum spectrum = audioEvent.getSpectrum(fftSize, null);
+		if(spectrum != null){
+			System.arraycopy(spectrum.getData(), 0, fftBuffer, 0, fftSize);
+		} else {
+			fft.forwardTransform(fftBuffer);
+		}
+		fft.modulus(fftBuffer, currentMagnitudes);
 		int binsOverThreshold = 0;
 		for (int i = 0; i < currentMagnitudes.length; i++) {
 			if (priorMagnitudes[i] > 0.f) {
@@ -43,7 +43,7 @@ package be.hogent.tarsos.dsp.pitch;
  * @author Eder Souza (ederwander on github)
  * @author Joren Six
  */
-public class AMDF implements PitchDetector{
+public class AMDF implements MultiFramePitchDetector{
 	
 	
 	private static final double DEFAULT_MIN_FREQUENCY = 82.0;
@@ -59,6 +59,18 @@ public class AMDF implements PitchDetector{
 	private final double ratio;
 	private final double sensitivity;
 	
+	/**
+	 * Updates the magnitude differences incrementally for overlapping buffers,
+	 * null to calculate them for each buffer.
+	 */
+	private final SlidingMagnitudeDifference slidingDifference;
+	
+	/**
+	 * A copy of a frame of a multi-frame call, for the sliding function. Null
+	 * when there is no sliding function.
+	 */
+	private final float[] frameBuffer;
+	
 	/**
 	 * The result of the pitch detection iteration.
 	 */
@@ -69,7 +81,53 @@ public class AMDF implements PitchDetector{
 	}
 	
 	public AMDF(float sampleRate, int bufferSize,double minFrequency,double maxFrequency) {
+		this(sampleRate, bufferSize, minFrequency, maxFrequency, null);
+	}
+	
+	/**
+	 * Create a pitch detector for a stream of overlapping buffers. The
+	 * magnitude differences are updated with the samples that enter and leave
+	 * the buffer, so the cost per buffer grows with the hop size instead of the
+	 * buffer size. Buffers that do not continue the previous one are handled
+	 * as usual.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param bufferSize
+	 *            The size of a buffer.
+	 * @param bufferOverlap
+	 *            The overlap of consecutive buffers.
+	 */
+	public AMDF(float sampleRate, int bufferSize, int bufferOverlap) {
+		this(sampleRate, bufferSize, bufferOverlap, DEFAULT_MIN_FREQUENCY, DEFAULT_MAX_FREQUENCY);
+	}
+	
+	/**
+	 * Create a pitch detector for a stream of overlapping buffers, with a
+	 * search range.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param bufferSize
+	 *            The size of a buffer.
+	 * @param bufferOverlap
+	 *            The overlap of consecutive buffers.
+	 * @param minFrequency
+	 *            The lowest frequency to detect, in Hz.
+	 * @param maxFrequency
+	 *            The highest frequency to detect, in Hz.
+	 * @see #AMDF(float, int, int)
+	 */
+	public AMDF(float sampleRate, int bufferSize, int bufferOverlap, double minFrequency, double maxFrequency) {
+		this(sampleRate, bufferSize, minFrequency, maxFrequency,
+				new SlidingMagnitudeDifference(bufferSize, bufferOverlap));
+	}
+	
+	private AMDF(float sampleRate, int bufferSize, double minFrequency, double maxFrequency,
+			SlidingMagnitudeDifference slidingDifference) {
 		this.sampleRate = sampleRate;
+		this.slidingDifference = slidingDifference;
+		this.frameBuffer = slidingDifference == null ? null : new float[bufferSize];
 		amd = new double[bufferSize];
 		this.ratio = DEFAULT_RATIO;
 		this.sensitivity = DEFAULT_SENSITIVITY;
@@ -80,44 +138,68 @@ public class AMDF implements PitchDetector{
 
 	@Override
 	public PitchDetectionResult getPitch(float[] audioBuffer) {
-		int t = 0;
-		float f0 = -1;
-		double minval = Double.POSITIVE_INFINITY;
-		double maxval = Double.NEGATIVE_INFINITY;
-		double[] frames1 = new double[0];
-		double[] frames2 = new double[0];
-		double[] calcSub = new double[0];
-
-		int maxShift = audioBuffer.length;
-		
-
-		for (int i = 0; i < maxShift; i++) {
-			frames1 = new double[maxShift - i + 1];
-			frames2 = new double[maxShift - i + 1];
-			t = 0;
-			for (int aux1 = 0; aux1 < maxShift - i; aux1++) {
-				t = t + 1;
-				frames1[t] = audioBuffer[aux1];
-
-			}
-			t = 0;
-			for (int aux2 = i; aux2 < maxShift; aux2++) {
-				t = t + 1;
-				frames2[t] = audioBuffer[aux2];
-			}
-
-			int frameLength = frames1.length;
-			calcSub = new double[frameLength];
-			for (int u = 0; u < frameLength; u++) {
-				calcSub[u] = frames1[u] - frames2[u];
+		if (slidingDifference != null) {
+			slidingDifference.update(audioBuffer);
+			slidingDifference.copyTo(amd);
+		} else {
+			magnitudeDifference(audioBuffer, 0, audioBuffer.length);
+		}
+		return estimate();
+	}
+	
+	@Override
+	public PitchDetectionResults getPitch(float[][] frames, PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(frames, amd.length);
+		PitchDetectionResults block = PitchDetectionResults.reuse(results, frames.length);
+		for (int frame = 0; frame < frames.length; frame++) {
+			block.set(frame, getPitch(frames[frame]));
+		}
+		return block;
+	}
+	
+	/**
+	 * Estimates the pitch of each frame. Without a sliding function the frames
+	 * are read in place. With one they are copied, so overlapping frames of
+	 * one signal (a stride smaller than the buffer size) are updated
+	 * incrementally.
+	 */
+	@Override
+	public PitchDetectionResults getPitch(float[] samples, int offset, int stride, int frameCount,
+			PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(samples, offset, stride, frameCount, amd.length);
+		PitchDetectionResults block = PitchDetectionResults.reuse(results, frameCount);
+		for (int frame = 0; frame < frameCount; frame++) {
+			int start = offset + frame * stride;
+			if (slidingDifference == null) {
+				magnitudeDifference(samples, start, amd.length);
+			} else {
+				System.arraycopy(samples, start, frameBuffer, 0, frameBuffer.length);
+				slidingDifference.update(frameBuffer);
+				slidingDifference.copyTo(amd);
 			}
-
+			block.set(frame, estimate());
+		}
+		return block;
+	}
+	
+	/**
+	 * Sums the absolute differences between the buffer and each lagged
+	 * version of itself.
+	 */
+	private void magnitudeDifference(float[] samples, int offset, int length) {
+		for (int i = 0; i < length; i++) {
 			double summation = 0;
-			for (int l = 0; l < frameLength; l++) {
-				summation +=  Math.abs(calcSub[l]);
+			for (int a = offset; a < offset + length - i; a++) {
+				summation += Math.abs((double) samples[a] - samples[a + i]);
 			}
 			amd[i] = summation;
 		}
+	}
+	
+	private PitchDetectionResult estimate() {
+		float f0 = -1;
+		double minval = Double.POSITIVE_INFINITY;
+		double maxval = Double.NEGATIVE_INFINITY;
 		
 		for (int j = (int)minPeriod; j < (int)maxPeriod; j++){
 			if(amd[j] < minval){
@@ -38,7 +38,8 @@
 
 package be.hogent.tarsos.dsp.pitch;
 
-import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
 
 /**
  * An implementation of the YIN pitch tracking algorithm which uses an FFT to
@@ -53,7 +54,7 @@ import be.hogent.tarsos.dsp.util.fft.FloatFFT;
  * @author Joren Six
  * @author Paul Brossier
  */
-public final class FastYin implements PitchDetector {
+public final class FastYin implements MultiFramePitchDetector {
 	/**
 	 * The default YIN threshold value. Should be around 0.10~0.15. See YIN
 	 * paper for more information.
@@ -84,34 +85,22 @@ public final class FastYin implements PitchDetector {
 	 * The buffer that stores the calculated values. It is exactly half the size
 	 * of the input buffer.
 	 */
-	private final float[] yinBuffer;	
+	private final float[] yinBuffer;
 	
 	/**
-	 * The result of the pitch detection iteration.
-	 */
-	private final PitchDetectionResult result;
-	
-	//------------------------ FFT instance members
-	
-	/**
-	 * Holds the FFT data, twice the length of the audio buffer.
-	 */
-	private final float[] audioBufferFFT;
-	
-	/**
-	 * Half of the data, disguised as a convolution kernel.
+	 * Receives the difference function of the second frame of a pair.
 	 */
-	private final  float[] kernel;
+	private final float[] pairedYinBuffer;	
 	
 	/**
-	 * Buffer to allow convolution via complex multiplication. It calculates the auto correlation function (ACF).
+	 * The result of the pitch detection iteration.
 	 */
-	private final float[] yinStyleACF;
+	private final PitchDetectionResult result;
 	
 	/**
-	 * An FFT object to quickly calculate the difference function.
+	 * Calculates the difference function with an FFT.
 	 */
-	private final FloatFFT fft;
+	private final YinDifference difference;
 
 	/**
 	 * Create a new pitch detector for a stream with the defined sample rate.
@@ -142,11 +131,8 @@ public final class FastYin implements PitchDetector {
 		this.sampleRate = audioSampleRate;
 		this.threshold = yinThreshold;
 		yinBuffer = new float[bufferSize / 2];
-		//Initializations for FFT difference step
-		audioBufferFFT = new float[2*bufferSize];
-		kernel = new float[2*bufferSize];
-		yinStyleACF = new float[2*bufferSize];
-		fft = new FloatFFT(bufferSize);
+		pairedYinBuffer = new float[bufferSize / 2];
+		difference = new YinDifference(bufferSize);
 		result = new PitchDetectionResult();
 	}
 
@@ -157,12 +143,83 @@ public final class FastYin implements PitchDetector {
 	 * @return a pitch value in Hz or -1 if no pitch is detected.
 	 */
 	public PitchDetectionResult getPitch(final float[] audioBuffer) {
+		return getPitch(audioBuffer, null);
+	}
 
-		final int tauEstimate;
-		final float pitchInHertz;
+	/**
+	 * Returns the pitch of the buffer of an audio event. When a spectrum of the
+	 * whole buffer without a window is attached to the event, it is used for
+	 * the difference function instead of transforming the buffer again.
+	 * 
+	 * @param audioEvent
+	 *            The audio event.
+	 * @return a pitch value in Hz or -1 if no pitch is detected.
+	 * @see be.hogent.tarsos.dsp.SpectrumProcessor
+	 */
+	public PitchDetectionResult getPitch(final AudioEvent audioEvent) {
+		final float[] audioBuffer = audioEvent.getFloatBuffer();
+		return getPitch(audioBuffer, audioEvent.getSpectrum(difference.getSpectrumSize(), null));
+	}
 
+	private PitchDetectionResult getPitch(final float[] audioBuffer, final Spectrum spectrum) {
 		// step 2
-		difference(audioBuffer);
+		difference.compute(audioBuffer, yinBuffer, spectrum);
+		return estimate();
+	}
+	
+	/**
+	 * Estimates the pitch of each frame. Frames are transformed in pairs, which
+	 * halves the number of FFTs.
+	 */
+	public PitchDetectionResults getPitch(final float[][] frames, final PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(frames, 2 * yinBuffer.length);
+		final PitchDetectionResults block = PitchDetectionResults.reuse(results, frames.length);
+		int frame = 0;
+		for (; frame + 1 < frames.length; frame += 2) {
+			difference.computePair(frames[frame], 0, frames[frame + 1], 0, yinBuffer, pairedYinBuffer);
+			estimatePair(block, frame);
+		}
+		if (frame < frames.length) {
+			difference.compute(frames[frame], 0, yinBuffer);
+			block.set(frame, estimate());
+		}
+		return block;
+	}
+	
+	/**
+	 * Estimates the pitch of each frame. Frames are transformed in pairs, which
+	 * halves the number of FFTs.
+	 */
+	public PitchDetectionResults getPitch(final float[] samples, final int offset, final int stride,
+			final int frameCount, final PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(samples, offset, stride, frameCount, 2 * yinBuffer.length);
+		final PitchDetectionResults block = PitchDetectionResults.reuse(results, frameCount);
+		int frame = 0;
+		for (; frame + 1 < frameCount; frame += 2) {
+			final int start = offset + frame * stride;
+			difference.computePair(samples, start, samples, start + stride, yinBuffer, pairedYinBuffer);
+			estimatePair(block, frame);
+		}
+		if (frame < frameCount) {
+			difference.compute(samples, offset + frame * stride, yinBuffer);
+			block.set(frame, estimate());
+		}
+		return block;
+	}
+	
+	private void estimatePair(final PitchDetectionResults block, final int frame) {
+		block.set(frame, estimate());
+		System.arraycopy(pairedYinBuffer, 0, yinBuffer, 0, yinBuffer.length);
+		block.set(frame + 1, estimate());
+	}
+	
+	/**
+	 * Steps 3 to 5 of the YIN algorithm, on the difference function in the
+	 * yin buffer.
+	 */
+	private PitchDetectionResult estimate() {
+		final int tauEstimate;
+		final float pitchInHertz;
 
 		// step 3
 		cumulativeMeanNormalizedDifference();
@@ -192,54 +249,6 @@ public final class FastYin implements PitchDetector {
 		return result;
 	}
 
-	/**
-	 * Implements the difference function as described in step 2 of the YIN
-	 * paper with an FFT to reduce the number of operations.
-	 */
-	private void difference(final float[] audioBuffer) {
-		// POWER TERM CALCULATION
-		// ... for the power terms in equation (7) in the Yin paper
-		float[] powerTerms = new float[yinBuffer.length];
-		for (int j = 0; j < yinBuffer.length; ++j) {
-			powerTerms[0] += audioBuffer[j] * audioBuffer[j];
-		}
-		// now iteratively calculate all others (saves a few multiplications)
-		for (int tau = 1; tau < yinBuffer.length; ++tau) {
-			powerTerms[tau] = powerTerms[tau-1] - audioBuffer[tau-1] * audioBuffer[tau-1] + audioBuffer[tau+yinBuffer.length] * audioBuffer[tau+yinBuffer.length];  
-		}
-
-		// YIN-STYLE AUTOCORRELATION via FFT
-		// 1. data
-		for (int j = 0; j < audioBuffer.length; ++j) {
-			audioBufferFFT[2*j] = audioBuffer[j];
-			audioBufferFFT[2*j+1] = 0;
-		}
-		fft.complexForward(audioBufferFFT);
-		
-		// 2. half of the data, disguised as a convolution kernel
-		for (int j = 0; j < yinBuffer.length; ++j) {
-			kernel[2*j] = audioBuffer[(yinBuffer.length-1)-j];
-			kernel[2*j+1] = 0;
-			kernel[2*j+audioBuffer.length] = 0;
-			kernel[2*j+audioBuffer.length+1] = 0;
-		}
-		fft.complexForward(kernel);
-
-		// 3. convolution via complex multiplication
-		for (int j = 0; j < audioBuffer.length; ++j) {
-			yinStyleACF[2*j]   = audioBufferFFT[2*j]*kernel[2*j] - audioBufferFFT[2*j+1]*kernel[2*j+1]; // real
-			yinStyleACF[2*j+1] = audioBufferFFT[2*j+1]*kernel[2*j] + audioBufferFFT[2*j]*kernel[2*j+1]; // imaginary
-		}
-		fft.complexInverse(yinStyleACF, true);
-		
-		// CALCULATION OF difference function
-		// ... according to (7) in the Yin paper.
-		for (int j = 0; j < yinBuffer.length; ++j) {
-			// taking only the real part
-			yinBuffer[j] = powerTerms[0] + powerTerms[j] - 2 * yinStyleACF[2 * (yinBuffer.length - 1 + j)];
-		}
-	}
-
 	/**
 	 * The cumulative mean normalized difference function as described in step 3
 	 * of the YIN paper. <br>
@@ -28,9 +28,6 @@
  */
 package be.hogent.tarsos.dsp.pitch;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>
  * Implementation of The McLeod Pitch Method (MPM). It is described in the
@@ -65,7 +62,7 @@ import java.util.List;
  * @author Phillip McLeod
  * @author Joren Six
  */
-public final class McLeodPitchMethod implements PitchDetector {
+public final class McLeodPitchMethod implements MultiFramePitchDetector {
 
 	/**
 	 * The expected size of an audio buffer (in samples).
@@ -83,7 +80,7 @@ public final class McLeodPitchMethod implements PitchDetector {
 	 * the first peak that is higher than 93% of the highest peak detected. 93%
 	 * is the default value used in the Tartini user interface.
 	 */
-	private static final double DEFAULT_CUTOFF = 0.97;
+	static final double DEFAULT_CUTOFF = 0.97;
 	/**
 	 * For performance reasons, peaks below this cutoff are not even considered.
 	 */
@@ -104,6 +101,18 @@ public final class McLeodPitchMethod implements PitchDetector {
 	 * The audio sample rate. Most audio has a sample rate of 44.1kHz.
 	 */
 	private final float sampleRate;
+	
+	/**
+	 * Updates the normalized square difference function incrementally for
+	 * overlapping buffers, null to calculate it for each buffer.
+	 */
+	private final SlidingNormalizedSquareDifference slidingNsdf;
+	
+	/**
+	 * A copy of a frame of a multi-frame call, for the sliding function. Null
+	 * when there is no sliding function.
+	 */
+	private final float[] frameBuffer;
 
 	/**
 	 * Contains a normalized square difference function value for each delay
@@ -117,20 +126,23 @@ public final class McLeodPitchMethod implements PitchDetector {
 	private float turningPointX, turningPointY;
 
 	/**
-	 * A list with minimum and maximum values of the nsdf curve.
+	 * The positions of the maxima of the nsdf curve, one between each pair of
+	 * negative zero crossings. The first maxPositionCount values are valid.
 	 */
-	private final List<Integer> maxPositions = new ArrayList<Integer>();
+	private final int[] maxPositions;
+	private int maxPositionCount;
 
 	/**
-	 * A list of estimates of the period of the signal (in samples).
+	 * Estimates of the period of the signal (in samples). The first
+	 * estimateCount values are valid.
 	 */
-	private final List<Float> periodEstimates = new ArrayList<Float>();
+	private final float[] periodEstimates;
 
 	/**
-	 * A list of estimates of the amplitudes corresponding with the period
-	 * estimates.
+	 * Estimates of the amplitudes corresponding with the period estimates.
 	 */
-	private final List<Float> ampEstimates = new ArrayList<Float>();
+	private final float[] ampEstimates;
+	private int estimateCount;
 
 	/**
 	 * The result of the pitch detection iteration.
@@ -172,9 +184,44 @@ public final class McLeodPitchMethod implements PitchDetector {
 	 *            paper 0.93 is used.
 	 */
 	public McLeodPitchMethod(final float audioSampleRate, final int audioBufferSize, final double cutoffMPM) {
+		this(audioSampleRate, audioBufferSize, cutoffMPM, null);
+	}
+	
+	/**
+	 * Create a new pitch detector for a stream of overlapping buffers. The
+	 * normalized square difference function is updated with the samples that
+	 * enter and leave the buffer, so the cost per buffer grows with the hop
+	 * size instead of the buffer size. Buffers that do not continue the
+	 * previous one are handled as usual. Worth it for hops of a quarter of the
+	 * buffer or less, larger hops are always calculated directly.
+	 * 
+	 * @param audioSampleRate
+	 *            The sample rate of the audio.
+	 * @param audioBufferSize
+	 *            The size of one audio buffer 1024 samples is common.
+	 * @param bufferOverlap
+	 *            The overlap of consecutive buffers, e.g. 896.
+	 * @param cutoffMPM
+	 *            The cutoff (similar to the YIN threshold). In the Tartini
+	 *            paper 0.93 is used.
+	 */
+	public McLeodPitchMethod(final float audioSampleRate, final int audioBufferSize, final int bufferOverlap,
+			final double cutoffMPM) {
+		this(audioSampleRate, audioBufferSize, cutoffMPM,
+				new SlidingNormalizedSquareDifference(audioBufferSize, bufferOverlap));
+	}
+	
+	private McLeodPitchMethod(final float audioSampleRate, final int audioBufferSize, final double cutoffMPM,
+			final SlidingNormalizedSquareDifference slidingNsdf) {
 		this.sampleRate = audioSampleRate;
 		nsdf = new float[audioBufferSize];
+		// every maximum is followed by at least one value below zero
+		maxPositions = new int[audioBufferSize / 2 + 1];
+		periodEstimates = new float[maxPositions.length];
+		ampEstimates = new float[maxPositions.length];
 		this.cutoff = cutoffMPM;
+		this.slidingNsdf = slidingNsdf;
+		frameBuffer = slidingNsdf == null ? null : new float[audioBufferSize];
 		result = new PitchDetectionResult();
 	}
 
@@ -187,12 +234,21 @@ public final class McLeodPitchMethod implements PitchDetector {
 	 *            The buffer with audio information.
 	 */
 	private void normalizedSquareDifference(final float[] audioBuffer) {
-		for (int tau = 0; tau < audioBuffer.length; tau++) {
+		if (slidingNsdf != null) {
+			slidingNsdf.update(audioBuffer);
+			slidingNsdf.copyTo(audioBuffer, nsdf);
+			return;
+		}
+		normalizedSquareDifference(audioBuffer, 0, audioBuffer.length);
+	}
+	
+	private void normalizedSquareDifference(final float[] samples, final int offset, final int length) {
+		for (int tau = 0; tau < length; tau++) {
 			float acf = 0;
 			float divisorM = 0;
-			for (int i = 0; i < audioBuffer.length - tau; i++) {
-				acf += audioBuffer[i] * audioBuffer[i + tau];
-				divisorM += audioBuffer[i] * audioBuffer[i] + audioBuffer[i + tau] * audioBuffer[i + tau];
+			for (int i = offset; i < offset + length - tau; i++) {
+				acf += samples[i] * samples[i + tau];
+				divisorM += samples[i] * samples[i] + samples[i + tau] * samples[i + tau];
 			}
 			nsdf[tau] = 2 * acf / divisorM;
 		}
@@ -204,22 +260,62 @@ public final class McLeodPitchMethod implements PitchDetector {
 	 * @see be.hogent.tarsos.pitch.pure.PurePitchDetector#getPitch(float[])
 	 */
 	public PitchDetectionResult getPitch(final float[] audioBuffer) {
+		// 1. Calculate the normalized square difference for each Tau value.
+		normalizedSquareDifference(audioBuffer);
+		return estimate();
+	}
+	
+	public PitchDetectionResults getPitch(final float[][] frames, final PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(frames, nsdf.length);
+		final PitchDetectionResults block = PitchDetectionResults.reuse(results, frames.length);
+		for (int frame = 0; frame < frames.length; frame++) {
+			normalizedSquareDifference(frames[frame]);
+			block.set(frame, estimate());
+		}
+		return block;
+	}
+	
+	/**
+	 * Estimates the pitch of each frame. Without a sliding function the frames
+	 * are read in place. With one they are copied, so overlapping frames of
+	 * one signal (a stride smaller than the buffer size) are updated
+	 * incrementally.
+	 */
+	public PitchDetectionResults getPitch(final float[] samples, final int offset, final int stride,
+			final int frameCount, final PitchDetectionResults results) {
+		PitchDetectionResults.checkFrames(samples, offset, stride, frameCount, nsdf.length);
+		final PitchDetectionResults block = PitchDetectionResults.reuse(results, frameCount);
+		for (int frame = 0; frame < frameCount; frame++) {
+			final int start = offset + frame * stride;
+			if (frameBuffer == null) {
+				normalizedSquareDifference(samples, start, nsdf.length);
+			} else {
+				System.arraycopy(samples, start, frameBuffer, 0, frameBuffer.length);
+				normalizedSquareDifference(frameBuffer);
+			}
+			block.set(frame, estimate());
+		}
+		return block;
+	}
+	
+	/**
+	 * Picks the peaks of the normalized square difference function and
+	 * estimates the pitch.
+	 */
+	private PitchDetectionResult estimate() {
 		final float pitch;
 
-		// 0. Clear previous results (Is this faster than initializing a list
-		// again and again?)
-		maxPositions.clear();
-		periodEstimates.clear();
-		ampEstimates.clear();
+		// 0. Clear previous results
+		maxPositionCount = 0;
+		estimateCount = 0;
 
-		// 1. Calculate the normalized square difference for each Tau value.
-		normalizedSquareDifference(audioBuffer);
 		// 2. Peak picking time: time to pick some peaks.
 		peakPicking();
 
 		double highestAmplitude = Double.NEGATIVE_INFINITY;
 
-		for (final Integer tau : maxPositions) {
+		for (int i = 0; i < maxPositionCount; i++) {
+			final int tau = maxPositions[i];
 			// make sure every annotation has a probability attached
 			highestAmplitude = Math.max(highestAmplitude, nsdf[tau]);
 
@@ -227,14 +323,15 @@ public final class McLeodPitchMethod implements PitchDetector {
 				// calculates turningPointX and Y
 				prabolicInterpolation(tau);
 				// store the turning points
-				ampEstimates.add(turningPointY);
-				periodEstimates.add(turningPointX);
+				ampEstimates[estimateCount] = turningPointY;
+				periodEstimates[estimateCount] = turningPointX;
+				estimateCount++;
 				// remember the highest amplitude
 				highestAmplitude = Math.max(highestAmplitude, turningPointY);
 			}
 		}
 
-		if (periodEstimates.isEmpty()) {
+		if (estimateCount == 0) {
 			pitch = -1;
 		} else {
 			// use the overall maximum to calculate a cutoff.
@@ -244,14 +341,14 @@ public final class McLeodPitchMethod implements PitchDetector {
 
 			// find first period above or equal to cutoff
 			int periodIndex = 0;
-			for (int i = 0; i < ampEstimates.size(); i++) {
-				if (ampEstimates.get(i) >= actualCutoff) {
+			for (int i = 0; i < estimateCount; i++) {
+				if (ampEstimates[i] >= actualCutoff) {
 					periodIndex = i;
 					break;
 				}
 			}
 
-			final double period = periodEstimates.get(periodIndex);
+			final double period = periodEstimates[periodIndex];
 			final float pitchEstimate = (float) (sampleRate / period);
 			if (pitchEstimate > LOWER_PITCH_CUTOFF) {
 				pitch = pitchEstimate;
@@ -384,7 +481,7 @@ public final class McLeodPitchMethod implements PitchDetector {
 			if (pos < nsdf.length - 1 && nsdf[pos] <= 0) {
 				// if there was a maximum add it to the list of maxima
 				if (curMaxPos > 0) {
-					maxPositions.add(curMaxPos);
+					maxPositions[maxPositionCount++] = curMaxPos;
 					curMaxPos = 0; // clear the maximum position, so we start
 					// looking for a new ones
 				}
@@ -394,7 +491,7 @@ public final class McLeodPitchMethod implements PitchDetector {
 			}
 		}
 		if (curMaxPos > 0) { // if there was a maximum in the last part
-			maxPositions.add(curMaxPos); // add it to the vector of maxima
+			maxPositions[maxPositionCount++] = curMaxPos; // add it to the vector of maxima
 		}
 	}
 }
@@ -0,0 +1,73 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * A pitch detector that analyzes many equally sized frames in one call, e.g.
+ * one frame of each channel of a multichannel recording or of many concurrent
+ * streams. Implementations reuse their work arrays and transforms for the
+ * whole block and can share work between frames. The frames are analyzed
+ * independently: the result of a frame is the same as when it is passed to
+ * {@link #getPitch(float[])}, apart from rounding errors.
+ * 
+ * @author Joren Six
+ */
+public interface MultiFramePitchDetector extends PitchDetector {
+	
+	/**
+	 * Estimates the pitch of each frame.
+	 * 
+	 * @param frames
+	 *            The frames, each as long as the buffer size of the detector.
+	 * @param results
+	 *            A block to store the results in, or null. It is reused when
+	 *            it can hold the frames.
+	 * @return The results, in the given block when it is large enough.
+	 */
+	PitchDetectionResults getPitch(float[][] frames, PitchDetectionResults results);
+	
+	/**
+	 * Estimates the pitch of frames stored in one array. Frame i starts at
+	 * offset + i * stride. The stride may be smaller than the buffer size, to
+	 * analyze overlapping frames of one signal.
+	 * 
+	 * @param samples
+	 *            The array with the frames.
+	 * @param offset
+	 *            The index of the first sample of the first frame.
+	 * @param stride
+	 *            The distance between the starts of consecutive frames.
+	 * @param frameCount
+	 *            The number of frames.
+	 * @param results
+	 *            A block to store the results in, or null. It is reused when
+	 *            it can hold the frames.
+	 * @return The results, in the given block when it is large enough.
+	 */
+	PitchDetectionResults getPitch(float[] samples, int offset, int stride, int frameCount,
+			PitchDetectionResults results);
+}
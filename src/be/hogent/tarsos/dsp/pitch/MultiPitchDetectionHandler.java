@@ -0,0 +1,47 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+
+/**
+ * An interface to handle the simultaneous pitches detected by a
+ * {@link MultiPitchProcessor}.
+ * 
+ * @author Joren Six
+ */
+public interface MultiPitchDetectionHandler {
+	/**
+	 * Handle the pitches detected in a buffer.
+	 * 
+	 * @param result
+	 *            The pitches, reused for the next buffer.
+	 * @param audioEvent
+	 *            The buffer.
+	 */
+	void handleMultiPitch(MultiPitchDetectionResult result, AudioEvent audioEvent);
+}
@@ -0,0 +1,100 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * The simultaneous pitches detected in one buffer, strongest first. The
+ * object and its arrays are allocated once and reused for every buffer.
+ * 
+ * @author Joren Six
+ */
+public final class MultiPitchDetectionResult {
+	
+	private final float[] pitches;
+	private final float[] saliences;
+	private int count;
+	
+	/**
+	 * @param maximumPitches
+	 *            The maximum number of simultaneous pitches.
+	 */
+	MultiPitchDetectionResult(final int maximumPitches) {
+		pitches = new float[maximumPitches];
+		saliences = new float[maximumPitches];
+	}
+	
+	/**
+	 * @return The number of detected pitches, zero when there are none.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return The maximum number of simultaneous pitches.
+	 */
+	public int getMaximumCount() {
+		return pitches.length;
+	}
+	
+	/**
+	 * @param index
+	 *            The index of the pitch, 0 is the most salient.
+	 * @return The fundamental frequency in Hz.
+	 */
+	public float getPitch(final int index) {
+		checkIndex(index);
+		return pitches[index];
+	}
+	
+	/**
+	 * @param index
+	 *            The index of the pitch, 0 is the most salient.
+	 * @return The weighted sum of the constant Q magnitudes of the harmonics
+	 *         of the pitch, after the pitches before it were removed.
+	 */
+	public float getSalience(final int index) {
+		checkIndex(index);
+		return saliences[index];
+	}
+	
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Pitch " + index + " of " + count);
+		}
+	}
+	
+	void clear() {
+		count = 0;
+	}
+	
+	void add(final float pitch, final float salience) {
+		pitches[count] = pitch;
+		saliences[count] = salience;
+		count++;
+	}
+}
@@ -0,0 +1,375 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.ConstantQ;
+
+/**
+ * Estimates several simultaneous pitches, e.g. the notes of a chord, from the
+ * magnitudes of a {@link ConstantQ} transform. It follows the iterative
+ * estimation and cancellation scheme of Klapuri:
+ * <ol>
+ * <li>The salience of each candidate fundamental is the weighted sum of the
+ * magnitudes at its harmonics. In a constant Q spectrum harmonic h is always
+ * binsPerOctave·log2(h) bins above the fundamental, so the offsets are
+ * calculated once.</li>
+ * <li>The most salient candidate is a detected pitch. Candidates without a
+ * fundamental are skipped: their harmonics belong to the notes above
+ * them.</li>
+ * <li>Its harmonics are removed from the spectrum. The amplitude removed at
+ * each harmonic is limited to the average of it and its neighbouring
+ * harmonics (spectral smoothness), so partials shared with other notes, e.g.
+ * an octave higher, keep part of their energy.</li>
+ * <li>This repeats until the maximum number of pitches is found or the
+ * salience drops below a fraction of the first one.</li>
+ * </ol>
+ * All work arrays and the result are allocated once. A note an octave above
+ * another note shares all its partials with it and is often missed.
+ * <p>
+ * Anssi Klapuri, Multiple fundamental frequency estimation based on
+ * harmonicity and spectral smoothness, IEEE Transactions on Speech and Audio
+ * Processing, 11(6): 804-816, 2003.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class MultiPitchProcessor implements AudioProcessor {
+	
+	/**
+	 * The number of harmonics summed for the salience of a candidate.
+	 */
+	public static final int DEFAULT_HARMONICS = 10;
+	
+	/**
+	 * The weight of harmonic h is HARMONIC_DECAY^(h-1): higher harmonics count
+	 * less, which keeps subharmonics of a note below the note itself.
+	 */
+	private static final float HARMONIC_DECAY = 0.8f;
+	
+	/**
+	 * A candidate whose fundamental is weaker than this fraction of its
+	 * strongest harmonic is not considered. Without it a note below a chord,
+	 * whose harmonics coincide with the notes of the chord, wins.
+	 */
+	private static final float FUNDAMENTAL_RATIO = 0.2f;
+	
+	private final ConstantQ constantQ;
+	private final MultiPitchDetectionHandler handler;
+	private final MultiPitchDetectionResult result;
+	
+	private final float[] frequencies;
+	private final int binsPerOctave;
+	
+	/**
+	 * The first and last bin (inclusive) that can be a fundamental.
+	 */
+	private final int lowestCandidate;
+	private final int highestCandidate;
+	
+	/**
+	 * Offset and weight of each harmonic, relative to the fundamental bin.
+	 */
+	private final int[] harmonicOffsets;
+	private final float[] harmonicWeights;
+	
+	/**
+	 * Half the width, in bins, of a partial: removed around each harmonic and
+	 * excluded around each detected pitch.
+	 */
+	private final int partialRadius;
+	
+	/**
+	 * The spectrum with the harmonics of the pitches found so far removed.
+	 */
+	private final float[] residual;
+	private final float[] partials;
+	private final int[] detectedBins;
+	
+	private float relativeThreshold = 0.3f;
+	private float silenceThreshold = 0.001f;
+	
+	/**
+	 * Create a multi-pitch processor with its own constant Q transform. The
+	 * transform covers the harmonics of the highest candidate, up to the
+	 * Nyquist frequency. Buffers should be as long as its FFT, see
+	 * {@link #getBufferSize()}.
+	 * 
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @param minimumPitch
+	 *            The lowest fundamental frequency, in Hz.
+	 * @param maximumPitch
+	 *            The highest fundamental frequency, in Hz.
+	 * @param binsPerOctave
+	 *            The resolution of the constant Q transform, e.g. 36.
+	 * @param maximumPitches
+	 *            The maximum number of simultaneous pitches.
+	 * @param handler
+	 *            Handles the detected pitches of each buffer, may be null.
+	 */
+	public MultiPitchProcessor(float sampleRate, float minimumPitch, float maximumPitch, int binsPerOctave,
+			int maximumPitches, MultiPitchDetectionHandler handler) {
+		this(new ConstantQ(sampleRate, minimumPitch, Math.min(maximumPitch * DEFAULT_HARMONICS, sampleRate * 0.45f),
+				binsPerOctave), minimumPitch, maximumPitch, maximumPitches, handler);
+	}
+	
+	/**
+	 * Create a multi-pitch processor on an existing constant Q transform. The
+	 * processor calculates the transform for each buffer, so do not add the
+	 * transform to the chain as well.
+	 * 
+	 * @param constantQ
+	 *            The transform.
+	 * @param minimumPitch
+	 *            The lowest fundamental frequency, in Hz.
+	 * @param maximumPitch
+	 *            The highest fundamental frequency, in Hz.
+	 * @param maximumPitches
+	 *            The maximum number of simultaneous pitches.
+	 * @param handler
+	 *            Handles the detected pitches of each buffer, may be null.
+	 */
+	public MultiPitchProcessor(ConstantQ constantQ, float minimumPitch, float maximumPitch, int maximumPitches,
+			MultiPitchDetectionHandler handler) {
+		if (maximumPitches < 1) {
+			throw new IllegalArgumentException("At least one pitch should be detected, got " + maximumPitches);
+		}
+		this.constantQ = constantQ;
+		this.handler = handler;
+		this.frequencies = constantQ.getFreqencies();
+		this.binsPerOctave = constantQ.getBinsPerOctave();
+		
+		int lowest = 0;
+		while (lowest < frequencies.length && frequencies[lowest] < minimumPitch * 0.99f) {
+			lowest++;
+		}
+		int highest = frequencies.length - 1;
+		while (highest >= 0 && frequencies[highest] > maximumPitch * 1.01f) {
+			highest--;
+		}
+		if (lowest > highest) {
+			throw new IllegalArgumentException("The constant Q transform has no bins between " + minimumPitch
+					+ " and " + maximumPitch + " Hz");
+		}
+		lowestCandidate = lowest;
+		highestCandidate = highest;
+		
+		harmonicOffsets = new int[DEFAULT_HARMONICS];
+		harmonicWeights = new float[DEFAULT_HARMONICS];
+		for (int h = 0; h < DEFAULT_HARMONICS; h++) {
+			harmonicOffsets[h] = (int) Math.round(binsPerOctave * Math.log(h + 1) / Math.log(2));
+			harmonicWeights[h] = (float) Math.pow(HARMONIC_DECAY, h);
+		}
+		partialRadius = Math.max(1, Math.round(binsPerOctave / 24f));
+		
+		residual = new float[frequencies.length];
+		partials = new float[DEFAULT_HARMONICS];
+		detectedBins = new int[maximumPitches];
+		result = new MultiPitchDetectionResult(maximumPitches);
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		constantQ.process(audioEvent);
+		estimate(constantQ.getMagnitudes());
+		if (handler != null) {
+			handler.handleMultiPitch(result, audioEvent);
+		}
+		return true;
+	}
+	
+	/**
+	 * Estimates the pitches from constant Q magnitudes calculated elsewhere.
+	 * 
+	 * @param magnitudes
+	 *            The magnitudes of the transform this processor was created
+	 *            with.
+	 * @return The detected pitches, reused for the next call.
+	 */
+	public MultiPitchDetectionResult estimate(float[] magnitudes) {
+		System.arraycopy(magnitudes, 0, residual, 0, residual.length);
+		result.clear();
+		float firstSalience = 0;
+		while (result.getCount() < result.getMaximumCount()) {
+			int best = -1;
+			float bestSalience = 0;
+			for (int bin = lowestCandidate; bin <= highestCandidate; bin++) {
+				if (!isDetected(bin)) {
+					final float salience = salience(bin);
+					if (salience > bestSalience) {
+						bestSalience = salience;
+						best = bin;
+					}
+				}
+			}
+			if (best < 0 || bestSalience < silenceThreshold || bestSalience < relativeThreshold * firstSalience) {
+				break;
+			}
+			if (result.getCount() == 0) {
+				firstSalience = bestSalience;
+			}
+			detectedBins[result.getCount()] = best;
+			result.add(interpolatedFrequency(best), bestSalience);
+			removeHarmonics(best);
+		}
+		return result;
+	}
+	
+	private boolean isDetected(int bin) {
+		for (int i = 0; i < result.getCount(); i++) {
+			if (Math.abs(detectedBins[i] - bin) <= partialRadius) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * The weighted sum of the smoothed amplitudes of the harmonics of a bin.
+	 */
+	private float salience(int bin) {
+		final int harmonics = harmonicAmplitudes(bin);
+		float strongest = 0;
+		for (int h = 0; h < harmonics; h++) {
+			strongest = Math.max(strongest, partials[h]);
+		}
+		if (partials[0] < FUNDAMENTAL_RATIO * strongest) {
+			// a subharmonic: the partials belong to notes above it
+			return 0;
+		}
+		float salience = 0;
+		for (int h = 0; h < harmonics; h++) {
+			salience += harmonicWeights[h] * smoothAmplitude(h, harmonics);
+		}
+		return salience;
+	}
+	
+	/**
+	 * Copies the residual magnitudes at the harmonics of a bin to the
+	 * partials array.
+	 * 
+	 * @return The number of harmonics within the transform.
+	 */
+	private int harmonicAmplitudes(int bin) {
+		int harmonics = 0;
+		while (harmonics < harmonicOffsets.length && bin + harmonicOffsets[harmonics] < residual.length) {
+			partials[harmonics] = residual[bin + harmonicOffsets[harmonics]];
+			harmonics++;
+		}
+		return harmonics;
+	}
+	
+	/**
+	 * The amplitude of a harmonic, limited to the average of it and its
+	 * neighbouring harmonics. A peak that belongs to another note stands out
+	 * from the harmonics around it and is mostly ignored.
+	 */
+	private float smoothAmplitude(int h, int harmonics) {
+		final int from = Math.max(0, h - 1);
+		final int to = Math.min(harmonics - 1, h + 1);
+		float smooth = 0;
+		for (int i = from; i <= to; i++) {
+			smooth += partials[i];
+		}
+		smooth /= to - from + 1;
+		return Math.min(partials[h], smooth);
+	}
+	
+	/**
+	 * Refines the frequency of a bin with a parabola through the magnitudes
+	 * around it.
+	 */
+	private float interpolatedFrequency(int bin) {
+		float delta = 0;
+		if (bin > 0 && bin < residual.length - 1) {
+			final float left = residual[bin - 1];
+			final float center = residual[bin];
+			final float right = residual[bin + 1];
+			final float bottom = left + right - 2 * center;
+			if (bottom < 0) {
+				delta = Math.max(-0.5f, Math.min(0.5f, (left - right) / (2 * bottom)));
+			}
+		}
+		return (float) (frequencies[bin] * Math.pow(2, delta / binsPerOctave));
+	}
+	
+	private void removeHarmonics(int bin) {
+		final int harmonics = harmonicAmplitudes(bin);
+		for (int h = 0; h < harmonics; h++) {
+			final float amplitude = partials[h];
+			if (amplitude > 0) {
+				final float remaining = (amplitude - smoothAmplitude(h, harmonics)) / amplitude;
+				final int center = bin + harmonicOffsets[h];
+				final int from = Math.max(0, center - partialRadius);
+				final int to = Math.min(residual.length - 1, center + partialRadius);
+				for (int b = from; b <= to; b++) {
+					residual[b] *= remaining;
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void processingFinished() {
+		// Do nothing.
+	}
+	
+	/**
+	 * @param relativeThreshold
+	 *            Pitches with a salience below this fraction of the salience
+	 *            of the strongest pitch are not reported. Defaults to 0.3.
+	 */
+	public void setRelativeThreshold(float relativeThreshold) {
+		this.relativeThreshold = relativeThreshold;
+	}
+	
+	/**
+	 * @param silenceThreshold
+	 *            Buffers where no candidate reaches this salience have no
+	 *            pitch. Defaults to 0.001.
+	 */
+	public void setSilenceThreshold(float silenceThreshold) {
+		this.silenceThreshold = silenceThreshold;
+	}
+	
+	/**
+	 * @return The required buffer size, the length of the FFT of the constant
+	 *         Q transform.
+	 */
+	public int getBufferSize() {
+		return constantQ.getFFTlength();
+	}
+	
+	/**
+	 * @return The pitches of the last buffer.
+	 */
+	public MultiPitchDetectionResult getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * The pitch detection results of a block of frames, stored in primitive
+ * arrays. A block is filled by a {@link MultiFramePitchDetector} and can be
+ * reused for the next block: it only grows when a block has more frames than
+ * its capacity.
+ * 
+ * @author Joren Six
+ */
+public final class PitchDetectionResults {
+	
+	private float[] pitches;
+	private float[] probabilities;
+	private boolean[] pitched;
+	private int size;
+	
+	/**
+	 * @param capacity
+	 *            The number of frames the block can hold without growing.
+	 */
+	public PitchDetectionResults(final int capacity) {
+		pitches = new float[capacity];
+		probabilities = new float[capacity];
+		pitched = new boolean[capacity];
+	}
+	
+	/**
+	 * @return The number of frames in the block.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return The number of frames the block can hold without growing.
+	 */
+	public int getCapacity() {
+		return pitches.length;
+	}
+	
+	/**
+	 * @param frame
+	 *            The index of the frame in the block.
+	 * @return The pitch in Hz or -1 if no pitch is detected.
+	 */
+	public float getPitch(final int frame) {
+		checkIndex(frame);
+		return pitches[frame];
+	}
+	
+	/**
+	 * @param frame
+	 *            The index of the frame in the block.
+	 * @return The probability of the pitch, -1 if the algorithm does not
+	 *         provide one.
+	 */
+	public float getProbability(final int frame) {
+		checkIndex(frame);
+		return probabilities[frame];
+	}
+	
+	/**
+	 * @param frame
+	 *            The index of the frame in the block.
+	 * @return True if a pitch is detected in the frame.
+	 */
+	public boolean isPitched(final int frame) {
+		checkIndex(frame);
+		return pitched[frame];
+	}
+	
+	/**
+	 * Copies the result of a frame.
+	 * 
+	 * @param frame
+	 *            The index of the frame in the block.
+	 * @param target
+	 *            Receives the result.
+	 * @return The target.
+	 */
+	public PitchDetectionResult get(final int frame, final PitchDetectionResult target) {
+		checkIndex(frame);
+		target.setPitch(pitches[frame]);
+		target.setProbability(probabilities[frame]);
+		target.setPitched(pitched[frame]);
+		return target;
+	}
+	
+	private void checkIndex(final int frame) {
+		if (frame < 0 || frame >= size) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " of a block of " + size);
+		}
+	}
+	
+	void set(final int frame, final PitchDetectionResult result) {
+		pitches[frame] = result.getPitch();
+		probabilities[frame] = result.getProbability();
+		pitched[frame] = result.isPitched();
+	}
+	
+	/**
+	 * @param results
+	 *            A block to reuse, or null.
+	 * @param frames
+	 *            The number of frames.
+	 * @return The given block if it can hold the frames, otherwise a new one.
+	 *         Its size is set to the number of frames.
+	 */
+	static PitchDetectionResults reuse(final PitchDetectionResults results, final int frames) {
+		final PitchDetectionResults block;
+		if (results != null && results.getCapacity() >= frames) {
+			block = results;
+		} else {
+			block = new PitchDetectionResults(frames);
+		}
+		block.size = frames;
+		return block;
+	}
+	
+	/**
+	 * Checks the arguments of
+	 * {@link MultiFramePitchDetector#getPitch(float[], int, int, int, PitchDetectionResults)}.
+	 */
+	static void checkFrames(final float[] samples, final int offset, final int stride, final int frameCount,
+			final int bufferSize) {
+		if (stride < 1 || frameCount < 0 || offset < 0) {
+			throw new IllegalArgumentException("Invalid offset " + offset + ", stride " + stride + " or frame count "
+					+ frameCount);
+		}
+		if (frameCount > 0 && offset + (long) (frameCount - 1) * stride + bufferSize > samples.length) {
+			throw new IllegalArgumentException(frameCount + " frames of " + bufferSize + " samples with a stride of "
+					+ stride + " do not fit in " + (samples.length - offset) + " samples");
+		}
+	}
+	
+	/**
+	 * Checks the arguments of
+	 * {@link MultiFramePitchDetector#getPitch(float[][], PitchDetectionResults)}.
+	 */
+	static void checkFrames(final float[][] frames, final int bufferSize) {
+		for (int i = 0; i < frames.length; i++) {
+			if (frames[i].length != bufferSize) {
+				throw new IllegalArgumentException("Frame " + i + " has " + frames[i].length + " samples, expected "
+						+ bufferSize);
+			}
+		}
+	}
+}
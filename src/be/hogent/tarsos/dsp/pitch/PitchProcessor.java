@@ -99,6 +99,30 @@ public class PitchProcessor implements AudioProcessor {
 			return detector;
 		}
 		
+		/**
+		 * Returns a new pitch detector for a stream of overlapping buffers.
+		 * YIN, MPM and AMDF update their lag function incrementally, so their
+		 * cost per buffer grows with the hop size instead of the buffer size.
+		 * The other algorithms ignore the overlap.
+		 * @param sampleRate The sample rate of the audio buffer.
+		 * @param bufferSize The size (in samples) of the audio buffer.
+		 * @param bufferOverlap The overlap (in samples) of consecutive buffers.
+		 * @return A new pitch detector object.
+		 */
+		public PitchDetector getDetector(float sampleRate,int bufferSize,int bufferOverlap){
+			PitchDetector detector;
+			if (this == YIN) {
+				detector = new Yin(sampleRate, bufferSize, bufferOverlap, Yin.DEFAULT_THRESHOLD);
+			} else if (this == MPM) {
+				detector = new McLeodPitchMethod(sampleRate, bufferSize, bufferOverlap, McLeodPitchMethod.DEFAULT_CUTOFF);
+			} else if (this == AMDF) {
+				detector = new AMDF(sampleRate, bufferSize, bufferOverlap);
+			} else {
+				detector = getDetector(sampleRate, bufferSize);
+			}
+			return detector;
+		}
+		
 	};
 	
 	/**
@@ -127,11 +151,55 @@ public class PitchProcessor implements AudioProcessor {
 		this.handler = handler;	
 	}
 	
+	/**
+	 * Initialize a new pitch processor for a stream of overlapping buffers.
+	 * 
+	 * @param algorithm
+	 *            An enum defining the algorithm.
+	 * @param sampleRate
+	 *            The sample rate of the buffer (Hz).
+	 * @param bufferSize
+	 *            The size of the buffer in samples.
+	 * @param bufferOverlap
+	 *            The overlap of consecutive buffers in samples.
+	 * @param handler
+	 *            The handler handles detected pitch.
+	 */
+	public PitchProcessor(PitchEstimationAlgorithm algorithm, float sampleRate,
+			int bufferSize, int bufferOverlap,
+			PitchDetectionHandler handler) {
+		detector = algorithm.getDetector(sampleRate, bufferSize, bufferOverlap);
+		this.handler = handler;	
+	}
+	
+	/**
+	 * Initialize a new pitch processor with an existing detector. Detectors
+	 * keep state between buffers so a detector should only be used by one
+	 * processor at a time. Reusing a detector avoids allocating it again for
+	 * every stream, e.g. when many files are processed on one thread.
+	 * 
+	 * @param detector
+	 *            The pitch detector, configured for the sample rate and buffer
+	 *            size of the stream.
+	 * @param handler
+	 *            The handler handles detected pitch.
+	 */
+	public PitchProcessor(PitchDetector detector, PitchDetectionHandler handler) {
+		this.detector = detector;
+		this.handler = handler;
+	}
+	
 	@Override
 	public boolean process(AudioEvent audioEvent) {
 		float[] audioFloatBuffer = audioEvent.getFloatBuffer();
 		
-		PitchDetectionResult result = detector.getPitch(audioFloatBuffer);
+		PitchDetectionResult result;
+		if(detector instanceof FastYin){
+			// can use a spectrum attached to the event
+			result = ((FastYin) detector).getPitch(audioEvent);
+		} else {
+			result = detector.getPitch(audioFloatBuffer);
+		}
 		
 		
 		handler.handlePitch(result,audioEvent);
@@ -0,0 +1,93 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * The difference function of step 2 of the YIN paper, updated incrementally:
+ * for each lag the squared differences of the samples that leave the
+ * integration window are subtracted and those of the samples that enter it
+ * are added.
+ * 
+ * @author Joren Six
+ */
+final class SlidingDifference extends SlidingLagFunction {
+	
+	private final double[] difference;
+	
+	/**
+	 * @param bufferSize
+	 *            The size of the buffers, the difference function has half as
+	 *            many values.
+	 * @param overlap
+	 *            The expected overlap of consecutive buffers.
+	 */
+	SlidingDifference(final int bufferSize, final int overlap) {
+		super(bufferSize, overlap, bufferSize / 4);
+		difference = new double[bufferSize / 2];
+	}
+	
+	@Override
+	void calculate(final float[] audioBuffer) {
+		final int window = difference.length;
+		for (int tau = 1; tau < window; tau++) {
+			double sum = 0;
+			for (int index = 0; index < window; index++) {
+				final double delta = audioBuffer[index] - audioBuffer[index + tau];
+				sum += delta * delta;
+			}
+			difference[tau] = sum;
+		}
+	}
+	
+	@Override
+	void slide(final float[] previous, final float[] current, final int hop) {
+		final int window = difference.length;
+		// the last samples of the window in the current buffer are new
+		final int entering = window - hop;
+		for (int tau = 1; tau < window; tau++) {
+			double sum = difference[tau];
+			for (int i = 0; i < hop; i++) {
+				final double left = previous[i] - previous[i + tau];
+				final double entered = current[entering + i] - current[entering + i + tau];
+				sum += entered * entered - left * left;
+			}
+			difference[tau] = sum;
+		}
+	}
+	
+	/**
+	 * @param yinBuffer
+	 *            Receives the difference function of the current buffer.
+	 */
+	void copyTo(final float[] yinBuffer) {
+		yinBuffer[0] = 0;
+		for (int tau = 1; tau < difference.length; tau++) {
+			// A sum of squares, negative values are rounding errors
+			yinBuffer[tau] = difference[tau] < 0 ? 0 : (float) difference[tau];
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * A function of the lag, like the YIN difference function or an
+ * autocorrelation, that is updated incrementally when consecutive buffers
+ * overlap. With a hop size of h samples an update costs O(h·n) instead of the
+ * O(n²) of a calculation from scratch, so tracking pitch at small hops gets
+ * proportionally cheaper.
+ * <p>
+ * The previous buffer is kept to check that a new buffer really continues it:
+ * when it does not, e.g. after a seek or for the first buffer, the function is
+ * calculated from scratch. So is every {@link #REFRESH_BUFFERS} buffers worth
+ * of hops, to keep rounding errors of the updates from adding up. The sums are
+ * kept in doubles.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+abstract class SlidingLagFunction {
+	
+	/**
+	 * The function is calculated from scratch after sliding over this many
+	 * buffer lengths.
+	 */
+	static final int REFRESH_BUFFERS = 16;
+	
+	/**
+	 * A copy of the previous buffer.
+	 */
+	private final float[] previous;
+	private final int overlap;
+	private final int hop;
+	private boolean calculated;
+	private int slidSamples;
+	private long recalculations;
+	
+	/**
+	 * @param bufferSize
+	 *            The size of the buffers.
+	 * @param overlap
+	 *            The expected overlap of consecutive buffers.
+	 * @param maximumHop
+	 *            Hops larger than this are not worth an update.
+	 */
+	SlidingLagFunction(final int bufferSize, final int overlap, final int maximumHop) {
+		if (overlap < 0 || overlap >= bufferSize) {
+			throw new IllegalArgumentException("The overlap should be in [0," + bufferSize + "[, got " + overlap);
+		}
+		this.previous = new float[bufferSize];
+		this.overlap = overlap;
+		this.hop = bufferSize - overlap <= maximumHop ? bufferSize - overlap : 0;
+	}
+	
+	/**
+	 * Updates the function for a new buffer.
+	 * 
+	 * @param audioBuffer
+	 *            The new buffer.
+	 */
+	final void update(final float[] audioBuffer) {
+		if (calculated && hop > 0 && slidSamples < REFRESH_BUFFERS * previous.length && continues(audioBuffer)) {
+			slide(previous, audioBuffer, hop);
+			slidSamples += hop;
+		} else {
+			calculate(audioBuffer);
+			recalculations++;
+			slidSamples = 0;
+			calculated = audioBuffer.length == previous.length;
+		}
+		if (calculated) {
+			System.arraycopy(audioBuffer, 0, previous, 0, previous.length);
+		}
+	}
+	
+	/**
+	 * @return The number of times the function was calculated from scratch.
+	 */
+	final long getRecalculations() {
+		return recalculations;
+	}
+	
+	private boolean continues(final float[] audioBuffer) {
+		if (audioBuffer.length != previous.length) {
+			return false;
+		}
+		for (int i = 0; i < overlap; i++) {
+			if (audioBuffer[i] != previous[i + hop]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Calculates the function from scratch.
+	 * 
+	 * @param audioBuffer
+	 *            The buffer.
+	 */
+	abstract void calculate(float[] audioBuffer);
+	
+	/**
+	 * Updates the function from the previous to the current buffer.
+	 * 
+	 * @param previous
+	 *            The previous buffer.
+	 * @param current
+	 *            The current buffer, its first samples are the last samples of
+	 *            the previous buffer.
+	 * @param hop
+	 *            The number of new samples.
+	 */
+	abstract void slide(float[] previous, float[] current, int hop);
+}
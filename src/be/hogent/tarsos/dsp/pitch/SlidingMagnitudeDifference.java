@@ -0,0 +1,86 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * The average magnitude difference function of {@link AMDF}, updated
+ * incrementally: for each lag the absolute differences of the samples that
+ * left the buffer are subtracted and those of the samples that entered it are
+ * added.
+ * 
+ * @author Joren Six
+ */
+final class SlidingMagnitudeDifference extends SlidingLagFunction {
+	
+	private final double[] amd;
+	
+	/**
+	 * @param bufferSize
+	 *            The size of the buffers.
+	 * @param overlap
+	 *            The expected overlap of consecutive buffers.
+	 */
+	SlidingMagnitudeDifference(final int bufferSize, final int overlap) {
+		super(bufferSize, overlap, bufferSize / 4);
+		amd = new double[bufferSize];
+	}
+	
+	@Override
+	void calculate(final float[] audioBuffer) {
+		for (int tau = 0; tau < amd.length; tau++) {
+			amd[tau] = difference(audioBuffer, tau, 0, amd.length - tau);
+		}
+	}
+	
+	@Override
+	void slide(final float[] previous, final float[] current, final int hop) {
+		final int length = amd.length;
+		for (int tau = 0; tau <= length - hop; tau++) {
+			amd[tau] += difference(current, tau, length - tau - hop, length - tau) - difference(previous, tau, 0, hop);
+		}
+		// only new samples are this far apart
+		for (int tau = length - hop + 1; tau < length; tau++) {
+			amd[tau] = difference(current, tau, 0, length - tau);
+		}
+	}
+	
+	private static double difference(final float[] buffer, final int tau, final int from, final int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++) {
+			sum += Math.abs((double) buffer[i] - buffer[i + tau]);
+		}
+		return sum;
+	}
+	
+	/**
+	 * @param target
+	 *            Receives the magnitude differences of the current buffer.
+	 */
+	void copyTo(final double[] target) {
+		System.arraycopy(amd, 0, target, 0, amd.length);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+/**
+ * The normalized square difference function of the McLeod pitch method,
+ * updated incrementally. The autocorrelation at lag tau sums the products of
+ * the samples that are tau apart in the buffer: when the buffer slides the
+ * products of the samples that left are subtracted and those of the samples
+ * that entered are added. The normalization only needs the energy of the
+ * start and the end of the buffer, which follows from prefix sums of the
+ * squared samples.
+ * 
+ * @author Joren Six
+ */
+final class SlidingNormalizedSquareDifference extends SlidingLagFunction {
+	
+	private final double[] acf;
+	/**
+	 * squares[i] is the sum of the first i squared samples.
+	 */
+	private final double[] squares;
+	
+	/**
+	 * @param bufferSize
+	 *            The size of the buffers.
+	 * @param overlap
+	 *            The expected overlap of consecutive buffers.
+	 */
+	SlidingNormalizedSquareDifference(final int bufferSize, final int overlap) {
+		super(bufferSize, overlap, bufferSize / 4);
+		acf = new double[bufferSize];
+		squares = new double[bufferSize + 1];
+	}
+	
+	@Override
+	void calculate(final float[] audioBuffer) {
+		for (int tau = 0; tau < acf.length; tau++) {
+			acf[tau] = product(audioBuffer, tau, 0, acf.length - tau);
+		}
+	}
+	
+	@Override
+	void slide(final float[] previous, final float[] current, final int hop) {
+		final int length = acf.length;
+		for (int tau = 0; tau <= length - hop; tau++) {
+			acf[tau] += product(current, tau, length - tau - hop, length - tau) - product(previous, tau, 0, hop);
+		}
+		// only new samples are this far apart
+		for (int tau = length - hop + 1; tau < length; tau++) {
+			acf[tau] = product(current, tau, 0, length - tau);
+		}
+	}
+	
+	private static double product(final float[] buffer, final int tau, final int from, final int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++) {
+			sum += (double) buffer[i] * buffer[i + tau];
+		}
+		return sum;
+	}
+	
+	/**
+	 * @param audioBuffer
+	 *            The current buffer.
+	 * @param nsdf
+	 *            Receives the normalized square difference function of the
+	 *            current buffer.
+	 */
+	void copyTo(final float[] audioBuffer, final float[] nsdf) {
+		final int length = acf.length;
+		for (int i = 0; i < length; i++) {
+			squares[i + 1] = squares[i] + (double) audioBuffer[i] * audioBuffer[i];
+		}
+		for (int tau = 0; tau < length; tau++) {
+			final double divisorM = squares[length - tau] + squares[length] - squares[tau];
+			nsdf[tau] = (float) (2 * acf[tau] / divisorM);
+		}
+	}
+}
@@ -40,7 +40,7 @@ public final class Yin implements PitchDetector {
 	 * The default YIN threshold value. Should be around 0.10~0.15. See YIN
 	 * paper for more information.
 	 */
-	private static final double DEFAULT_THRESHOLD = 0.20;
+	static final double DEFAULT_THRESHOLD = 0.20;
 
 	/**
 	 * The default size of an audio buffer (in samples).
@@ -72,6 +72,18 @@ public final class Yin implements PitchDetector {
 	 * The result of the pitch detection iteration.
 	 */
 	private final PitchDetectionResult result;
+	
+	/**
+	 * Calculates the difference function with an FFT, null to calculate it
+	 * directly.
+	 */
+	private final YinDifference fftDifference;
+	
+	/**
+	 * Updates the difference function incrementally for overlapping buffers,
+	 * null to calculate it for each buffer.
+	 */
+	private final SlidingDifference slidingDifference;
 
 	/**
 	 * Create a new pitch detector for a stream with the defined sample rate.
@@ -99,10 +111,62 @@ public final class Yin implements PitchDetector {
 	 *            pitch candidates. See the YIN paper for more details.
 	 */
 	public Yin(final float audioSampleRate, final int bufferSize, final double yinThreshold) {
+		this(audioSampleRate, bufferSize, yinThreshold, false);
+	}
+	
+	/**
+	 * Create a new pitch detector for a stream with the defined sample rate.
+	 * Processes the audio in blocks of the defined size.
+	 * 
+	 * @param audioSampleRate
+	 *            The sample rate of the audio stream. E.g. 44.1 kHz.
+	 * @param bufferSize
+	 *            The size of a buffer. E.g. 1024.
+	 * @param yinThreshold
+	 *            The parameter that defines which peaks are kept as possible
+	 *            pitch candidates. See the YIN paper for more details.
+	 * @param fftDifference
+	 *            Calculate the difference function with an FFT, in O(n log n)
+	 *            instead of O(n²). The values differ from the direct
+	 *            calculation by rounding errors only, the following steps are
+	 *            the same. Worth it for large buffers, e.g. 4096 samples or
+	 *            more for low notes.
+	 */
+	public Yin(final float audioSampleRate, final int bufferSize, final double yinThreshold, final boolean fftDifference) {
+		this(audioSampleRate, bufferSize, yinThreshold, fftDifference ? new YinDifference(bufferSize) : null, null);
+	}
+	
+	/**
+	 * Create a new pitch detector for a stream of overlapping buffers. The
+	 * difference function is updated with the samples that enter and leave
+	 * the buffer, so the cost per buffer grows with the hop size instead of
+	 * the buffer size. Buffers that do not continue the previous one, e.g.
+	 * after a seek, are handled as usual. The values differ from the direct
+	 * calculation by rounding errors only. Worth it for hops of a quarter of
+	 * the buffer or less, larger hops are always calculated directly.
+	 * 
+	 * @param audioSampleRate
+	 *            The sample rate of the audio stream. E.g. 44.1 kHz.
+	 * @param bufferSize
+	 *            The size of a buffer. E.g. 2048.
+	 * @param bufferOverlap
+	 *            The overlap of consecutive buffers. E.g. 1920.
+	 * @param yinThreshold
+	 *            The parameter that defines which peaks are kept as possible
+	 *            pitch candidates. See the YIN paper for more details.
+	 */
+	public Yin(final float audioSampleRate, final int bufferSize, final int bufferOverlap, final double yinThreshold) {
+		this(audioSampleRate, bufferSize, yinThreshold, null, new SlidingDifference(bufferSize, bufferOverlap));
+	}
+	
+	private Yin(final float audioSampleRate, final int bufferSize, final double yinThreshold,
+			final YinDifference fftDifference, final SlidingDifference slidingDifference) {
 		this.sampleRate = audioSampleRate;
 		this.threshold = yinThreshold;
 		yinBuffer = new float[bufferSize / 2];
 		result = new PitchDetectionResult();
+		this.fftDifference = fftDifference;
+		this.slidingDifference = slidingDifference;
 	}
 
 	/**
@@ -154,6 +218,21 @@ public final class Yin implements PitchDetector {
 	private void difference(final float[] audioBuffer) {
 		int index, tau;
 		float delta;
+		if (slidingDifference != null) {
+			slidingDifference.update(audioBuffer);
+			slidingDifference.copyTo(yinBuffer);
+			return;
+		}
+		if (fftDifference != null) {
+			fftDifference.compute(audioBuffer, yinBuffer, null);
+			// A sum of squares, negative values are rounding errors
+			for (tau = 0; tau < yinBuffer.length; tau++) {
+				if (yinBuffer[tau] < 0) {
+					yinBuffer[tau] = 0;
+				}
+			}
+			return;
+		}
 		for (tau = 0; tau < yinBuffer.length; tau++) {
 			yinBuffer[tau] = 0;
 		}
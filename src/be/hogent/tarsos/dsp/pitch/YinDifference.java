@@ -0,0 +1,270 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.pitch;
+
+import be.hogent.tarsos.dsp.util.fft.FFTPlanCache;
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+
+/**
+ * The difference function of step 2 of the YIN paper, calculated with an FFT
+ * in O(n log n) instead of O(n²). It expands the squared difference in power
+ * terms and an autocorrelation, equation (7) of the paper, and computes the
+ * autocorrelation as a convolution. All work arrays are allocated once.
+ * Implementation by Matthias Mauch, shared by {@link FastYin} and {@link Yin}.
+ * 
+ * @author Matthias Mauch
+ * @author Joren Six
+ */
+final class YinDifference {
+	
+	/**
+	 * The power terms in equation (7) of the YIN paper.
+	 */
+	private final float[] powerTerms;
+	
+	/**
+	 * Holds the FFT data, twice the length of the audio buffer.
+	 */
+	private final float[] audioBufferFFT;
+	
+	/**
+	 * Half of the data, disguised as a convolution kernel.
+	 */
+	private final float[] kernel;
+	
+	/**
+	 * Buffer to allow convolution via complex multiplication. It calculates the auto correlation function (ACF).
+	 */
+	private final float[] yinStyleACF;
+	
+	private final FloatFFT fft;
+	
+	/**
+	 * @param bufferSize
+	 *            The size of the audio buffers, the difference function has
+	 *            half as many values.
+	 */
+	YinDifference(final int bufferSize) {
+		powerTerms = new float[bufferSize / 2];
+		audioBufferFFT = new float[2 * bufferSize];
+		kernel = new float[2 * bufferSize];
+		yinStyleACF = new float[2 * bufferSize];
+		fft = FFTPlanCache.getTransform(bufferSize);
+	}
+	
+	/**
+	 * @return The size of the spectrum that can be passed to
+	 *         {@link #compute(float[], float[], Spectrum)}: a spectrum of the
+	 *         whole buffer, without a window.
+	 */
+	int getSpectrumSize() {
+		return audioBufferFFT.length / 2;
+	}
+	
+	/**
+	 * Calculates the difference function.
+	 * 
+	 * @param audioBuffer
+	 *            The audio buffer.
+	 * @param yinBuffer
+	 *            Receives the difference function, half the length of the
+	 *            buffer.
+	 * @param spectrum
+	 *            The spectrum of the buffer or null to calculate it.
+	 */
+	void compute(final float[] audioBuffer, final float[] yinBuffer, final Spectrum spectrum) {
+		if (spectrum == null) {
+			compute(audioBuffer, 0, yinBuffer);
+			return;
+		}
+		// YIN-STYLE AUTOCORRELATION via FFT
+		// 1. data
+		unpackSpectrum(spectrum.getData());
+		// 2. half of the data, disguised as a convolution kernel
+		fillKernel(audioBuffer, 0, null, 0);
+		// 3. convolution via complex multiplication
+		convolve();
+		finish(audioBuffer, 0, yinBuffer, 0);
+	}
+	
+	/**
+	 * Calculates the difference function of a buffer stored in a larger
+	 * array.
+	 * 
+	 * @param samples
+	 *            The array with the buffer.
+	 * @param offset
+	 *            The index of the first sample of the buffer.
+	 * @param yinBuffer
+	 *            Receives the difference function, half the length of the
+	 *            buffer.
+	 */
+	void compute(final float[] samples, final int offset, final float[] yinBuffer) {
+		fillData(samples, offset, null, 0);
+		fillKernel(samples, offset, null, 0);
+		convolve();
+		finish(samples, offset, yinBuffer, 0);
+	}
+	
+	/**
+	 * Calculates the difference function of two buffers with the transforms
+	 * of one: the first buffer is transformed as the real and the second as
+	 * the imaginary part of a complex signal, and the spectra are separated
+	 * using the symmetry of the spectrum of a real signal. This halves the
+	 * number of transforms.
+	 * 
+	 * @param first
+	 *            The array with the first buffer.
+	 * @param firstOffset
+	 *            The index of the first sample of the first buffer.
+	 * @param second
+	 *            The array with the second buffer.
+	 * @param secondOffset
+	 *            The index of the first sample of the second buffer.
+	 * @param firstYinBuffer
+	 *            Receives the difference function of the first buffer.
+	 * @param secondYinBuffer
+	 *            Receives the difference function of the second buffer.
+	 */
+	void computePair(final float[] first, final int firstOffset, final float[] second, final int secondOffset,
+			final float[] firstYinBuffer, final float[] secondYinBuffer) {
+		fillData(first, firstOffset, second, secondOffset);
+		fillKernel(first, firstOffset, second, secondOffset);
+		final int n = audioBufferFFT.length / 2;
+		for (int k = 0; k < n; k++) {
+			final int m = k == 0 ? 0 : n - k;
+			// separate the spectra of the two real signals
+			final float zr = audioBufferFFT[2*k], zi = audioBufferFFT[2*k+1];
+			final float mr = audioBufferFFT[2*m], mi = audioBufferFFT[2*m+1];
+			final float ar = (zr + mr) / 2, ai = (zi - mi) / 2;
+			final float br = (zi + mi) / 2, bi = (mr - zr) / 2;
+			final float kr = kernel[2*k], ki = kernel[2*k+1];
+			final float lr = kernel[2*m], li = kernel[2*m+1];
+			final float kar = (kr + lr) / 2, kai = (ki - li) / 2;
+			final float kbr = (ki + li) / 2, kbi = (lr - kr) / 2;
+			// the first product as the real, the second as the imaginary part
+			final float pr = ar*kar - ai*kai;
+			final float pi = ai*kar + ar*kai;
+			final float qr = br*kbr - bi*kbi;
+			final float qi = bi*kbr + br*kbi;
+			yinStyleACF[2*k] = pr - qi;
+			yinStyleACF[2*k+1] = pi + qr;
+		}
+		fft.complexInverse(yinStyleACF, true);
+		finish(first, firstOffset, firstYinBuffer, 0);
+		finish(second, secondOffset, secondYinBuffer, 1);
+	}
+	
+	/**
+	 * Transforms the first buffer as the real part and the second, if any, as
+	 * the imaginary part.
+	 */
+	private void fillData(final float[] first, final int firstOffset, final float[] second, final int secondOffset) {
+		final int n = audioBufferFFT.length / 2;
+		for (int j = 0; j < n; ++j) {
+			audioBufferFFT[2*j] = first[firstOffset + j];
+			audioBufferFFT[2*j+1] = second == null ? 0 : second[secondOffset + j];
+		}
+		fft.complexForward(audioBufferFFT);
+	}
+	
+	/**
+	 * Half of the data, disguised as a convolution kernel.
+	 */
+	private void fillKernel(final float[] first, final int firstOffset, final float[] second, final int secondOffset) {
+		final int n = audioBufferFFT.length / 2;
+		final int w = powerTerms.length;
+		for (int j = 0; j < w; ++j) {
+			kernel[2*j] = first[firstOffset + (w-1) - j];
+			kernel[2*j+1] = second == null ? 0 : second[secondOffset + (w-1) - j];
+			kernel[2*j+n] = 0;
+			kernel[2*j+n+1] = 0;
+		}
+		fft.complexForward(kernel);
+	}
+	
+	/**
+	 * Convolution via complex multiplication, calculates the auto correlation
+	 * function (ACF).
+	 */
+	private void convolve() {
+		final int n = audioBufferFFT.length / 2;
+		for (int j = 0; j < n; ++j) {
+			yinStyleACF[2*j]   = audioBufferFFT[2*j]*kernel[2*j] - audioBufferFFT[2*j+1]*kernel[2*j+1]; // real
+			yinStyleACF[2*j+1] = audioBufferFFT[2*j+1]*kernel[2*j] + audioBufferFFT[2*j]*kernel[2*j+1]; // imaginary
+		}
+		fft.complexInverse(yinStyleACF, true);
+	}
+	
+	/**
+	 * Combines the power terms and the ACF to the difference function,
+	 * according to (7) in the Yin paper.
+	 * 
+	 * @param part
+	 *            0 to take the ACF from the real part, 1 for the imaginary
+	 *            part.
+	 */
+	private void finish(final float[] samples, final int offset, final float[] yinBuffer, final int part) {
+		// POWER TERM CALCULATION
+		// ... for the power terms in equation (7) in the Yin paper
+		powerTerms[0] = 0;
+		for (int j = 0; j < yinBuffer.length; ++j) {
+			powerTerms[0] += samples[offset + j] * samples[offset + j];
+		}
+		// now iteratively calculate all others (saves a few multiplications):
+		// the window of tau drops sample tau-1 and gains sample tau+W-1
+		for (int tau = 1; tau < yinBuffer.length; ++tau) {
+			final float dropped = samples[offset + tau - 1];
+			final float gained = samples[offset + tau + yinBuffer.length - 1];
+			powerTerms[tau] = powerTerms[tau-1] - dropped * dropped + gained * gained;
+		}
+		
+		// CALCULATION OF difference function
+		for (int j = 0; j < yinBuffer.length; ++j) {
+			yinBuffer[j] = powerTerms[0] + powerTerms[j] - 2 * yinStyleACF[2 * (yinBuffer.length - 1 + j) + part];
+		}
+	}
+
+	/**
+	 * Expands the packed spectrum of a real signal to the full complex
+	 * spectrum, using the symmetry X[n-k] = conj(X[k]).
+	 */
+	private void unpackSpectrum(final float[] packed) {
+		final int n = packed.length;
+		audioBufferFFT[0] = packed[0];
+		audioBufferFFT[1] = 0;
+		audioBufferFFT[n] = packed[1];
+		audioBufferFFT[n + 1] = 0;
+		for (int k = 1; k < n / 2; k++) {
+			audioBufferFFT[2 * k] = packed[2 * k];
+			audioBufferFFT[2 * k + 1] = packed[2 * k + 1];
+			audioBufferFFT[2 * (n - k)] = packed[2 * k];
+			audioBufferFFT[2 * (n - k) + 1] = -packed[2 * k + 1];
+		}
+	}
+}
@@ -40,6 +40,13 @@ public class RateTransposer implements AudioProcessor {
 	private double factor;
     private Resampler r;
     
+	/**
+	 * The transposed samples, reused for every buffer. The dispatchers set
+	 * their own buffer on the event again before each buffer, so handing this
+	 * array to the event is safe.
+	 */
+	private float[] out;
+    
 	/**
 	 * Create a new sample rate transposer. The factor determines the new sample
 	 * rate. E.g. 0.5 is half the sample rate, 1.0 does not change a thing and
@@ -67,11 +74,12 @@ public class RateTransposer implements AudioProcessor {
 	@Override
 	public boolean process(AudioEvent audioEvent) {
 		float[] src = audioEvent.getFloatBuffer();
-		//Creation of float array in loop could be prevented if src.length is known beforehand...
-		//Possible optimization is to instantiate it outside the loop and get a pointer to the 
-		//array here, in the process method method.
-		float[] out = new float[(int) (src.length * factor)];
-		r.process(factor, src, 0, src.length, false, out, 0, out.length);
+		//The output buffer is only created again when the buffer size or factor changes.
+		int outLength = (int) (src.length * factor);
+		if(out == null || out.length != outLength){
+			out = new float[outLength];
+		}
+		r.resample(factor, src, 0, src.length, false, out, 0, out.length);
 		//The size of the output buffer changes (according to factor). 
 		audioEvent.setFloatBuffer(out);
 		return true;
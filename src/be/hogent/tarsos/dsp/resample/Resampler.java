@@ -69,6 +69,7 @@ class Resampler {
     private final float[] Y;
     private int Yp;
     private double Time;
+    private final ArraySampleBuffers arrayBuffers = new ArraySampleBuffers();
 
     /**
      * Clone an existing resampling session. Faster than creating one from scratch.
@@ -379,12 +380,71 @@ class Resampler {
      * @return the number of samples consumed and generated
      */
     public Result process(double factor, float[] inBuffer, int inBufferOffset, int inBufferLen, boolean lastBatch, float[] outBuffer, int outBufferOffset, int outBufferLen) {
-        FloatBuffer inputBuffer = FloatBuffer.wrap(inBuffer, inBufferOffset, inBufferLen);
-        FloatBuffer outputBuffer = FloatBuffer.wrap(outBuffer, outBufferOffset, outBufferLen);
+        resample(factor, inBuffer, inBufferOffset, inBufferLen, lastBatch, outBuffer, outBufferOffset, outBufferLen);
+        return new Result(arrayBuffers.inputConsumed, arrayBuffers.outputGenerated);
+    }
+
+    /**
+     * Process a batch of samples without allocating: the arrays are wrapped in a
+     * reused {@link SampleBuffers} instead of two {@link FloatBuffer}s.
+     *
+     * @param factor          resampling rate for this batch
+     * @param inBuffer        array containing input samples in the range -1.0 to 1.0
+     * @param inBufferOffset  offset into inBuffer at which to start processing
+     * @param inBufferLen     number of valid elements in the inputBuffer
+     * @param lastBatch       pass true if this is the last batch of samples
+     * @param outBuffer       array to hold the resampled data
+     * @param outBufferOffset Offset in the output buffer.
+     * @param outBufferLen    Output buffer length.
+     * @return the number of samples generated
+     */
+    public int resample(double factor, float[] inBuffer, int inBufferOffset, int inBufferLen, boolean lastBatch, float[] outBuffer, int outBufferOffset, int outBufferLen) {
+        arrayBuffers.wrap(inBuffer, inBufferOffset, inBufferLen, outBuffer, outBufferOffset, outBufferLen);
+        process(factor, arrayBuffers, lastBatch);
+        return arrayBuffers.outputGenerated;
+    }
+
+    /**
+     * Array backed sample buffers, reused for every batch.
+     */
+    private static final class ArraySampleBuffers implements SampleBuffers {
+        private float[] input;
+        private int inputOffset;
+        private int inputLength;
+        private float[] output;
+        private int outputOffset;
+        private int outputLength;
+        private int inputConsumed;
+        private int outputGenerated;
+
+        private void wrap(float[] input, int inputOffset, int inputLength, float[] output, int outputOffset, int outputLength) {
+            this.input = input;
+            this.inputOffset = inputOffset;
+            this.inputLength = inputLength;
+            this.output = output;
+            this.outputOffset = outputOffset;
+            this.outputLength = outputLength;
+            this.inputConsumed = 0;
+            this.outputGenerated = 0;
+        }
 
-        process(factor, inputBuffer, lastBatch, outputBuffer);
+        public int getInputBufferLength() {
+            return inputLength - inputConsumed;
+        }
 
-        return new Result(inputBuffer.position() - inBufferOffset, outputBuffer.position() - outBufferOffset);
+        public int getOutputBufferLength() {
+            return outputLength - outputGenerated;
+        }
+
+        public void produceInput(float[] array, int offset, int length) {
+            System.arraycopy(input, inputOffset + inputConsumed, array, offset, length);
+            inputConsumed += length;
+        }
+
+        public void consumeOutput(float[] array, int offset, int length) {
+            System.arraycopy(array, offset, output, outputOffset + outputGenerated, length);
+            outputGenerated += length;
+        }
     }
 
 
@@ -0,0 +1,225 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+import java.util.Arrays;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.util.fft.FFT;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
+
+/**
+ * <p>
+ * Transforms the complex frames of an {@link STFTProcessor} back to audio with
+ * weighted overlap-add, so spectral effects can be chained like any other
+ * processor that outputs audio. Add the STFT processor first and this
+ * processor after it: each frame is handed to the {@link SpectrumEditor},
+ * transformed back, multiplied by the synthesis window and added to the
+ * output.
+ * </p>
+ * <p>
+ * The output is normalized by the overlap-added product of the analysis and
+ * synthesis window, so any pair of windows reconstructs the input when the
+ * spectrum is not edited, not only pairs that add up to a constant by
+ * themselves. The overlap of the dispatcher has to be the FFT size minus the
+ * hop size given here.
+ * </p>
+ * <p>
+ * A sample is complete once the last frame that covers it is added, so the
+ * output is delayed by {@link #getLatency()} samples: the FFT size minus the
+ * hop size. The new samples of each buffer, from the overlap to the end, are
+ * replaced by the output in a buffer of this processor; the buffer of the
+ * dispatcher is not modified. The last samples of the stream are still in the
+ * accumulator when the stream ends, append as many samples of silence to keep
+ * them. The first samples of the stream are covered by fewer frames, their
+ * weight is only restored while it is at least
+ * {@value #MINIMUM_RELATIVE_WEIGHT} times the full weight, below that they
+ * fade in.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class ISTFTProcessor implements AudioProcessor {
+	
+	/**
+	 * The smallest window weight, relative to the weight in the steady state,
+	 * that is normalized. Samples with a smaller weight, only at the start of
+	 * the stream, are divided by this weight instead.
+	 */
+	public static final float MINIMUM_RELATIVE_WEIGHT = 0.001f;
+	
+	private final STFTProcessor analysis;
+	private final SpectrumEditor editor;
+	private final int size;
+	private final int hopSize;
+	private final FFT fft;
+	private final float[] synthesisWindow;
+	private final float[] windowProduct;
+	private final float minimumWeight;
+	private final float[] data;
+	private final float[] samples;
+	private final float[] weights;
+	private float[] output;
+	
+	/**
+	 * Create a new inverse STFT processor.
+	 * 
+	 * @param analysis
+	 *            The processor of the complex frames, earlier in the chain.
+	 * @param hopSize
+	 *            The step size of the dispatcher, at most the FFT size.
+	 * @param synthesisWindow
+	 *            The window to apply after the inverse transform, or null for
+	 *            none.
+	 * @param editor
+	 *            Edits the frames before the inverse transform, or null to
+	 *            resynthesize them as they are.
+	 */
+	public ISTFTProcessor(STFTProcessor analysis, int hopSize, WindowFunction synthesisWindow, SpectrumEditor editor) {
+		if (analysis.getRepresentation() != STFTProcessor.Representation.COMPLEX) {
+			throw new IllegalArgumentException("The frames of the STFT processor should be complex, not "
+					+ analysis.getRepresentation());
+		}
+		if (hopSize <= 0 || hopSize > analysis.getSize()) {
+			throw new IllegalArgumentException("The hop size should be between 1 and the FFT size, not " + hopSize);
+		}
+		this.analysis = analysis;
+		this.editor = editor;
+		this.size = analysis.getSize();
+		this.hopSize = hopSize;
+		this.fft = new FFT(size);
+		this.synthesisWindow = curve(synthesisWindow);
+		this.windowProduct = curve(analysis.getWindowFunction());
+		for (int i = 0; i < size; i++) {
+			windowProduct[i] *= this.synthesisWindow[i];
+		}
+		float fullWeight = 0;
+		for (int i = 0; i < hopSize; i++) {
+			float weight = 0;
+			for (int j = i; j < size; j += hopSize) {
+				weight += windowProduct[j];
+			}
+			fullWeight = Math.max(fullWeight, weight);
+		}
+		this.minimumWeight = fullWeight * MINIMUM_RELATIVE_WEIGHT;
+		this.data = new float[size];
+		this.samples = new float[size];
+		this.weights = new float[size];
+	}
+	
+	private float[] curve(WindowFunction windowFunction) {
+		if (windowFunction == null) {
+			float[] curve = new float[size];
+			Arrays.fill(curve, 1f);
+			return curve;
+		}
+		return windowFunction.generateCurve(size);
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		STFTFrame frame = analysis.getFrame();
+		if (frame == null) {
+			return true;
+		}
+		if (editor != null) {
+			editor.editSpectrum(frame);
+		}
+		synthesize(frame.getValues());
+		
+		float[] buffer = audioEvent.getFloatBuffer();
+		if (output == null || output.length != buffer.length) {
+			output = new float[buffer.length];
+		}
+		int overlap = audioEvent.getOverlap();
+		int newSamples = buffer.length - overlap;
+		// Keep the previous output in the overlapping part.
+		System.arraycopy(output, output.length - overlap, output, 0, overlap);
+		// Only the first buffer, without overlap, has more new samples than
+		// the hop size: the latency is silent.
+		int silent = Math.max(0, newSamples - hopSize);
+		Arrays.fill(output, overlap, overlap + silent, 0f);
+		emit(output, overlap + silent, newSamples - silent);
+		audioEvent.setFloatBuffer(output);
+		return true;
+	}
+	
+	/**
+	 * Transforms a complex frame back to audio and adds it, windowed, to the
+	 * accumulator.
+	 */
+	private void synthesize(final float[] values) {
+		data[0] = values[0];
+		data[1] = values[size];
+		System.arraycopy(values, 2, data, 2, size - 2);
+		fft.backwardsTransform(data);
+		for (int i = 0; i < size; i++) {
+			samples[i] += data[i] * synthesisWindow[i];
+			weights[i] += windowProduct[i];
+		}
+	}
+	
+	/**
+	 * Normalizes the complete samples of the accumulator, at most a hop,
+	 * copies them to the target and shifts the accumulator by a hop.
+	 */
+	private void emit(final float[] target, final int offset, final int length) {
+		final int count = Math.min(length, hopSize);
+		for (int i = 0; i < count; i++) {
+			target[offset + i] = samples[i] / Math.max(weights[i], minimumWeight);
+		}
+		System.arraycopy(samples, hopSize, samples, 0, size - hopSize);
+		System.arraycopy(weights, hopSize, weights, 0, size - hopSize);
+		Arrays.fill(samples, size - hopSize, size, 0f);
+		Arrays.fill(weights, size - hopSize, size, 0f);
+	}
+	
+	@Override
+	public void processingFinished() {
+		Arrays.fill(samples, 0f);
+		Arrays.fill(weights, 0f);
+		if (output != null) {
+			Arrays.fill(output, 0f);
+		}
+	}
+	
+	/**
+	 * @return The delay of the output in samples, the FFT size minus the hop
+	 *         size.
+	 */
+	public int getLatency() {
+		return size - hopSize;
+	}
+	
+	/**
+	 * @return The hop size.
+	 */
+	public int getHopSize() {
+		return hopSize;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import be.hogent.tarsos.dsp.io.FeatureFileReader;
+import be.hogent.tarsos.dsp.io.FeatureFileWriter;
+
+/**
+ * Streams the frames to a feature file, see {@link FeatureFileWriter}; read it
+ * with {@link FeatureFileReader}. The feature type is "stft-" followed by the
+ * representation in lower case, e.g. "stft-log_power".
+ * 
+ * @author Joren Six
+ */
+public class STFTFileSink implements STFTSink {
+	
+	private static final Logger LOG = Logger.getLogger(STFTFileSink.class.getName());
+	
+	private final FeatureFileWriter writer;
+	
+	/**
+	 * Create a sink that writes the frames of a processor.
+	 * 
+	 * @param file
+	 *            The file to create, an existing file is overwritten.
+	 * @param size
+	 *            The size of the FFT of the processor.
+	 * @param representation
+	 *            The representation of the processor.
+	 * @param frameRate
+	 *            The number of frames per second, the sample rate divided by
+	 *            the step size of the dispatcher.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public STFTFileSink(File file, int size, STFTProcessor.Representation representation, float frameRate)
+			throws IOException {
+		String type = "stft-" + representation.name().toLowerCase(Locale.ROOT);
+		writer = new FeatureFileWriter(file, type, frameRate, representation.valuesPerBin() * (size / 2 + 1));
+	}
+	
+	@Override
+	public void handleFrame(STFTFrame frame) {
+		try {
+			writer.write(frame.getValues(), 0);
+		} catch (IOException e) {
+			LOG.severe(String.format("Failure while writing STFT frame %d: %s", frame.getFrameIndex(), e.getMessage()));
+		}
+	}
+	
+	@Override
+	public void processingFinished() {
+		writer.processingFinished();
+	}
+	
+	/**
+	 * @return The number of frames written so far.
+	 */
+	public long getFrameCount() {
+		return writer.getFrameCount();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+/**
+ * A frame of a short-time Fourier transform. The frame is reused by the
+ * {@link STFTProcessor} for every buffer: copy the values to keep them.
+ * 
+ * @author Joren Six
+ */
+public final class STFTFrame {
+	
+	private final STFTProcessor.Representation representation;
+	private final int size;
+	private final float sampleRate;
+	private final float[] values;
+	private long frameIndex;
+	private double timeStamp;
+	
+	STFTFrame(STFTProcessor.Representation representation, int size, float sampleRate) {
+		this.representation = representation;
+		this.size = size;
+		this.sampleRate = sampleRate;
+		this.values = new float[representation.valuesPerBin() * getBinCount()];
+	}
+	
+	void setPosition(long frameIndex, double timeStamp) {
+		this.frameIndex = frameIndex;
+		this.timeStamp = timeStamp;
+	}
+	
+	/**
+	 * @return The values of the frame, a value per bin from 0 Hz up to the
+	 *         Nyquist frequency, or for complex frames the real and imaginary
+	 *         part of each bin.
+	 */
+	public float[] getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return The representation of the values.
+	 */
+	public STFTProcessor.Representation getRepresentation() {
+		return representation;
+	}
+	
+	/**
+	 * @return The number of bins, size / 2 + 1.
+	 */
+	public int getBinCount() {
+		return size / 2 + 1;
+	}
+	
+	/**
+	 * @return The size of the FFT.
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return The index of the frame in the stream, starting at zero.
+	 */
+	public long getFrameIndex() {
+		return frameIndex;
+	}
+	
+	/**
+	 * @return The time stamp of the start of the frame, in seconds.
+	 */
+	public double getTimeStamp() {
+		return timeStamp;
+	}
+	
+	/**
+	 * @param bin
+	 *            The index of a bin.
+	 * @return The center frequency of the bin in Hz.
+	 */
+	public double binToHz(int bin) {
+		return bin * sampleRate / (double) size;
+	}
+}
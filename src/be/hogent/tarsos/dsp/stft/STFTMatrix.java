@@ -0,0 +1,156 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+import java.util.Arrays;
+
+/**
+ * Keeps all frames of a stream in memory, in one float array with a frame
+ * after the other. The array grows by doubling, so storing a frame allocates
+ * only when the capacity is reached: give the expected number of frames to
+ * avoid that.
+ * 
+ * @author Joren Six
+ */
+public class STFTMatrix implements STFTSink {
+	
+	private float[] values;
+	private int frameLength;
+	private int frameCount;
+	private double[] timeStamps;
+	
+	/**
+	 * Create a matrix with room for a number of frames.
+	 * 
+	 * @param expectedFrames
+	 *            The number of frames to allocate room for.
+	 */
+	public STFTMatrix(int expectedFrames) {
+		timeStamps = new double[Math.max(1, expectedFrames)];
+	}
+	
+	/**
+	 * Create a matrix for a short stream.
+	 */
+	public STFTMatrix() {
+		this(256);
+	}
+	
+	@Override
+	public void handleFrame(STFTFrame frame) {
+		final float[] frameValues = frame.getValues();
+		if (values == null) {
+			frameLength = frameValues.length;
+			values = new float[timeStamps.length * frameLength];
+		} else if (frameValues.length != frameLength) {
+			throw new IllegalArgumentException("Frames of " + frameValues.length + " values, expected " + frameLength);
+		}
+		if (frameCount == timeStamps.length) {
+			timeStamps = Arrays.copyOf(timeStamps, 2 * frameCount);
+			values = Arrays.copyOf(values, timeStamps.length * frameLength);
+		}
+		System.arraycopy(frameValues, 0, values, frameCount * frameLength, frameLength);
+		timeStamps[frameCount++] = frame.getTimeStamp();
+	}
+	
+	@Override
+	public void processingFinished() {
+	}
+	
+	/**
+	 * Removes all frames, the capacity is kept.
+	 */
+	public void clear() {
+		frameCount = 0;
+	}
+	
+	/**
+	 * @return The number of frames.
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+	
+	/**
+	 * @return The number of values per frame, zero before the first frame.
+	 */
+	public int getFrameLength() {
+		return frameLength;
+	}
+	
+	/**
+	 * @param frame
+	 *            The index of a frame.
+	 * @param index
+	 *            The index of a value in the frame.
+	 * @return The value.
+	 */
+	public float get(int frame, int index) {
+		checkFrame(frame);
+		return values[frame * frameLength + index];
+	}
+	
+	/**
+	 * @param frame
+	 *            The index of a frame.
+	 * @return The time stamp of the frame, in seconds.
+	 */
+	public double getTimeStamp(int frame) {
+		checkFrame(frame);
+		return timeStamps[frame];
+	}
+	
+	/**
+	 * Copies a frame.
+	 * 
+	 * @param frame
+	 *            The index of a frame.
+	 * @param target
+	 *            The array to copy the values to.
+	 * @param offset
+	 *            The index in the array of the first value.
+	 */
+	public void getFrame(int frame, float[] target, int offset) {
+		checkFrame(frame);
+		System.arraycopy(values, frame * frameLength, target, offset, frameLength);
+	}
+	
+	/**
+	 * @return The values of all frames, a frame after the other. The array is
+	 *         used for the next frames: it is longer than the stored frames
+	 *         and replaced when it grows.
+	 */
+	public float[] getValues() {
+		return values;
+	}
+	
+	private void checkFrame(int frame) {
+		if (frame < 0 || frame >= frameCount) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " out of range [0," + frameCount + ")");
+		}
+	}
+}
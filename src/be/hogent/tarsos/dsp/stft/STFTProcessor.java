@@ -0,0 +1,200 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
+
+/**
+ * <p>
+ * Calculates the short-time Fourier transform of a stream: the spectrum of
+ * each buffer, as magnitudes, powers, log powers or complex values, in an
+ * {@link STFTFrame} that is reused for every buffer and handed to the sinks.
+ * The step size of the transform is the step size of the dispatcher.
+ * </p>
+ * <p>
+ * The spectrum is attached to the audio event, like
+ * {@link be.hogent.tarsos.dsp.SpectrumProcessor} does, so spectral processors
+ * further down the chain with the same size and window use it instead of
+ * calculating their own. A spectrum that is already attached is used as is.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class STFTProcessor implements AudioProcessor {
+	
+	/**
+	 * The values of a frame.
+	 */
+	public enum Representation {
+		/**
+		 * The magnitude of each bin.
+		 */
+		MAGNITUDE,
+		/**
+		 * The squared magnitude of each bin.
+		 */
+		POWER,
+		/**
+		 * The power of each bin in dB, 10 * log10(power), at least
+		 * {@link STFTProcessor#LOG_POWER_FLOOR}.
+		 */
+		LOG_POWER,
+		/**
+		 * The real and imaginary part of each bin.
+		 */
+		COMPLEX;
+		
+		int valuesPerBin() {
+			return this == COMPLEX ? 2 : 1;
+		}
+	}
+	
+	/**
+	 * The log power of silent bins, in dB.
+	 */
+	public static final float LOG_POWER_FLOOR = -200;
+	
+	private final int size;
+	private final WindowFunction windowFunction;
+	private final Representation representation;
+	private final STFTSink[] sinks;
+	private STFTFrame frame;
+	private long frameIndex;
+	
+	/**
+	 * Create a new STFT processor.
+	 * 
+	 * @param size
+	 *            The size of the FFT. The first size samples of each buffer
+	 *            are transformed, a shorter buffer is padded with zeros.
+	 * @param windowFunction
+	 *            The window to apply before the transform, or null for none.
+	 * @param representation
+	 *            The values of the frames.
+	 * @param sinks
+	 *            Receive each frame, in order.
+	 */
+	public STFTProcessor(int size, WindowFunction windowFunction, Representation representation, STFTSink... sinks) {
+		this.size = size;
+		this.windowFunction = windowFunction;
+		this.representation = representation;
+		this.sinks = sinks.clone();
+	}
+	
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		Spectrum spectrum = audioEvent.getSpectrum(size, windowFunction);
+		if (spectrum == null) {
+			spectrum = audioEvent.attachSpectrum(size, windowFunction);
+		}
+		if (frame == null) {
+			frame = new STFTFrame(representation, size, audioEvent.getSampleRate());
+		}
+		fill(spectrum.getData(), frame.getValues());
+		frame.setPosition(frameIndex++, audioEvent.getTimeStamp());
+		for (STFTSink sink : sinks) {
+			sink.handleFrame(frame);
+		}
+		return true;
+	}
+	
+	/**
+	 * Converts the packed result of a real forward transform, see
+	 * {@link Spectrum#getData()}, to the representation of the frames.
+	 */
+	private void fill(final float[] data, final float[] values) {
+		final int half = size / 2;
+		if (representation == Representation.COMPLEX) {
+			values[0] = data[0];
+			values[1] = 0;
+			System.arraycopy(data, 2, values, 2, size - 2);
+			values[2 * half] = data[1];
+			values[2 * half + 1] = 0;
+			return;
+		}
+		values[0] = data[0] * data[0];
+		for (int k = 1; k < half; k++) {
+			values[k] = data[2 * k] * data[2 * k] + data[2 * k + 1] * data[2 * k + 1];
+		}
+		values[half] = data[1] * data[1];
+		if (representation == Representation.MAGNITUDE) {
+			for (int k = 0; k <= half; k++) {
+				values[k] = (float) Math.sqrt(values[k]);
+			}
+		} else if (representation == Representation.LOG_POWER) {
+			for (int k = 0; k <= half; k++) {
+				values[k] = values[k] > 0 ? Math.max(LOG_POWER_FLOOR, (float) (10 * Math.log10(values[k]))) : LOG_POWER_FLOOR;
+			}
+		}
+	}
+	
+	@Override
+	public void processingFinished() {
+		for (STFTSink sink : sinks) {
+			sink.processingFinished();
+		}
+		frameIndex = 0;
+	}
+	
+	/**
+	 * @return The frame of the previous buffer, null before the first buffer.
+	 */
+	public STFTFrame getFrame() {
+		return frame;
+	}
+	
+	/**
+	 * @return The number of values per frame.
+	 */
+	public int getFrameLength() {
+		return representation.valuesPerBin() * (size / 2 + 1);
+	}
+	
+	/**
+	 * @return The size of the FFT.
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return The window applied before the transform, or null for none.
+	 */
+	public WindowFunction getWindowFunction() {
+		return windowFunction;
+	}
+	
+	/**
+	 * @return The representation of the frames.
+	 */
+	public Representation getRepresentation() {
+		return representation;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Renders the frames into image tiles of a fixed size, as ARGB pixels that
+ * can be drawn with e.g. {@code BufferedImage.setRGB} or
+ * {@code Bitmap.setPixels}. Each column of a tile holds a number of
+ * consecutive frames, each row a range of bins, the highest frequencies at
+ * the top. The maximum value of the frames and bins of a pixel is mapped to a
+ * colour of the palette, from the minimum to the maximum value.
+ * </p>
+ * <p>
+ * A tile is handed to the {@link TileHandler} when all its columns are
+ * rendered; the last tile of a stream when processing finishes. The pixel
+ * array is reused for the next tile. Rendering does not allocate.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public class SpectrogramTileRenderer implements STFTSink {
+	
+	/**
+	 * Receives the rendered tiles.
+	 */
+	public interface TileHandler {
+		/**
+		 * Handle a tile.
+		 * 
+		 * @param pixels
+		 *            The ARGB pixels of the tile, row by row, reused for the
+		 *            next tile.
+		 * @param columns
+		 *            The number of rendered columns, from the left. Only the
+		 *            last tile of a stream can have fewer columns than its
+		 *            width, the other columns are transparent.
+		 * @param timeStamp
+		 *            The time stamp of the first frame of the tile, in seconds.
+		 */
+		void handleTile(int[] pixels, int columns, double timeStamp);
+	}
+	
+	private final int width;
+	private final int height;
+	private final int framesPerColumn;
+	private final float minimum;
+	private final float maximum;
+	private final TileHandler handler;
+	private final int[] pixels;
+	private final float[] column;
+	private int[] palette;
+	
+	/**
+	 * The first bin of each row from the bottom, and the end of the last row.
+	 */
+	private int[] rowBins;
+	
+	private int framesInColumn;
+	private int columns;
+	private double timeStamp;
+	
+	/**
+	 * Create a renderer with a gray scale palette.
+	 * 
+	 * @param width
+	 *            The number of columns of a tile.
+	 * @param height
+	 *            The number of rows of a tile.
+	 * @param framesPerColumn
+	 *            The number of frames in a column.
+	 * @param minimum
+	 *            The value rendered as the first colour of the palette, e.g.
+	 *            -100 dB for log powers. Lower values are clipped.
+	 * @param maximum
+	 *            The value rendered as the last colour of the palette. Higher
+	 *            values are clipped.
+	 * @param handler
+	 *            Receives the tiles.
+	 */
+	public SpectrogramTileRenderer(int width, int height, int framesPerColumn, float minimum, float maximum,
+			TileHandler handler) {
+		if (width < 1 || height < 1 || framesPerColumn < 1) {
+			throw new IllegalArgumentException("The tile size and the frames per column should be positive");
+		}
+		if (maximum <= minimum) {
+			throw new IllegalArgumentException("The maximum (" + maximum + ") should exceed the minimum (" + minimum + ")");
+		}
+		this.width = width;
+		this.height = height;
+		this.framesPerColumn = framesPerColumn;
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.handler = handler;
+		this.pixels = new int[width * height];
+		this.column = new float[height];
+		Arrays.fill(column, Float.NEGATIVE_INFINITY);
+		int[] gray = new int[256];
+		for (int i = 0; i < gray.length; i++) {
+			gray[i] = 0xFF000000 | i << 16 | i << 8 | i;
+		}
+		this.palette = gray;
+	}
+	
+	/**
+	 * @param palette
+	 *            The ARGB colours from the minimum to the maximum value, at
+	 *            least two.
+	 */
+	public void setPalette(int[] palette) {
+		if (palette.length < 2) {
+			throw new IllegalArgumentException("A palette needs at least two colours");
+		}
+		this.palette = palette.clone();
+	}
+	
+	@Override
+	public void handleFrame(STFTFrame frame) {
+		if (frame.getRepresentation() == STFTProcessor.Representation.COMPLEX) {
+			throw new IllegalArgumentException("Complex frames can not be rendered, use magnitudes or powers");
+		}
+		final float[] values = frame.getValues();
+		if (rowBins == null || rowBins[height] != values.length) {
+			rowBins = new int[height + 1];
+			for (int row = 0; row <= height; row++) {
+				rowBins[row] = (int) ((long) row * values.length / height);
+			}
+		}
+		if (framesInColumn == 0 && columns == 0) {
+			timeStamp = frame.getTimeStamp();
+		}
+		for (int row = 0; row < height; row++) {
+			final int end = Math.max(rowBins[row] + 1, rowBins[row + 1]);
+			float value = column[row];
+			for (int bin = rowBins[row]; bin < end; bin++) {
+				value = Math.max(value, values[bin]);
+			}
+			column[row] = value;
+		}
+		if (++framesInColumn == framesPerColumn) {
+			renderColumn();
+			if (columns == width) {
+				emitTile();
+			}
+		}
+	}
+	
+	private void renderColumn() {
+		final int colours = palette.length;
+		final float scale = (colours - 1) / (maximum - minimum);
+		for (int row = 0; row < height; row++) {
+			final int index = (int) ((Math.min(maximum, Math.max(minimum, column[row])) - minimum) * scale);
+			// the bottom row holds the lowest frequencies
+			pixels[(height - 1 - row) * width + columns] = palette[index];
+			column[row] = Float.NEGATIVE_INFINITY;
+		}
+		framesInColumn = 0;
+		columns++;
+	}
+	
+	private void emitTile() {
+		handler.handleTile(pixels, columns, timeStamp);
+		Arrays.fill(pixels, 0);
+		columns = 0;
+	}
+	
+	@Override
+	public void processingFinished() {
+		if (framesInColumn > 0) {
+			renderColumn();
+		}
+		if (columns > 0) {
+			emitTile();
+		}
+	}
+	
+	/**
+	 * @return The number of columns of a tile.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return The number of rows of a tile.
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.stft;
+
+/**
+ * Edits the spectrum of a frame before an {@link ISTFTProcessor} transforms it
+ * back to audio, to denoise, equalize or mask a stream.
+ * 
+ * @author Joren Six
+ */
+public interface SpectrumEditor {
+	/**
+	 * Edit a frame in place.
+	 * 
+	 * @param frame
+	 *            A complex frame: the real and imaginary part of each bin from
+	 *            0 Hz up to the Nyquist frequency. The imaginary parts of
+	 *            those two bins are ignored.
+	 */
+	void editSpectrum(STFTFrame frame);
+}
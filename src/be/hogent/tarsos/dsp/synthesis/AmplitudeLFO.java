@@ -57,6 +57,7 @@ public class AmplitudeLFO implements AudioProcessor {
 			buffer[i] = gain * buffer[i];
 		}
 		phase = twoPiF * buffer.length / sampleRate + phase;
+		audioEvent.samplesChanged();
 		return true;
 	}
 
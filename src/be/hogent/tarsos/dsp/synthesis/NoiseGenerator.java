@@ -46,6 +46,7 @@ public class NoiseGenerator implements AudioProcessor{
 		for(int i = 0 ; i < buffer.length ; i++){
 			buffer[i] += (float) (Math.random() * gain);
 		}
+		audioEvent.samplesChanged();
 		return true;
 	}
 
@@ -55,6 +55,7 @@ public class SineGenerator implements AudioProcessor{
 			buffer[i] += (float) (gain * Math.sin(twoPiF * time + phase));
 		}
 		phase = twoPiF * buffer.length / sampleRate + phase;
+		audioEvent.samplesChanged();
 		return true;
 	}
 
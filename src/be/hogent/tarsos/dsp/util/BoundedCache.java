@@ -0,0 +1,140 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe cache with a maximum number of entries that evicts the least
+ * recently used entry when it is full. It is meant for immutable values that
+ * are expensive to build, e.g. FFT plans or constant Q kernels: values are
+ * built outside the lock by the caller and stored with
+ * {@link #putIfAbsent(Object, Object)}, so a slow build never blocks lookups of
+ * other keys.
+ * 
+ * @param <K>
+ *            The type of the keys, with a proper equals and hashCode.
+ * @param <V>
+ *            The type of the cached values.
+ * @author Joren Six
+ */
+public final class BoundedCache<K, V> {
+	
+	private int capacity;
+	
+	private final Map<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	};
+	
+	/**
+	 * Creates an empty cache.
+	 * 
+	 * @param capacity
+	 *            The maximum number of entries, at least one.
+	 */
+	public BoundedCache(int capacity){
+		checkCapacity(capacity);
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * @param key
+	 *            The key to look up.
+	 * @return The cached value, or null when there is none. Marks the entry
+	 *         as most recently used.
+	 */
+	public synchronized V get(K key){
+		return entries.get(key);
+	}
+	
+	/**
+	 * Stores a value, unless another thread stored one for the same key first.
+	 * 
+	 * @param key
+	 *            The key of the value.
+	 * @param value
+	 *            The value to store.
+	 * @return The value in the cache: the existing one if there was one,
+	 *         otherwise the given value.
+	 */
+	public synchronized V putIfAbsent(K key, V value){
+		V existing = entries.get(key);
+		if(existing != null){
+			return existing;
+		}
+		entries.put(key, value);
+		return value;
+	}
+	
+	/**
+	 * Sets the maximum number of entries. Evicts the least recently used
+	 * entries when there are more.
+	 * 
+	 * @param maximumEntries
+	 *            The new capacity, at least one.
+	 */
+	public synchronized void setCapacity(int maximumEntries){
+		checkCapacity(maximumEntries);
+		capacity = maximumEntries;
+		while(entries.size() > capacity){
+			entries.remove(entries.keySet().iterator().next());
+		}
+	}
+	
+	/**
+	 * @return The maximum number of entries.
+	 */
+	public synchronized int getCapacity(){
+		return capacity;
+	}
+	
+	/**
+	 * @return The number of cached entries.
+	 */
+	public synchronized int size(){
+		return entries.size();
+	}
+	
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear(){
+		entries.clear();
+	}
+	
+	private static void checkCapacity(int capacity){
+		if(capacity < 1){
+			throw new IllegalArgumentException("The capacity should be at least one, got " + capacity);
+		}
+	}
+}
@@ -60,21 +60,49 @@
 package be.hogent.tarsos.dsp.util;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Concurrency utilities.
+ * <p>
+ * Parallel transforms run their tasks on a shared executor. By default this is
+ * a work-stealing {@link ForkJoinPool} with one thread per processor, an
+ * application can install its own with {@link #setExecutor(Executor)}. A
+ * thread that waits for its tasks runs the ones that did not start yet, so a
+ * small or busy executor does not stall a transform.
+ * </p>
+ * <p>
+ * Threads that already run in parallel with others, i.e. tasks of this class,
+ * fork/join workers and threads between {@link #enterParallelRegion()} and
+ * {@link #exitParallelRegion()}, see {@link #getNumberOfThreads()} return one.
+ * Transforms called from them stay on the calling thread instead of
+ * oversubscribing the processors.
+ * </p>
  * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  */
 public class ConcurrencyUtils {
     /**
-     * Thread pool.
+     * The executor installed by the application, null to use the default.
      */
-    private static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
+    private static volatile Executor executor;
+
+    private static Executor defaultExecutor;
+
+    /**
+     * The number of parallel regions the current thread is in.
+     */
+    private static final ThreadLocal<int[]> PARALLEL_DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
 
     private static int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
 
@@ -90,28 +118,66 @@ public class ConcurrencyUtils {
 
     }
 
-    private static class CustomExceptionHandler implements Thread.UncaughtExceptionHandler {
-        public void uncaughtException(Thread t, Throwable e) {
-            e.printStackTrace();
-        }
+    /**
+     * Sets the executor that runs the tasks of parallel transforms, e.g. a
+     * {@link ForkJoinPool} or a bounded thread pool shared by the whole
+     * application. The executor is not shut down by this class.
+     * 
+     * @param newExecutor
+     *            the executor, or null to use the default fork/join pool
+     */
+    public static void setExecutor(Executor newExecutor) {
+        executor = newExecutor;
+    }
 
+    /**
+     * Returns the executor that runs the tasks of parallel transforms.
+     * 
+     * @return the installed executor, or the default fork/join pool
+     */
+    public static Executor getExecutor() {
+        Executor current = executor;
+        return current == null ? getDefaultExecutor() : current;
     }
 
-    private static class CustomThreadFactory implements ThreadFactory {
-        private static final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            // Workers of a fork/join pool are daemon threads.
+            defaultExecutor = new ForkJoinPool(getNumberOfProcessors());
+        }
+        return defaultExecutor;
+    }
 
-        private final Thread.UncaughtExceptionHandler handler;
+    /**
+     * Marks the current thread as running in parallel with others, e.g. as a
+     * worker of a batch job, until {@link #exitParallelRegion()} is called.
+     * Transforms called in between use a single thread. Regions can be nested.
+     */
+    public static void enterParallelRegion() {
+        PARALLEL_DEPTH.get()[0]++;
+    }
 
-        CustomThreadFactory(Thread.UncaughtExceptionHandler handler) {
-            this.handler = handler;
+    /**
+     * Ends a region started with {@link #enterParallelRegion()}.
+     */
+    public static void exitParallelRegion() {
+        int[] depth = PARALLEL_DEPTH.get();
+        if (depth[0] == 0) {
+            throw new IllegalStateException("Not in a parallel region");
         }
+        depth[0]--;
+    }
 
-        public Thread newThread(Runnable r) {
-            Thread t = defaultFactory.newThread(r);
-            t.setUncaughtExceptionHandler(handler);
-            return t;
-        }
-    };
+    /**
+     * Checks if the current thread already runs in parallel with others: it
+     * is in a parallel region, runs a task submitted to this class or is a
+     * fork/join worker.
+     * 
+     * @return true if transforms on this thread should not use more threads
+     */
+    public static boolean isInParallelRegion() {
+        return PARALLEL_DEPTH.get()[0] > 0 || ForkJoinTask.inForkJoinPool();
+    }
 
     /**
      * Returns the number of available processors.
@@ -123,12 +189,13 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Returns the current number of threads.
+     * Returns the current number of threads, or one when the calling thread
+     * already runs in parallel with others, see {@link #isInParallelRegion()}.
      * 
      * @return the current number of threads.
      */
     public static int getNumberOfThreads() {
-        return NTHREADS;
+        return isInParallelRegion() ? 1 : NTHREADS;
     }
 
     /**
@@ -304,30 +371,61 @@ public class ConcurrencyUtils {
 
     /**
      * Submits a Runnable task for execution and returns a Future representing
-     * that task.
+     * that task. The task runs in a parallel region. When the executor rejects
+     * it, the task is run by {@link #waitForCompletion(Future[])}.
      * 
      * @param task a Runnable task for execution
      * @return a Future representing the task
      */
-    public static Future<?> submit(Runnable task) {
-        return THREAD_POOL.submit(task);
+    public static Future<?> submit(final Runnable task) {
+        FutureTask<?> future = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                enterParallelRegion();
+                try {
+                    task.run();
+                } finally {
+                    exitParallelRegion();
+                }
+            }
+        }, null);
+        try {
+            getExecutor().execute(future);
+        } catch (RejectedExecutionException e) {
+            // the waiting thread runs it
+        }
+        return future;
     }
 
     /**
-     * Waits for all threads to complete computation.
+     * Waits for all threads to complete computation. Tasks that did not start
+     * yet are run on the calling thread. An exception thrown by a task is
+     * rethrown, wrapped in a RuntimeException when it is checked.
      * 
      * @param futures
      */
     public static void waitForCompletion(Future<?>[] futures) {
         int size = futures.length;
+        for (int j = size - 1; j >= 0; j--) {
+            if (futures[j] instanceof FutureTask) {
+                // a no-op when the task already started
+                ((FutureTask<?>) futures[j]).run();
+            }
+        }
         try {
             for (int j = 0; j < size; j++) {
                 futures[j].get();
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
         }
     }
 }
@@ -0,0 +1,350 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.Random;
+
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+
+/**
+ * Measures from which size parallel transforms pay off on this machine. The
+ * split points in {@link ConcurrencyUtils} are fixed guesses, while the
+ * crossover depends heavily on the number and speed of the cores: a phone and
+ * a large server differ by an order of magnitude. Calibration is opt-in, call
+ * {@link #calibrate(File)} once at startup:
+ * 
+ * <pre>
+ * FFTCalibration.calibrate(FFTCalibration.getDefaultFile());
+ * </pre>
+ * 
+ * The first call benchmarks {@link FloatFFT}, which takes in the order of a
+ * second, and stores the result. Later calls, also in other processes, read
+ * the stored result as long as it was made on the same kind of machine.
+ * <p>
+ * {@link FloatFFT} compares the split points with the length n of the float
+ * array its kernel transforms: n samples for a real transform and n / 2 values
+ * for a complex one. Both kinds are timed at the same n, with one, two and
+ * four threads (the most a one dimensional transform uses). A number of
+ * threads is used from the smallest n at which it is faster for both kinds,
+ * and for all larger n. The calibration records the split points in the same
+ * unit.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class FFTCalibration {
+	
+	/**
+	 * The shortest array that is timed, the smallest split point
+	 * {@link ConcurrencyUtils} accepts.
+	 */
+	private static final int MINIMUM_LENGTH = 512;
+	
+	/**
+	 * The default longest array that is timed.
+	 */
+	public static final int DEFAULT_MAXIMUM_LENGTH = 1 << 18;
+	
+	/**
+	 * Each measurement is the fastest of this many batches.
+	 */
+	private static final int BATCHES = 5;
+	
+	/**
+	 * A batch transforms at least this many samples.
+	 */
+	private static final int SAMPLES_PER_BATCH = 1 << 16;
+	
+	private FFTCalibration(){
+	}
+	
+	/**
+	 * @return The file in the home directory of the user where calibration
+	 *         results are kept by default.
+	 */
+	public static File getDefaultFile(){
+		return new File(System.getProperty("user.home"), ".tarsosdsp" + File.separator + "fft-calibration.properties");
+	}
+	
+	/**
+	 * Applies the stored calibration, or calibrates and stores the result when
+	 * there is no usable stored calibration.
+	 * 
+	 * @param file
+	 *            The file with the stored calibration.
+	 * @return The applied calibration.
+	 * @throws IOException
+	 *             When the result can not be stored.
+	 */
+	public static Calibration calibrate(File file) throws IOException{
+		Calibration calibration = Calibration.load(file);
+		if(calibration == null){
+			calibration = measure(DEFAULT_MAXIMUM_LENGTH);
+			calibration.store(file);
+		}
+		calibration.apply();
+		return calibration;
+	}
+	
+	/**
+	 * Benchmarks the transforms without applying the result. The settings of
+	 * {@link ConcurrencyUtils} are changed while measuring and restored
+	 * afterwards, so do not run transforms on other threads meanwhile.
+	 * 
+	 * @param maximumLength
+	 *            The longest array to time, a power of two of at least 1024.
+	 * @return The measured split points.
+	 */
+	public static Calibration measure(int maximumLength){
+		if(!ConcurrencyUtils.isPowerOf2(maximumLength) || maximumLength < 2 * MINIMUM_LENGTH){
+			throw new IllegalArgumentException("The maximum length should be a power of two of at least " + 2 * MINIMUM_LENGTH + ", got " + maximumLength);
+		}
+		if(ConcurrencyUtils.isInParallelRegion()){
+			throw new IllegalStateException("Transforms in a parallel region are single threaded and can not be calibrated");
+		}
+		int processors = ConcurrencyUtils.getNumberOfProcessors();
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		int twoThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+		int fourThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+		try{
+			// The shortest lengths from which two or four threads are faster for all longer arrays.
+			int twoThreadsFrom = Integer.MAX_VALUE;
+			int fourThreadsFrom = Integer.MAX_VALUE;
+			boolean twoThreadsFaster = processors >= 2;
+			boolean fourThreadsFaster = processors >= 4;
+			for(int n = maximumLength ; n >= MINIMUM_LENGTH && (twoThreadsFaster || fourThreadsFaster) ; n /= 2){
+				float[] samples = noise(n);
+				// Both transform the same n floats and compare n with the split points.
+				FloatFFT real = new FloatFFT(n);
+				FloatFFT complex = new FloatFFT(n / 2);
+				double[] serial = time(real, complex, samples, 1);
+				twoThreadsFaster = twoThreadsFaster && faster(time(real, complex, samples, 2), serial);
+				if(twoThreadsFaster){
+					twoThreadsFrom = n;
+				}
+				fourThreadsFaster = fourThreadsFaster && faster(time(real, complex, samples, 4), serial);
+				if(fourThreadsFaster){
+					fourThreadsFrom = n;
+				}
+			}
+			return new Calibration(processors, twoThreadsFrom, fourThreadsFrom);
+		}finally{
+			ConcurrencyUtils.setNumberOfThreads(threads);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(twoThreadsBeginN);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(fourThreadsBeginN);
+		}
+	}
+	
+	private static boolean faster(double[] parallel, double[] serial){
+		return parallel[0] < serial[0] && parallel[1] < serial[1];
+	}
+	
+	/**
+	 * @param samples
+	 *            The n floats to transform: n real samples, or n / 2
+	 *            interleaved complex values.
+	 * @return The fastest time per real and per complex transform, in
+	 *         nanoseconds.
+	 */
+	private static double[] time(FloatFFT real, FloatFFT complex, float[] samples, int threads){
+		ConcurrencyUtils.setNumberOfThreads(threads);
+		ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(MINIMUM_LENGTH);
+		ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(threads == 4 ? MINIMUM_LENGTH : Integer.MAX_VALUE);
+		float[] data = new float[samples.length];
+		int transforms = Math.max(1, SAMPLES_PER_BATCH / samples.length);
+		double[] fastest = {Double.MAX_VALUE, Double.MAX_VALUE};
+		// The first batch warms up.
+		for(int batch = 0 ; batch <= BATCHES ; batch++){
+			long start = System.nanoTime();
+			for(int i = 0 ; i < transforms ; i++){
+				System.arraycopy(samples, 0, data, 0, data.length);
+				real.realForward(data);
+			}
+			long middle = System.nanoTime();
+			for(int i = 0 ; i < transforms ; i++){
+				System.arraycopy(samples, 0, data, 0, data.length);
+				complex.complexForward(data);
+			}
+			long end = System.nanoTime();
+			if(batch > 0){
+				fastest[0] = Math.min(fastest[0], (middle - start) / (double) transforms);
+				fastest[1] = Math.min(fastest[1], (end - middle) / (double) transforms);
+			}
+		}
+		return fastest;
+	}
+	
+	private static float[] noise(int length){
+		Random random = new Random(length);
+		float[] samples = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			samples[i] = (float) (random.nextDouble() * 2 - 1);
+		}
+		return samples;
+	}
+	
+	/**
+	 * The split points measured on a machine.
+	 */
+	public static final class Calibration {
+		private static final String PROCESSORS = "processors";
+		private static final String ARCHITECTURE = "os.arch";
+		private static final String VM = "java.vm.name";
+		private static final String TWO_THREADS = "threadsBeginN_1D_FFT_2Threads";
+		private static final String FOUR_THREADS = "threadsBeginN_1D_FFT_4Threads";
+		
+		private final int processors;
+		private final int twoThreadsFrom;
+		private final int fourThreadsFrom;
+		
+		private Calibration(int processors, int twoThreadsFrom, int fourThreadsFrom){
+			this.processors = processors;
+			this.twoThreadsFrom = twoThreadsFrom;
+			this.fourThreadsFrom = fourThreadsFrom;
+		}
+		
+		/**
+		 * @return The number of threads for one dimensional transforms: one,
+		 *         two or four.
+		 */
+		public int getNumberOfThreads(){
+			if(fourThreadsFrom != Integer.MAX_VALUE){
+				return 4;
+			}
+			return twoThreadsFrom != Integer.MAX_VALUE ? 2 : 1;
+		}
+		
+		/**
+		 * @return The shortest float array length for which two threads are
+		 *         used, or Integer.MAX_VALUE if they never pay off: a real
+		 *         transform of that many samples or a complex transform of half
+		 *         as many values.
+		 */
+		public int getTwoThreadsFrom(){
+			return twoThreadsFrom;
+		}
+		
+		/**
+		 * @return The shortest float array length for which four threads are
+		 *         used, or Integer.MAX_VALUE if they never pay off: a real
+		 *         transform of that many samples or a complex transform of half
+		 *         as many values.
+		 */
+		public int getFourThreadsFrom(){
+			return fourThreadsFrom;
+		}
+		
+		/**
+		 * Configures {@link ConcurrencyUtils} with these split points.
+		 */
+		public void apply(){
+			ConcurrencyUtils.setNumberOfThreads(getNumberOfThreads());
+			// Threads are used for arrays longer than the split point. Four
+			// threads are only considered past the two thread split point.
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(splitPoint(Math.min(twoThreadsFrom, fourThreadsFrom)));
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(splitPoint(fourThreadsFrom));
+		}
+		
+		private static int splitPoint(int from){
+			return from == Integer.MAX_VALUE ? Integer.MAX_VALUE : from - 1;
+		}
+		
+		/**
+		 * Stores the calibration, together with a description of the machine.
+		 * 
+		 * @param file
+		 *            The file to write, missing directories are created.
+		 * @throws IOException
+		 *             When the file can not be written.
+		 */
+		public void store(File file) throws IOException{
+			File directory = file.getAbsoluteFile().getParentFile();
+			if(directory != null && !directory.isDirectory() && !directory.mkdirs()){
+				throw new IOException("Could not create " + directory);
+			}
+			Properties properties = new Properties();
+			properties.setProperty(PROCESSORS, String.valueOf(processors));
+			properties.setProperty(ARCHITECTURE, System.getProperty(ARCHITECTURE, ""));
+			properties.setProperty(VM, System.getProperty(VM, ""));
+			properties.setProperty(TWO_THREADS, String.valueOf(twoThreadsFrom));
+			properties.setProperty(FOUR_THREADS, String.valueOf(fourThreadsFrom));
+			OutputStream out = new FileOutputStream(file);
+			try{
+				properties.store(out, "TarsosDSP FFT calibration");
+			}finally{
+				out.close();
+			}
+		}
+		
+		/**
+		 * Reads a stored calibration.
+		 * 
+		 * @param file
+		 *            The file with the calibration.
+		 * @return The calibration, or null when the file does not exist, can
+		 *         not be read or was made on another kind of machine.
+		 */
+		public static Calibration load(File file){
+			if(!file.isFile()){
+				return null;
+			}
+			Properties properties = new Properties();
+			try{
+				InputStream in = new FileInputStream(file);
+				try{
+					properties.load(in);
+				}finally{
+					in.close();
+				}
+				int processors = Integer.parseInt(properties.getProperty(PROCESSORS, "0"));
+				if(processors != ConcurrencyUtils.getNumberOfProcessors()
+						|| !System.getProperty(ARCHITECTURE, "").equals(properties.getProperty(ARCHITECTURE))
+						|| !System.getProperty(VM, "").equals(properties.getProperty(VM))){
+					return null;
+				}
+				return new Calibration(processors, Integer.parseInt(properties.getProperty(TWO_THREADS)),
+						Integer.parseInt(properties.getProperty(FOUR_THREADS)));
+			}catch(IOException e){
+				return null;
+			}catch(NumberFormatException e){
+				return null;
+			}
+		}
+		
+		@Override
+		public String toString(){
+			return "FFT calibration: " + getNumberOfThreads() + " threads, two from " + twoThreadsFrom + ", four from " + fourThreadsFrom + " floats";
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock free ring buffer of samples between exactly one producer thread, e.g.
+ * a thread reading from a microphone, and exactly one consumer thread, e.g. the
+ * thread running the processing chain. The storage is allocated once, writing
+ * and reading do not allocate.
+ * <p>
+ * Both sides keep an absolute sample position. The producer publishes samples
+ * by advancing the write position after copying them, the consumer releases
+ * them by advancing the read position. What happens when the producer has more
+ * samples than free space is defined by the {@link OverflowPolicy}. For every
+ * policy the number of overflows and dropped samples is counted.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class FloatRingBuffer {
+	
+	/**
+	 * Defines what the producer does when the ring is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Wait for the consumer to free space. Nothing is dropped in the ring,
+		 * but the producer falls behind its own source.
+		 */
+		BLOCK,
+		/**
+		 * Overwrite the oldest unread samples. The consumer skips ahead, which
+		 * keeps the latency bounded.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Keep the unread samples and discard the new samples that do not fit.
+		 */
+		DROP_NEWEST
+	}
+	
+	/**
+	 * The longest time a waiting side sleeps before it checks the positions
+	 * again, a safety net for a missed wake up.
+	 */
+	private static final long MAX_PARK_NANOS = 1000000;
+	
+	private final float[] buffer;
+	private final int mask;
+	private final OverflowPolicy policy;
+	
+	/**
+	 * Only advanced by the producer.
+	 */
+	private final AtomicLong writePosition = new AtomicLong();
+	/**
+	 * Advanced by the consumer, and by the producer when it drops the oldest
+	 * samples. Both use compare and set so a consumer detects a window that was
+	 * overwritten while it copied it.
+	 */
+	private final AtomicLong readPosition = new AtomicLong();
+	
+	private final AtomicLong overflows = new AtomicLong();
+	private final AtomicLong droppedSamples = new AtomicLong();
+	
+	private volatile boolean closed;
+	private volatile Thread waitingProducer;
+	private volatile Thread waitingConsumer;
+	
+	/**
+	 * Create a new ring buffer.
+	 * 
+	 * @param minimumCapacity
+	 *            The minimum number of samples the ring holds. It is rounded up
+	 *            to a power of two.
+	 * @param policy
+	 *            What to do when the ring is full.
+	 */
+	public FloatRingBuffer(int minimumCapacity, OverflowPolicy policy){
+		if(minimumCapacity < 1 || minimumCapacity > 1 << 30){
+			throw new IllegalArgumentException("Capacity should be between 1 and 2^30, got " + minimumCapacity);
+		}
+		int capacity = Integer.highestOneBit(minimumCapacity);
+		if(capacity < minimumCapacity){
+			capacity <<= 1;
+		}
+		this.buffer = new float[capacity];
+		this.mask = capacity - 1;
+		this.policy = policy;
+	}
+	
+	/**
+	 * Adds samples to the ring. Only call this from the producer thread.
+	 * 
+	 * @param source
+	 *            The samples to add.
+	 * @param offset
+	 *            The index of the first sample to add.
+	 * @param length
+	 *            The number of samples to add, at most the capacity.
+	 * @return The number of samples added. Less than length when new samples
+	 *         are dropped or when the ring is closed while blocking.
+	 * @throws InterruptedException
+	 *             When interrupted while waiting for free space.
+	 */
+	public int write(float[] source, int offset, int length) throws InterruptedException {
+		checkLength(length);
+		final long write = writePosition.get();
+		int count = length;
+		long free;
+		while(!closed && (free = buffer.length - (write - readPosition.get())) < length){
+			if(policy == OverflowPolicy.BLOCK){
+				awaitFreeSpace(length);
+			} else if(policy == OverflowPolicy.DROP_NEWEST){
+				count = (int) free;
+				overflows.incrementAndGet();
+				droppedSamples.addAndGet(length - count);
+				break;
+			} else {
+				// Claim the oldest samples before overwriting them, a consumer
+				// copying them notices the moved read position.
+				final long read = readPosition.get();
+				final long newRead = write + length - buffer.length;
+				if(read < newRead && readPosition.compareAndSet(read, newRead)){
+					overflows.incrementAndGet();
+					droppedSamples.addAndGet(newRead - read);
+				}
+			}
+		}
+		if(closed){
+			return 0;
+		}
+		final int start = (int) (write & mask);
+		final int first = Math.min(count, buffer.length - start);
+		System.arraycopy(source, offset, buffer, start, first);
+		System.arraycopy(source, offset + first, buffer, 0, count - first);
+		writePosition.set(write + count);
+		wakeUp(waitingConsumer);
+		return count;
+	}
+	
+	/**
+	 * Removes samples from the ring, waiting until enough samples are
+	 * available. Only call this from the consumer thread.
+	 * 
+	 * @param target
+	 *            The array to copy the samples to.
+	 * @param offset
+	 *            The index in target of the first sample.
+	 * @param length
+	 *            The number of samples to read, at most the capacity.
+	 * @return The position in the stream of the first sample read, or -1 when
+	 *         the ring is closed and fewer than length samples remain.
+	 * @throws InterruptedException
+	 *             When interrupted while waiting for samples.
+	 */
+	public long read(float[] target, int offset, int length) throws InterruptedException {
+		checkLength(length);
+		while(true){
+			final long read = readPosition.get();
+			if(writePosition.get() - read < length){
+				if(closed){
+					// The write position is final once closed is seen.
+					if(writePosition.get() - readPosition.get() < length){
+						return -1;
+					}
+				} else {
+					awaitSamples(length);
+				}
+				continue;
+			}
+			final int start = (int) (read & mask);
+			final int first = Math.min(length, buffer.length - start);
+			System.arraycopy(buffer, start, target, offset, first);
+			System.arraycopy(buffer, 0, target, offset + first, length - first);
+			// Fails when the producer dropped (and possibly overwrote) these
+			// samples while they were copied: try again from the new position.
+			if(readPosition.compareAndSet(read, read + length)){
+				wakeUp(waitingProducer);
+				return read;
+			}
+		}
+	}
+	
+	/**
+	 * Marks the end of the stream. Waiting threads return, samples written
+	 * afterwards are ignored. Can be called from any thread.
+	 */
+	public void close(){
+		closed = true;
+		wakeUp(waitingConsumer);
+		wakeUp(waitingProducer);
+	}
+	
+	/**
+	 * @return True if the ring is closed.
+	 */
+	public boolean isClosed(){
+		return closed;
+	}
+	
+	/**
+	 * @return The number of samples the ring holds.
+	 */
+	public int getCapacity(){
+		return buffer.length;
+	}
+	
+	/**
+	 * @return The number of written samples that are not read yet.
+	 */
+	public int getAvailable(){
+		final long read = readPosition.get();
+		return (int) Math.max(0, writePosition.get() - read);
+	}
+	
+	/**
+	 * @return The overflow policy.
+	 */
+	public OverflowPolicy getPolicy(){
+		return policy;
+	}
+	
+	/**
+	 * @return The number of writes that did not fit in the ring.
+	 */
+	public long getOverflows(){
+		return overflows.get();
+	}
+	
+	/**
+	 * @return The number of samples dropped because the ring was full, either
+	 *         unread old samples or new samples depending on the policy.
+	 */
+	public long getDroppedSamples(){
+		return droppedSamples.get();
+	}
+	
+	private void checkLength(int length){
+		if(length < 0 || length > buffer.length){
+			throw new IllegalArgumentException("Length should be between 0 and the capacity (" + buffer.length + "), got " + length);
+		}
+	}
+	
+	private void awaitFreeSpace(int length) throws InterruptedException {
+		waitingProducer = Thread.currentThread();
+		// Check again after registering, the consumer might have missed it.
+		if(!closed && buffer.length - (writePosition.get() - readPosition.get()) < length){
+			LockSupport.parkNanos(this, MAX_PARK_NANOS);
+		}
+		waitingProducer = null;
+		if(Thread.interrupted()){
+			throw new InterruptedException();
+		}
+	}
+	
+	private void awaitSamples(int length) throws InterruptedException {
+		waitingConsumer = Thread.currentThread();
+		if(!closed && writePosition.get() - readPosition.get() < length){
+			LockSupport.parkNanos(this, MAX_PARK_NANOS);
+		}
+		waitingConsumer = null;
+		if(Thread.interrupted()){
+			throw new InterruptedException();
+		}
+	}
+	
+	private static void wakeUp(Thread thread){
+		if(thread != null){
+			LockSupport.unpark(thread);
+		}
+	}
+}
@@ -106,7 +106,7 @@ public class PeakPicker {
 		}
 		Arrays.sort(scratch);
 		median = scratch[scratch.length/2];
-		mean = sum/Float.valueOf(length);
+		mean = sum/length;
 				
 		/* shift peek array */
 		for (int j=0;j<3-1;j++){
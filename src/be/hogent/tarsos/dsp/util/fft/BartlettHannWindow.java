@@ -30,6 +30,7 @@ public class BartlettHannWindow extends WindowFunction
   /** Constructs a Bartlett-Hann window. */
   public BartlettHannWindow()
   {
+    super(true);
   }
 
   protected float value(int length, int index) 
@@ -30,6 +30,7 @@ public class BartlettWindow extends WindowFunction
   /** Constructs a Bartlett window. */
   public BartlettWindow()
   {
+    super(true);
   }
 
   protected float value(int length, int index) 
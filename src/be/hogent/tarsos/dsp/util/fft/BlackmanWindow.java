@@ -49,5 +49,15 @@ public class BlackmanWindow extends WindowFunction {
 
       return a0 - a1 * (float) Math.cos(TWO_PI * index / (length - 1)) + a2 * (float) Math.cos(4 * Math.PI * index / (length - 1));
   }
+
+	@Override
+	public boolean equals(Object other) {
+		return isSameClass(other) && ((BlackmanWindow) other).alpha == alpha;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * getClass().hashCode() + Float.floatToIntBits(alpha);
+	}
 }
 
@@ -29,6 +29,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class CosineWindow extends WindowFunction {
 	/** Constructs a Cosine window. */
 	public CosineWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
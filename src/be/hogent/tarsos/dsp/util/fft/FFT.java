@@ -40,6 +40,7 @@ public final class FFT {
 	 * Forward FFT.
 	 */
 	private final FloatFFT fft;
+	private final FFTPlanCache.Plan plan;
 	private final WindowFunction windowFunction;
 	private final int fftSize;
 
@@ -53,9 +54,11 @@ public final class FFT {
 	 * @param size The size of the fft.
 	 * @param windowFunction Apply the specified window on the samples before a forward transform. 
 	 * arning: the window is not applied in reverse when a backwards transform is requested.
+	 * The transform and window curve come from the {@link FFTPlanCache}.
 	 */
 	public FFT(final int size, final WindowFunction windowFunction){
-		fft = new FloatFFT(size);
+		plan = FFTPlanCache.getPlan(size, windowFunction);
+		fft = plan.getTransform();
 		fftSize = size;
 		this.windowFunction = windowFunction;
 	}
@@ -67,17 +70,27 @@ public final class FFT {
 	 *            data to transform.
 	 */
 	public void forwardTransform(final float[] data) {
-		if(windowFunction!=null){
-			windowFunction.apply(data);
-		}
+		applyWindow(data);
 		fft.realForward(data);
 	}
 	
 	public void complexForwardTransform(final float[] data) {
+		applyWindow(data);
+		fft.complexForward(data);
+	}
+
+	/**
+	 * Applies the window, with the cached curve when the data has the size of
+	 * this FFT.
+	 */
+	private void applyWindow(final float[] data) {
 		if(windowFunction!=null){
-			windowFunction.apply(data);
+			if(data.length == fftSize){
+				plan.applyWindow(data);
+			} else {
+				windowFunction.apply(data);
+			}
 		}
-		fft.complexForward(data);
 	}
 
 	/**
@@ -144,9 +157,7 @@ public final class FFT {
 	public void powerPhaseFFT(float[] data,float[] power, float[] phase) {
 		assert data.length / 2 == power.length;
 		assert data.length / 2 == phase.length;
-		if(windowFunction!=null){
-			windowFunction.apply(data);
-		}
+		applyWindow(data);
 		fft.realForward(data);
 		phase[0] = (float) Math.PI;
 		power[0] = -data[0];
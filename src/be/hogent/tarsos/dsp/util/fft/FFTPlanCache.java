@@ -0,0 +1,204 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.util.fft;
+
+import be.hogent.tarsos.dsp.util.BoundedCache;
+
+/**
+ * A bounded cache of FFT plans, shared by all {@link FFT} instances. Creating a
+ * {@link FloatFFT} calculates its twiddle and bit reversal tables, which is
+ * expensive compared to transforming a single buffer, and a window curve needs
+ * a cosine (or worse) per sample. A plan holds both, keyed by FFT size and
+ * window function, so processors that are created often, e.g. one per file in
+ * a batch job, only pay for them once.
+ * <p>
+ * Plans are immutable and can be used by several threads at once: the tables
+ * are only read after construction and {@link FloatFFT} keeps its work space
+ * per thread. When the cache is full the least recently used plan is evicted;
+ * FFT objects that still use it keep working.
+ * </p>
+ * 
+ * @author Joren Six
+ */
+public final class FFTPlanCache {
+	
+	/**
+	 * The default maximum number of cached plans.
+	 */
+	public static final int DEFAULT_CAPACITY = 32;
+	
+	private static final BoundedCache<Key, Plan> plans = new BoundedCache<Key, Plan>(DEFAULT_CAPACITY);
+	
+	private FFTPlanCache(){
+	}
+	
+	/**
+	 * Returns the cached plan for an FFT size and window, creating it when
+	 * needed. Window functions are compared with
+	 * {@link WindowFunction#equals(Object)}.
+	 * 
+	 * @param size
+	 *            The size of the FFT.
+	 * @param windowFunction
+	 *            The window applied before a forward transform, or null for
+	 *            none.
+	 * @return A plan with the requested size and window.
+	 */
+	public static Plan getPlan(int size, WindowFunction windowFunction){
+		Key key = new Key(size, windowFunction);
+		Plan plan = plans.get(key);
+		if(plan == null){
+			// Build outside the lock, plans for large sizes take a while.
+			FloatFFT transform = windowFunction == null ? new FloatFFT(size) : getTransform(size);
+			float[] window = windowFunction == null ? null : windowFunction.generateCurve(size);
+			plan = plans.putIfAbsent(key, new Plan(size, windowFunction, transform, window));
+		}
+		return plan;
+	}
+	
+	/**
+	 * @param size
+	 *            The size of the FFT.
+	 * @return The cached transform for the size.
+	 */
+	public static FloatFFT getTransform(int size){
+		return getPlan(size, null).getTransform();
+	}
+	
+	/**
+	 * Sets the maximum number of cached plans. Evicts the least recently used
+	 * plans when there are more.
+	 * 
+	 * @param maximumPlans
+	 *            The new capacity, at least one.
+	 */
+	public static void setCapacity(int maximumPlans){
+		plans.setCapacity(maximumPlans);
+	}
+	
+	/**
+	 * @return The maximum number of cached plans.
+	 */
+	public static int getCapacity(){
+		return plans.getCapacity();
+	}
+	
+	/**
+	 * @return The number of cached plans.
+	 */
+	public static int size(){
+		return plans.size();
+	}
+	
+	/**
+	 * Removes all plans from the cache.
+	 */
+	public static void clear(){
+		plans.clear();
+	}
+	
+	/**
+	 * The transform and window curve for an FFT size and window function.
+	 */
+	public static final class Plan {
+		private final int size;
+		private final WindowFunction windowFunction;
+		private final FloatFFT transform;
+		private final float[] window;
+		
+		private Plan(int size, WindowFunction windowFunction, FloatFFT transform, float[] window){
+			this.size = size;
+			this.windowFunction = windowFunction;
+			this.transform = transform;
+			this.window = window;
+		}
+		
+		/**
+		 * @return The size of the FFT.
+		 */
+		public int getSize(){
+			return size;
+		}
+		
+		/**
+		 * @return The window function of this plan, or null for none.
+		 */
+		public WindowFunction getWindowFunction(){
+			return windowFunction;
+		}
+		
+		/**
+		 * @return The transform, shared with all plans of the same size.
+		 */
+		public FloatFFT getTransform(){
+			return transform;
+		}
+		
+		/**
+		 * Multiplies the samples with the precomputed window curve. The result
+		 * is the same as {@link WindowFunction#apply(float[])}.
+		 * 
+		 * @param samples
+		 *            The samples to window, exactly {@link #getSize()} of
+		 *            them.
+		 */
+		public void applyWindow(float[] samples){
+			if(window != null){
+				if(samples.length != size){
+					throw new IllegalArgumentException("Expected " + size + " samples, got " + samples.length);
+				}
+				for(int i = 0 ; i < size ; i++){
+					samples[i] *= window[i];
+				}
+			}
+		}
+	}
+	
+	private static final class Key {
+		private final int size;
+		private final WindowFunction windowFunction;
+		
+		private Key(int size, WindowFunction windowFunction){
+			this.size = size;
+			this.windowFunction = windowFunction;
+		}
+		
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof Key)){
+				return false;
+			}
+			Key key = (Key) other;
+			return size == key.size && (windowFunction == null ? key.windowFunction == null : windowFunction.equals(key.windowFunction));
+		}
+		
+		@Override
+		public int hashCode(){
+			return 31 * size + (windowFunction == null ? 0 : windowFunction.hashCode());
+		}
+	}
+}
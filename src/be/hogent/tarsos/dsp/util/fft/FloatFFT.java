@@ -60,6 +60,7 @@
 
 package be.hogent.tarsos.dsp.util.fft;
 
+import java.util.Arrays;
 import java.util.concurrent.Future;
 
 import be.hogent.tarsos.dsp.util.ConcurrencyUtils;
@@ -107,6 +108,12 @@ public strictfp class FloatFFT {
 
     private Plans plan;
 
+    /**
+     * Work space of the Bluestein and mixed-radix transforms. Every thread
+     * gets its own, so one instance can be used by several threads at once.
+     */
+    private final ThreadLocal<float[]> scratch = new ThreadLocal<float[]>();
+
     private static final int[] factors = { 4, 2, 3, 5 };
 
     private static final float PI = 3.14159265358979311599796346854418516f;
@@ -1131,7 +1138,7 @@ public strictfp class FloatFFT {
     }
 
     private void bluestein_complex(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1292,10 +1299,11 @@ public strictfp class FloatFFT {
                 }
             }
         }
+        releaseScratch(ak);
     }
 
     private void bluestein_real_full(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1445,10 +1453,11 @@ public strictfp class FloatFFT {
                 }
             }
         }
+        releaseScratch(ak);
     }
 
     private void bluestein_real_forward(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1537,11 +1546,11 @@ public strictfp class FloatFFT {
             }
             a[offa + n - 1] = bk1[n - 1] * ak[n - 1] + bk1[n] * ak[n];
         }
-
+        releaseScratch(ak);
     }
 
     private void bluestein_real_inverse(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
         if (n % 2 == 0) {
             ak[0] = a[offa] * bk1[0];
             ak[1] = a[offa] * bk1[1];
@@ -1659,10 +1668,11 @@ public strictfp class FloatFFT {
                 a[offa + i] = bk1[idx1] * ak[idx1] - bk1[idx2] * ak[idx2];
             }
         }
+        releaseScratch(ak);
     }
 
     private void bluestein_real_inverse2(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1751,6 +1761,27 @@ public strictfp class FloatFFT {
             }
             a[offa + n - 1] = bk1[n - 1] * ak[n - 1] - bk1[n] * ak[n];
         }
+        releaseScratch(ak);
+    }
+
+    /**
+     * Takes the zeroed work space of the current thread. It is removed from
+     * the thread until it is released, a nested transform on the same thread
+     * (e.g. a task run while waiting for a parallel transform) allocates its
+     * own.
+     */
+    private float[] takeScratch(int length) {
+        float[] buffer = scratch.get();
+        if (buffer == null || buffer.length < length) {
+            return new float[length];
+        }
+        scratch.set(null);
+        Arrays.fill(buffer, 0, length, 0);
+        return buffer;
+    }
+
+    private void releaseScratch(float[] buffer) {
+        scratch.set(buffer);
     }
 
     /*---------------------------------------------------------
@@ -1761,7 +1792,7 @@ public strictfp class FloatFFT {
             return;
         int l1, l2, na, kh, nf, ip, iw, ido, idl1;
 
-        final float[] ch = new float[n];
+        final float[] ch = takeScratch(n);
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 1;
@@ -1818,9 +1849,10 @@ public strictfp class FloatFFT {
             }
             l2 = l1;
         }
-        if (na == 1)
-            return;
-        System.arraycopy(ch, 0, a, offa, n);
+        if (na == 0) {
+            System.arraycopy(ch, 0, a, offa, n);
+        }
+        releaseScratch(ch);
     }
 
     /*---------------------------------------------------------
@@ -1831,7 +1863,7 @@ public strictfp class FloatFFT {
             return;
         int l1, l2, na, nf, ip, iw, ido, idl1;
 
-        float[] ch = new float[n];
+        float[] ch = takeScratch(n);
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 0;
@@ -1888,9 +1920,10 @@ public strictfp class FloatFFT {
             l1 = l2;
             iw += (ip - 1) * ido;
         }
-        if (na == 0)
-            return;
-        System.arraycopy(ch, 0, a, offa, n);
+        if (na == 1) {
+            System.arraycopy(ch, 0, a, offa, n);
+        }
+        releaseScratch(ch);
     }
 
     /*-------------------------------------------------
@@ -3360,7 +3393,7 @@ public strictfp class FloatFFT {
         final int twon = 2 * n;
 
         int iw1, iw2;
-        float[] ch = new float[twon];
+        float[] ch = takeScratch(twon);
 
         iw1 = twon;
         iw2 = 4 * n;
@@ -3421,10 +3454,10 @@ public strictfp class FloatFFT {
             l1 = l2;
             iw += (ip - 1) * idot;
         }
-        if (na == 0)
-            return;
-        System.arraycopy(ch, 0, a, offa, twon);
-
+        if (na == 1) {
+            System.arraycopy(ch, 0, a, offa, twon);
+        }
+        releaseScratch(ch);
     }
 
     /*----------------------------------------------------------------------
@@ -51,4 +51,15 @@ public class GaussWindow extends WindowFunction {
 	protected float value(int length, int index) {
 		return (float) Math.pow(Math.E,	-0.5 * Math.pow((index - (length - 1) / (double) 2)	/ (this.alpha * (length - 1) / (double) 2),(double) 2));
 	}
+
+	@Override
+	public boolean equals(Object other) {
+		return isSameClass(other) && ((GaussWindow) other).alpha == alpha;
+	}
+
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(alpha);
+		return 31 * getClass().hashCode() + (int) (bits ^ (bits >>> 32));
+	}
 }
@@ -31,6 +31,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class HammingWindow extends WindowFunction {
 	/** Constructs a Hamming window. */
 	public HammingWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
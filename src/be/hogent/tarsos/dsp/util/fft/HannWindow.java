@@ -29,6 +29,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class HannWindow extends WindowFunction {
 	/** Constructs a Hann window. */
 	public HannWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
@@ -30,6 +30,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class LanczosWindow extends WindowFunction {
 	/** Constructs a Lanczos window. */
 	public LanczosWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
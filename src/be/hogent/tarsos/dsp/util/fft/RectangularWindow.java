@@ -31,6 +31,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class RectangularWindow extends WindowFunction {
 	/** Constructs a Rectangular window. */
 	public RectangularWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
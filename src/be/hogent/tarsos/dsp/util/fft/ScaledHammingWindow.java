@@ -2,6 +2,11 @@ package be.hogent.tarsos.dsp.util.fft;
 
 public class ScaledHammingWindow extends WindowFunction {
 
+	/** Constructs a scaled Hamming window. */
+	public ScaledHammingWindow() {
+		super(true);
+	}
+
 	@Override
 	protected float value(int length, int index) {
 		double scale = 1.0 / (double)length / 0.54;
@@ -0,0 +1,168 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.util.fft;
+
+/**
+ * The windowed spectrum of the first samples of an audio buffer, as calculated
+ * by {@link FFT#forwardTransform(float[])}. A spectrum is computed once per
+ * buffer and can then be read by several processors, see
+ * {@link be.hogent.tarsos.dsp.SpectrumProcessor}. The object and its arrays are
+ * reused for every buffer: do not modify the arrays and copy them if they are
+ * needed later.
+ * 
+ * @author Joren Six
+ */
+public final class Spectrum {
+	
+	private final int size;
+	private final WindowFunction windowFunction;
+	private final FFT fft;
+	
+	/**
+	 * The transformed samples, in the packed layout of
+	 * {@link FloatFFT#realForward(float[])}.
+	 */
+	private final float[] data;
+	private final float[] magnitudes;
+	private final float[] phases;
+	private boolean magnitudesValid;
+	private boolean phasesValid;
+	
+	/**
+	 * Create storage for a spectrum.
+	 * 
+	 * @param size
+	 *            The size of the FFT, the number of samples that are
+	 *            transformed.
+	 * @param windowFunction
+	 *            The window to apply before the transform, or null for none.
+	 */
+	public Spectrum(int size, WindowFunction windowFunction){
+		this.size = size;
+		this.windowFunction = windowFunction;
+		this.fft = new FFT(size, windowFunction);
+		this.data = new float[size];
+		this.magnitudes = new float[size / 2];
+		this.phases = new float[size / 2];
+	}
+	
+	/**
+	 * Calculates the spectrum of the first samples of a buffer. A shorter buffer
+	 * is padded with zeros. The samples are not modified.
+	 * 
+	 * @param samples
+	 *            The audio buffer.
+	 */
+	public void compute(float[] samples){
+		int length = Math.min(size, samples.length);
+		System.arraycopy(samples, 0, data, 0, length);
+		for(int i = length ; i < size ; i++){
+			data[i] = 0;
+		}
+		fft.forwardTransform(data);
+		magnitudesValid = false;
+		phasesValid = false;
+	}
+	
+	/**
+	 * @param size
+	 *            The size of an FFT.
+	 * @param windowFunction
+	 *            A window, or null for none.
+	 * @return True if this spectrum is calculated with the given size and
+	 *         window.
+	 */
+	public boolean matches(int size, WindowFunction windowFunction){
+		return this.size == size && (windowFunction == null ? this.windowFunction == null : windowFunction.equals(this.windowFunction));
+	}
+	
+	/**
+	 * @return The size of the FFT.
+	 */
+	public int getSize(){
+		return size;
+	}
+	
+	/**
+	 * @return The window applied before the transform, or null.
+	 */
+	public WindowFunction getWindowFunction(){
+		return windowFunction;
+	}
+	
+	/**
+	 * @return The transformed samples, in the packed layout of
+	 *         {@link FloatFFT#realForward(float[])}: the real and imaginary
+	 *         part of bin k are at 2k and 2k+1, except for the real part of
+	 *         the Nyquist bin, which is at index 1.
+	 */
+	public float[] getData(){
+		return data;
+	}
+	
+	/**
+	 * @return The magnitude of the first size/2 bins, as calculated by
+	 *         {@link FFT#modulus(float[], float[])}. Calculated once per
+	 *         buffer, on first use.
+	 */
+	public float[] getMagnitudes(){
+		if(!magnitudesValid){
+			fft.modulus(data, magnitudes);
+			magnitudesValid = true;
+		}
+		return magnitudes;
+	}
+	
+	/**
+	 * @return The phase of the first size/2 bins, in radians. Calculated once
+	 *         per buffer, on first use. Bin 0 is the DC component only, which
+	 *         is real: its phase is 0, or PI when it is negative, the sign
+	 *         {@link FFT#powerPhaseFFT(float[], float[], float[])} also uses.
+	 */
+	public float[] getPhases(){
+		if(!phasesValid){
+			// data[1] is the Nyquist bin, not the imaginary part of DC.
+			phases[0] = data[0] < 0 ? (float) Math.PI : 0;
+			for(int i = 1 ; i < phases.length ; i++){
+				phases[i] = (float) Math.atan2(data[2 * i + 1], data[2 * i]);
+			}
+			phasesValid = true;
+		}
+		return phases;
+	}
+	
+	/**
+	 * @param binIndex
+	 *            The index of a bin.
+	 * @param sampleRate
+	 *            The sample rate of the audio.
+	 * @return The center frequency of the bin in Hz.
+	 */
+	public double binToHz(int binIndex, float sampleRate){
+		return fft.binToHz(binIndex, sampleRate);
+	}
+}
@@ -30,6 +30,7 @@ package be.hogent.tarsos.dsp.util.fft;
 public class TriangularWindow extends WindowFunction {
 	/** Constructs a Triangular window. */
 	public TriangularWindow() {
+		super(true);
 	}
 
 	protected float value(int length, int index) {
@@ -59,7 +59,22 @@ public abstract class WindowFunction {
 	protected static final float TWO_PI = (float) (2 * Math.PI);
 	protected int length;
 
+	/**
+	 * True if the curve only depends on the class of the window.
+	 */
+	private final boolean parameterless;
+
 	public WindowFunction() {
+		this(false);
+	}
+
+	/**
+	 * @param parameterless
+	 *            True if the window has no parameters, so every instance of
+	 *            its class generates the same curve and equals every other.
+	 */
+	protected WindowFunction(boolean parameterless) {
+		this.parameterless = parameterless;
 	}
 
 	/**
@@ -92,4 +107,32 @@ public abstract class WindowFunction {
 	}
 
 	protected abstract float value(int length, int index);
+
+	/**
+	 * Two window functions are equal when they generate the same curve, the
+	 * {@link FFTPlanCache} shares the curve and plan of equal windows. By
+	 * default a window only equals itself: the curve of an unknown subclass
+	 * may depend on state that is not compared. A window constructed as
+	 * parameterless equals every instance of its class. Windows with
+	 * parameters override this, comparing their class and parameters.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		return parameterless ? isSameClass(other) : super.equals(other);
+	}
+
+	@Override
+	public int hashCode() {
+		return parameterless ? getClass().hashCode() : super.hashCode();
+	}
+
+	/**
+	 * @param other
+	 *            An object to compare with.
+	 * @return True if the other object is a window function of exactly the same
+	 *         class as this one.
+	 */
+	protected final boolean isSameClass(Object other) {
+		return other != null && other.getClass() == getClass();
+	}
 }
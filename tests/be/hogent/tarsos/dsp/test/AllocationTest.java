@@ -0,0 +1,357 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.MultichannelToMono;
+import be.hogent.tarsos.dsp.io.FeatureFileWriter;
+import be.hogent.tarsos.dsp.mfcc.FeatureContext;
+import be.hogent.tarsos.dsp.mfcc.FeatureContextHandler;
+import be.hogent.tarsos.dsp.mfcc.MFCC;
+import be.hogent.tarsos.dsp.onsets.ComplexOnsetDetector;
+import be.hogent.tarsos.dsp.onsets.OnsetHandler;
+import be.hogent.tarsos.dsp.pitch.FastYin;
+import be.hogent.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.hogent.tarsos.dsp.pitch.MultiPitchProcessor;
+import be.hogent.tarsos.dsp.resample.RateTransposer;
+import be.hogent.tarsos.dsp.stft.ISTFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTFrame;
+import be.hogent.tarsos.dsp.stft.STFTProcessor;
+import be.hogent.tarsos.dsp.stft.SpectrumEditor;
+import be.hogent.tarsos.dsp.stft.SpectrogramTileRenderer;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * Checks that the dispatch path does not allocate once it is warmed up. The
+ * number of allocated bytes is read from the HotSpot specific ThreadMXBean,
+ * the test is skipped on virtual machines without it. The JIT compiler can
+ * cause a one-off allocation of a few hundred bytes on the measured thread, so
+ * the tests check for less than one byte per buffer: any allocation in the
+ * processing path costs at least 16 bytes for every buffer.
+ */
+public class AllocationTest {
+	
+	private static final int WARM_UP_BUFFERS = 2000;
+	
+	private com.sun.management.ThreadMXBean threadBean;
+	
+	@Before
+	public void setUp(){
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+	
+	private long allocatedBytes(){
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	private static float[] testSignal(int length){
+		float[] signal = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			// a tone with an onset every 4410 samples
+			signal[i] = (float) (0.5 * Math.sin(i * 2 * Math.PI * 440 / 44100.0) * Math.exp(-(i % 4410) / 500.0));
+		}
+		return signal;
+	}
+	
+	/**
+	 * Measures the bytes allocated between the end of the warm-up and the last
+	 * buffer, by the dispatcher and all processors between the two probes.
+	 */
+	private final class AllocationProbe implements AudioProcessor {
+		private final boolean start;
+		private int buffers;
+		private long startBytes;
+		private long endBytes;
+		
+		private AllocationProbe(boolean start){
+			this.start = start;
+		}
+		
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			buffers++;
+			if(start && buffers == WARM_UP_BUFFERS){
+				startBytes = allocatedBytes();
+			} else if(!start){
+				endBytes = allocatedBytes();
+			}
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	@Test
+	public void testSteadyStateDispatchDoesNotAllocate(){
+		int bufferSize = 1024;
+		float[] signal = testSignal(bufferSize * (WARM_UP_BUFFERS + 2000) / 2);
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(signal, 44100, bufferSize, bufferSize / 2);
+		
+		ComplexOnsetDetector onsetDetector = new ComplexOnsetDetector(bufferSize);
+		final int[] onsets = {0};
+		onsetDetector.setHandler(new OnsetHandler() {
+			@Override
+			public void handleOnset(double time, double salience) {
+				onsets[0]++;
+			}
+		});
+		
+		AllocationProbe startProbe = new AllocationProbe(true);
+		AllocationProbe endProbe = new AllocationProbe(false);
+		dispatcher.addAudioProcessor(startProbe);
+		dispatcher.addAudioProcessor(onsetDetector);
+		dispatcher.addAudioProcessor(new MultichannelToMono(1, true));
+		dispatcher.addAudioProcessor(new RateTransposer(0.5));
+		dispatcher.addAudioProcessor(endProbe);
+		dispatcher.run();
+		
+		assertTrue("Enough buffers to measure", endProbe.buffers > WARM_UP_BUFFERS + 1000);
+		assertTrue("The detector does its work", onsets[0] > 0);
+		int measuredBuffers = endProbe.buffers - WARM_UP_BUFFERS + 1;
+		long allocated = endProbe.endBytes - startProbe.startBytes;
+		assertTrue("Allocated " + allocated + " bytes for " + measuredBuffers + " buffers", allocated < measuredBuffers);
+	}
+	
+	@Test
+	public void testFastYinDoesNotAllocate(){
+		float[] buffer = testSignal(1024);
+		FastYin detector = new FastYin(44100, buffer.length);
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			detector.getPitch(buffer);
+		}
+		int buffers = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < buffers ; i++){
+			detector.getPitch(buffer);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+		assertEquals(440, detector.getPitch(buffer).getPitch(), 2);
+	}
+	
+	@Test
+	public void testMcLeodPitchMethodDoesNotAllocate(){
+		float[] buffer = testSignal(1024);
+		McLeodPitchMethod[] detectors = {new McLeodPitchMethod(44100, buffer.length),
+				new McLeodPitchMethod(44100, buffer.length, buffer.length - 64, 0.97)};
+		for(McLeodPitchMethod detector : detectors){
+			for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+				detector.getPitch(buffer);
+			}
+			int buffers = 500;
+			long before = allocatedBytes();
+			for(int i = 0 ; i < buffers ; i++){
+				detector.getPitch(buffer);
+			}
+			long allocated = allocatedBytes() - before;
+			assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+			assertEquals(440, detector.getPitch(buffer).getPitch(), 2);
+		}
+	}
+	
+	@Test
+	public void testMultiPitchProcessorDoesNotAllocate(){
+		MultiPitchProcessor processor = new MultiPitchProcessor(44100, 65.4f, 1046.5f, 12, 6, null);
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		event.setFloatBuffer(testSignal(processor.getBufferSize()));
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			processor.process(event);
+		}
+		int buffers = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < buffers ; i++){
+			processor.process(event);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+		assertEquals(440, processor.getResult().getPitch(0), 10);
+	}
+	
+	@Test
+	public void testMFCCDoesNotAllocate(){
+		MFCC mfcc = new MFCC(1024, 44100, 40, 50, 300, 3000);
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		float[] buffer = testSignal(1024);
+		event.setFloatBuffer(buffer);
+		float[] coefficients = new float[40];
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			mfcc.process(event);
+			mfcc.getMFCC(coefficients);
+		}
+		int buffers = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < buffers ; i++){
+			mfcc.process(event);
+			mfcc.getMFCC(coefficients);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+		assertEquals(testSignal(1024)[100], buffer[100], 0);
+	}
+	
+	@Test
+	public void testFeatureContextDoesNotAllocate(){
+		final double[] sum = new double[1];
+		FeatureContext context = new FeatureContext(13, 2, 2, 2, 100, null, new FeatureContextHandler() {
+			@Override
+			public void handleFeatures(float[] features, double timeStamp) {
+				sum[0] += features[features.length - 1];
+			}
+		});
+		float[] frame = testSignal(13);
+		for(int i = 0 ; i < WARM_UP_BUFFERS * 10 ; i++){
+			frame[i % 13] = -frame[i % 13];
+			context.addFrame(frame, 0, i);
+		}
+		int frames = 20000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < frames ; i++){
+			frame[i % 13] = -frame[i % 13];
+			context.addFrame(frame, 0, i);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + frames + " frames", allocated < frames);
+	}
+	
+	@Test
+	public void testFeatureFileWriterDoesNotAllocate() throws IOException{
+		File file = File.createTempFile("features", ".bin");
+		file.deleteOnExit();
+		FeatureFileWriter writer = new FeatureFileWriter(file, "test", 100, 40);
+		try{
+			float[] frame = testSignal(40);
+			for(int i = 0 ; i < WARM_UP_BUFFERS * 10 ; i++){
+				writer.write(frame, 0);
+			}
+			int frames = 20000;
+			long before = allocatedBytes();
+			for(int i = 0 ; i < frames ; i++){
+				writer.write(frame, 0);
+			}
+			long allocated = allocatedBytes() - before;
+			assertTrue("Allocated " + allocated + " bytes for " + frames + " frames", allocated < frames);
+		}finally{
+			writer.close();
+		}
+	}
+	
+	@Test
+	public void testSTFTProcessorDoesNotAllocate(){
+		final int[] tiles = new int[1];
+		SpectrogramTileRenderer renderer = new SpectrogramTileRenderer(64, 32, 2, -100, 20, new SpectrogramTileRenderer.TileHandler() {
+			@Override
+			public void handleTile(int[] pixels, int columns, double timeStamp) {
+				tiles[0]++;
+			}
+		});
+		STFTProcessor processor = new STFTProcessor(1024, new HannWindow(), STFTProcessor.Representation.LOG_POWER, renderer);
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		float[] buffer = testSignal(1024);
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			event.setFloatBuffer(buffer);
+			processor.process(event);
+		}
+		int buffers = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < buffers ; i++){
+			event.setFloatBuffer(buffer);
+			processor.process(event);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+		assertEquals((WARM_UP_BUFFERS + buffers) / 128, tiles[0]);
+	}
+	
+	@Test
+	public void testISTFTProcessorDoesNotAllocate(){
+		STFTProcessor stft = new STFTProcessor(1024, new HannWindow(), STFTProcessor.Representation.COMPLEX);
+		ISTFTProcessor istft = new ISTFTProcessor(stft, 256, new HannWindow(), new SpectrumEditor() {
+			@Override
+			public void editSpectrum(STFTFrame frame) {
+				float[] values = frame.getValues();
+				for(int i = 0 ; i < 64 ; i++){
+					values[i] = 0;
+				}
+			}
+		});
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		event.setOverlap(768);
+		float[] buffer = testSignal(1024);
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			event.setFloatBuffer(buffer);
+			stft.process(event);
+			istft.process(event);
+		}
+		int buffers = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < buffers ; i++){
+			event.setFloatBuffer(buffer);
+			stft.process(event);
+			istft.process(event);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + buffers + " buffers", allocated < buffers);
+	}
+	
+	@Test
+	public void testBufferConversionsDoNotAllocate(){
+		AudioEvent event = new AudioEvent(new be.hogent.tarsos.dsp.AudioFormat(44100, 16, 1, true, false), 0);
+		short[] shorts = new short[512];
+		byte[] bytes = new byte[1024];
+		for(int i = 0 ; i < WARM_UP_BUFFERS ; i++){
+			event.setFloatBufferWithShortBuffer(shorts);
+			event.setFloatBufferWithByteBuffer(bytes);
+		}
+		int conversions = 2000;
+		long before = allocatedBytes();
+		for(int i = 0 ; i < conversions / 2 ; i++){
+			event.setFloatBufferWithShortBuffer(shorts);
+			event.setFloatBufferWithByteBuffer(bytes);
+		}
+		long allocated = allocatedBytes() - before;
+		assertTrue("Allocated " + allocated + " bytes for " + conversions + " conversions", allocated < conversions);
+		assertEquals(512, event.getBufferSize());
+	}
+}
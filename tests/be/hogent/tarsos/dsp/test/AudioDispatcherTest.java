@@ -0,0 +1,168 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioProcessor;
+
+public class AudioDispatcherTest {
+	
+	/**
+	 * A ramp of which every sample value can be mapped back to its index.
+	 */
+	private static float[] ramp(int length){
+		float[] buffer = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			buffer[i] = (i % 1000) / 1000.0f;
+		}
+		return buffer;
+	}
+	
+	@Test
+	public void testOverlappingBuffers(){
+		final float[] audio = ramp(10000);
+		final int bufferSize = 1024;
+		final int overlap = 768;
+		final int stepSize = bufferSize - overlap;
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, 44100, bufferSize, overlap);
+		final int[] counter = {0};
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				float[] buffer = audioEvent.getFloatBuffer();
+				int start = counter[0] * stepSize;
+				assertEquals(bufferSize, buffer.length);
+				assertEquals(start, audioEvent.getSamplesProcessed());
+				for(int i = 0 ; i < buffer.length ; i++){
+					float expected = start + i < audio.length ? audio[start + i] : 0;
+					assertEquals("Sample " + (start + i), expected, buffer[i], 0.0001);
+				}
+				counter[0]++;
+				return true;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		// the first buffer, then one buffer per step until the stream ends
+		int expectedBuffers = 1 + (audio.length - bufferSize + stepSize - 1) / stepSize;
+		assertEquals(expectedBuffers, counter[0]);
+		assertEquals(audio.length / 44100.0f, dispatcher.secondsProcessed(), 0.0001);
+	}
+	
+	@Test
+	public void testStopFromProcessor(){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(ramp(44100), 44100, 512, 256);
+		final int[] counter = {0,0};
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				counter[0]++;
+				return counter[0] < 10;
+			}
+			
+			@Override
+			public void processingFinished() {
+				counter[1]++;
+			}
+		});
+		dispatcher.run();
+		assertEquals(10, counter[0]);
+		assertEquals("processingFinished should be called once", 1, counter[1]);
+		assertNull(dispatcher.getError());
+	}
+	
+	/**
+	 * Counts the buffers it receives.
+	 */
+	private static final class Counter implements AudioProcessor {
+		private int buffers;
+		
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			buffers++;
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	@Test
+	public void testCompleteStreamHasNoError(){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(ramp(10000), 44100, 1024, 512);
+		dispatcher.run();
+		assertNull(dispatcher.getError());
+	}
+	
+	@Test
+	public void testReadErrorIsKept(){
+		final IOException failure = new IOException("The disk is gone");
+		InputStream stream = new InputStream() {
+			private int position;
+			
+			@Override
+			public int read() throws IOException {
+				if(position == 4096){
+					throw failure;
+				}
+				position++;
+				return 0;
+			}
+		};
+		AudioDispatcher dispatcher = new AudioDispatcher(stream, new AudioFormat(44100, 16, 1, true, false), -1, 512, 0);
+		Counter counter = new Counter();
+		dispatcher.addAudioProcessor(counter);
+		dispatcher.run();
+		assertEquals(4, counter.buffers);
+		assertTrue(dispatcher.getError() == failure);
+	}
+	
+	@Test
+	public void testTruncatedStream(){
+		// 1000 frames of a stream that should have 2000
+		InputStream stream = new ByteArrayInputStream(new byte[2000]);
+		AudioDispatcher dispatcher = new AudioDispatcher(stream, new AudioFormat(44100, 16, 1, true, false), 2000, 512, 0);
+		dispatcher.run();
+		assertTrue(dispatcher.getError() instanceof EOFException);
+	}
+}
@@ -0,0 +1,206 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioPipeline;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.GainProcessor;
+
+public class AudioPipelineTest {
+	
+	private static final int SAMPLE_RATE = 44100;
+	private static final int BUFFER_SIZE = 1024;
+	private static final int OVERLAP = 512;
+	
+	private static float[] testSignal(){
+		float[] samples = new float[SAMPLE_RATE * 2];
+		for(int i = 0 ; i < samples.length ; i++){
+			samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE) + 0.001 * (i % 97));
+		}
+		return samples;
+	}
+	
+	/**
+	 * Replaces the samples of the event by an array it reuses for every
+	 * buffer, like the rate transposer does.
+	 */
+	private static final class Reverser implements AudioProcessor {
+		private float[] reversed = new float[0];
+		
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			float[] samples = audioEvent.getFloatBuffer();
+			if(reversed.length != samples.length){
+				reversed = new float[samples.length];
+			}
+			for(int i = 0 ; i < samples.length ; i++){
+				reversed[i] = samples[samples.length - 1 - i];
+			}
+			audioEvent.setFloatBuffer(reversed);
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	/**
+	 * Records a copy of every buffer, its time stamp and the thread it ran on.
+	 */
+	private static final class Recorder implements AudioProcessor {
+		private final List<float[]> buffers = new ArrayList<float[]>();
+		private final List<Double> timeStamps = new ArrayList<Double>();
+		private Thread thread;
+		private boolean finished;
+		
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			buffers.add(audioEvent.getFloatBuffer().clone());
+			timeStamps.add(audioEvent.getTimeStamp());
+			thread = Thread.currentThread();
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+			finished = true;
+		}
+	}
+	
+	/**
+	 * Without overlap: in a serial chain the gain, which works in place, would
+	 * also change the overlapping part of the next buffer.
+	 */
+	private static Recorder runSerial(){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, BUFFER_SIZE, 0);
+		Recorder recorder = new Recorder();
+		dispatcher.addAudioProcessor(new GainProcessor(0.5));
+		dispatcher.addAudioProcessor(new Reverser());
+		dispatcher.addAudioProcessor(recorder);
+		dispatcher.run();
+		return recorder;
+	}
+	
+	@Test
+	public void testSameResultsAsSerialChain(){
+		Recorder serial = runSerial();
+		
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, BUFFER_SIZE, 0);
+		Recorder recorder = new Recorder();
+		AudioPipeline pipeline = new AudioPipeline(3);
+		pipeline.addStage(new GainProcessor(0.5));
+		pipeline.addStage(new Reverser());
+		pipeline.addStage(recorder);
+		assertEquals(3, pipeline.getStageCount());
+		dispatcher.addAudioProcessor(pipeline);
+		dispatcher.run();
+		
+		assertTrue("The processors are finished", recorder.finished);
+		assertNotSame("The last stage runs on its own thread", Thread.currentThread(), recorder.thread);
+		assertEquals(serial.timeStamps, recorder.timeStamps);
+		assertEquals(serial.buffers.size(), recorder.buffers.size());
+		for(int i = 0 ; i < serial.buffers.size() ; i++){
+			assertArrayEquals("Buffer " + i, serial.buffers.get(i), recorder.buffers.get(i), 0);
+		}
+	}
+	
+	@Test
+	public void testStopFromStage(){
+		final int stopAt = 10;
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, BUFFER_SIZE, OVERLAP);
+		final Recorder recorder = new Recorder();
+		AudioPipeline pipeline = new AudioPipeline();
+		pipeline.addStage(new AudioProcessor() {
+			private int buffers;
+			
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				return ++buffers < stopAt;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		pipeline.addStage(recorder);
+		dispatcher.addAudioProcessor(pipeline);
+		dispatcher.run();
+		assertEquals("Buffers after the stop are not passed on", stopAt - 1, recorder.buffers.size());
+		assertTrue(recorder.finished);
+	}
+	
+	@Test
+	public void testExceptionReachesDispatcherThread(){
+		final IllegalStateException thrown = new IllegalStateException("broken processor");
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, BUFFER_SIZE, OVERLAP);
+		AudioPipeline pipeline = new AudioPipeline();
+		pipeline.addStage(new Recorder());
+		pipeline.addStage(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				throw thrown;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.addAudioProcessor(pipeline);
+		try {
+			dispatcher.run();
+			fail("The exception of the stage should be rethrown");
+		} catch (IllegalStateException e) {
+			assertSame(thrown, e);
+		}
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testNoStagesAfterStart(){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(Arrays.copyOf(testSignal(), 4096), SAMPLE_RATE, BUFFER_SIZE, OVERLAP);
+		AudioPipeline pipeline = new AudioPipeline();
+		pipeline.addStage(new Recorder());
+		dispatcher.addAudioProcessor(pipeline);
+		dispatcher.run();
+		pipeline.addStage(new Recorder());
+	}
+}
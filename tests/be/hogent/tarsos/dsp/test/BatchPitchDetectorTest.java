@@ -0,0 +1,148 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.app.PitchDetectCli;
+
+public class BatchPitchDetectorTest {
+	
+	private static Path resource(String name) throws URISyntaxException{
+		return new File(BatchPitchDetectorTest.class.getResource("/" + name).toURI()).toPath();
+	}
+	
+	/**
+	 * Splits a CSV line, with quoted fields and doubled quotes.
+	 */
+	private static List<String> fields(String line){
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for(int i = 0 ; i < line.length() ; i++){
+			char c = line.charAt(i);
+			if(quoted){
+				if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"'){
+					field.append('"');
+					i++;
+				} else if(c == '"'){
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if(c == '"'){
+				quoted = true;
+			} else if(c == ','){
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+	
+	private static void delete(Path directory) throws IOException{
+		try(Stream<Path> paths = Files.walk(directory)){
+			for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator){
+				Files.delete(path);
+			}
+		}
+	}
+	
+	@Test
+	public void testBatchWithFailingFile() throws IOException, URISyntaxException{
+		Path input = Files.createTempDirectory("batch-input");
+		Path output = Files.createTempDirectory("batch-output");
+		try{
+			Path quoted = input.resolve("piano, \"C3\".wav");
+			Files.copy(resource("piano.ff.C3.wav"), quoted, StandardCopyOption.REPLACE_EXISTING);
+			Path flute = input.resolve("flute.wav");
+			Files.copy(resource("flute.novib.ff.A4.wav"), flute, StandardCopyOption.REPLACE_EXISTING);
+			Path broken = input.resolve("broken.wav");
+			Files.write(broken, "not, a \"wave\" file".getBytes(StandardCharsets.UTF_8));
+			// The header declares all frames, the data stops halfway.
+			Path truncated = input.resolve("truncated.wav");
+			Files.copy(resource("flute.novib.ff.A4.wav"), truncated, StandardCopyOption.REPLACE_EXISTING);
+			RandomAccessFile file = new RandomAccessFile(truncated.toFile(), "rw");
+			file.setLength(file.length() / 2);
+			file.close();
+			
+			PitchDetectCli.main(new String[]{"batch", input.toString(), "YIN", "--threads", "2", "--output", output.toString()});
+			
+			List<String> lines = Files.readAllLines(output.resolve("summary.csv"), StandardCharsets.UTF_8);
+			assertEquals(5, lines.size());
+			assertEquals("file,audio_s,frames,pitched_frames,median_pitch_hz,error", lines.get(0));
+			Map<String, List<String>> rows = new HashMap<String, List<String>>();
+			for(String line : lines.subList(1, lines.size())){
+				List<String> row = fields(line);
+				assertEquals(line, 6, row.size());
+				rows.put(row.get(0), row);
+			}
+			
+			List<String> failed = rows.get(broken.toAbsolutePath().normalize().toString());
+			assertTrue(failed.get(5).length() > 0);
+			
+			List<String> cut = rows.get(truncated.toAbsolutePath().normalize().toString());
+			assertTrue(cut.get(5), cut.get(5).contains("EOFException"));
+			assertFalse(Files.exists(output.resolve("truncated.wav.pitch.csv")));
+			
+			List<String> piano = rows.get(quoted.toAbsolutePath().normalize().toString());
+			assertEquals("", piano.get(5));
+			assertTrue(Double.parseDouble(piano.get(1)) > 0);
+			assertTrue(Integer.parseInt(piano.get(3)) > 0);
+			assertTrue(Files.isRegularFile(output.resolve("piano, \"C3\".wav.pitch.csv")));
+			
+			List<String> a4 = rows.get(flute.toAbsolutePath().normalize().toString());
+			assertEquals("", a4.get(5));
+			assertEquals(440, Double.parseDouble(a4.get(4)), 5);
+		} finally {
+			delete(input);
+			delete(output);
+		}
+	}
+}
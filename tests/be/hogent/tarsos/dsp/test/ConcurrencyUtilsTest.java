@@ -0,0 +1,170 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.util.ConcurrencyUtils;
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+
+public class ConcurrencyUtilsTest {
+	
+	/**
+	 * Large enough to use four threads.
+	 */
+	private static final int SIZE = 1 << 17;
+	
+	private static float[] transform(float[] samples){
+		float[] data = samples.clone();
+		new FloatFFT(SIZE).realForward(data);
+		return data;
+	}
+	
+	private static float[] singleThreadedTransform(float[] samples){
+		ConcurrencyUtils.enterParallelRegion();
+		try{
+			return transform(samples);
+		}finally{
+			ConcurrencyUtils.exitParallelRegion();
+		}
+	}
+	
+	private static float[] noise(){
+		Random random = new Random(7);
+		float[] samples = new float[SIZE];
+		for(int i = 0 ; i < SIZE ; i++){
+			samples[i] = (float) (random.nextDouble() * 2 - 1);
+		}
+		return samples;
+	}
+	
+	@Test
+	public void testExceptionsArePropagated(){
+		Future<?>[] futures = new Future<?>[2];
+		futures[0] = ConcurrencyUtils.submit(new Runnable(){
+			public void run() {
+			}
+		});
+		futures[1] = ConcurrencyUtils.submit(new Runnable(){
+			public void run() {
+				throw new IllegalArgumentException("task failed");
+			}
+		});
+		try{
+			ConcurrencyUtils.waitForCompletion(futures);
+			fail("The exception of the task should be rethrown");
+		}catch(IllegalArgumentException e){
+			assertEquals("task failed", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testNestedTasksStaySingleThreaded(){
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		final AtomicInteger nested = new AtomicInteger();
+		ConcurrencyUtils.waitForCompletion(new Future<?>[]{ConcurrencyUtils.submit(new Runnable(){
+			public void run() {
+				nested.set(ConcurrencyUtils.getNumberOfThreads());
+			}
+		})});
+		assertEquals(1, nested.get());
+		assertFalse(ConcurrencyUtils.isInParallelRegion());
+		ConcurrencyUtils.enterParallelRegion();
+		ConcurrencyUtils.enterParallelRegion();
+		ConcurrencyUtils.exitParallelRegion();
+		assertEquals(1, ConcurrencyUtils.getNumberOfThreads());
+		ConcurrencyUtils.exitParallelRegion();
+		assertEquals(threads, ConcurrencyUtils.getNumberOfThreads());
+	}
+	
+	@Test
+	public void testInjectedExecutor(){
+		final AtomicInteger executed = new AtomicInteger();
+		Executor counting = new Executor(){
+			public void execute(Runnable command) {
+				executed.incrementAndGet();
+				new Thread(command).start();
+			}
+		};
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		ConcurrencyUtils.setNumberOfThreads(4);
+		ConcurrencyUtils.setExecutor(counting);
+		try{
+			assertSame(counting, ConcurrencyUtils.getExecutor());
+			float[] samples = noise();
+			assertArrayEquals(singleThreadedTransform(samples), transform(samples), 0);
+			assertTrue("The transform used the executor", executed.get() > 0);
+		}finally{
+			ConcurrencyUtils.setExecutor(null);
+			ConcurrencyUtils.setNumberOfThreads(threads);
+		}
+	}
+	
+	@Test
+	public void testTasksRunOnTheWaitingThread(){
+		final List<Runnable> neverRun = new ArrayList<Runnable>();
+		Executor stalled = new Executor(){
+			public void execute(Runnable command) {
+				neverRun.add(command);
+			}
+		};
+		Executor rejecting = new Executor(){
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		ConcurrencyUtils.setNumberOfThreads(4);
+		try{
+			float[] samples = noise();
+			float[] expected = singleThreadedTransform(samples);
+			ConcurrencyUtils.setExecutor(stalled);
+			assertArrayEquals(expected, transform(samples), 0);
+			assertFalse(neverRun.isEmpty());
+			ConcurrencyUtils.setExecutor(rejecting);
+			assertArrayEquals(expected, transform(samples), 0);
+		}finally{
+			ConcurrencyUtils.setExecutor(null);
+			ConcurrencyUtils.setNumberOfThreads(threads);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.ConstantQKernel;
+
+public class ConstantQKernelTest {
+	
+	@Test
+	public void testKernelsAreShared(){
+		ConstantQKernel.clear();
+		ConstantQ first = new ConstantQ(44100, 110, 3520, 12);
+		ConstantQ second = new ConstantQ(44100, 110, 3520, 12);
+		ConstantQ other = new ConstantQ(44100, 110, 3520, 24);
+		assertSame(first.getKernel(), second.getKernel());
+		assertNotSame(first.getKernel(), other.getKernel());
+		assertEquals(2, ConstantQKernel.size());
+		// the frequencies of a transform are its own
+		first.getFreqencies()[0] = 0;
+		assertEquals(110, second.getFreqencies()[0], 0);
+	}
+	
+	@Test
+	public void testCapacity(){
+		int capacity = ConstantQKernel.getCapacity();
+		try{
+			ConstantQKernel.clear();
+			ConstantQKernel.setCapacity(1);
+			ConstantQKernel first = ConstantQKernel.getKernel(44100, 110, 3520, 12, 0.001f, 1);
+			ConstantQKernel.getKernel(44100, 220, 3520, 12, 0.001f, 1);
+			assertEquals(1, ConstantQKernel.size());
+			assertNotSame(first, ConstantQKernel.getKernel(44100, 110, 3520, 12, 0.001f, 1));
+		}finally{
+			ConstantQKernel.setCapacity(capacity);
+		}
+	}
+	
+	@Test
+	public void testSinePeak(){
+		ConstantQ constantQ = new ConstantQ(44100, 110, 3520, 12);
+		float[] buffer = new float[constantQ.getFFTlength()];
+		for(int i = 0 ; i < buffer.length ; i++){
+			buffer[i] = (float) Math.sin(2 * Math.PI * 440 * i / 44100.0);
+		}
+		constantQ.calculateMagnitudes(buffer);
+		float[] magnitudes = constantQ.getMagnitudes();
+		int peak = 0;
+		for(int i = 1 ; i < magnitudes.length ; i++){
+			if(magnitudes[i] > magnitudes[peak]){
+				peak = i;
+			}
+		}
+		// two octaves above 110 Hz
+		assertEquals(24, peak);
+	}
+	
+	@Test
+	public void testMultipleFrames(){
+		ConstantQ constantQ = new ConstantQ(44100, 110, 3520, 12);
+		int length = constantQ.getFFTlength();
+		int bins = constantQ.getNumberOfOutputBands();
+		Random random = new Random(0);
+		float[] samples = new float[length * 3];
+		for(int i = 0 ; i < samples.length ; i++){
+			samples[i] = (float) random.nextGaussian();
+		}
+		float[] copy = samples.clone();
+		int offset = 13;
+		int stride = 1000;
+		// two blocks of four and three single frames
+		int frames = 11;
+		float[] output = new float[frames * bins];
+		constantQ.calculateMagnitudes(samples, offset, stride, frames, output);
+		assertArrayEquals(copy, samples, 0);
+		
+		for(int frame = 0 ; frame < frames ; frame++){
+			float[] buffer = Arrays.copyOfRange(samples, offset + frame * stride, offset + frame * stride + length);
+			constantQ.calculateMagnitudes(buffer);
+			float[] expected = constantQ.getMagnitudes();
+			assertArrayEquals("frame " + frame, expected, Arrays.copyOfRange(output, frame * bins, (frame + 1) * bins), 0);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testFramesMustFit(){
+		ConstantQ constantQ = new ConstantQ(44100, 110, 3520, 12);
+		int length = constantQ.getFFTlength();
+		constantQ.calculateMagnitudes(new float[length * 2], 1, length, 2, new float[2 * constantQ.getNumberOfOutputBands()]);
+	}
+}
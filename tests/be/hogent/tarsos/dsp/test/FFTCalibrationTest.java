@@ -0,0 +1,157 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.util.ConcurrencyUtils;
+import be.hogent.tarsos.dsp.util.FFTCalibration;
+import be.hogent.tarsos.dsp.util.FFTCalibration.Calibration;
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+
+public class FFTCalibrationTest {
+	
+	@Test
+	public void testMeasureRestoresSettings(){
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		int two = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+		int four = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+		Calibration calibration = FFTCalibration.measure(4096);
+		assertEquals(threads, ConcurrencyUtils.getNumberOfThreads());
+		assertEquals(two, ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads());
+		assertEquals(four, ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads());
+		assertTrue("No more threads than processors", calibration.getNumberOfThreads() <= Math.max(1, ConcurrencyUtils.getNumberOfProcessors()));
+		if(calibration.getNumberOfThreads() == 1){
+			assertEquals(Integer.MAX_VALUE, calibration.getTwoThreadsFrom());
+		}
+	}
+	
+	@Test
+	public void testStoredCalibrationIsReused() throws IOException{
+		File file = File.createTempFile("fft-calibration", ".properties");
+		assertTrue(file.delete());
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		int two = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+		int four = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+		try{
+			assertNull(Calibration.load(file));
+			Calibration measured = FFTCalibration.calibrate(file);
+			assertTrue(file.isFile());
+			assertEquals(measured.getNumberOfThreads(), ConcurrencyUtils.getNumberOfThreads());
+			Calibration stored = Calibration.load(file);
+			assertNotNull(stored);
+			assertEquals(measured.getTwoThreadsFrom(), stored.getTwoThreadsFrom());
+			assertEquals(measured.getFourThreadsFrom(), stored.getFourThreadsFrom());
+			
+			// A calibration of another machine is ignored.
+			Properties properties = new Properties();
+			properties.setProperty("processors", String.valueOf(ConcurrencyUtils.getNumberOfProcessors() + 1));
+			properties.setProperty("os.arch", System.getProperty("os.arch"));
+			properties.setProperty("java.vm.name", System.getProperty("java.vm.name"));
+			properties.setProperty("threadsBeginN_1D_FFT_2Threads", "1024");
+			properties.setProperty("threadsBeginN_1D_FFT_4Threads", "4096");
+			FileOutputStream out = new FileOutputStream(file);
+			properties.store(out, null);
+			out.close();
+			assertNull(Calibration.load(file));
+		}finally{
+			file.delete();
+			ConcurrencyUtils.setNumberOfThreads(threads);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(two);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(four);
+		}
+	}
+	
+	/**
+	 * Counts the tasks of parallel transforms.
+	 */
+	private static int parallelTasks(FloatFFT fft, boolean complex){
+		final AtomicInteger tasks = new AtomicInteger();
+		Executor executor = ConcurrencyUtils.getExecutor();
+		ConcurrencyUtils.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.incrementAndGet();
+				command.run();
+			}
+		});
+		try{
+			float[] data = new float[8192];
+			if(complex){
+				fft.complexForward(data);
+			}else{
+				fft.realForward(data);
+			}
+		}finally{
+			ConcurrencyUtils.setExecutor(executor);
+		}
+		return tasks.get();
+	}
+	
+	@Test
+	public void testSplitPointsApplyToTheFloatArrayLength(){
+		int threads = ConcurrencyUtils.getNumberOfThreads();
+		int two = ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads();
+		int four = ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads();
+		try{
+			ConcurrencyUtils.setNumberOfThreads(2);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(4095);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+			// 4096 floats: 4096 real samples or 2048 complex values.
+			assertTrue(parallelTasks(new FloatFFT(4096), false) > 0);
+			assertTrue(parallelTasks(new FloatFFT(2048), true) > 0);
+			assertEquals(0, parallelTasks(new FloatFFT(2048), false));
+			assertEquals(0, parallelTasks(new FloatFFT(1024), true));
+		}finally{
+			ConcurrencyUtils.setNumberOfThreads(threads);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(two);
+			ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(four);
+		}
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testParallelRegionsCanNotBeCalibrated(){
+		ConcurrencyUtils.enterParallelRegion();
+		try{
+			FFTCalibration.measure(4096);
+		}finally{
+			ConcurrencyUtils.exitParallelRegion();
+		}
+	}
+}
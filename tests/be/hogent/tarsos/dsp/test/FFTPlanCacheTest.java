@@ -0,0 +1,200 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.util.fft.FFT;
+import be.hogent.tarsos.dsp.util.fft.FFTPlanCache;
+import be.hogent.tarsos.dsp.util.fft.FloatFFT;
+import be.hogent.tarsos.dsp.util.fft.GaussWindow;
+import be.hogent.tarsos.dsp.util.fft.HammingWindow;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
+
+public class FFTPlanCacheTest {
+	
+	/**
+	 * A power of two, a size for the mixed radix transform and one for the
+	 * Bluestein transform.
+	 */
+	private static final int[] SIZES = {1024, 1000, 422};
+	
+	private static float[] noise(int length, long seed){
+		Random random = new Random(seed);
+		float[] samples = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			samples[i] = (float) (random.nextDouble() * 2 - 1);
+		}
+		return samples;
+	}
+	
+	@Test
+	public void testPlansAreShared(){
+		FFTPlanCache.Plan hamming = FFTPlanCache.getPlan(2048, new HammingWindow());
+		assertSame(hamming, FFTPlanCache.getPlan(2048, new HammingWindow()));
+		FFTPlanCache.Plan hann = FFTPlanCache.getPlan(2048, new HannWindow());
+		assertNotSame(hamming, hann);
+		assertSame("Plans of the same size share the transform", hamming.getTransform(), hann.getTransform());
+		assertSame(hamming.getTransform(), FFTPlanCache.getTransform(2048));
+		assertNotSame("Window parameters are part of the key", FFTPlanCache.getPlan(2048, new GaussWindow(0.25)), FFTPlanCache.getPlan(2048, new GaussWindow(0.5)));
+	}
+	
+	/**
+	 * A window with a parameter that does not override equals.
+	 */
+	private static class TukeyWindow extends WindowFunction {
+		private final double alpha;
+		
+		TukeyWindow(double alpha){
+			this.alpha = alpha;
+		}
+		
+		@Override
+		protected float value(int length, int index) {
+			double edge = alpha * (length - 1) / 2;
+			double distance = Math.min(index, length - 1 - index);
+			return distance >= edge ? 1f : (float) (0.5 * (1 - Math.cos(Math.PI * distance / edge)));
+		}
+	}
+	
+	@Test
+	public void testUnknownWindowsAreNotShared(){
+		TukeyWindow narrow = new TukeyWindow(0.1);
+		TukeyWindow wide = new TukeyWindow(0.9);
+		assertNotEquals(narrow, wide);
+		assertNotEquals(narrow, new TukeyWindow(0.1));
+		assertEquals(narrow, narrow);
+		assertEquals(new HannWindow(), new HannWindow());
+		assertNotEquals(new HannWindow(), new HammingWindow());
+		
+		float[] data = new float[256];
+		Arrays.fill(data, 1f);
+		FFTPlanCache.Plan narrowPlan = FFTPlanCache.getPlan(256, narrow);
+		FFTPlanCache.Plan widePlan = FFTPlanCache.getPlan(256, wide);
+		assertNotSame(narrowPlan, widePlan);
+		assertSame(narrowPlan, FFTPlanCache.getPlan(256, narrow));
+		float[] expected = data.clone();
+		wide.apply(expected);
+		widePlan.applyWindow(data);
+		assertArrayEquals(expected, data, 0);
+	}
+	
+	@Test
+	public void testWindowedTransformUnchanged(){
+		for(int size : SIZES){
+			float[] expected = noise(size, size);
+			float[] actual = expected.clone();
+			new HammingWindow().apply(expected);
+			new FloatFFT(size).realForward(expected);
+			new FFT(size, new HammingWindow()).forwardTransform(actual);
+			assertArrayEquals("Size " + size, expected, actual, 0);
+		}
+	}
+	
+	@Test
+	public void testReusedScratchGivesTheSameResult(){
+		for(int size : SIZES){
+			FloatFFT cached = FFTPlanCache.getTransform(size);
+			for(int i = 0 ; i < 3 ; i++){
+				float[] expected = noise(2 * size, i);
+				float[] actual = expected.clone();
+				FloatFFT fresh = new FloatFFT(size);
+				fresh.complexForward(expected);
+				cached.complexForward(actual);
+				assertArrayEquals("Complex, size " + size, expected, actual, 0);
+				fresh.realForward(expected);
+				cached.realForward(actual);
+				assertArrayEquals("Real, size " + size, expected, actual, 0);
+				fresh.realInverse(expected, true);
+				cached.realInverse(actual, true);
+				assertArrayEquals("Inverse, size " + size, expected, actual, 0);
+			}
+		}
+	}
+	
+	@Test
+	public void testConcurrentUse() throws InterruptedException{
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[4];
+		for(int t = 0 ; t < threads.length ; t++){
+			final long seed = t;
+			threads[t] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try{
+						for(int i = 0 ; i < 50 ; i++){
+							for(int size : SIZES){
+								float[] expected = noise(size, seed * 1000 + i);
+								float[] actual = expected.clone();
+								new FloatFFT(size).realForward(expected);
+								new FFT(size).forwardTransform(actual);
+								assertArrayEquals(expected, actual, 0);
+							}
+						}
+					}catch(Throwable e){
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		if(failure.get() != null){
+			throw new AssertionError(failure.get());
+		}
+	}
+	
+	@Test
+	public void testCapacity(){
+		int capacity = FFTPlanCache.getCapacity();
+		try{
+			FFTPlanCache.setCapacity(2);
+			FFTPlanCache.getPlan(64, null);
+			FFTPlanCache.getPlan(128, null);
+			FFTPlanCache.getPlan(256, null);
+			assertEquals(2, FFTPlanCache.size());
+			FFT fft = new FFT(64);
+			float[] data = noise(64, 1);
+			fft.forwardTransform(data);
+		}finally{
+			FFTPlanCache.setCapacity(capacity);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.io.FeatureFileWriter;
+import be.hogent.tarsos.dsp.mfcc.FeatureContext;
+import be.hogent.tarsos.dsp.mfcc.FeatureContextHandler;
+import be.hogent.tarsos.dsp.mfcc.MFCC;
+
+public class FeatureContextTest {
+	
+	/**
+	 * Collects copies of the emitted frames.
+	 */
+	private static class FrameCollector implements FeatureContextHandler{
+		final List<float[]> frames = new ArrayList<float[]>();
+		final List<Double> timeStamps = new ArrayList<Double>();
+		@Override
+		public void handleFeatures(float[] features, double timeStamp) {
+			frames.add(features.clone());
+			timeStamps.add(timeStamp);
+		}
+	}
+	
+	@Test
+	public void testDeltasOfRamp(){
+		FrameCollector collector = new FrameCollector();
+		FeatureContext context = new FeatureContext(2, 0, 2, 2, 0, null, collector);
+		assertEquals(6, context.getOutputDimensions());
+		assertEquals(4, context.getLatency());
+		for(int i = 0 ; i < 20 ; i++){
+			context.addFrame(new float[]{i, -3 * i}, 0, i);
+		}
+		assertEquals(16, collector.frames.size());
+		context.flush();
+		assertEquals(20, collector.frames.size());
+		for(int i = 4 ; i < 16 ; i++){
+			float[] frame = collector.frames.get(i);
+			assertArrayEquals(new float[]{i, -3 * i, 1, -3, 0, 0}, frame, 1e-5f);
+			assertEquals(i, collector.timeStamps.get(i), 0);
+		}
+	}
+	
+	@Test
+	public void testEqualsOfflineCalculation(){
+		int dimensions = 3;
+		int frameCount = 50;
+		int contextFrames = 1;
+		int window = 2;
+		Random random = new Random(1);
+		float[][] input = new float[frameCount][dimensions];
+		for(float[] frame : input){
+			for(int i = 0 ; i < dimensions ; i++){
+				frame[i] = (float) random.nextGaussian();
+			}
+		}
+		float[][] deltas = deltas(input, window);
+		float[][] deltaDeltas = deltas(deltas, window);
+		
+		FrameCollector collector = new FrameCollector();
+		FeatureContext context = new FeatureContext(dimensions, contextFrames, window, 2, 0, null, collector);
+		for(int i = 0 ; i < frameCount ; i++){
+			context.addFrame(input[i], 0, i);
+		}
+		context.processingFinished();
+		assertEquals(frameCount, collector.frames.size());
+		for(int t = 0 ; t < frameCount ; t++){
+			float[] expected = new float[context.getOutputDimensions()];
+			int index = 0;
+			for(int c = t - contextFrames ; c <= t + contextFrames ; c++){
+				for(int i = 0 ; i < dimensions ; i++){
+					expected[index++] = input[clamp(c, frameCount)][i];
+				}
+			}
+			for(int i = 0 ; i < dimensions ; i++){
+				expected[index++] = deltas[t][i];
+			}
+			for(int i = 0 ; i < dimensions ; i++){
+				expected[index++] = deltaDeltas[t][i];
+			}
+			assertArrayEquals("Frame " + t, expected, collector.frames.get(t), 1e-5f);
+		}
+	}
+	
+	@Test
+	public void testNormalizationIsScaleInvariant(){
+		FrameCollector original = new FrameCollector();
+		FrameCollector scaled = new FrameCollector();
+		FeatureContext first = new FeatureContext(2, 0, 1, 1, 100, null, original);
+		FeatureContext second = new FeatureContext(2, 0, 1, 1, 100, null, scaled);
+		Random random = new Random(2);
+		for(int i = 0 ; i < 1000 ; i++){
+			float value = (float) random.nextGaussian();
+			first.addFrame(new float[]{value, 1}, 0, i);
+			second.addFrame(new float[]{3 * value + 5, 7}, 0, i);
+		}
+		double sum = 0;
+		double squares = 0;
+		for(int i = 0 ; i < original.frames.size() ; i++){
+			assertArrayEquals(original.frames.get(i), scaled.frames.get(i), 1e-3f);
+			// a constant dimension is normalized to zero
+			assertEquals(0, original.frames.get(i)[1], 0);
+			if(i >= 500){
+				sum += original.frames.get(i)[0];
+				squares += original.frames.get(i)[0] * original.frames.get(i)[0];
+			}
+		}
+		assertEquals(0, sum / 500, 0.2);
+		assertEquals(1, squares / 500, 0.3);
+	}
+	
+	@Test
+	public void testMFCCDeltas(){
+		final int sampleRate = 44100;
+		float[] audio = new float[sampleRate / 2];
+		for(int i = 0 ; i < audio.length ; i++){
+			audio[i] = (float) Math.sin(2 * Math.PI * 440 * i * (1 + i / (double) audio.length) / sampleRate);
+		}
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, sampleRate, 1024, 512);
+		MFCC mfcc = new MFCC(1024, sampleRate, 13, 30, 100, 8000);
+		final FrameCollector collector = new FrameCollector();
+		final int[] buffers = new int[1];
+		dispatcher.addAudioProcessor(mfcc);
+		dispatcher.addAudioProcessor(new FeatureContext(13, 2, 2, 2, 50, FeatureFileWriter.mfcc(mfcc), new FeatureContextHandler() {
+			@Override
+			public void handleFeatures(float[] features, double timeStamp) {
+				assertEquals(13 * 7, features.length);
+				assertEquals(collector.frames.size() * 512 / (double) sampleRate, timeStamp, 1e-6);
+				collector.handleFeatures(features, timeStamp);
+			}
+		}));
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				buffers[0]++;
+				return true;
+			}
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		assertEquals(buffers[0], collector.frames.size());
+	}
+	
+	private static int clamp(int frame, int frameCount){
+		return Math.max(0, Math.min(frameCount - 1, frame));
+	}
+	
+	private static float[][] deltas(float[][] frames, int window){
+		float[][] deltas = new float[frames.length][frames[0].length];
+		float denominator = 0;
+		for(int n = 1 ; n <= window ; n++){
+			denominator += 2 * n * n;
+		}
+		for(int t = 0 ; t < frames.length ; t++){
+			for(int i = 0 ; i < frames[t].length ; i++){
+				float sum = 0;
+				for(int n = 1 ; n <= window ; n++){
+					sum += n * (frames[clamp(t + n, frames.length)][i] - frames[clamp(t - n, frames.length)][i]);
+				}
+				deltas[t][i] = sum / denominator;
+			}
+		}
+		return deltas;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.io.FeatureFileReader;
+import be.hogent.tarsos.dsp.io.FeatureFileWriter;
+import be.hogent.tarsos.dsp.mfcc.MFCC;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+public class FeatureFileTest {
+	
+	private static File temporaryFile() throws IOException{
+		File file = File.createTempFile("features", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException{
+		File file = temporaryFile();
+		int dimensions = 7;
+		// more than fits in the write buffer
+		int frames = 5000;
+		FeatureFileWriter writer = new FeatureFileWriter(file, "test features", 100, dimensions);
+		float[] values = new float[dimensions];
+		for(int i = 0 ; i < frames ; i++){
+			for(int j = 0 ; j < dimensions ; j++){
+				values[j] = i * 10 + j;
+			}
+			writer.write(values, 0);
+		}
+		writer.close();
+		writer.close();
+		
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			assertEquals("test features", reader.getFeatureType());
+			assertEquals(100, reader.getFrameRate(), 0);
+			assertEquals(dimensions, reader.getDimensions());
+			assertEquals(frames, reader.getFrameCount());
+			FloatBuffer range = reader.getFrames(1234, 3);
+			assertEquals(3 * dimensions, range.remaining());
+			for(int i = 0 ; i < 3 ; i++){
+				for(int j = 0 ; j < dimensions ; j++){
+					assertEquals((1234 + i) * 10 + j, range.get(i * dimensions + j), 0);
+				}
+			}
+			assertTrue(range.isReadOnly());
+			float[] frame = new float[dimensions + 1];
+			reader.getFrame(frames - 1, frame, 1);
+			assertEquals((frames - 1) * 10, frame[1], 0);
+			assertEquals((frames - 1) * 10 + dimensions - 1, frame[dimensions], 0);
+			assertEquals(0, reader.getFrames(frames, 0).remaining());
+		}finally{
+			reader.close();
+		}
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRangeOutsideFile() throws IOException{
+		File file = temporaryFile();
+		FeatureFileWriter writer = new FeatureFileWriter(file, "test", 100, 2);
+		writer.write(new float[]{1, 2}, 0);
+		writer.close();
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			reader.getFrames(0, 2);
+		}finally{
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void testUnclosedFile() throws IOException{
+		File file = temporaryFile();
+		FeatureFileWriter writer = new FeatureFileWriter(file, "test", 100, 3);
+		for(int i = 0 ; i < 10 ; i++){
+			writer.write(new float[]{i, i, i}, 0);
+		}
+		writer.flush();
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			assertEquals(10, reader.getFrameCount());
+			assertEquals(9, reader.getFrames(9, 1).get(2), 0);
+		}finally{
+			reader.close();
+			writer.close();
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void testNotAFeatureFile() throws IOException{
+		File file = temporaryFile();
+		RandomAccessFile other = new RandomAccessFile(file, "rw");
+		other.write(new byte[64]);
+		other.close();
+		new FeatureFileReader(file).close();
+	}
+	
+	@Test
+	public void testMFCCFrames() throws IOException{
+		final int sampleRate = 44100;
+		final int bufferSize = 1024;
+		final int overlap = 512;
+		float[] audio = new float[sampleRate];
+		for(int i = 0 ; i < audio.length ; i++){
+			audio[i] = (float) Math.sin(2 * Math.PI * 440 * i / sampleRate);
+		}
+		final MFCC mfcc = new MFCC(bufferSize, sampleRate, 20, 30, 100, 8000);
+		final List<float[]> expected = new ArrayList<float[]>();
+		File file = temporaryFile();
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, sampleRate, bufferSize, overlap);
+		dispatcher.addAudioProcessor(mfcc);
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				expected.add(mfcc.getMFCC());
+				return true;
+			}
+			@Override
+			public void processingFinished() {
+			}
+		});
+		float frameRate = sampleRate / (float) (bufferSize - overlap);
+		dispatcher.addAudioProcessor(new FeatureFileWriter(file, "mfcc", frameRate, 20, FeatureFileWriter.mfcc(mfcc)));
+		dispatcher.run();
+		
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			assertEquals(expected.size(), reader.getFrameCount());
+			FloatBuffer frames = reader.getFrames(0, expected.size());
+			float[] frame = new float[20];
+			for(float[] coefficients : expected){
+				frames.get(frame);
+				assertArrayEquals(coefficients, frame, 0);
+			}
+		}finally{
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void testPitchFrames() throws IOException{
+		final int sampleRate = 44100;
+		float[] audio = new float[sampleRate / 2];
+		for(int i = 0 ; i < audio.length ; i++){
+			audio[i] = (float) Math.sin(2 * Math.PI * 220 * i / sampleRate);
+		}
+		File file = temporaryFile();
+		FeatureFileWriter writer = new FeatureFileWriter(file, "pitch", sampleRate / 1024f, 2);
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, sampleRate, 1024, 0);
+		dispatcher.addAudioProcessor(new PitchProcessor(PitchEstimationAlgorithm.YIN, sampleRate, 1024, writer.pitchHandler()));
+		dispatcher.addAudioProcessor(writer);
+		dispatcher.run();
+		
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			assertEquals(writer.getFrameCount(), reader.getFrameCount());
+			assertTrue(reader.getFrameCount() > 10);
+			assertEquals(220, reader.getFrames(5, 1).get(0), 2);
+		}finally{
+			reader.close();
+		}
+	}
+}
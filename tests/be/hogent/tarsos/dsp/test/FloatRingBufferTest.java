@@ -0,0 +1,185 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.util.FloatRingBuffer;
+import be.hogent.tarsos.dsp.util.FloatRingBuffer.OverflowPolicy;
+
+public class FloatRingBufferTest {
+	
+	private static float[] ramp(int from, int length){
+		float[] samples = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			samples[i] = from + i;
+		}
+		return samples;
+	}
+	
+	private static void assertRamp(float[] samples, long from){
+		for(int i = 0 ; i < samples.length ; i++){
+			assertEquals("Sample " + i, from + i, samples[i], 0);
+		}
+	}
+	
+	@Test
+	public void testWrapAround() throws InterruptedException{
+		FloatRingBuffer ring = new FloatRingBuffer(6, OverflowPolicy.BLOCK);
+		assertEquals("Capacity is rounded up to a power of two", 8, ring.getCapacity());
+		float[] window = new float[5];
+		for(int i = 0 ; i < 10 ; i++){
+			assertEquals(5, ring.write(ramp(i * 5, 5), 0, 5));
+			assertEquals(i * 5, ring.read(window, 0, 5));
+			assertRamp(window, i * 5);
+		}
+		assertEquals(0, ring.getAvailable());
+		assertEquals(0, ring.getDroppedSamples());
+	}
+	
+	@Test
+	public void testDropOldest() throws InterruptedException{
+		FloatRingBuffer ring = new FloatRingBuffer(8, OverflowPolicy.DROP_OLDEST);
+		ring.write(ramp(0, 6), 0, 6);
+		assertEquals(6, ring.write(ramp(6, 6), 0, 6));
+		assertEquals(1, ring.getOverflows());
+		assertEquals(4, ring.getDroppedSamples());
+		float[] window = new float[8];
+		assertEquals("The read skips the dropped samples", 4, ring.read(window, 0, 8));
+		assertRamp(window, 4);
+	}
+	
+	@Test
+	public void testDropNewest() throws InterruptedException{
+		FloatRingBuffer ring = new FloatRingBuffer(8, OverflowPolicy.DROP_NEWEST);
+		ring.write(ramp(0, 6), 0, 6);
+		assertEquals("Only the samples that fit are written", 2, ring.write(ramp(6, 6), 0, 6));
+		assertEquals(1, ring.getOverflows());
+		assertEquals(4, ring.getDroppedSamples());
+		float[] window = new float[8];
+		assertEquals(0, ring.read(window, 0, 8));
+		assertRamp(window, 0);
+	}
+	
+	@Test
+	public void testCloseReleasesConsumer() throws InterruptedException{
+		FloatRingBuffer ring = new FloatRingBuffer(8, OverflowPolicy.BLOCK);
+		ring.write(ramp(0, 3), 0, 3);
+		ring.close();
+		float[] window = new float[4];
+		assertEquals("An incomplete buffer is not returned", -1, ring.read(window, 0, 4));
+		assertEquals("Writes after closing are ignored", 0, ring.write(window, 0, 4));
+	}
+	
+	/**
+	 * A blocking producer and a consumer on different threads, with chunk sizes
+	 * that do not line up: every sample arrives, in order.
+	 */
+	@Test
+	public void testBlockingTransfer() throws InterruptedException{
+		final FloatRingBuffer ring = new FloatRingBuffer(1024, OverflowPolicy.BLOCK);
+		final int total = 1 << 20;
+		final int chunk = 100;
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				float[] samples = new float[chunk];
+				try {
+					for(int written = 0 ; written < total ; written += chunk){
+						for(int i = 0 ; i < chunk ; i++){
+							samples[i] = written + i;
+						}
+						ring.write(samples, 0, chunk);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					ring.close();
+				}
+			}
+		});
+		producer.start();
+		float[] window = new float[256];
+		long expected = 0;
+		long position;
+		while((position = ring.read(window, 0, window.length)) != -1){
+			assertEquals(expected, position);
+			assertRamp(window, position);
+			expected += window.length;
+		}
+		producer.join();
+		assertEquals("All complete windows are read", total / window.length * window.length, expected);
+		assertEquals(0, ring.getDroppedSamples());
+	}
+	
+	/**
+	 * A producer that never waits and a slow consumer: samples get dropped, but
+	 * a window is never torn by samples overwritten while it is copied.
+	 */
+	@Test
+	public void testDropOldestNeverTearsWindows() throws InterruptedException{
+		final FloatRingBuffer ring = new FloatRingBuffer(512, OverflowPolicy.DROP_OLDEST);
+		final int total = 1 << 22;
+		final int chunk = 64;
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				float[] samples = new float[chunk];
+				try {
+					for(int written = 0 ; written < total ; written += chunk){
+						for(int i = 0 ; i < chunk ; i++){
+							samples[i] = written + i;
+						}
+						ring.write(samples, 0, chunk);
+					}
+				} catch (Throwable e) {
+					failure.set(e);
+				} finally {
+					ring.close();
+				}
+			}
+		});
+		producer.start();
+		float[] window = new float[400];
+		long previous = -window.length;
+		long position;
+		while((position = ring.read(window, 0, window.length)) != -1){
+			assertTrue("Positions only move forward", position >= previous + window.length);
+			assertRamp(window, position);
+			previous = position;
+		}
+		producer.join();
+		assertEquals(null, failure.get());
+		assertTrue("The slow consumer should have caused drops", ring.getDroppedSamples() > 0);
+	}
+}
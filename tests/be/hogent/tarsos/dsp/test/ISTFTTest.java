@@ -0,0 +1,213 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.stft.ISTFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTFrame;
+import be.hogent.tarsos.dsp.stft.STFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTProcessor.Representation;
+import be.hogent.tarsos.dsp.stft.SpectrumEditor;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+import be.hogent.tarsos.dsp.util.fft.WindowFunction;
+
+public class ISTFTTest {
+	
+	private static final int SAMPLE_RATE = 44100;
+	
+	private static float[] noise(int length){
+		float[] audio = new float[length];
+		Random random = new Random(0);
+		for(int i = 0 ; i < length ; i++){
+			audio[i] = (float) (0.1 * random.nextGaussian());
+		}
+		return audio;
+	}
+	
+	private static float[] sines(int length, double... frequencies){
+		float[] audio = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			for(double frequency : frequencies){
+				audio[i] += (float) (0.3 * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+			}
+		}
+		return audio;
+	}
+	
+	/**
+	 * Runs the audio through an STFT and an inverse STFT and returns the new
+	 * samples of each buffer after the inverse STFT.
+	 */
+	private static float[] resynthesize(float[] audio, int size, int hopSize, WindowFunction analysisWindow,
+			WindowFunction synthesisWindow, SpectrumEditor editor, boolean zeroPad){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, SAMPLE_RATE, size, size - hopSize);
+		dispatcher.setZeroPad(zeroPad);
+		STFTProcessor stft = new STFTProcessor(size, analysisWindow, Representation.COMPLEX);
+		dispatcher.addAudioProcessor(stft);
+		dispatcher.addAudioProcessor(new ISTFTProcessor(stft, hopSize, synthesisWindow, editor));
+		final float[] output = new float[audio.length + size];
+		final int[] written = new int[1];
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				float[] buffer = audioEvent.getFloatBuffer();
+				int overlap = audioEvent.getOverlap();
+				int length = Math.min(buffer.length - overlap, output.length - written[0]);
+				System.arraycopy(buffer, overlap, output, written[0], length);
+				written[0] += length;
+				return true;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return output;
+	}
+	
+	private static void assertDelayed(float[] expected, float[] output, int latency, int from, int to, float delta){
+		for(int i = from ; i < to ; i++){
+			assertEquals("Sample " + i, expected[i], output[i + latency], delta);
+		}
+	}
+	
+	@Test
+	public void testIdentityReconstructsDelayedInput(){
+		float[] audio = noise(20000);
+		int size = 1024;
+		int[] hopSizes = {512, 256, 128};
+		// The first samples are only covered by the rising edge of the first
+		// window and fade in.
+		for(int hopSize : hopSizes){
+			float[] output = resynthesize(audio, size, hopSize, new HannWindow(), new HannWindow(), null, false);
+			assertDelayed(audio, output, size - hopSize, 128, 18000, 1e-4f);
+		}
+	}
+	
+	@Test
+	public void testWindowsThatDoNotAddUpToAConstant(){
+		float[] audio = noise(20000);
+		int size = 512;
+		// Hann at a third of the size and no window at all.
+		float[] output = resynthesize(audio, size, 170, new HannWindow(), null, null, false);
+		assertDelayed(audio, output, size - 170, 64, 18000, 1e-4f);
+		output = resynthesize(audio, size, 200, null, null, null, false);
+		assertDelayed(audio, output, size - 200, 0, 18000, 1e-4f);
+	}
+	
+	@Test
+	public void testZeroPaddedStream(){
+		float[] audio = noise(20000);
+		int size = 1024;
+		int hopSize = 256;
+		float[] output = resynthesize(audio, size, hopSize, new HannWindow(), new HannWindow(), null, true);
+		assertDelayed(audio, output, size - hopSize, 64, 18000, 1e-4f);
+	}
+	
+	@Test
+	public void testEditorRemovesTone(){
+		int size = 2048;
+		int hopSize = 512;
+		float[] audio = sines(44100, 440, 5000);
+		float[] expected = sines(44100, 440);
+		final int[] frames = new int[1];
+		float[] output = resynthesize(audio, size, hopSize, new HannWindow(), new HannWindow(), new SpectrumEditor() {
+			@Override
+			public void editSpectrum(STFTFrame frame) {
+				float[] values = frame.getValues();
+				for(int bin = 0 ; bin < frame.getBinCount() ; bin++){
+					if(frame.binToHz(bin) > 2000){
+						values[2 * bin] = 0;
+						values[2 * bin + 1] = 0;
+					}
+				}
+				frames[0]++;
+			}
+		}, false);
+		assertTrue(frames[0] > 80);
+		assertDelayed(expected, output, size - hopSize, size, 40000, 2e-3f);
+	}
+	
+	@Test
+	public void testDispatcherBufferIsNotModified(){
+		float[] audio = noise(8192);
+		final float[][] dispatched = new float[1][];
+		final float[][] stftInput = new float[1][];
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, SAMPLE_RATE, 1024, 512);
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				stftInput[0] = audioEvent.getFloatBuffer().clone();
+				dispatched[0] = audioEvent.getFloatBuffer();
+				return true;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		STFTProcessor stft = new STFTProcessor(1024, new HannWindow(), Representation.COMPLEX);
+		dispatcher.addAudioProcessor(stft);
+		dispatcher.addAudioProcessor(new ISTFTProcessor(stft, 512, new HannWindow(), null));
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				assertTrue(audioEvent.getFloatBuffer() != dispatched[0]);
+				for(int i = 0 ; i < stftInput[0].length ; i++){
+					assertEquals(stftInput[0][i], dispatched[0][i], 0f);
+				}
+				return true;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRequiresComplexFrames(){
+		new ISTFTProcessor(new STFTProcessor(1024, new HannWindow(), Representation.POWER), 256, new HannWindow(), null);
+	}
+	
+	@Test
+	public void testLatency(){
+		STFTProcessor stft = new STFTProcessor(1024, new HannWindow(), Representation.COMPLEX);
+		assertEquals(768, new ISTFTProcessor(stft, 256, new HannWindow(), null).getLatency());
+	}
+}
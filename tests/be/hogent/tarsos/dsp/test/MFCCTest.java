@@ -25,14 +25,21 @@
 */
 package be.hogent.tarsos.dsp.test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.junit.Test;
 
 import be.hogent.tarsos.dsp.AudioDispatcher;
 import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
 import be.hogent.tarsos.dsp.AudioProcessor;
 import be.hogent.tarsos.dsp.mfcc.MFCC;
+import be.hogent.tarsos.dsp.util.fft.HammingWindow;
 
 public class MFCCTest {
 	
@@ -61,4 +68,66 @@ public class MFCCTest {
 		dispatcher.run();
 	}
 
+	@Test
+	public void testProcessEqualsSteps(){
+		int sampleRate = 44100;
+		int bufferSize = 1024;
+		MFCC mfcc = new MFCC(bufferSize, sampleRate, 40, 50, 300, 3000);
+		MFCC defaults = new MFCC(bufferSize, sampleRate);
+		Random random = new Random(0);
+		float[] buffer = new float[bufferSize];
+		for(int frame = 0 ; frame < 10 ; frame++){
+			for(int i = 0 ; i < bufferSize ; i++){
+				buffer[i] = (float) (0.5 * Math.sin(2 * Math.PI * 110 * (frame + 1) * i / sampleRate) + 0.1 * random.nextGaussian());
+			}
+			float[] copy = buffer.clone();
+			assertProcessEqualsSteps(mfcc, buffer, sampleRate);
+			assertProcessEqualsSteps(defaults, buffer, sampleRate);
+			assertArrayEquals(copy, buffer, 0);
+		}
+	}
+	
+	@Test
+	public void testAttachedSpectrum(){
+		int sampleRate = 44100;
+		int bufferSize = 1024;
+		MFCC mfcc = new MFCC(bufferSize, sampleRate, 40, 50, 300, 3000);
+		float[] buffer = new float[bufferSize];
+		for(int i = 0 ; i < bufferSize ; i++){
+			buffer[i] = (float) Math.sin(2 * Math.PI * 440 * i / sampleRate);
+		}
+		AudioEvent event = new AudioEvent(new AudioFormat(sampleRate, 16, 1, true, false), -1);
+		event.setFloatBuffer(buffer);
+		mfcc.process(event);
+		float[] expected = mfcc.getMFCC();
+		event.setFloatBuffer(buffer);
+		event.attachSpectrum(bufferSize, new HammingWindow());
+		mfcc.process(event);
+		float[] actual = new float[expected.length];
+		mfcc.getMFCC(actual);
+		assertArrayEquals(expected, actual, 0);
+	}
+	
+	@Test
+	public void testCoefficientsBeforeFirstBuffer(){
+		MFCC mfcc = new MFCC(1024, 44100, 40, 50, 300, 3000);
+		assertArrayEquals(new float[40], mfcc.getMFCC(), 0);
+		float[] target = new float[40];
+		mfcc.getMFCC(target);
+		assertArrayEquals(new float[40], target, 0);
+	}
+	
+	private static void assertProcessEqualsSteps(MFCC mfcc, float[] buffer, int sampleRate){
+		float[] magnitudes = mfcc.magnitudeSpectrum(buffer.clone());
+		float[] expected = mfcc.cepCoefficients(mfcc.nonLinearTransformation(mfcc.melFilter(magnitudes, mfcc.getCenterFrequencies())));
+		AudioEvent event = new AudioEvent(new AudioFormat(sampleRate, 16, 1, true, false), -1);
+		event.setFloatBuffer(buffer);
+		mfcc.process(event);
+		float[] actual = mfcc.getMFCC();
+		assertEquals(expected.length, actual.length);
+		for(int i = 0 ; i < expected.length ; i++){
+			assertEquals("Coefficient " + i, expected[i], actual[i], 1e-5 * (1 + Math.abs(expected[i])));
+		}
+	}
+
 }
@@ -0,0 +1,200 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+
+public class MappedAudioFileTest {
+	
+	private static File resource(String name) throws URISyntaxException{
+		return new File(MappedAudioFileTest.class.getResource("/" + name).toURI());
+	}
+	
+	/**
+	 * Collects copies of all buffers and their time stamps.
+	 */
+	private static class BufferCollector implements AudioProcessor{
+		final List<float[]> buffers = new ArrayList<float[]>();
+		final List<Double> timeStamps = new ArrayList<Double>();
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			buffers.add(audioEvent.getFloatBuffer().clone());
+			timeStamps.add(audioEvent.getTimeStamp());
+			return true;
+		}
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	@Test
+	public void testSameBuffersAsStream() throws UnsupportedAudioFileException, IOException, URISyntaxException{
+		for(String name : new String[]{"NR45.wav","flute.novib.ff.A4.wav","piano.ff.C3.wav"}){
+			File file = resource(name);
+			BufferCollector streamed = new BufferCollector();
+			AudioDispatcher dispatcher = AudioDispatcher.fromFile(file, 2048, 1024);
+			dispatcher.addAudioProcessor(streamed);
+			dispatcher.run();
+			
+			BufferCollector mapped = new BufferCollector();
+			dispatcher = AudioDispatcher.fromMappedFile(file, 2048, 1024);
+			dispatcher.addAudioProcessor(mapped);
+			dispatcher.run();
+			
+			assertEquals(name, streamed.buffers.size(), mapped.buffers.size());
+			for(int i = 0 ; i < streamed.buffers.size() ; i++){
+				assertEquals(streamed.timeStamps.get(i), mapped.timeStamps.get(i), 0.0);
+				float[] expected = streamed.buffers.get(i);
+				float[] actual = mapped.buffers.get(i);
+				for(int j = 0 ; j < expected.length ; j++){
+					assertEquals(name + " buffer " + i, expected[j], actual[j], 0.0f);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testSameStereoBuffersAsStream() throws UnsupportedAudioFileException, IOException{
+		int frames = 10000;
+		byte[] bytes = new byte[frames * 4];
+		for(int i = 0 ; i < frames ; i++){
+			// A ramp on the left channel and a faster one on the right.
+			short left = (short) i;
+			short right = (short) (-2 * i);
+			bytes[4 * i] = (byte) left;
+			bytes[4 * i + 1] = (byte) (left >> 8);
+			bytes[4 * i + 2] = (byte) right;
+			bytes[4 * i + 3] = (byte) (right >> 8);
+		}
+		javax.sound.sampled.AudioFormat format = new javax.sound.sampled.AudioFormat(44100, 16, 2, true, false);
+		File file = File.createTempFile("stereo", ".wav");
+		try{
+			AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(bytes), format, frames), AudioFileFormat.Type.WAVE, file);
+			BufferCollector streamed = new BufferCollector();
+			AudioDispatcher dispatcher = AudioDispatcher.fromFile(file, 1024, 512);
+			dispatcher.addAudioProcessor(streamed);
+			dispatcher.run();
+			
+			BufferCollector mapped = new BufferCollector();
+			dispatcher = AudioDispatcher.fromMappedFile(file, 1024, 512);
+			dispatcher.addAudioProcessor(mapped);
+			dispatcher.run();
+			
+			// 1024 interleaved samples are 512 frames, the step is 256 frames
+			// and the last buffer is padded.
+			assertEquals(1 + (frames - 512 + 255) / 256, streamed.buffers.size());
+			assertEquals(streamed.buffers.size(), mapped.buffers.size());
+			for(int i = 0 ; i < streamed.buffers.size() ; i++){
+				assertEquals(i * 256 / 44100.0, streamed.timeStamps.get(i), 1e-6);
+				assertEquals(streamed.timeStamps.get(i), mapped.timeStamps.get(i), 0.0);
+				float[] expected = streamed.buffers.get(i);
+				float[] actual = mapped.buffers.get(i);
+				for(int j = 0 ; j < expected.length ; j++){
+					assertEquals("buffer " + i, expected[j], actual[j], 0.0f);
+				}
+				int frame = i * 256;
+				assertEquals(frame / 32768f, expected[0], 1e-4f);
+				assertEquals(-2 * frame / 32768f, expected[1], 1e-4f);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void testSeek() throws IOException, URISyntaxException{
+		MappedAudioFile file = new MappedAudioFile(resource("NR45.wav"));
+		float[] all = new float[(int) file.getFrameLength()];
+		assertEquals(all.length, file.read(all, 0, all.length));
+		assertEquals(-1, file.read(all, 0, 1));
+		
+		float[] part = new float[1000];
+		file.seek(12345);
+		assertEquals(part.length, file.read(part, 0, part.length));
+		assertEquals(12345 + part.length, file.getFramePosition());
+		for(int i = 0 ; i < part.length ; i++){
+			assertEquals(all[12345 + i], part[i], 0.0f);
+		}
+		file.close();
+	}
+	
+	@Test
+	public void testTruncatedFile() throws UnsupportedAudioFileException, IOException{
+		int frames = 10000;
+		javax.sound.sampled.AudioFormat format = new javax.sound.sampled.AudioFormat(44100, 16, 1, true, false);
+		File file = File.createTempFile("truncated", ".wav");
+		try{
+			AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(new byte[2 * frames]), format, frames), AudioFileFormat.Type.WAVE, file);
+			
+			AudioDispatcher complete = AudioDispatcher.fromMappedFile(file, 1024, 0);
+			complete.run();
+			assertNull(complete.getError());
+			
+			// Cut the data in half, the header still declares all frames.
+			RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+			truncated.setLength(file.length() - frames);
+			truncated.close();
+			
+			MappedAudioFile mapped = new MappedAudioFile(file);
+			assertEquals(frames / 2, mapped.getFrameLength());
+			assertEquals(frames, mapped.getDeclaredFrameLength());
+			mapped.close();
+			
+			AudioDispatcher dispatcher = AudioDispatcher.fromMappedFile(file, 1024, 0);
+			dispatcher.run();
+			assertTrue(dispatcher.getError() instanceof EOFException);
+			
+			dispatcher = AudioDispatcher.fromFile(file, 1024, 0);
+			dispatcher.run();
+			assertTrue(dispatcher.getError() instanceof EOFException);
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.MicrophoneAudioDispatcher;
+import be.hogent.tarsos.dsp.util.FloatRingBuffer;
+import be.hogent.tarsos.dsp.util.FloatRingBuffer.OverflowPolicy;
+
+public class MicrophoneAudioDispatcherTest {
+	
+	/**
+	 * Collects copies of all buffers and their time stamps.
+	 */
+	private static class BufferCollector implements AudioProcessor{
+		final List<float[]> buffers = new ArrayList<float[]>();
+		final List<Double> timeStamps = new ArrayList<Double>();
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			buffers.add(audioEvent.getFloatBuffer().clone());
+			timeStamps.add(audioEvent.getTimeStamp());
+			return true;
+		}
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	private static float[] ramp(int length){
+		float[] audio = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			audio[i] = (i % 1000) / 1000f - 0.5f;
+		}
+		return audio;
+	}
+	
+	private static void assertSameTimeStamps(boolean zeroPad) throws InterruptedException{
+		float[] audio = ramp(20000);
+		BufferCollector file = new BufferCollector();
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, 44100, 1024, 768);
+		dispatcher.setZeroPad(zeroPad);
+		dispatcher.addAudioProcessor(file);
+		dispatcher.run();
+		
+		FloatRingBuffer ring = new FloatRingBuffer(audio.length, OverflowPolicy.BLOCK);
+		ring.write(audio, 0, audio.length);
+		ring.close();
+		BufferCollector microphone = new BufferCollector();
+		MicrophoneAudioDispatcher ringDispatcher = new MicrophoneAudioDispatcher(ring, new AudioFormat(44100, 16, 1, true, false), 1024, 768);
+		ringDispatcher.setZeroPad(zeroPad);
+		ringDispatcher.addAudioProcessor(microphone);
+		ringDispatcher.run();
+		
+		// The ring does not pad the last buffer.
+		assertTrue(microphone.buffers.size() > 70);
+		assertTrue(microphone.buffers.size() <= file.buffers.size());
+		for(int i = 0 ; i < microphone.buffers.size() ; i++){
+			assertEquals("buffer " + i, file.timeStamps.get(i), microphone.timeStamps.get(i), 1e-9);
+			float[] expected = file.buffers.get(i);
+			float[] actual = microphone.buffers.get(i);
+			for(int j = 0 ; j < expected.length ; j++){
+				assertEquals("buffer " + i, expected[j], actual[j], 1e-4f);
+			}
+		}
+	}
+	
+	@Test
+	public void testTimeStampsAreWindowStarts() throws InterruptedException{
+		assertSameTimeStamps(false);
+	}
+	
+	@Test
+	public void testZeroPaddedTimeStamps() throws InterruptedException{
+		assertSameTimeStamps(true);
+	}
+}
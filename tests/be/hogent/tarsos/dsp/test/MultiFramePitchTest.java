@@ -0,0 +1,170 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+import be.hogent.tarsos.dsp.pitch.AMDF;
+import be.hogent.tarsos.dsp.pitch.FastYin;
+import be.hogent.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.hogent.tarsos.dsp.pitch.MultiFramePitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResults;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+
+public class MultiFramePitchTest {
+	
+	private static final String[] FILES = {"flute.novib.ff.A4.wav", "flute.novib.ff.B6.wav", "piano.ff.A4.wav", "piano.ff.C3.wav"};
+	
+	private static final int BUFFER_SIZE = 1024;
+	
+	/**
+	 * The test resources one after the other.
+	 */
+	private static float[] readFiles() throws IOException, URISyntaxException{
+		float[] samples = new float[0];
+		for(String name : FILES){
+			URL url = MultiFramePitchTest.class.getResource("/" + name);
+			MappedAudioFile file = new MappedAudioFile(new File(url.toURI()));
+			try{
+				int start = samples.length;
+				samples = Arrays.copyOf(samples, start + (int) file.getFrameLength());
+				file.read(samples, start, samples.length - start);
+			}finally{
+				file.close();
+			}
+		}
+		return samples;
+	}
+	
+	private static void assertSameResults(PitchDetector expected, float[][] frames, PitchDetectionResults actual){
+		assertEquals(frames.length, actual.size());
+		PitchDetectionResult copy = new PitchDetectionResult();
+		for(int i = 0 ; i < frames.length ; i++){
+			PitchDetectionResult single = expected.getPitch(frames[i]);
+			String message = "frame " + i;
+			assertEquals(message, single.isPitched(), actual.isPitched(i));
+			assertEquals(message, single.getPitch(), actual.getPitch(i), Math.abs(single.getPitch()) * 1e-4);
+			assertEquals(message, single.getProbability(), actual.getProbability(i), 1e-4);
+			assertEquals(message, actual.getPitch(i), actual.get(i, copy).getPitch(), 0);
+		}
+	}
+	
+	/**
+	 * Frames with the given stride, the last frame is left out to get an odd
+	 * number of frames.
+	 */
+	private static float[][] frames(float[] samples, int offset, int stride){
+		float[][] frames = new float[(samples.length - offset - BUFFER_SIZE) / stride][];
+		if(frames.length % 2 == 0){
+			frames = Arrays.copyOf(frames, frames.length - 1);
+		}
+		for(int i = 0 ; i < frames.length ; i++){
+			frames[i] = Arrays.copyOfRange(samples, offset + i * stride, offset + i * stride + BUFFER_SIZE);
+		}
+		return frames;
+	}
+	
+	private static void check(PitchDetector single, MultiFramePitchDetector multi) throws IOException, URISyntaxException{
+		float[] samples = readFiles();
+		
+		float[][] frames = frames(samples, 0, BUFFER_SIZE);
+		assertSameResults(single, frames, multi.getPitch(frames, null));
+		
+		int offset = 100;
+		for(int stride : new int[]{BUFFER_SIZE + 37, BUFFER_SIZE / 2, 64}){
+			frames = frames(samples, offset, stride);
+			PitchDetectionResults results = multi.getPitch(samples, offset, stride, frames.length, null);
+			assertSameResults(single, frames, results);
+		}
+	}
+	
+	@Test
+	public void testFastYin() throws IOException, URISyntaxException{
+		check(new FastYin(44100, BUFFER_SIZE), new FastYin(44100, BUFFER_SIZE));
+	}
+	
+	@Test
+	public void testMcLeodPitchMethod() throws IOException, URISyntaxException{
+		check(new McLeodPitchMethod(44100, BUFFER_SIZE), new McLeodPitchMethod(44100, BUFFER_SIZE));
+		check(new McLeodPitchMethod(44100, BUFFER_SIZE), new McLeodPitchMethod(44100, BUFFER_SIZE, BUFFER_SIZE - 64, 0.97));
+	}
+	
+	@Test
+	public void testAMDF() throws IOException, URISyntaxException{
+		check(new AMDF(44100, BUFFER_SIZE), new AMDF(44100, BUFFER_SIZE));
+		check(new AMDF(44100, BUFFER_SIZE), new AMDF(44100, BUFFER_SIZE, BUFFER_SIZE - 64));
+	}
+	
+	@Test
+	public void testResultsAreReused(){
+		FastYin detector = new FastYin(44100, BUFFER_SIZE);
+		float[] samples = new float[BUFFER_SIZE * 4];
+		PitchDetectionResults results = new PitchDetectionResults(4);
+		assertSame(results, detector.getPitch(samples, 0, BUFFER_SIZE, 4, results));
+		assertSame(results, detector.getPitch(samples, 0, BUFFER_SIZE, 3, results));
+		assertEquals(3, results.size());
+		try{
+			results.getPitch(3);
+			fail("Only three frames in the block");
+		}catch(IndexOutOfBoundsException e){
+			// expected
+		}
+		PitchDetectionResults larger = detector.getPitch(new float[5][BUFFER_SIZE], results);
+		assertNotSame(results, larger);
+		assertEquals(5, larger.size());
+	}
+	
+	@Test
+	public void testFramesAreChecked(){
+		McLeodPitchMethod detector = new McLeodPitchMethod(44100, BUFFER_SIZE);
+		try{
+			detector.getPitch(new float[BUFFER_SIZE * 2], 1, BUFFER_SIZE, 2, null);
+			fail("The second frame does not fit");
+		}catch(IllegalArgumentException e){
+			// expected
+		}
+		try{
+			detector.getPitch(new float[][]{new float[BUFFER_SIZE], new float[BUFFER_SIZE / 2]}, null);
+			fail("The second frame is too short");
+		}catch(IllegalArgumentException e){
+			// expected
+		}
+	}
+}
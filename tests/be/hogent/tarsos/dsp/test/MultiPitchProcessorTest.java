@@ -0,0 +1,116 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.pitch.MultiPitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.MultiPitchProcessor;
+
+public class MultiPitchProcessorTest {
+	
+	private static final float SAMPLE_RATE = 44100;
+	
+	/**
+	 * Harmonic tones with six partials of decreasing amplitude.
+	 */
+	private static float[] chord(int length, double... frequencies){
+		float[] samples = new float[length];
+		for(double frequency : frequencies){
+			for(int h = 1 ; h <= 6 ; h++){
+				for(int i = 0 ; i < length ; i++){
+					samples[i] += (float) (0.2 / h * Math.sin(2 * Math.PI * frequency * h * i / SAMPLE_RATE + h));
+				}
+			}
+		}
+		return samples;
+	}
+	
+	private static MultiPitchDetectionResult detect(MultiPitchProcessor processor, double... frequencies){
+		AudioEvent event = new AudioEvent(new AudioFormat(SAMPLE_RATE, 16, 1, true, false), -1);
+		event.setFloatBuffer(chord(processor.getBufferSize(), frequencies));
+		processor.process(event);
+		return processor.getResult();
+	}
+	
+	/**
+	 * Checks that the detected pitches are the given frequencies, in any
+	 * order, within a quarter tone.
+	 */
+	private static void assertPitches(MultiPitchDetectionResult result, double... frequencies){
+		assertEquals(frequencies.length, result.getCount());
+		float[] detected = new float[result.getCount()];
+		for(int i = 0 ; i < detected.length ; i++){
+			detected[i] = result.getPitch(i);
+			if(i > 0){
+				assertTrue("Strongest first", result.getSalience(i) <= result.getSalience(i - 1));
+			}
+		}
+		Arrays.sort(detected);
+		double[] expected = frequencies.clone();
+		Arrays.sort(expected);
+		for(int i = 0 ; i < expected.length ; i++){
+			double cents = 1200 * Math.log(detected[i] / expected[i]) / Math.log(2);
+			assertEquals("Pitch " + detected[i] + " expected " + expected[i], 0, cents, 50);
+		}
+	}
+	
+	@Test
+	public void testSingleNote(){
+		MultiPitchProcessor processor = new MultiPitchProcessor(SAMPLE_RATE, 65.4f, 1046.5f, 12, 6, null);
+		assertPitches(detect(processor, 261.63), 261.63);
+		assertPitches(detect(processor, 110.0), 110.0);
+	}
+	
+	@Test
+	public void testChords(){
+		MultiPitchProcessor processor = new MultiPitchProcessor(SAMPLE_RATE, 65.4f, 1046.5f, 12, 6, null);
+		// C major
+		assertPitches(detect(processor, 261.63, 329.63, 392.0), 261.63, 329.63, 392.0);
+		// G7
+		assertPitches(detect(processor, 196.0, 246.94, 293.66, 349.23), 196.0, 246.94, 293.66, 349.23);
+	}
+	
+	@Test
+	public void testMaximumPitches(){
+		MultiPitchProcessor processor = new MultiPitchProcessor(SAMPLE_RATE, 65.4f, 1046.5f, 12, 2, null);
+		assertEquals(2, detect(processor, 196.0, 246.94, 293.66, 349.23).getCount());
+	}
+	
+	@Test
+	public void testSilence(){
+		MultiPitchProcessor processor = new MultiPitchProcessor(SAMPLE_RATE, 65.4f, 1046.5f, 12, 6, null);
+		assertEquals(0, detect(processor).getCount());
+	}
+}
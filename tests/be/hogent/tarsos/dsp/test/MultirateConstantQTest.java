@@ -0,0 +1,118 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.MultirateConstantQ;
+
+public class MultirateConstantQTest {
+	
+	private static final float SAMPLE_RATE = 44100;
+	
+	@Test
+	public void testLayout(){
+		ConstantQ constantQ = new ConstantQ(SAMPLE_RATE, 30, 11000, 12);
+		MultirateConstantQ multirate = new MultirateConstantQ(SAMPLE_RATE, 30, 11000, 12);
+		assertEquals(constantQ.getFFTlength(), multirate.getFFTlength());
+		assertEquals(constantQ.getNumberOfOutputBands(), multirate.getNumberOfOutputBands());
+		assertArrayEquals(constantQ.getFreqencies(), multirate.getFreqencies(), 0);
+		assertEquals(2 * multirate.getNumberOfOutputBands(), multirate.getCoefficients().length);
+	}
+	
+	@Test
+	public void testSinesAtBinFrequencies(){
+		ConstantQ constantQ = new ConstantQ(SAMPLE_RATE, 30, 11000, 12);
+		MultirateConstantQ multirate = new MultirateConstantQ(SAMPLE_RATE, 30, 11000, 12);
+		float[] frequencies = multirate.getFreqencies();
+		// one bin in each octave, in the bottom octave as well
+		for(int bin = 2 ; bin < frequencies.length ; bin += 12){
+			float[] buffer = sine(frequencies[bin], multirate.getFFTlength());
+			constantQ.calculateMagnitudes(buffer.clone());
+			multirate.calculateMagnitudes(buffer);
+			float[] expected = constantQ.getMagnitudes();
+			float[] actual = multirate.getMagnitudes();
+			assertEquals("Peak of bin " + bin, bin, peak(actual));
+			assertEquals("Magnitude of bin " + bin, expected[bin], actual[bin], 0.03 * expected[bin]);
+		}
+	}
+	
+	@Test
+	public void testNoise(){
+		ConstantQ constantQ = new ConstantQ(SAMPLE_RATE, 50, 4000, 36);
+		MultirateConstantQ multirate = new MultirateConstantQ(SAMPLE_RATE, 50, 4000, 36);
+		float[] buffer = new float[multirate.getFFTlength()];
+		Random random = new Random(0);
+		for(int i = 0 ; i < buffer.length ; i++){
+			buffer[i] = (float) random.nextGaussian();
+		}
+		constantQ.calculateMagnitudes(buffer.clone());
+		multirate.calculateMagnitudes(buffer);
+		float[] expected = constantQ.getMagnitudes();
+		float[] actual = multirate.getMagnitudes();
+		float maximum = expected[peak(expected)];
+		for(int i = 0 ; i < expected.length ; i++){
+			assertEquals("Bin " + i, expected[i], actual[i], 0.1 * maximum);
+		}
+	}
+	
+	@Test
+	public void testBufferIsNotModified(){
+		MultirateConstantQ multirate = new MultirateConstantQ(SAMPLE_RATE, 110, 3520, 12);
+		float[] buffer = sine(440, multirate.getFFTlength());
+		float[] copy = buffer.clone();
+		multirate.calculateMagnitudes(buffer);
+		float[] first = multirate.getMagnitudes().clone();
+		multirate.calculateMagnitudes(buffer);
+		assertArrayEquals(copy, buffer, 0);
+		assertArrayEquals(first, multirate.getMagnitudes(), 0);
+	}
+	
+	private static float[] sine(double frequency, int length){
+		float[] buffer = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			buffer[i] = (float) Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+		}
+		return buffer;
+	}
+	
+	private static int peak(float[] magnitudes){
+		int peak = 0;
+		for(int i = 1 ; i < magnitudes.length ; i++){
+			if(magnitudes[i] > magnitudes[peak]){
+				peak = i;
+			}
+		}
+		return peak;
+	}
+}
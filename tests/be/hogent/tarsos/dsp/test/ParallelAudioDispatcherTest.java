@@ -0,0 +1,119 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.ParallelAudioDispatcher;
+import be.hogent.tarsos.dsp.ParallelAudioDispatcher.ChainFactory;
+import be.hogent.tarsos.dsp.ParallelAudioDispatcher.Segment;
+import be.hogent.tarsos.dsp.onsets.OnsetHandler;
+import be.hogent.tarsos.dsp.onsets.PercussionOnsetDetector;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+public class ParallelAudioDispatcherTest {
+	
+	private static final int BUFFER_SIZE = 2048;
+	private static final int OVERLAP = 1024;
+	
+	private static File audioFile() throws URISyntaxException{
+		return new File(ParallelAudioDispatcherTest.class.getResource("/NR45.wav").toURI());
+	}
+	
+	/**
+	 * Adds a pitch detector and a percussion onset detector to a chain, the
+	 * results are stored as {time, pitch} and {time, -1}.
+	 */
+	private static void addProcessors(AudioDispatcher dispatcher, final List<double[]> results, final double timeOffset){
+		float sampleRate = dispatcher.getFormat().getSampleRate();
+		dispatcher.addAudioProcessor(new PitchProcessor(PitchEstimationAlgorithm.YIN, sampleRate, BUFFER_SIZE, new PitchDetectionHandler() {
+			@Override
+			public void handlePitch(PitchDetectionResult result, AudioEvent audioEvent) {
+				results.add(new double[]{audioEvent.getTimeStamp(), result.getPitch()});
+			}
+		}));
+		dispatcher.addAudioProcessor(new PercussionOnsetDetector(sampleRate, BUFFER_SIZE, new OnsetHandler() {
+			@Override
+			public void handleOnset(double time, double salience) {
+				results.add(new double[]{time + timeOffset, -1});
+			}
+		}, 80, 6));
+	}
+	
+	@Test
+	public void testEqualToSequentialRun() throws IOException, InterruptedException, URISyntaxException{
+		List<double[]> sequential = new ArrayList<double[]>();
+		AudioDispatcher dispatcher = AudioDispatcher.fromMappedFile(audioFile(), BUFFER_SIZE, OVERLAP);
+		addProcessors(dispatcher, sequential, 0);
+		dispatcher.run();
+		
+		int onsets = 0;
+		for(double[] result : sequential){
+			onsets += result[1] == -1 ? 1 : 0;
+		}
+		assertTrue("The test file should contain onsets", onsets > 0);
+		
+		for(int segments = 1 ; segments <= 7 ; segments += 3){
+			ParallelAudioDispatcher parallel = new ParallelAudioDispatcher(audioFile(), BUFFER_SIZE, OVERLAP, segments);
+			// the percussion onset detector remembers two buffers
+			parallel.setWarmUpBuffers(3);
+			List<double[]> merged = parallel.run(new ChainFactory<double[]>() {
+				@Override
+				public void createChain(AudioDispatcher dispatcher, final Segment<double[]> segment) {
+					final List<double[]> results = new ArrayList<double[]>() {
+						private static final long serialVersionUID = 1L;
+						@Override
+						public boolean add(double[] result) {
+							segment.add(result);
+							return true;
+						}
+					};
+					addProcessors(dispatcher, results, segment.getTimeOffset());
+				}
+			});
+			assertEquals("Number of results with " + segments + " segments", sequential.size(), merged.size());
+			for(int i = 0 ; i < sequential.size() ; i++){
+				// onset times are calculated in single precision
+				assertEquals(sequential.get(i)[0], merged.get(i)[0], 1e-5);
+				assertEquals(sequential.get(i)[1], merged.get(i)[1], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.metrics.HistogramSnapshot;
+import be.hogent.tarsos.dsp.metrics.LatencyHistogram;
+import be.hogent.tarsos.dsp.metrics.MetricsJmx;
+import be.hogent.tarsos.dsp.metrics.MetricsSnapshot;
+import be.hogent.tarsos.dsp.metrics.ProcessingMetrics;
+
+public class ProcessingMetricsTest {
+	
+	/**
+	 * Keeps the processor busy for a while without sleeping.
+	 */
+	private static final class BusyProcessor implements AudioProcessor {
+		private final long nanos;
+		
+		private BusyProcessor(long nanos){
+			this.nanos = nanos;
+		}
+		
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			long end = System.nanoTime() + nanos;
+			while(System.nanoTime() < end){
+				// spin
+			}
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	private static final class IdleProcessor implements AudioProcessor {
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			return true;
+		}
+		
+		@Override
+		public void processingFinished() {
+		}
+	}
+	
+	@Test
+	public void testHistogramPercentiles(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1 ; i <= 10000 ; i++){
+			histogram.record(i);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(10000, snapshot.getCount());
+		assertEquals(1, snapshot.getMin());
+		assertEquals(10000, snapshot.getMax());
+		assertEquals(5000.5, snapshot.getMean(), 0.0001);
+		// buckets are precise to about 3%
+		assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 * 0.035);
+		assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 * 0.035);
+		assertEquals(10000, snapshot.getValueAtPercentile(100));
+		
+		histogram.reset();
+		assertEquals(0, histogram.snapshot().getCount());
+		assertEquals(0, histogram.snapshot().getValueAtPercentile(50));
+	}
+	
+	@Test
+	public void testDisabledByDefault(){
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(new float[4096], 44100, 1024, 0);
+		assertNull(dispatcher.getMetrics());
+	}
+	
+	@Test
+	public void testChainMetrics(){
+		// two seconds of audio, the last buffer is incomplete
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(new float[88200], 44100, 1024, 0);
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		dispatcher.setMetrics(metrics);
+		dispatcher.addAudioProcessor(new BusyProcessor(100000));
+		dispatcher.addAudioProcessor(new IdleProcessor());
+		dispatcher.run();
+		
+		MetricsSnapshot snapshot = metrics.snapshot();
+		int expectedBuffers = (88200 + 1023) / 1024;
+		assertEquals(expectedBuffers, snapshot.getBuffers());
+		assertEquals(2.0, snapshot.getAudioSeconds(), 0.0001);
+		assertEquals("The last buffer is incomplete", 1, snapshot.getUnderruns());
+		assertEquals("100us for 23ms of audio is fast enough", 0, snapshot.getOverruns());
+		assertTrue(snapshot.getRealtimeFactor() > 1);
+		assertEquals(2, snapshot.getProcessors().size());
+		assertEquals("BusyProcessor", snapshot.getProcessors().get(0).getName());
+		HistogramSnapshot busy = snapshot.getProcessors().get(0).getTime();
+		HistogramSnapshot idle = snapshot.getProcessors().get(1).getTime();
+		assertEquals(expectedBuffers, busy.getCount());
+		assertEquals(expectedBuffers, idle.getCount());
+		assertTrue(busy.getMin() >= 100000);
+		assertTrue(busy.getTotal() > idle.getTotal());
+		assertTrue(snapshot.getLatency().getMin() >= 100000);
+		assertEquals(expectedBuffers - 1, snapshot.getReadTime().getCount());
+		String report = snapshot.toString();
+		assertTrue(report, report.contains("BusyProcessor") && report.contains("IdleProcessor"));
+	}
+	
+	@Test
+	public void testOverruns(){
+		// 10 buffers of 256 samples, about 5.8ms each
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(new float[2560], 44100, 256, 0);
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		dispatcher.setMetrics(metrics);
+		dispatcher.addAudioProcessor(new BusyProcessor(8000000));
+		dispatcher.run();
+		MetricsSnapshot snapshot = metrics.snapshot();
+		assertEquals(10, snapshot.getOverruns());
+		assertTrue(snapshot.getRealtimeFactor() < 1);
+		
+		metrics.reset();
+		dispatcher = AudioDispatcher.fromFloatArray(new float[2560], 44100, 256, 0);
+		dispatcher.setMetrics(metrics);
+		dispatcher.addAudioProcessor(new IdleProcessor());
+		dispatcher.run();
+		assertEquals(0, metrics.snapshot().getOverruns());
+		assertEquals(10, metrics.snapshot().getBuffers());
+	}
+	
+	@Test
+	public void testJmxExport() throws JMException{
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(new float[4096], 44100, 1024, 0);
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		dispatcher.setMetrics(metrics);
+		dispatcher.addAudioProcessor(new IdleProcessor());
+		dispatcher.run();
+		ObjectName name = MetricsJmx.register(metrics, "test dispatcher");
+		try{
+			Object buffers = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Buffers");
+			assertEquals(4L, buffers);
+			String[] processors = (String[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Processors");
+			assertEquals(1, processors.length);
+			assertTrue(processors[0].startsWith("IdleProcessor"));
+		}finally{
+			MetricsJmx.unregister(name);
+		}
+	}
+}
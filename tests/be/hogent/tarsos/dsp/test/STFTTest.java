@@ -0,0 +1,189 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.io.FeatureFileReader;
+import be.hogent.tarsos.dsp.stft.STFTFileSink;
+import be.hogent.tarsos.dsp.stft.STFTFrame;
+import be.hogent.tarsos.dsp.stft.STFTMatrix;
+import be.hogent.tarsos.dsp.stft.STFTProcessor;
+import be.hogent.tarsos.dsp.stft.STFTProcessor.Representation;
+import be.hogent.tarsos.dsp.stft.SpectrogramTileRenderer;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+
+public class STFTTest {
+	
+	private static float[] sine(double frequency, int length, float sampleRate){
+		float[] buffer = new float[length];
+		for(int i = 0 ; i < length ; i++){
+			buffer[i] = (float) Math.sin(2 * Math.PI * frequency * i / sampleRate);
+		}
+		return buffer;
+	}
+	
+	private static STFTFrame transform(float[] buffer, Representation representation){
+		STFTProcessor processor = new STFTProcessor(buffer.length, null, representation);
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		event.setFloatBuffer(buffer);
+		processor.process(event);
+		return processor.getFrame();
+	}
+	
+	@Test
+	public void testEqualsDiscreteFourierTransform(){
+		int size = 64;
+		float[] buffer = new float[size];
+		Random random = new Random(0);
+		for(int i = 0 ; i < size ; i++){
+			buffer[i] = (float) random.nextGaussian();
+		}
+		float[] complex = transform(buffer, Representation.COMPLEX).getValues();
+		float[] magnitudes = transform(buffer, Representation.MAGNITUDE).getValues();
+		float[] powers = transform(buffer, Representation.POWER).getValues();
+		float[] logPowers = transform(buffer, Representation.LOG_POWER).getValues();
+		assertEquals(2 * (size / 2 + 1), complex.length);
+		assertEquals(size / 2 + 1, magnitudes.length);
+		for(int k = 0 ; k <= size / 2 ; k++){
+			double real = 0;
+			double imaginary = 0;
+			for(int n = 0 ; n < size ; n++){
+				real += buffer[n] * Math.cos(2 * Math.PI * k * n / size);
+				imaginary -= buffer[n] * Math.sin(2 * Math.PI * k * n / size);
+			}
+			double power = real * real + imaginary * imaginary;
+			assertEquals("Real part of bin " + k, real, complex[2 * k], 1e-3);
+			assertEquals("Imaginary part of bin " + k, imaginary, complex[2 * k + 1], 1e-3);
+			assertEquals("Magnitude of bin " + k, Math.sqrt(power), magnitudes[k], 1e-3);
+			assertEquals("Power of bin " + k, power, powers[k], 1e-3 * (1 + power));
+			assertEquals("Log power of bin " + k, 10 * Math.log10(power), logPowers[k], 1e-2);
+		}
+	}
+	
+	@Test
+	public void testSilence(){
+		float[] logPowers = transform(new float[32], Representation.LOG_POWER).getValues();
+		for(float value : logPowers){
+			assertEquals(STFTProcessor.LOG_POWER_FLOOR, value, 0);
+		}
+	}
+	
+	@Test
+	public void testAttachesSpectrum(){
+		HannWindow window = new HannWindow();
+		STFTProcessor processor = new STFTProcessor(1024, window, Representation.MAGNITUDE);
+		AudioEvent event = new AudioEvent(new AudioFormat(44100, 16, 1, true, false), -1);
+		event.setFloatBuffer(sine(440, 1024, 44100));
+		processor.process(event);
+		assertNotNull(event.getSpectrum(1024, window));
+		assertEquals(1024, processor.getFrame().getSize());
+		assertEquals(513, processor.getFrameLength());
+		assertEquals(44100 / 2.0, processor.getFrame().binToHz(512), 1e-9);
+	}
+	
+	@Test
+	public void testSinks() throws IOException{
+		final int sampleRate = 44100;
+		final int size = 512;
+		final int overlap = 256;
+		float[] audio = sine(sampleRate / 8.0, sampleRate, sampleRate);
+		File file = File.createTempFile("stft", ".bin");
+		file.deleteOnExit();
+		final List<int[]> tiles = new ArrayList<int[]>();
+		final List<Integer> tileColumns = new ArrayList<Integer>();
+		STFTMatrix matrix = new STFTMatrix(10);
+		float frameRate = sampleRate / (float) (size - overlap);
+		STFTFileSink fileSink = new STFTFileSink(file, size, Representation.LOG_POWER, frameRate);
+		SpectrogramTileRenderer renderer = new SpectrogramTileRenderer(20, 16, 4, -100, 60, new SpectrogramTileRenderer.TileHandler() {
+			@Override
+			public void handleTile(int[] pixels, int columns, double timeStamp) {
+				tiles.add(pixels.clone());
+				tileColumns.add(columns);
+			}
+		});
+		final STFTProcessor processor = new STFTProcessor(size, new HannWindow(), Representation.LOG_POWER, matrix, fileSink, renderer);
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(audio, sampleRate, size, overlap);
+		dispatcher.addAudioProcessor(processor);
+		dispatcher.run();
+		
+		int frames = matrix.getFrameCount();
+		assertTrue(frames > 100);
+		assertEquals(frames, fileSink.getFrameCount());
+		assertEquals(257, matrix.getFrameLength());
+		assertEquals((frames - 1) * (size - overlap) / (double) sampleRate, matrix.getTimeStamp(frames - 1), 1e-6);
+		// the peak is in the bin of an eighth of the sample rate
+		int peak = 0;
+		for(int bin = 0 ; bin < matrix.getFrameLength() ; bin++){
+			if(matrix.get(5, bin) > matrix.get(5, peak)){
+				peak = bin;
+			}
+		}
+		assertEquals(size / 8, peak);
+		
+		FeatureFileReader reader = new FeatureFileReader(file);
+		try{
+			assertEquals("stft-log_power", reader.getFeatureType());
+			assertEquals(frames, reader.getFrameCount());
+			float[] expected = new float[matrix.getFrameLength()];
+			float[] actual = new float[matrix.getFrameLength()];
+			matrix.getFrame(frames - 1, expected, 0);
+			FloatBuffer last = reader.getFrames(frames - 1, 1);
+			last.get(actual);
+			assertArrayEquals(expected, actual, 0);
+		}finally{
+			reader.close();
+		}
+		
+		int columns = (frames + 3) / 4;
+		assertEquals((columns + 19) / 20, tiles.size());
+		assertEquals(20, (int) tileColumns.get(0));
+		assertEquals(columns - 20 * (tiles.size() - 1), (int) tileColumns.get(tiles.size() - 1));
+		// an eighth of the sample rate is a quarter of the rows from the bottom
+		int[] tile = tiles.get(0);
+		int peakRow = 16 - 1 - 16 / 4;
+		int bright = tile[peakRow * 20 + 10] & 0xFF;
+		int dark = tile[2 * 20 + 10] & 0xFF;
+		assertTrue(bright + " should exceed " + dark, bright > 200 && dark < 100);
+		assertEquals(0xFF000000, tile[0] & 0xFF000000);
+	}
+}
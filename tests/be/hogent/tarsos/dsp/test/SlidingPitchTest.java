@@ -0,0 +1,138 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+import be.hogent.tarsos.dsp.pitch.AMDF;
+import be.hogent.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+import be.hogent.tarsos.dsp.pitch.Yin;
+
+public class SlidingPitchTest {
+	
+	private static final String[] FILES = {"flute.novib.ff.A4.wav", "flute.novib.ff.B6.wav", "piano.ff.A4.wav", "piano.ff.C3.wav"};
+	
+	private static float[] readFile(String name) throws IOException, URISyntaxException{
+		URL url = SlidingPitchTest.class.getResource("/" + name);
+		MappedAudioFile file = new MappedAudioFile(new File(url.toURI()));
+		try{
+			float[] samples = new float[(int) file.getFrameLength()];
+			file.read(samples, 0, samples.length);
+			return samples;
+		}finally{
+			file.close();
+		}
+	}
+	
+	/**
+	 * Compares the pitch of a sliding detector with the detector that
+	 * calculates every buffer from scratch. Every jump buffers the position
+	 * skips ahead, which the sliding detector should notice.
+	 * @return the number of compared buffers
+	 */
+	private static int compare(PitchDetector expected, PitchDetector actual, int bufferSize, int hop, int jump) throws IOException, URISyntaxException{
+		int buffers = 0;
+		for(String file : FILES){
+			float[] samples = readFile(file);
+			for(int start = 0 ; start + bufferSize <= samples.length ; start += hop){
+				if(jump > 0 && buffers % jump == jump - 1){
+					start += hop / 2 + 1;
+					if(start + bufferSize > samples.length){
+						break;
+					}
+				}
+				// a new array every time, like a dispatcher that shifts its buffer
+				float[] buffer = new float[bufferSize];
+				System.arraycopy(samples, start, buffer, 0, bufferSize);
+				PitchDetectionResult direct = expected.getPitch(buffer);
+				boolean pitched = direct.isPitched();
+				float pitch = direct.getPitch();
+				float probability = direct.getProbability();
+				PitchDetectionResult sliding = actual.getPitch(buffer);
+				String message = file + " at " + start;
+				assertEquals(message, pitched, sliding.isPitched());
+				assertEquals(message, pitch, sliding.getPitch(), Math.abs(pitch) * 1e-4);
+				assertEquals(message, probability, sliding.getProbability(), 1e-4);
+				buffers++;
+			}
+		}
+		return buffers;
+	}
+	
+	@Test
+	public void testSlidingYin() throws IOException, URISyntaxException{
+		assertTrue(compare(new Yin(44100, 2048), new Yin(44100, 2048, 2048 - 128, 0.20), 2048, 128, 0) > 0);
+		assertTrue(compare(new Yin(44100, 1024), new Yin(44100, 1024, 1024 - 64, 0.20), 1024, 64, 0) > 0);
+	}
+	
+	@Test
+	public void testSlidingMPM() throws IOException, URISyntaxException{
+		assertTrue(compare(new McLeodPitchMethod(44100, 2048), new McLeodPitchMethod(44100, 2048, 2048 - 128, 0.97), 2048, 128, 0) > 0);
+		assertTrue(compare(new McLeodPitchMethod(44100, 1024), new McLeodPitchMethod(44100, 1024, 1024 - 64, 0.97), 1024, 64, 0) > 0);
+	}
+	
+	@Test
+	public void testSlidingAMDF() throws IOException, URISyntaxException{
+		assertTrue(compare(new AMDF(44100, 1024), new AMDF(44100, 1024, 1024 - 128), 1024, 128, 0) > 0);
+	}
+	
+	@Test
+	public void testSlidingAMDFWithRange() throws IOException, URISyntaxException{
+		assertTrue(compare(new AMDF(44100, 1024, 200, 2000), new AMDF(44100, 1024, 1024 - 128, 200, 2000), 1024, 128, 0) > 0);
+	}
+	
+	@Test
+	public void testDiscontinuousBuffers() throws IOException, URISyntaxException{
+		assertTrue(compare(new Yin(44100, 2048), new Yin(44100, 2048, 2048 - 128, 0.20), 2048, 128, 7) > 0);
+		assertTrue(compare(new McLeodPitchMethod(44100, 2048), new McLeodPitchMethod(44100, 2048, 2048 - 128, 0.97), 2048, 128, 7) > 0);
+		assertTrue(compare(new AMDF(44100, 1024), new AMDF(44100, 1024, 1024 - 128), 1024, 128, 7) > 0);
+	}
+	
+	@Test
+	public void testLargeHop(){
+		// a hop of half the buffer is calculated directly
+		PitchDetector detector = PitchEstimationAlgorithm.YIN.getDetector(44100, 1024, 512);
+		float[] buffer = new float[1024];
+		for(int i = 0 ; i < buffer.length ; i++){
+			buffer[i] = (float) Math.sin(2 * Math.PI * 441 * i / 44100.0);
+		}
+		assertEquals(441, detector.getPitch(buffer).getPitch(), 1);
+		assertEquals(441, detector.getPitch(buffer).getPitch(), 1);
+	}
+}
@@ -0,0 +1,302 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.AudioDispatcher;
+import be.hogent.tarsos.dsp.AudioEvent;
+import be.hogent.tarsos.dsp.AudioFormat;
+import be.hogent.tarsos.dsp.AudioProcessor;
+import be.hogent.tarsos.dsp.ConstantQ;
+import be.hogent.tarsos.dsp.SpectrumProcessor;
+import be.hogent.tarsos.dsp.filters.HighPass;
+import be.hogent.tarsos.dsp.onsets.ComplexOnsetDetector;
+import be.hogent.tarsos.dsp.onsets.OnsetHandler;
+import be.hogent.tarsos.dsp.onsets.PercussionOnsetDetector;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor;
+import be.hogent.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+import be.hogent.tarsos.dsp.util.fft.HammingWindow;
+import be.hogent.tarsos.dsp.util.fft.HannWindow;
+import be.hogent.tarsos.dsp.util.fft.Spectrum;
+
+/**
+ * Spectral processors give the same results with and without a spectrum
+ * attached by a {@link SpectrumProcessor}.
+ */
+public class SpectrumProcessorTest {
+	
+	private static final int SAMPLE_RATE = 44100;
+	
+	/**
+	 * Tones with a noise burst at every change, so there are pitches and onsets,
+	 * on top of a low noise floor.
+	 */
+	private static float[] testSignal(){
+		Random random = new Random(42);
+		float[] samples = new float[SAMPLE_RATE * 3];
+		double[] frequencies = {220, 330, 440, 277, 523, 196};
+		int noteLength = samples.length / frequencies.length;
+		for(int i = 0 ; i < samples.length ; i++){
+			int note = i / noteLength;
+			int inNote = i % noteLength;
+			double tone = 0.4 * Math.sin(2 * Math.PI * frequencies[Math.min(note, frequencies.length - 1)] * i / SAMPLE_RATE);
+			double burst = inNote < 600 ? 0.8 * (random.nextDouble() - 0.5) : 0;
+			double floor = 0.001 * (random.nextDouble() - 0.5);
+			samples[i] = (float) (tone + burst + floor);
+		}
+		return samples;
+	}
+	
+	/**
+	 * Loud noise bursts on a low noise floor, for the percussion detector. The
+	 * bursts start at buffer boundaries when there is no overlap.
+	 */
+	private static float[] percussiveSignal(){
+		Random random = new Random(42);
+		float[] samples = new float[SAMPLE_RATE * 3];
+		for(int i = 0 ; i < samples.length ; i++){
+			double amplitude = i % 16384 < 2048 ? 0.9 : 0.001;
+			samples[i] = (float) (amplitude * (random.nextDouble() - 0.5));
+		}
+		return samples;
+	}
+	
+	private static List<Double> onsets(AudioProcessor detector, float[] signal, int bufferSize, int overlap, AudioProcessor spectrum){
+		final List<Double> onsets = new ArrayList<Double>();
+		OnsetHandler handler = new OnsetHandler() {
+			@Override
+			public void handleOnset(double time, double salience) {
+				onsets.add(time);
+				onsets.add(salience);
+			}
+		};
+		if(detector instanceof ComplexOnsetDetector){
+			((ComplexOnsetDetector) detector).setHandler(handler);
+		} else {
+			((PercussionOnsetDetector) detector).setHandler(handler);
+		}
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(signal, SAMPLE_RATE, bufferSize, overlap);
+		if(spectrum != null){
+			dispatcher.addAudioProcessor(spectrum);
+		}
+		dispatcher.addAudioProcessor(detector);
+		dispatcher.run();
+		return onsets;
+	}
+	
+	@Test
+	public void testComplexOnsetsUnchanged(){
+		List<Double> expected = onsets(new ComplexOnsetDetector(512), testSignal(), 512, 256, null);
+		List<Double> actual = onsets(new ComplexOnsetDetector(512), testSignal(), 512, 256, new SpectrumProcessor(512, new HannWindow()));
+		assertFalse("The test signal has onsets", expected.isEmpty());
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void testPercussionOnsetsUnchanged(){
+		List<Double> expected = onsets(new PercussionOnsetDetector(SAMPLE_RATE, 1024, 0, null), percussiveSignal(), 1024, 0, null);
+		List<Double> actual = onsets(new PercussionOnsetDetector(SAMPLE_RATE, 1024, 0, null), percussiveSignal(), 1024, 0, new SpectrumProcessor(512, null));
+		assertFalse("The test signal has onsets", expected.isEmpty());
+		assertEquals(expected, actual);
+	}
+	
+	private static List<float[]> constantQ(boolean shared){
+		return constantQ(shared, null);
+	}
+	
+	private static List<float[]> constantQ(boolean shared, AudioProcessor filter){
+		final ConstantQ constantQ = new ConstantQ(SAMPLE_RATE, 110, 3520, 12);
+		int size = constantQ.getFFTlength();
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, size, size / 2);
+		if(shared){
+			dispatcher.addAudioProcessor(new SpectrumProcessor(size, null));
+		}
+		if(filter != null){
+			dispatcher.addAudioProcessor(filter);
+		}
+		dispatcher.addAudioProcessor(constantQ);
+		final List<float[]> magnitudes = new ArrayList<float[]>();
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				magnitudes.add(constantQ.getMagnitudes().clone());
+				return true;
+			}
+			
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return magnitudes;
+	}
+	
+	@Test
+	public void testConstantQUnchanged(){
+		List<float[]> expected = constantQ(false);
+		List<float[]> actual = constantQ(true);
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0 ; i < expected.size() ; i++){
+			assertArrayEquals("Buffer " + i, expected.get(i), actual.get(i), 0);
+		}
+	}
+	
+	/**
+	 * A filter between the spectrum processor and the constant-Q transform
+	 * changes the samples in place, so the transform should not use the
+	 * spectrum of the unfiltered samples.
+	 */
+	@Test
+	public void testInPlaceProcessorDetachesSpectrum(){
+		List<float[]> expected = constantQ(false, new HighPass(1000, SAMPLE_RATE));
+		List<float[]> actual = constantQ(true, new HighPass(1000, SAMPLE_RATE));
+		List<float[]> unfiltered = constantQ(false);
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0 ; i < expected.size() ; i++){
+			assertArrayEquals("Buffer " + i, expected.get(i), actual.get(i), 0);
+		}
+		assertFalse("The filter changes the transform", expected.get(expected.size() / 2)[0] == unfiltered.get(expected.size() / 2)[0]);
+	}
+	
+	private static List<Float> pitches(boolean shared){
+		final List<Float> pitches = new ArrayList<Float>();
+		AudioDispatcher dispatcher = AudioDispatcher.fromFloatArray(testSignal(), SAMPLE_RATE, 2048, 1024);
+		if(shared){
+			dispatcher.addAudioProcessor(new SpectrumProcessor(2048, null));
+		}
+		dispatcher.addAudioProcessor(new PitchProcessor(PitchEstimationAlgorithm.FFT_YIN, SAMPLE_RATE, 2048, new PitchDetectionHandler() {
+			@Override
+			public void handlePitch(PitchDetectionResult pitchDetectionResult, AudioEvent audioEvent) {
+				pitches.add(pitchDetectionResult.getPitch());
+			}
+		}));
+		dispatcher.run();
+		return pitches;
+	}
+	
+	/**
+	 * The real FFT and the complex FFT round differently, so the pitches are
+	 * close but not identical, and a buffer right at the threshold can be
+	 * voiced in one run and unvoiced in the other.
+	 */
+	@Test
+	public void testFastYinUnchanged(){
+		List<Float> expected = pitches(false);
+		List<Float> actual = pitches(true);
+		assertEquals(expected.size(), actual.size());
+		int pitched = 0;
+		int voicingChanges = 0;
+		for(int i = 0 ; i < expected.size() ; i++){
+			if((expected.get(i) > 0) != (actual.get(i) > 0)){
+				voicingChanges++;
+			} else {
+				assertEquals("Buffer " + i, expected.get(i), actual.get(i), Math.abs(expected.get(i)) * 1e-3);
+			}
+			if(expected.get(i) > 0){
+				pitched++;
+			}
+		}
+		assertTrue("Most buffers are pitched", pitched > expected.size() / 2);
+		assertTrue("The voicing rarely changes", voicingChanges <= expected.size() / 50);
+	}
+	
+	@Test
+	public void testSpectrumIsDetachedFromNewBuffers(){
+		AudioEvent audioEvent = new AudioEvent(new AudioFormat(SAMPLE_RATE, 16, 1, true, false), -1);
+		audioEvent.setFloatBuffer(new float[1024]);
+		assertNull(audioEvent.getSpectrum(1024, new HammingWindow()));
+		Spectrum spectrum = audioEvent.attachSpectrum(1024, new HammingWindow());
+		assertSame("Windows are equal when they have the same shape", spectrum, audioEvent.getSpectrum(1024, new HammingWindow()));
+		assertNull("The window should match", audioEvent.getSpectrum(1024, new HannWindow()));
+		assertNull("The size should match", audioEvent.getSpectrum(512, new HammingWindow()));
+		
+		audioEvent.setFloatBuffer(new float[1024]);
+		assertNull("A new buffer detaches the spectrum", audioEvent.getSpectrum(1024, new HammingWindow()));
+		assertSame("The storage is reused", spectrum, audioEvent.attachSpectrum(1024, new HammingWindow()));
+		audioEvent.setBytesProcessed(2048);
+		assertNull("A new position detaches the spectrum", audioEvent.getSpectrum(1024, new HammingWindow()));
+		assertNotNull(audioEvent.attachSpectrum(512, null));
+		assertNotNull(audioEvent.getSpectrum(512, null));
+	}
+	
+	@Test
+	public void testAttachedSpectrumIsReused(){
+		AudioEvent audioEvent = new AudioEvent(new AudioFormat(SAMPLE_RATE, 16, 1, true, false), -1);
+		float[] buffer = new float[1024];
+		buffer[1] = 1;
+		audioEvent.setFloatBuffer(buffer);
+		Spectrum spectrum = audioEvent.attachSpectrum(1024, new HannWindow());
+		float[] magnitudes = spectrum.getMagnitudes().clone();
+		
+		// Without samplesChanged the attached spectrum is returned as is.
+		buffer[1] = 0;
+		assertSame(spectrum, audioEvent.attachSpectrum(1024, new HannWindow()));
+		assertArrayEquals("The spectrum is not calculated again", magnitudes, spectrum.getMagnitudes(), 0);
+		
+		audioEvent.samplesChanged();
+		assertNull("Changed samples detach the spectrum", audioEvent.getSpectrum(1024, new HannWindow()));
+		assertSame("The storage is reused", spectrum, audioEvent.attachSpectrum(1024, new HannWindow()));
+		assertArrayEquals("The spectrum of silence", new float[magnitudes.length], spectrum.getMagnitudes(), 0);
+	}
+	
+	/**
+	 * Bin 0 holds the real DC component, the Nyquist component in the packed
+	 * data does not change its phase.
+	 */
+	@Test
+	public void testPhaseOfDC(){
+		Spectrum spectrum = new Spectrum(8, null);
+		float[] samples = {-1, 1, -1, 1, -1, 1, -1, 1};
+		for(int i = 0 ; i < samples.length ; i++){
+			samples[i] -= 0.5f;
+		}
+		spectrum.compute(samples);
+		assertTrue("There is a Nyquist component", spectrum.getData()[1] != 0);
+		assertEquals(Math.PI, spectrum.getPhases()[0], 1e-6);
+		
+		for(int i = 0 ; i < samples.length ; i++){
+			samples[i] += 1;
+		}
+		spectrum.compute(samples);
+		assertEquals(0, spectrum.getPhases()[0], 0);
+	}
+}
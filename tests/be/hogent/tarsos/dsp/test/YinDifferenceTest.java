@@ -0,0 +1,104 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -----------------------------------------------------------
+*
+*  TarsosDSP is developed by Joren Six at 
+*  The School of Arts,
+*  University College Ghent,
+*  Hoogpoort 64, 9000 Ghent - Belgium
+*  
+* -----------------------------------------------------------
+*
+*  Info: http://tarsos.0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://tarsos.0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+package be.hogent.tarsos.dsp.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.junit.Test;
+
+import be.hogent.tarsos.dsp.io.MappedAudioFile;
+import be.hogent.tarsos.dsp.pitch.FastYin;
+import be.hogent.tarsos.dsp.pitch.PitchDetectionResult;
+import be.hogent.tarsos.dsp.pitch.PitchDetector;
+import be.hogent.tarsos.dsp.pitch.Yin;
+
+public class YinDifferenceTest {
+	
+	private static final String[] FILES = {"flute.novib.ff.A4.wav", "flute.novib.ff.B6.wav", "piano.ff.A4.wav", "piano.ff.C3.wav"};
+	
+	private static float[] readFile(String name) throws IOException, URISyntaxException{
+		URL url = YinDifferenceTest.class.getResource("/" + name);
+		MappedAudioFile file = new MappedAudioFile(new File(url.toURI()));
+		try{
+			float[] samples = new float[(int) file.getFrameLength()];
+			file.read(samples, 0, samples.length);
+			return samples;
+		}finally{
+			file.close();
+		}
+	}
+	
+	/**
+	 * Compares the pitch of a detector with the direct Yin implementation for
+	 * every half-overlapping buffer of the test resources.
+	 * @return the number of compared buffers
+	 */
+	private static int compare(PitchDetector expected, PitchDetector actual, int bufferSize) throws IOException, URISyntaxException{
+		int buffers = 0;
+		float[] buffer = new float[bufferSize];
+		for(String file : FILES){
+			float[] samples = readFile(file);
+			for(int start = 0 ; start + bufferSize <= samples.length ; start += bufferSize / 2){
+				System.arraycopy(samples, start, buffer, 0, bufferSize);
+				PitchDetectionResult direct = expected.getPitch(buffer);
+				boolean pitched = direct.isPitched();
+				float pitch = direct.getPitch();
+				float probability = direct.getProbability();
+				PitchDetectionResult fft = actual.getPitch(buffer);
+				String message = file + " at " + start;
+				assertEquals(message, pitched, fft.isPitched());
+				assertEquals(message, pitch, fft.getPitch(), Math.abs(pitch) * 1e-5);
+				assertEquals(message, probability, fft.getProbability(), 1e-5);
+				buffers++;
+			}
+		}
+		return buffers;
+	}
+	
+	@Test
+	public void testYinWithFFTDifference() throws IOException, URISyntaxException{
+		for(int bufferSize : new int[]{1024, 2048, 8192}){
+			int buffers = compare(new Yin(44100, bufferSize), new Yin(44100, bufferSize, 0.20, true), bufferSize);
+			assertTrue(buffers > 0);
+		}
+	}
+	
+	@Test
+	public void testFastYin() throws IOException, URISyntaxException{
+		for(int bufferSize : new int[]{1024, 2048, 8192}){
+			FastYin fastYin = new FastYin(44100, bufferSize);
+			int buffers = compare(new Yin(44100, bufferSize), fastYin, bufferSize);
+			assertTrue(buffers > 0);
+		}
+	}
+}